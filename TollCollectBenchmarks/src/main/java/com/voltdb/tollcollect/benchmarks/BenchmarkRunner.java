@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs every benchmark single threaded and with one thread per core, with the GC profiler reporting
+ * allocation rates, and writes the results of each run as JSON:
+ * <pre>
+ * java -jar TollCollectBenchmarks/target/benchmarks.jar [output directory] [benchmark regex]
+ * </pre>
+ * The output directory defaults to {@code jmh-results}, one {@code results-<threads>-threads.json} file is
+ * written per run so that results of different releases can be compared.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        File outputDirectory = new File(args.length > 0 ? args[0] : "jmh-results");
+        String include = args.length > 1 ? args[1] : BenchmarkRunner.class.getPackageName() + ".*Benchmark";
+
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new IllegalArgumentException("Unable to create " + outputDirectory);
+        }
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threadCounts = cores > 1 ? new int[]{1, cores} : new int[]{1};
+        for (int threads : threadCounts) {
+            File result = new File(outputDirectory, "results-" + threads + "-threads.json");
+
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(result.getPath())
+                    .build();
+
+            new Runner(options).run();
+            System.out.println("Results written to " + result);
+        }
+    }
+}
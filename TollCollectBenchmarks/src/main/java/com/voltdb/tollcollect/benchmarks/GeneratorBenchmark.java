@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.benchmarks;
+
+import com.voltdb.tollcollect.common.PlateNumbers;
+import com.voltdb.tollcollect.pipeline.PlateRecord;
+import com.voltdb.tollcollect.pipeline.PlateRecordGenerator;
+import com.voltdb.tollcollect.pipeline.ShardedPlateRecordSource;
+import com.voltdb.tollcollect.pipeline.TablePlateRecordGenerator;
+import com.voltdb.tollcollect.pipeline.WorkloadProfile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per second of the plate record generators feeding the pipeline source.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    private final PlateRecordGenerator plateRecordGenerator = new PlateRecordGenerator();
+    private final TablePlateRecordGenerator sharedTablePlateRecordGenerator = new TablePlateRecordGenerator();
+    private TablePlateRecordGenerator seededTablePlateRecordGenerator;
+    private TablePlateRecordGenerator profiledTablePlateRecordGenerator;
+
+    @Setup
+    public void setUp() {
+        // Seeded generators are single threaded, every benchmark thread gets its own
+        seededTablePlateRecordGenerator = new TablePlateRecordGenerator(ThreadLocalRandom.current().nextLong());
+        // Zipf plates out of 10 million, fleet mix and bursts at one location
+        profiledTablePlateRecordGenerator = new TablePlateRecordGenerator(
+                new PlateNumbers(10_000_000),
+                new WorkloadProfile(1.0, "fleet", "flat", 86400, "Infinity Bridge", 60, 10, 5),
+                ThreadLocalRandom.current().nextLong());
+    }
+
+    @Benchmark
+    public PlateRecord plateRecordGenerator() {
+        return plateRecordGenerator.generatePlateRecord();
+    }
+
+    @Benchmark
+    public PlateRecord tablePlateRecordGenerator() {
+        return sharedTablePlateRecordGenerator.generatePlateRecord();
+    }
+
+    @Benchmark
+    public PlateRecord seededTablePlateRecordGenerator() {
+        return seededTablePlateRecordGenerator.generatePlateRecord();
+    }
+
+    @Benchmark
+    public PlateRecord profiledTablePlateRecordGenerator() {
+        return profiledTablePlateRecordGenerator.generatePlateRecord();
+    }
+
+    @Benchmark
+    public PlateRecord shardedPlateRecordSource(ShardedSource sharded) {
+        return sharded.source.get();
+    }
+
+    /**
+     * One sharded source for all benchmark threads, each thread claims a shard. Unpaced, as the rate is measured.
+     */
+    @State(Scope.Benchmark)
+    public static class ShardedSource {
+        final ShardedPlateRecordSource source =
+                new ShardedPlateRecordSource(Runtime.getRuntime().availableProcessors(), 0, 42);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.benchmarks;
+
+import com.voltdb.tollcollect.pipeline.PlateRecord;
+import com.voltdb.tollcollect.pipeline.TablePlateRecordGenerator;
+import com.voltdb.tollcollect.pipeline.TollCollectStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The PlateRecord to ProcessPlate parameter mapping done by the pipeline for every record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordMappingBenchmark {
+
+    // Power of two so the index wraps with a mask
+    private static final int RECORD_COUNT = 1024;
+
+    private final PlateRecord[] records = new PlateRecord[RECORD_COUNT];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        TablePlateRecordGenerator generator = new TablePlateRecordGenerator(42);
+        for (int i = 0; i < RECORD_COUNT; i++) {
+            records[i] = generator.generatePlateRecord();
+        }
+    }
+
+    @Benchmark
+    public Object[] processPlateArguments() {
+        PlateRecord record = records[next++ & (RECORD_COUNT - 1)];
+        return TollCollectStream.processPlateArguments(record);
+    }
+}
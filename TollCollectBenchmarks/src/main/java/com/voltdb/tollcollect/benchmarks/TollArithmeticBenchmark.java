@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.benchmarks;
+
+import com.voltdb.tollcollect.procedures.TollMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The BigDecimal toll, fee and top-up arithmetic ProcessPlate and ChargeAccount do on the partition thread.
+ * Inputs use the fares and multipliers from csv/ with the 12 digit scale Volt DECIMAL columns come back with.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TollArithmeticBenchmark {
+
+    private static final int VOLT_DECIMAL_SCALE = 12;
+
+    // Power of two so the index wraps with a mask
+    private static final int SAMPLE_COUNT = 1024;
+
+    private static final String[] BASE_FARES = {"2.00", "3.00", "4.00"};
+    private static final String[] MULTIPLIERS = {"0.5", "1", "1.5", "2"};
+
+    private final BigDecimal[] baseFares = new BigDecimal[SAMPLE_COUNT];
+    private final BigDecimal[] multipliers = new BigDecimal[SAMPLE_COUNT];
+    private final BigDecimal[] balances = new BigDecimal[SAMPLE_COUNT];
+    private final boolean[] autoTopUps = new boolean[SAMPLE_COUNT];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            baseFares[i] = decimal(BASE_FARES[random.nextInt(BASE_FARES.length)]);
+            multipliers[i] = decimal(MULTIPLIERS[random.nextInt(MULTIPLIERS.length)]);
+            // Balances from 0.00 to 50.00, like csv/accounts.csv
+            balances[i] = decimal(BigDecimal.valueOf(random.nextInt(5001), 2).toPlainString());
+            autoTopUps[i] = random.nextBoolean();
+        }
+    }
+
+    private static BigDecimal decimal(String value) {
+        return new BigDecimal(value).setScale(VOLT_DECIMAL_SCALE);
+    }
+
+    @Benchmark
+    public void processPlate(Blackhole blackhole) {
+        int i = next++ & (SAMPLE_COUNT - 1);
+
+        BigDecimal tollAmount = TollMath.toll(baseFares[i], multipliers[i]);
+        blackhole.consume(tollAmount);
+        blackhole.consume(TollMath.unknownVehicleTotal(tollAmount));
+    }
+
+    @Benchmark
+    public void chargeAccount(Blackhole blackhole) {
+        int i = next++ & (SAMPLE_COUNT - 1);
+
+        BigDecimal tollAmount = TollMath.toll(baseFares[i], multipliers[i]);
+        BigDecimal projectedBalance = TollMath.projectedBalance(balances[i], tollAmount);
+        if (TollMath.needsTopUp(projectedBalance, autoTopUps[i])) {
+            blackhole.consume(TollMath.TOP_UP_AMOUNT);
+            blackhole.consume(tollAmount);
+        } else if (TollMath.isOverdrawn(projectedBalance, autoTopUps[i])) {
+            blackhole.consume(TollMath.overdrawnTotal(tollAmount));
+        } else {
+            blackhole.consume(tollAmount);
+        }
+    }
+}
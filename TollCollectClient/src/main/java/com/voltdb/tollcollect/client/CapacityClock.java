@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Time as seen by {@link CapacityFinder} and {@link SimulatedCapacityTarget}: the system clock, or a simulated one
+ * that lets tests run a whole capacity search without waiting for it.
+ */
+interface CapacityClock {
+
+    CapacityClock SYSTEM = new CapacityClock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public void parkUntil(long deadlineNanos) {
+            long wait;
+            while ((wait = deadlineNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+        }
+
+        @Override
+        public boolean tryAcquire(Semaphore permits, int count, long timeoutNanos) throws InterruptedException {
+            return permits.tryAcquire(count, timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayNanos) {
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(task);
+        }
+    };
+
+    long nanoTime();
+
+    /**
+     * Returns once the clock reached {@code deadlineNanos}.
+     */
+    void parkUntil(long deadlineNanos);
+
+    /**
+     * Takes {@code count} permits, waiting up to {@code timeoutNanos} for them to be released.
+     */
+    boolean tryAcquire(Semaphore permits, int count, long timeoutNanos) throws InterruptedException;
+
+    /**
+     * Runs {@code task} after {@code delayNanos}, without blocking the caller.
+     */
+    void schedule(Runnable task, long delayNanos);
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import com.voltdb.tollcollect.common.PlateNumbers;
+import com.voltdb.tollcollect.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the highest rate of vehicles a cluster sustains within a latency SLO.
+ * <p>
+ * The offered rate starts at {@code startRate} and goes up by {@code stepRate} every step. Vehicles are sent on
+ * a fixed schedule whatever the cluster does (open loop), so a saturated cluster shows as growing latency rather
+ * than a slower sender. ProcessPlate latency is measured from the time the vehicle was due to be sent, ChargeAccount
+ * latency from the time it was called. A step passes when, after its warmup:
+ * <ul>
+ *     <li>ProcessPlate and ChargeAccount p99 are within {@code sloP99Millis},</li>
+ *     <li>the ProcessPlate completions reach {@code minAchievedRatio} of the offered rate, and</li>
+ *     <li>at most {@code maxErrorRatio} of the calls failed.</li>
+ * </ul>
+ * The search stops at the first failing step or at {@code maxRate}. The capacity is the rate of the last passing
+ * step. The steps are written as JSON to {@code output}. With {@code baseline}, a previous output, the exit status
+ * is 2 when the capacity is more than {@code tolerance} below the baseline capacity:
+ * <pre>
+ * java -jar TollCollectClient-1.0-SNAPSHOT.jar capacity --servers=localhost:21212 --startRate=1000 --stepRate=1000 --sloP99Millis=50 --output=capacity.json --baseline=capacity-baseline.json
+ * </pre>
+ * {@code --servers=simulated} runs against {@link SimulatedCapacityTarget} with {@code simulatedTps} transactions
+ * per second instead of a cluster. Run it against a cluster without other load, with the pipeline stopped.
+ */
+public class CapacityFinder {
+
+    static final int REGRESSION_EXIT_STATUS = 2;
+
+    private static final Pattern BASELINE_CAPACITY = Pattern.compile("\"capacityRate\"\\s*:\\s*(\\d+)");
+
+    private final Settings settings;
+    private final CapacityClock clock;
+    private final SplittableRandom random;
+    private final PlateNumbers plates;
+
+    record Settings(String servers,
+                    int startRate,
+                    int stepRate,
+                    int maxRate,
+                    double stepSeconds,
+                    double warmupSeconds,
+                    double sloP99Millis,
+                    double minAchievedRatio,
+                    double maxErrorRatio,
+                    int maxInFlight) {
+    }
+
+    record StepResult(int offeredRate,
+                      double achievedRate,
+                      double processPlateP50Millis,
+                      double processPlateP99Millis,
+                      double chargeAccountP99Millis,
+                      long calls,
+                      long errors,
+                      long notSent,
+                      boolean drained,
+                      boolean passed) {
+    }
+
+    CapacityFinder(Settings settings, long seed) {
+        this(settings, seed, TollCollectLoadDriver.DEFAULT_PLATE_COUNT);
+    }
+
+    // Plates as generated by DatasetGenerator for plateCount plates, see PlateNumbers
+    CapacityFinder(Settings settings, long seed, int plateCount) {
+        this(settings, seed, plateCount, CapacityClock.SYSTEM);
+    }
+
+    CapacityFinder(Settings settings, long seed, int plateCount, CapacityClock clock) {
+        this.settings = settings;
+        this.clock = clock;
+        this.random = new SplittableRandom(seed);
+        this.plates = new PlateNumbers(plateCount);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = TollCollectLoadDriver.parseOptions(args);
+        Settings settings = new Settings(
+                options.getOrDefault("servers", "localhost:21212"),
+                Integer.parseInt(options.getOrDefault("startRate", "1000")),
+                Integer.parseInt(options.getOrDefault("stepRate", "1000")),
+                Integer.parseInt(options.getOrDefault("maxRate", "200000")),
+                Double.parseDouble(options.getOrDefault("stepSeconds", "30")),
+                Double.parseDouble(options.getOrDefault("warmupSeconds", "5")),
+                Double.parseDouble(options.getOrDefault("sloP99Millis", "50")),
+                Double.parseDouble(options.getOrDefault("minAchievedRatio", "0.95")),
+                Double.parseDouble(options.getOrDefault("maxErrorRatio", "0.01")),
+                Integer.parseInt(options.getOrDefault("maxInFlight", "20000")));
+        Path output = Path.of(options.getOrDefault("output", "capacity.json"));
+        String baseline = options.get("baseline");
+        double tolerance = Double.parseDouble(options.getOrDefault("tolerance", "0.1"));
+
+        CapacityFinder finder = new CapacityFinder(settings,
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                Integer.parseInt(options.getOrDefault("plates", Integer.toString(TollCollectLoadDriver.DEFAULT_PLATE_COUNT))));
+        List<StepResult> steps;
+        try (CapacityTarget target = "simulated".equals(settings.servers())
+                ? new SimulatedCapacityTarget(Integer.parseInt(options.getOrDefault("simulatedTps", "20000")), 500)
+                : new VoltCapacityTarget(settings.servers(), settings.maxInFlight())) {
+            steps = finder.run(target);
+        }
+
+        int capacity = capacity(steps);
+        Files.writeString(output, toJson(settings, capacity, steps));
+        System.out.printf("Capacity %d vehicles/s at p99 <= %.1fms, results written to %s%n",
+                capacity, settings.sloP99Millis(), output);
+
+        if (baseline != null) {
+            int baselineCapacity = readBaselineCapacity(Path.of(baseline));
+            if (regressed(capacity, baselineCapacity, tolerance)) {
+                System.out.printf("Capacity regressed: %d vehicles/s, baseline %d vehicles/s, tolerance %.0f%%%n",
+                        capacity, baselineCapacity, tolerance * 100);
+                System.exit(REGRESSION_EXIT_STATUS);
+            }
+            System.out.printf("Capacity within %.0f%% of the baseline of %d vehicles/s%n",
+                    tolerance * 100, baselineCapacity);
+        }
+    }
+
+    List<StepResult> run(CapacityTarget target) throws InterruptedException {
+        List<StepResult> results = new ArrayList<>();
+        for (int rate = settings.startRate(); rate <= settings.maxRate(); rate += settings.stepRate()) {
+            StepResult result = step(target, rate);
+            results.add(result);
+            System.out.printf("%6d/s offered: %8.0f/s achieved, ProcessPlate p99 %.2fms, ChargeAccount p99 %.2fms, "
+                            + "%d errors, %d not sent: %s%n",
+                    result.offeredRate(), result.achievedRate(), result.processPlateP99Millis(),
+                    result.chargeAccountP99Millis(), result.errors(), result.notSent(),
+                    result.passed() ? "pass" : "fail");
+            if (!result.passed()) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    private StepResult step(CapacityTarget target, int rate) throws InterruptedException {
+        Semaphore permits = new Semaphore(settings.maxInFlight());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = clock.nanoTime();
+        long measureStart = start + (long) (settings.warmupSeconds() * 1_000_000_000L);
+        long end = measureStart + (long) (settings.stepSeconds() * 1_000_000_000L);
+        Step step = new Step(measureStart, end);
+
+        for (long due = start; due < end; due += intervalNanos) {
+            clock.parkUntil(due);
+            boolean measured = due >= measureStart;
+            if (!permits.tryAcquire()) {
+                // Too many vehicles outstanding, the cluster is far behind
+                if (measured) {
+                    step.notSent.increment();
+                }
+                continue;
+            }
+            target.vehicle(nextVehicle(), new Vehicle(step, due, measured, permits));
+        }
+
+        // Vehicles still outstanding after the drain timeout would hide their latency, so fail the step
+        boolean drained = clock.tryAcquire(permits, settings.maxInFlight(), TimeUnit.SECONDS.toNanos(30));
+        return step.result(rate, drained);
+    }
+
+    private TollCollectLoadDriver.ScanRequest nextVehicle() {
+        return new TollCollectLoadDriver.ScanRequest(
+                System.currentTimeMillis(),
+                TollCollectLoadDriver.LOCATIONS[random.nextInt(TollCollectLoadDriver.LOCATIONS.length)],
+                Integer.toString(random.nextInt(TollCollectLoadDriver.LANE_COUNT)),
+                plates.valid(random.nextInt(plates.count())),
+                TollCollectLoadDriver.VEHICLE_CLASSES[random.nextInt(TollCollectLoadDriver.VEHICLE_CLASSES.length)]);
+    }
+
+    // Counts of one step, written from the completion threads of the target
+    private final class Step {
+        private final long measureStart;
+        private final long measureEnd;
+
+        private final LatencyHistogram processPlateMicros = new LatencyHistogram();
+        private final LatencyHistogram chargeAccountMicros = new LatencyHistogram();
+        private final LongAdder completedInWindow = new LongAdder();
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder notSent = new LongAdder();
+
+        Step(long measureStart, long measureEnd) {
+            this.measureStart = measureStart;
+            this.measureEnd = measureEnd;
+        }
+
+        StepResult result(int rate, boolean drained) {
+            double seconds = (measureEnd - measureStart) / 1_000_000_000.0;
+            double achieved = completedInWindow.sum() / seconds;
+            double processPlateP99 = processPlateMicros.percentile(99) / 1000.0;
+            double chargeAccountP99 = chargeAccountMicros.percentile(99) / 1000.0;
+            long callCount = calls.sum();
+            long errorCount = errors.sum();
+
+            boolean passed = drained
+                    && processPlateP99 <= settings.sloP99Millis()
+                    && chargeAccountP99 <= settings.sloP99Millis()
+                    && achieved >= settings.minAchievedRatio() * rate
+                    && errorCount <= settings.maxErrorRatio() * Math.max(1, callCount);
+            return new StepResult(rate, achieved, processPlateMicros.percentile(50) / 1000.0, processPlateP99,
+                    chargeAccountP99, callCount, errorCount, notSent.sum(), drained, passed);
+        }
+    }
+
+    private final class Vehicle implements CapacityTarget.Listener {
+        private final Step step;
+        private final long dueNanos;
+        private final boolean measured;
+        private final Semaphore permits;
+
+        Vehicle(Step step, long dueNanos, boolean measured, Semaphore permits) {
+            this.step = step;
+            this.dueNanos = dueNanos;
+            this.measured = measured;
+            this.permits = permits;
+        }
+
+        @Override
+        public void scanned(boolean succeeded, boolean charging) {
+            long now = clock.nanoTime();
+            if (succeeded && now >= step.measureStart && now < step.measureEnd) {
+                step.completedInWindow.increment();
+            }
+            if (measured) {
+                step.calls.increment();
+                if (succeeded) {
+                    step.processPlateMicros.record((now - dueNanos) / 1000);
+                } else {
+                    step.errors.increment();
+                }
+            }
+            if (!succeeded || !charging) {
+                permits.release();
+            }
+        }
+
+        @Override
+        public void charged(boolean succeeded, long latencyNanos) {
+            if (measured) {
+                step.calls.increment();
+                if (succeeded) {
+                    step.chargeAccountMicros.record(latencyNanos / 1000);
+                } else {
+                    step.errors.increment();
+                }
+            }
+            permits.release();
+        }
+    }
+
+    static int capacity(List<StepResult> steps) {
+        int capacity = 0;
+        for (StepResult step : steps) {
+            if (!step.passed()) {
+                break;
+            }
+            capacity = step.offeredRate();
+        }
+        return capacity;
+    }
+
+    static boolean regressed(int capacity, int baselineCapacity, double tolerance) {
+        return capacity < baselineCapacity * (1 - tolerance);
+    }
+
+    static int readBaselineCapacity(Path baseline) throws IOException {
+        Matcher matcher = BASELINE_CAPACITY.matcher(Files.readString(baseline));
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("No capacityRate in " + baseline);
+        }
+        return Integer.parseInt(matcher.group(1));
+    }
+
+    static String toJson(Settings settings, int capacity, List<StepResult> steps) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append(String.format(Locale.ROOT, "  \"servers\": \"%s\",%n", settings.servers().replace("\"", "\\\"")));
+        json.append(String.format(Locale.ROOT,
+                "  \"slo\": {\"p99Millis\": %.3f, \"minAchievedRatio\": %.3f, \"maxErrorRatio\": %.4f},%n",
+                settings.sloP99Millis(), settings.minAchievedRatio(), settings.maxErrorRatio()));
+        json.append(String.format(Locale.ROOT, "  \"stepSeconds\": %.1f,%n", settings.stepSeconds()));
+        json.append(String.format(Locale.ROOT, "  \"capacityRate\": %d,%n", capacity));
+        json.append("  \"steps\": [");
+        for (int i = 0; i < steps.size(); i++) {
+            StepResult step = steps.get(i);
+            json.append(i == 0 ? "\n" : ",\n");
+            json.append(String.format(Locale.ROOT,
+                    "    {\"offeredRate\": %d, \"achievedRate\": %.1f, \"processPlateP50Millis\": %.3f, "
+                            + "\"processPlateP99Millis\": %.3f, \"chargeAccountP99Millis\": %.3f, \"calls\": %d, "
+                            + "\"errors\": %d, \"notSent\": %d, \"drained\": %b, \"passed\": %b}",
+                    step.offeredRate(), step.achievedRate(), step.processPlateP50Millis(),
+                    step.processPlateP99Millis(), step.chargeAccountP99Millis(), step.calls(), step.errors(),
+                    step.notSent(), step.drained(), step.passed()));
+        }
+        json.append(steps.isEmpty() ? "]\n" : "\n  ]\n");
+        json.append("}\n");
+        return json.toString();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+/**
+ * Where {@link CapacityFinder} sends its vehicles: a Volt cluster ({@link VoltCapacityTarget}) or a simulated
+ * stand-in with a fixed capacity ({@link SimulatedCapacityTarget}).
+ */
+interface CapacityTarget extends AutoCloseable {
+
+    /**
+     * Runs ProcessPlate for the scan and, if the vehicle owes a toll, ChargeAccount after it. Must not block.
+     */
+    void vehicle(TollCollectLoadDriver.ScanRequest scan, Listener listener);
+
+    @Override
+    void close();
+
+    /**
+     * Called back from the completion threads of the target.
+     */
+    interface Listener {
+
+        /**
+         * ProcessPlate completed. If {@code charging}, {@link #charged} follows.
+         */
+        void scanned(boolean succeeded, boolean charging);
+
+        /**
+         * ChargeAccount completed, {@code latencyNanos} after it was called.
+         */
+        void charged(boolean succeeded, long latencyNanos);
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import com.voltdb.tollcollect.metrics.MetricsRegistry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Adaptive limit on the asynchronous calls a client has outstanding, adjusted by additive increase and
+ * multiplicative decrease (AIMD) on the cluster round trip of the calls.
+ * <p>
+ * Every completed call whose cluster round trip is within {@code targetRoundtripMillis} raises the limit by
+ * one over the current limit, about one more call per round trip, as long as the calls fill at least half of
+ * it. A slower call, or one that failed, lowers the limit by a tenth, at most once per round trip: only calls
+ * dispatched after the last decrease lower it again. The limit stays between {@code minLimit} and
+ * {@code maxLimit}.
+ * <p>
+ * Calls beyond the limit wait in a queue per {@link Priority}. When a call completes, waiting HIGH calls are
+ * dispatched before NORMAL ones, and NORMAL calls only ever take {@code normalShare} of the limit, so that
+ * ChargeAccount is not starved by scans when the cluster slows down. A call that waited longer than
+ * {@code queueBudgetMillis}, or that finds {@code maxQueued} calls waiting, is not sent: its future fails at
+ * once with a RejectedExecutionException, leaving the caller to drop or retry the work. A HIGH call finding
+ * the queues full takes the place of the last NORMAL call instead. Expired calls are shed when calls are
+ * submitted or complete, and by a sweeper every quarter of the budget, so that a stalled cluster does not keep
+ * them waiting.
+ */
+class ConcurrencyLimiter implements AutoCloseable {
+
+    enum Priority {
+        HIGH, NORMAL
+    }
+
+    private static final double DECREASE_RATIO = 0.9;
+
+    private static final class Pending<T> {
+        private final Priority priority;
+        private final Supplier<CompletableFuture<T>> call;
+        private final ToIntFunction<? super T> roundtripMillis;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long enqueuedNanos;
+        private long dispatchedNanos;
+
+        private Pending(Priority priority, Supplier<CompletableFuture<T>> call,
+                        ToIntFunction<? super T> roundtripMillis, long enqueuedNanos) {
+            this.priority = priority;
+            this.call = call;
+            this.roundtripMillis = roundtripMillis;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int targetRoundtripMillis;
+    private final long queueBudgetNanos;
+    private final int maxQueued;
+    private final double normalShare;
+    private final LongSupplier nanoClock;
+
+    // Guarded by this
+    private double limit;
+    private int inFlight;
+    private final int[] inFlightByPriority = new int[Priority.values().length];
+    private final List<ArrayDeque<Pending<?>>> queues = new ArrayList<>();
+    private boolean decreased;
+    private long lastDecreaseNanos;
+    private ScheduledExecutorService sweeper;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder decreases = new LongAdder();
+    private final LongAdder[] shed = new LongAdder[Priority.values().length];
+
+    ConcurrencyLimiter(int initialLimit,
+                       int minLimit,
+                       int maxLimit,
+                       int targetRoundtripMillis,
+                       long queueBudgetMillis,
+                       int maxQueued,
+                       double normalShare) {
+        this(initialLimit, minLimit, maxLimit, targetRoundtripMillis, queueBudgetMillis, maxQueued, normalShare,
+                System::nanoTime);
+    }
+
+    /**
+     * Limiter reading the time from {@code nanoClock}, which tests replace to run without waiting.
+     */
+    ConcurrencyLimiter(int initialLimit,
+                       int minLimit,
+                       int maxLimit,
+                       int targetRoundtripMillis,
+                       long queueBudgetMillis,
+                       int maxQueued,
+                       double normalShare,
+                       LongSupplier nanoClock) {
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetRoundtripMillis = targetRoundtripMillis;
+        this.queueBudgetNanos = TimeUnit.MILLISECONDS.toNanos(queueBudgetMillis);
+        this.maxQueued = maxQueued;
+        this.normalShare = normalShare;
+        this.nanoClock = nanoClock;
+        for (Priority priority : Priority.values()) {
+            queues.add(new ArrayDeque<>());
+            shed[priority.ordinal()] = new LongAdder();
+        }
+    }
+
+    /**
+     * Limiter of a client allowing up to {@code maxInFlight} calls, starting at a tenth of it, with as many
+     * calls queued and a quarter of the limit kept for HIGH calls.
+     */
+    static ConcurrencyLimiter forClient(int maxInFlight, int targetRoundtripMillis, long queueBudgetMillis) {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(Math.max(1, maxInFlight / 10), 1, maxInFlight,
+                targetRoundtripMillis, queueBudgetMillis, maxInFlight, 0.75);
+        limiter.startSweeper();
+        return limiter;
+    }
+
+    synchronized void startSweeper() {
+        if (sweeper != null) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "concurrency-limiter-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), queueBudgetNanos / 4);
+        sweeper.scheduleAtFixedRate(this::sweep, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sheds the calls that waited longer than the budget.
+     */
+    void sweep() {
+        List<Pending<?>> rejected = new ArrayList<>();
+        synchronized (this) {
+            shedExpired(nanoClock.getAsLong(), rejected);
+        }
+        reject(rejected);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    int maxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Sends the call when the limit allows, or queues it. {@code roundtripMillis} extracts the cluster round
+     * trip from the result, the limiter treats a value above the target as a sign of overload.
+     */
+    <T> CompletableFuture<T> submit(Priority priority,
+                                    Supplier<CompletableFuture<T>> call,
+                                    ToIntFunction<? super T> roundtripMillis) {
+        long now = nanoClock.getAsLong();
+        Pending<T> pending = new Pending<>(priority, call, roundtripMillis, now);
+        List<Pending<?>> rejected = new ArrayList<>();
+        boolean dispatchNow = false;
+        synchronized (this) {
+            shedExpired(now, rejected);
+            if (queues.get(priority.ordinal()).isEmpty() && canDispatch(priority)) {
+                take(pending);
+                dispatchNow = true;
+            } else if (queued() < maxQueued) {
+                queues.get(priority.ordinal()).add(pending);
+            } else if (priority == Priority.HIGH && !queues.get(Priority.NORMAL.ordinal()).isEmpty()) {
+                // Full, the NORMAL call queued last makes room
+                shed(queues.get(Priority.NORMAL.ordinal()).pollLast(), rejected);
+                queues.get(priority.ordinal()).add(pending);
+            } else {
+                shed(pending, rejected);
+            }
+        }
+        reject(rejected);
+        if (dispatchNow) {
+            dispatch(pending);
+        }
+        return pending.result;
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+
+    synchronized int inFlight() {
+        return inFlight;
+    }
+
+    synchronized int queued(Priority priority) {
+        return queues.get(priority.ordinal()).size();
+    }
+
+    long shedCount(Priority priority) {
+        return shed[priority.ordinal()].sum();
+    }
+
+    long decreaseCount() {
+        return decreases.sum();
+    }
+
+    void register(MetricsRegistry registry) {
+        registry.registerGauge("tollcollect_client_limiter_limit", "Calls the client may have in flight",
+                this::limit);
+        registry.registerGauge("tollcollect_client_limiter_in_flight", "Calls the client has in flight",
+                this::inFlight);
+        registry.registerCounter("tollcollect_client_limiter_dispatched_total", "Calls sent by the client",
+                dispatched::sum);
+        registry.registerCounter("tollcollect_client_limiter_decreases_total", "Times the limit was lowered",
+                decreases::sum);
+        for (Priority priority : Priority.values()) {
+            String label = priority.name().toLowerCase();
+            registry.registerGauge("tollcollect_client_limiter_queued", "Calls waiting for the limit",
+                    () -> queued(priority), "priority", label);
+            registry.registerCounter("tollcollect_client_limiter_shed_total", "Calls failed without being sent",
+                    shed[priority.ordinal()]::sum, "priority", label);
+        }
+    }
+
+    private <T> void dispatch(Pending<T> pending) {
+        pending.dispatchedNanos = nanoClock.getAsLong();
+        dispatched.increment();
+        CompletableFuture<T> future;
+        try {
+            future = pending.call.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((result, error) -> complete(pending, result, error));
+    }
+
+    private <T> void complete(Pending<T> pending, T result, Throwable error) {
+        boolean overloaded = error != null || pending.roundtripMillis.applyAsInt(result) > targetRoundtripMillis;
+        List<Pending<?>> ready = new ArrayList<>();
+        List<Pending<?>> rejected = new ArrayList<>();
+        synchronized (this) {
+            if (overloaded) {
+                // Compared by difference, the clock may wrap
+                if (!decreased || pending.dispatchedNanos - lastDecreaseNanos > 0) {
+                    limit = Math.max(minLimit, limit * DECREASE_RATIO);
+                    lastDecreaseNanos = nanoClock.getAsLong();
+                    decreased = true;
+                    decreases.increment();
+                }
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            inFlight--;
+            inFlightByPriority[pending.priority.ordinal()]--;
+
+            shedExpired(nanoClock.getAsLong(), rejected);
+            for (Priority priority : Priority.values()) {
+                ArrayDeque<Pending<?>> queue = queues.get(priority.ordinal());
+                while (!queue.isEmpty() && canDispatch(priority)) {
+                    Pending<?> next = queue.poll();
+                    take(next);
+                    ready.add(next);
+                }
+            }
+        }
+        reject(rejected);
+        for (Pending<?> next : ready) {
+            dispatch(next);
+        }
+        if (error != null) {
+            pending.result.completeExceptionally(error);
+        } else {
+            pending.result.complete(result);
+        }
+    }
+
+    private boolean canDispatch(Priority priority) {
+        if (inFlight >= (int) limit) {
+            return false;
+        }
+        return priority == Priority.HIGH
+                || inFlightByPriority[Priority.NORMAL.ordinal()] < Math.max(1, (int) (limit * normalShare));
+    }
+
+    private void take(Pending<?> pending) {
+        inFlight++;
+        inFlightByPriority[pending.priority.ordinal()]++;
+    }
+
+    private int queued() {
+        int queued = 0;
+        for (ArrayDeque<Pending<?>> queue : queues) {
+            queued += queue.size();
+        }
+        return queued;
+    }
+
+    private void shedExpired(long now, List<Pending<?>> rejected) {
+        for (ArrayDeque<Pending<?>> queue : queues) {
+            while (!queue.isEmpty() && now - queue.peek().enqueuedNanos > queueBudgetNanos) {
+                shed(queue.poll(), rejected);
+            }
+        }
+    }
+
+    private void shed(Pending<?> pending, List<Pending<?>> rejected) {
+        shed[pending.priority.ordinal()].increment();
+        rejected.add(pending);
+    }
+
+    private static void reject(List<Pending<?>> rejected) {
+        for (Pending<?> pending : rejected) {
+            pending.result.completeExceptionally(new RejectedExecutionException(
+                    "Client overloaded, " + pending.priority + " call not sent"));
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import com.voltdb.tollcollect.common.PlateNumbers;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Synthetic ACCOUNTS and KNOWN_VEHICLES at any scale, with the shape of {@code csv/accounts.csv} and
+ * {@code csv/known_vehicles.csv}.
+ * <p>
+ * Plates are numbered 0 to {@code plateCount - 1} and formatted by {@link PlateNumbers}, like the plates scanned
+ * by the load driver and by the stream pipeline with the same {@code generator.plates}. Each plate is a known
+ * vehicle with probability {@code knownShare}, the others are billed by mail.
+ * Known vehicles belong to an account drawn uniformly from {@code knownShare * plateCount * accountsPerVehicle}
+ * accounts numbered from {@link #FIRST_ACCOUNT_ID}, so about a third of the accounts own no vehicle and some own
+ * several, as in the reference data. Vehicle types, exempt and inactive vehicles, inactive accounts, auto top-up
+ * and balances follow the shares of the reference data.
+ * <p>
+ * Rows are produced one at a time from random streams split off {@code seed}, so the same arguments always give
+ * the same dataset and nothing is held in memory.
+ */
+public class DatasetGenerator {
+
+    static final int FIRST_ACCOUNT_ID = 1000;
+
+    // Shares in csv/known_vehicles.csv and csv/accounts.csv
+    static final double DEFAULT_KNOWN_SHARE = 0.975;
+    static final double DEFAULT_ACCOUNTS_PER_VEHICLE = 0.92;
+    private static final int[] VEHICLE_TYPE_PER_MILLE = {45, 583, 115, 212, 45};
+    private static final int EXEMPT_PER_MILLE = 48;
+    private static final int INACTIVE_VEHICLE_PER_MILLE = 6;
+    private static final int INACTIVE_ACCOUNT_PER_MILLE = 13;
+    private static final int AUTO_TOPUP_PER_MILLE = 717;
+    // Balances are 0.00 to 60.00 in steps of 5.00
+    private static final int BALANCE_STEPS = 13;
+    private static final BigDecimal BALANCE_STEP = new BigDecimal("5.00");
+
+    private static final int CSV_BUFFER_BYTES = 1 << 20;
+
+    record Account(int accountId, int accountStatus, int autoTopup, BigDecimal balance) {
+    }
+
+    record KnownVehicle(String plateNum, int accountId, int vehicleType, int active, int exemptStatus) {
+    }
+
+    private final PlateNumbers plates;
+    private final double knownShare;
+    private final int accountCount;
+    private final long seed;
+
+    DatasetGenerator(int plateCount, double knownShare, double accountsPerVehicle, long seed) {
+        if (plateCount <= 0) {
+            throw new IllegalArgumentException("Plate count must be positive, was " + plateCount);
+        }
+        if (knownShare <= 0 || knownShare > 1) {
+            throw new IllegalArgumentException("Known share must be in (0, 1], was " + knownShare);
+        }
+        this.plates = new PlateNumbers(plateCount);
+        this.knownShare = knownShare;
+        this.accountCount = (int) Math.max(1, Math.round(plateCount * knownShare * accountsPerVehicle));
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = TollCollectLoadDriver.parseOptions(args);
+        DatasetGenerator generator = new DatasetGenerator(
+                Integer.parseInt(options.getOrDefault("plates", "1000000")),
+                Double.parseDouble(options.getOrDefault("knownShare", Double.toString(DEFAULT_KNOWN_SHARE))),
+                Double.parseDouble(options.getOrDefault("accountsPerVehicle", Double.toString(DEFAULT_ACCOUNTS_PER_VEHICLE))),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+
+        String csvDirectory = options.get("csv");
+        String servers = options.get("servers");
+        if (csvDirectory == null && servers == null) {
+            System.err.println("Usage: dataset --plates=<count> [--seed=42] [--knownShare=0.975] [--accountsPerVehicle=0.92]"
+                    + " (--csv=<directory> | --servers=<host:port> [--batchSize=500] [--inflight=32]"
+                    + " [--moneyModel=decimal|cents])");
+            System.exit(1);
+        }
+
+        if (csvDirectory != null) {
+            generator.writeCsv(Path.of(csvDirectory));
+        }
+        if (servers != null) {
+            DatasetLoader loader = new DatasetLoader(
+                    servers,
+                    Integer.parseInt(options.getOrDefault("batchSize", "500")),
+                    Integer.parseInt(options.getOrDefault("inflight", "32")),
+                    "cents".equals(options.get("moneyModel")));
+            if (!loader.load(generator)) {
+                System.exit(2);
+            }
+        }
+    }
+
+    int plateCount() {
+        return plates.count();
+    }
+
+    int accountCount() {
+        return accountCount;
+    }
+
+    void accounts(Consumer<Account> consumer) {
+        SplittableRandom random = new SplittableRandom(seed).split();
+        for (int i = 0; i < accountCount; i++) {
+            consumer.accept(new Account(
+                    FIRST_ACCOUNT_ID + i,
+                    random.nextInt(1000) < INACTIVE_ACCOUNT_PER_MILLE ? 0 : 1,
+                    random.nextInt(1000) < AUTO_TOPUP_PER_MILLE ? 1 : 0,
+                    BALANCE_STEP.multiply(BigDecimal.valueOf(random.nextInt(BALANCE_STEPS)))));
+        }
+    }
+
+    void knownVehicles(Consumer<KnownVehicle> consumer) {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        seeds.split();
+        SplittableRandom random = seeds.split();
+        for (int plate = 0; plate < plates.count(); plate++) {
+            if (random.nextDouble() >= knownShare) {
+                continue;
+            }
+            consumer.accept(new KnownVehicle(
+                    plates.valid(plate),
+                    FIRST_ACCOUNT_ID + random.nextInt(accountCount),
+                    vehicleType(random.nextInt(1000)),
+                    random.nextInt(1000) < INACTIVE_VEHICLE_PER_MILLE ? 0 : 1,
+                    random.nextInt(1000) < EXEMPT_PER_MILLE ? 1 : 0));
+        }
+    }
+
+    // Vehicle types are numbered from 1 as in VEHICLE_TYPES
+    private static int vehicleType(int perMille) {
+        for (int i = 0; i < VEHICLE_TYPE_PER_MILLE.length - 1; i++) {
+            perMille -= VEHICLE_TYPE_PER_MILLE[i];
+            if (perMille < 0) {
+                return i + 1;
+            }
+        }
+        return VEHICLE_TYPE_PER_MILLE.length;
+    }
+
+    /**
+     * Writes accounts.csv and known_vehicles.csv with a header line, the layout csvloader reads with --skip=1.
+     */
+    void writeCsv(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        long start = System.nanoTime();
+
+        Path accountsFile = directory.resolve("accounts.csv");
+        try (BufferedWriter writer = csvWriter(accountsFile)) {
+            writer.write("account_id,account_status,auto_topup,balance\n");
+            accounts(account -> writeLine(writer, account.accountId() + "," + account.accountStatus() + ","
+                    + account.autoTopup() + "," + account.balance().toPlainString()));
+        }
+
+        Path vehiclesFile = directory.resolve("known_vehicles.csv");
+        long[] vehicles = new long[1];
+        try (BufferedWriter writer = csvWriter(vehiclesFile)) {
+            writer.write("plate_num,account_id,vehicle_type,active,exempt_status\n");
+            knownVehicles(vehicle -> {
+                vehicles[0]++;
+                writeLine(writer, vehicle.plateNum() + "," + vehicle.accountId() + "," + vehicle.vehicleType() + ","
+                        + vehicle.active() + "," + vehicle.exemptStatus());
+            });
+        }
+
+        System.out.printf("Wrote %,d accounts to %s and %,d known vehicles to %s in %.1fs%n",
+                accountCount, accountsFile, vehicles[0], vehiclesFile, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static BufferedWriter csvWriter(Path file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), CSV_BUFFER_BYTES);
+    }
+
+    private static void writeLine(BufferedWriter writer, String line) {
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
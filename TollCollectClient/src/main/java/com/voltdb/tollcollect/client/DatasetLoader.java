@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import com.voltdb.tollcollect.common.PartitionRouting;
+import org.voltdb.VoltType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Streams a {@link DatasetGenerator} dataset into ACCOUNTS and KNOWN_VEHICLES.
+ * <p>
+ * Rows are grouped by the database partition of their key and every {@code batchSize} rows of a partition are
+ * upserted by one single partition call of LoadAccounts or LoadKnownVehicles, so each partition loads its own
+ * rows in parallel with the others. Up to {@code inflight} batches are outstanding at a time; generation waits
+ * for a batch to complete when all are in flight. Progress is printed every few seconds.
+ * <pre>
+ * java -jar TollCollectClient-1.0-SNAPSHOT.jar dataset --plates=10000000 --servers=localhost:21212
+ * </pre>
+ * Loading is an upsert, so it can be repeated, but it does not remove rows of a larger dataset loaded before.
+ * With the cents schema of ddl/other/create_db_cents.sql the accounts are loaded by LoadAccountsCents instead.
+ */
+class DatasetLoader {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final String servers;
+    private final int batchSize;
+    private final int inflight;
+    private final boolean centsMoneyModel;
+    private final Semaphore batchPermits;
+    private final AtomicReference<String> firstError = new AtomicReference<>();
+
+    DatasetLoader(String servers, int batchSize, int inflight, boolean centsMoneyModel) {
+        this.servers = servers;
+        this.batchSize = batchSize;
+        this.inflight = inflight;
+        this.centsMoneyModel = centsMoneyModel;
+        this.batchPermits = new Semaphore(inflight);
+    }
+
+    /**
+     * Loads the accounts, then the known vehicles, and returns true if every row was loaded.
+     */
+    boolean load(DatasetGenerator generator) throws IOException, InterruptedException {
+        try (TollCollectorDbClient client = new TollCollectorDbClient(servers, inflight)) {
+            client.connectToVolt();
+
+            ProcedureStats accountStats = new ProcedureStats(centsMoneyModel ? "LoadAccountsCents" : "LoadAccounts");
+            TableLoad<DatasetGenerator.Account> accounts = new TableLoad<>(client, accountStats,
+                    client.partitionRouting(VoltType.INTEGER),
+                    DatasetGenerator.Account::accountId,
+                    rows -> accountArguments(rows, centsMoneyModel));
+            generator.accounts(accounts::add);
+            accounts.finish();
+
+            ProcedureStats vehicleStats = new ProcedureStats("LoadKnownVehicles");
+            TableLoad<DatasetGenerator.KnownVehicle> vehicles = new TableLoad<>(client, vehicleStats,
+                    client.partitionRouting(VoltType.STRING),
+                    DatasetGenerator.KnownVehicle::plateNum,
+                    DatasetLoader::vehicleArguments);
+            generator.knownVehicles(vehicles::add);
+            vehicles.finish();
+
+            if (firstError.get() != null) {
+                System.err.println("Some batches failed, first error: " + firstError.get());
+                return false;
+            }
+            return true;
+        }
+    }
+
+    private static Object[] accountArguments(List<DatasetGenerator.Account> rows, boolean centsMoneyModel) {
+        int[] accountIds = new int[rows.size()];
+        int[] accountStatuses = new int[rows.size()];
+        int[] autoTopups = new int[rows.size()];
+        BigDecimal[] balances = new BigDecimal[rows.size()];
+        long[] centsBalances = new long[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            DatasetGenerator.Account row = rows.get(i);
+            accountIds[i] = row.accountId();
+            accountStatuses[i] = row.accountStatus();
+            autoTopups[i] = row.autoTopup();
+            balances[i] = row.balance();
+            if (centsMoneyModel) {
+                centsBalances[i] = row.balance().movePointRight(2).longValueExact();
+            }
+        }
+        return new Object[]{accountIds, accountStatuses, autoTopups, centsMoneyModel ? centsBalances : balances};
+    }
+
+    private static Object[] vehicleArguments(List<DatasetGenerator.KnownVehicle> rows) {
+        String[] plateNums = new String[rows.size()];
+        int[] accountIds = new int[rows.size()];
+        int[] vehicleTypes = new int[rows.size()];
+        int[] active = new int[rows.size()];
+        int[] exemptStatuses = new int[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            DatasetGenerator.KnownVehicle row = rows.get(i);
+            plateNums[i] = row.plateNum();
+            accountIds[i] = row.accountId();
+            vehicleTypes[i] = row.vehicleType();
+            active[i] = row.active();
+            exemptStatuses[i] = row.exemptStatus();
+        }
+        return new Object[]{plateNums, accountIds, vehicleTypes, active, exemptStatuses};
+    }
+
+    /**
+     * Batches of one table, filled from the generating thread and sent asynchronously.
+     */
+    private final class TableLoad<T> {
+        private final TollCollectorDbClient client;
+        private final ProcedureStats stats;
+        private final PartitionRouting routing;
+        private final Function<T, Object> partitionValue;
+        private final Function<List<T>, Object[]> arguments;
+        private final Map<Integer, List<T>> batches = new HashMap<>();
+        private final LongAdder loadedRows = new LongAdder();
+        private final long start = System.nanoTime();
+        private long nextProgressNanos = start + PROGRESS_INTERVAL_NANOS;
+        private long offeredRows;
+
+        TableLoad(TollCollectorDbClient client,
+                  ProcedureStats stats,
+                  PartitionRouting routing,
+                  Function<T, Object> partitionValue,
+                  Function<List<T>, Object[]> arguments) {
+            this.client = client;
+            this.stats = stats;
+            this.routing = routing;
+            this.partitionValue = partitionValue;
+            this.arguments = arguments;
+            System.out.printf("Loading with %s into %d partitions%n", stats.procedure(), routing.partitionCount());
+        }
+
+        void add(T row) {
+            offeredRows++;
+            int partition = routing.partitionOf(partitionValue.apply(row));
+            List<T> batch = batches.computeIfAbsent(partition, key -> new ArrayList<>(batchSize));
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                batches.remove(partition);
+                send(partition, batch);
+            }
+
+            long now = System.nanoTime();
+            if (now >= nextProgressNanos) {
+                nextProgressNanos = now + PROGRESS_INTERVAL_NANOS;
+                report(now);
+            }
+        }
+
+        void finish() throws InterruptedException {
+            batches.forEach(this::send);
+            batches.clear();
+            // Wait for the batches in flight
+            batchPermits.acquire(inflight);
+            batchPermits.release(inflight);
+            report(System.nanoTime());
+            System.out.printf("%s: %d batches succeeded, %d aborted, %d failed%n",
+                    stats.procedure(), stats.succeeded(), stats.aborted(), stats.failed());
+        }
+
+        private void send(int partition, List<T> batch) {
+            batchPermits.acquireUninterruptibly();
+            Object[] batchArguments = arguments.apply(batch);
+            Object[] callArguments = new Object[batchArguments.length + 1];
+            callArguments[0] = routing.partitionKey(partition);
+            System.arraycopy(batchArguments, 0, callArguments, 1, batchArguments.length);
+
+            client.callProcedureAsync(stats.procedure(), callArguments)
+                    .whenComplete((response, error) -> {
+                        if (stats.record(response, error)) {
+                            loadedRows.add(batch.size());
+                        } else {
+                            firstError.compareAndSet(null, error != null
+                                    ? error.toString()
+                                    : stats.procedure() + ": " + response.getStatusString());
+                        }
+                        batchPermits.release();
+                    });
+        }
+
+        private void report(long now) {
+            double seconds = (now - start) / 1_000_000_000.0;
+            long loaded = loadedRows.sum();
+            System.out.printf("%s: %,d of %,d rows loaded in %.1fs (%,.0f rows/s)%n",
+                    stats.procedure(), loaded, offeredRows, seconds, loaded / seconds);
+        }
+    }
+}
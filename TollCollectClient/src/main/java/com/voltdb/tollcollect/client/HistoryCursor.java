@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTableRow;
+import org.voltdb.types.TimestampType;
+
+/**
+ * Position in a history paged newest first by GetPlateHistoryPage or GetAccountHistoryPage: the timestamp and id
+ * of the last row already returned. The next page starts strictly after it, so no rows are skipped or repeated.
+ * <p>
+ * The id breaks ties on the timestamp: ChargeAccount writes the charge and the top-up it triggers at the same
+ * transaction time, so a condition on the timestamp alone would either repeat or skip the rest of such a run when
+ * a page ends inside it.
+ */
+record HistoryCursor(TimestampType timestamp, long id) {
+
+    // The latest timestamp Volt accepts, 9999-12-31 23:59:59.999999
+    private static final long MAX_TIMESTAMP_MICROS = 253_402_300_799_999_999L;
+
+    static final HistoryCursor FIRST_PAGE = new HistoryCursor(new TimestampType(MAX_TIMESTAMP_MICROS), Long.MAX_VALUE);
+
+    /**
+     * Returns the arguments of GetPlateHistoryPage or GetAccountHistoryPage for the page after this cursor. Their
+     * condition {@code ts <= ? AND (ts < ? OR id < ?)} takes the timestamp twice, as positional parameters cannot
+     * be reused: the first bounds the index range scan and the second only breaks ties.
+     */
+    Object[] pageArguments(Object key, long pageSize) {
+        return new Object[]{key, timestamp, timestamp, id, pageSize};
+    }
+
+    /**
+     * Returns the cursor after the last row of a page, or null if the page is shorter than {@code pageSize} and
+     * so was the last one.
+     */
+    static HistoryCursor after(VoltTable page, long pageSize, String timestampColumn, String idColumn) {
+        if (page.getRowCount() < pageSize || page.getRowCount() == 0) {
+            return null;
+        }
+
+        // Read without moving the row position of the page, which the caller still has to print
+        VoltTableRow last = page.fetchRow(page.getRowCount() - 1);
+        return new HistoryCursor(last.getTimestampAsTimestamp(timestampColumn), last.getLong(idColumn));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import org.voltdb.VoltTable;
+import org.voltdb.client.ProcCallException;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Prints the scan history of a plate or the transaction history of an account, newest first, one page at a time.
+ * Every page is a single partition call that continues from the last row of the previous one:
+ * <pre>
+ * java -jar TollCollectClient-1.0-SNAPSHOT.jar history --servers=localhost:21212 --account=1488 --page=20 --pages=5
+ * java -jar TollCollectClient-1.0-SNAPSHOT.jar history --plate=X001
+ * </pre>
+ */
+public class HistoryLookup {
+
+    public static void main(String[] args) throws IOException, ProcCallException {
+        Map<String, String> options = TollCollectLoadDriver.parseOptions(args);
+        String plateNum = options.get("plate");
+        String accountId = options.get("account");
+        if ((plateNum == null) == (accountId == null)) {
+            throw new IllegalArgumentException("Expected either --plate=<plate number> or --account=<account id>");
+        }
+        long pageSize = Long.parseLong(options.getOrDefault("page", "20"));
+        long maxPages = Long.parseLong(options.getOrDefault("pages", Long.toString(Long.MAX_VALUE)));
+
+        try (TollCollectorDbClient tc = new TollCollectorDbClient(options.getOrDefault("servers", "localhost:21212"))) {
+            tc.connectToVolt();
+
+            HistoryCursor cursor = HistoryCursor.FIRST_PAGE;
+            for (long page = 1; page <= maxPages && cursor != null; page++) {
+                VoltTable rows;
+                if (plateNum != null) {
+                    rows = tc.getPlateHistoryPage(plateNum, cursor, pageSize);
+                    cursor = HistoryCursor.after(rows, pageSize, "SCAN_TIMESTAMP", "SCAN_ID");
+                } else {
+                    rows = tc.getAccountHistoryPage(Long.parseLong(accountId), cursor, pageSize);
+                    cursor = HistoryCursor.after(rows, pageSize, "ACCT_TX_TIMESTAMP", "ACCT_TX_ID");
+                }
+
+                System.out.printf("Page %d%n", page);
+                System.out.println(rows.toFormattedString());
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import com.voltdb.tollcollect.metrics.LatencyHistogram;
+import com.voltdb.tollcollect.metrics.MetricsRegistry;
+import org.voltdb.client.ClientResponse;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome counts and latency histograms of one procedure. Latencies are kept in microseconds, separately for
+ * the cluster round trip (time spent in Volt, millisecond resolution) and the client round trip (as seen by
+ * the caller, including the network and client queueing).
+ */
+public class ProcedureStats {
+
+    private final String procedure;
+
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder aborted = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private final LatencyHistogram clusterRoundtripMicros = new LatencyHistogram();
+    private final LatencyHistogram clientRoundtripMicros = new LatencyHistogram();
+
+    public ProcedureStats(String procedure) {
+        this.procedure = procedure;
+    }
+
+    public String procedure() {
+        return procedure;
+    }
+
+    /**
+     * Records the outcome of a call and returns true if it succeeded.
+     */
+    public boolean record(ClientResponse response, Throwable error) {
+        if (error != null || response == null) {
+            failed.increment();
+            return false;
+        }
+
+        clusterRoundtripMicros.record(response.getClusterRoundtrip() * 1000L);
+        clientRoundtripMicros.record(response.getClientRoundtripNanos() / 1000L);
+
+        switch (response.getStatus()) {
+            case ClientResponse.SUCCESS:
+                succeeded.increment();
+                return true;
+            case ClientResponse.USER_ABORT:
+                aborted.increment();
+                return false;
+            default:
+                failed.increment();
+                return false;
+        }
+    }
+
+    /**
+     * Exposes the counts and histograms in the registry under the {@code procedure} label, replacing the stats
+     * registered earlier for the same procedure.
+     */
+    public void register(MetricsRegistry registry) {
+        String calls = "tollcollect_client_calls_total";
+        String callsHelp = "Procedure calls completed by the load driver";
+        registry.registerCounter(calls, callsHelp, succeeded::sum, "procedure", procedure, "outcome", "succeeded");
+        registry.registerCounter(calls, callsHelp, aborted::sum, "procedure", procedure, "outcome", "aborted");
+        registry.registerCounter(calls, callsHelp, failed::sum, "procedure", procedure, "outcome", "failed");
+
+        String latency = "tollcollect_client_latency_seconds";
+        String latencyHelp = "Round trip of the load driver's procedure calls, in Volt or as seen by the client";
+        registry.registerHistogram(latency, latencyHelp, clusterRoundtripMicros,
+                "procedure", procedure, "roundtrip", "cluster");
+        registry.registerHistogram(latency, latencyHelp, clientRoundtripMicros,
+                "procedure", procedure, "roundtrip", "client");
+    }
+
+    public long calls() {
+        return succeeded.sum() + aborted.sum() + failed.sum();
+    }
+
+    public long succeeded() {
+        return succeeded.sum();
+    }
+
+    public long aborted() {
+        return aborted.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    public LatencyHistogram clusterRoundtripMicros() {
+        return clusterRoundtripMicros;
+    }
+
+    public LatencyHistogram clientRoundtripMicros() {
+        return clientRoundtripMicros;
+    }
+}
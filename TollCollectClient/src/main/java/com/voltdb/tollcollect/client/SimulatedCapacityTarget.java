@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for a cluster that executes {@code transactionsPerSecond} transactions one after the other, each
+ * taking a further {@code networkMicros} to come back. Offered beyond that rate, the transactions queue and the
+ * latency grows without bound, like a saturated cluster. Used to try out the capacity finder without Volt.
+ * <p>
+ * Three out of four vehicles are charged, about the share of known, non-exempt plates in the demo data.
+ */
+class SimulatedCapacityTarget implements CapacityTarget {
+
+    private final CapacityClock clock;
+    private final long serviceNanos;
+    private final long networkNanos;
+    private final AtomicLong nextFreeNanos;
+
+    SimulatedCapacityTarget(int transactionsPerSecond, long networkMicros) {
+        this(transactionsPerSecond, networkMicros, CapacityClock.SYSTEM);
+    }
+
+    SimulatedCapacityTarget(int transactionsPerSecond, long networkMicros, CapacityClock clock) {
+        this.clock = clock;
+        this.serviceNanos = TimeUnit.SECONDS.toNanos(1) / transactionsPerSecond;
+        this.networkNanos = TimeUnit.MICROSECONDS.toNanos(networkMicros);
+        this.nextFreeNanos = new AtomicLong(clock.nanoTime());
+    }
+
+    @Override
+    public void vehicle(TollCollectLoadDriver.ScanRequest scan, Listener listener) {
+        boolean charging = (scan.plateNum().hashCode() & 3) != 0;
+        execute(() -> {
+            listener.scanned(true, charging);
+            if (charging) {
+                long submitted = clock.nanoTime();
+                execute(() -> listener.charged(true, clock.nanoTime() - submitted));
+            }
+        });
+    }
+
+    // Queues the transaction behind those already accepted and completes it once it has run
+    private void execute(Runnable completion) {
+        long now = clock.nanoTime();
+        long finished = nextFreeNanos.accumulateAndGet(now, (free, arrival) -> Math.max(free, arrival) + serviceNanos);
+        clock.schedule(completion, finished - now + networkNanos);
+    }
+
+    @Override
+    public void close() {
+        // Nothing held, transactions still queued complete on their own
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import com.voltdb.tollcollect.common.PlateNumbers;
+import com.voltdb.tollcollect.metrics.LatencyHistogram;
+import com.voltdb.tollcollect.metrics.MetricsRegistry;
+import com.voltdb.tollcollect.metrics.MetricsServer;
+import com.voltdb.tollcollect.metrics.ScanOutcomeMetrics;
+import org.voltdb.VoltTable;
+import org.voltdb.client.ClientResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless load driver running the interactive workflow (ProcessPlate, then ChargeAccount) for
+ * synthetic vehicles with asynchronous calls.
+ * <p>
+ * Every vehicle has exactly one transaction outstanding at a time, so running {@code inflight} vehicles
+ * concurrently keeps that many transactions in flight. Latency histograms per procedure are written to a
+ * summary file at the end of the run instead of being printed per call:
+ * <pre>
+ * java -jar TollCollectClient-1.0-SNAPSHOT.jar load --servers=localhost:21212 --inflight=200 --duration=60 --summary=load-summary.txt
+ * </pre>
+ * Plates are drawn from X000 to X999 of the reference data, or from the plates of a generated dataset with
+ * {@code --plates}, see {@link DatasetGenerator}.
+ * <p>
+ * The calls go through a {@link ConcurrencyLimiter}, which sends fewer of them at a time when their cluster
+ * round trip exceeds {@code --targetRoundtripMillis}, puts ChargeAccount ahead of ProcessPlate and fails the
+ * calls that waited more than {@code --queueBudgetMillis}; {@code --adaptive=false} sends them all at once.
+ * <p>
+ * With {@code --metricsPort} the same counts and histograms, the scan outcomes and the transactions in flight are
+ * also served for Prometheus at {@code http://localhost:<metricsPort>/metrics} while the driver runs.
+ */
+public class TollCollectLoadDriver {
+
+    static final String[] LOCATIONS = {
+            "Skyline Toll Plaza", "Nexus Crossing", "Elevation Pass", "Infinity Bridge", "Horizon Bridge",
+            "Echo Lane Station", "Quantum Tunnel", "Tannhäuser Gate", "Astrolink Path", "Orbital Gate", "Lumen Tunnel"
+    };
+    static final String[] VEHICLE_CLASSES = {"Motorcycle", "Car", "Small Truck", "Large Truck", "Bus"};
+    static final int DEFAULT_PLATE_COUNT = PlateNumbers.DEFAULT_PLATE_COUNT;
+    static final int LANE_COUNT = 5;
+    // How long the vehicles still in flight at the end of the run are waited for
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+
+    private final String servers;
+    private final int inflight;
+    private final long durationSeconds;
+    private final Path summaryFile;
+    private final int metricsPort;
+    private final PlateNumbers plates;
+    private final SplittableRandom random;
+    private final ConcurrencyLimiter limiter;
+
+    private final ProcedureStats processPlateStats = new ProcedureStats("ProcessPlate");
+    private final ProcedureStats chargeAccountStats = new ProcedureStats("ChargeAccount");
+    private final LongAdder vehiclesCompleted = new LongAdder();
+    private final ScanOutcomeMetrics outcomeMetrics =
+            new ScanOutcomeMetrics(MetricsRegistry.defaultRegistry(), "client");
+
+    private final Semaphore vehiclePermits;
+
+    private TollCollectorDbClient client;
+
+    TollCollectLoadDriver(String servers,
+                          int inflight,
+                          long durationSeconds,
+                          Path summaryFile,
+                          int metricsPort,
+                          int plateCount,
+                          long seed,
+                          ConcurrencyLimiter limiter) {
+        this.servers = servers;
+        this.inflight = inflight;
+        this.durationSeconds = durationSeconds;
+        this.summaryFile = summaryFile;
+        this.metricsPort = metricsPort;
+        this.plates = new PlateNumbers(plateCount);
+        this.random = new SplittableRandom(seed);
+        this.limiter = limiter;
+        this.vehiclePermits = new Semaphore(inflight);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = parseOptions(args);
+        int inflight = Integer.parseInt(options.getOrDefault("inflight", "100"));
+        ConcurrencyLimiter limiter = Boolean.parseBoolean(options.getOrDefault("adaptive", "true"))
+                ? ConcurrencyLimiter.forClient(inflight,
+                        Integer.parseInt(options.getOrDefault("targetRoundtripMillis", "10")),
+                        Long.parseLong(options.getOrDefault("queueBudgetMillis", "100")))
+                : null;
+
+        TollCollectLoadDriver driver = new TollCollectLoadDriver(
+                options.getOrDefault("servers", "localhost:21212"),
+                inflight,
+                Long.parseLong(options.getOrDefault("duration", "60")),
+                Path.of(options.getOrDefault("summary", "load-summary.txt")),
+                Integer.parseInt(options.getOrDefault("metricsPort", "0")),
+                Integer.parseInt(options.getOrDefault("plates", Integer.toString(DEFAULT_PLATE_COUNT))),
+                Long.parseLong(options.getOrDefault("seed", "42")),
+                limiter);
+        driver.run();
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    void run() throws IOException, InterruptedException {
+        MetricsServer metricsServer = metricsPort > 0 ? startMetrics() : null;
+        try (TollCollectorDbClient tc = limiter == null
+                ? new TollCollectorDbClient(servers, inflight)
+                : new TollCollectorDbClient(servers, limiter)) {
+            client = tc;
+            client.connectToVolt();
+
+            System.out.printf("Running %d vehicles in flight for %ds against %s%n", inflight, durationSeconds, servers);
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+            while (System.nanoTime() < deadline) {
+                vehiclePermits.acquire();
+                scan(nextVehicle());
+            }
+
+            // Let the vehicles in flight finish, a lost callback must not hang the driver
+            if (!vehiclePermits.tryAcquire(inflight, DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.out.printf("%d vehicles still in flight after %ds, writing the summary without them%n",
+                        inflight - vehiclePermits.availablePermits(), DRAIN_TIMEOUT_SECONDS);
+            }
+            long elapsedNanos = System.nanoTime() - start;
+
+            writeSummary(elapsedNanos);
+            System.out.println("Summary written to " + summaryFile);
+        } finally {
+            if (limiter != null) {
+                limiter.close();
+            }
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+        }
+    }
+
+    private MetricsServer startMetrics() {
+        MetricsRegistry registry = MetricsRegistry.defaultRegistry();
+        processPlateStats.register(registry);
+        chargeAccountStats.register(registry);
+        registry.registerGauge("tollcollect_client_in_flight", "Transactions in flight in the load driver",
+                () -> inflight - vehiclePermits.availablePermits());
+        if (limiter != null) {
+            limiter.register(registry);
+        }
+
+        MetricsServer server = MetricsServer.start(metricsPort, registry);
+        System.out.printf("Serving metrics at http://localhost:%d/metrics%n", server.port());
+        return server;
+    }
+
+    private ScanRequest nextVehicle() {
+        return new ScanRequest(
+                System.currentTimeMillis(),
+                LOCATIONS[random.nextInt(LOCATIONS.length)],
+                Integer.toString(random.nextInt(LANE_COUNT)),
+                plates.valid(random.nextInt(plates.count())),
+                VEHICLE_CLASSES[random.nextInt(VEHICLE_CLASSES.length)]);
+    }
+
+    private void scan(ScanRequest scan) {
+        client.callProcedureAsync("ProcessPlate",
+                        scan.scanTimestamp(), scan.location(), scan.lane(), scan.plateNum(), scan.vehicleClass())
+                .whenComplete((response, error) -> {
+                    // The vehicle is finished here unless ChargeAccount was sent, whatever the callback throws
+                    boolean charging = false;
+                    try {
+                        if (processPlateStats.record(response, error)) {
+                            // ProcessPlate returns the scan row it wrote, no need to read it back
+                            VoltTable scanResult = response.getResults()[0];
+                            outcomeMetrics.record(tollReason(scanResult));
+                            charging = charge(scan, scanResult);
+                        } else if (response != null && response.getStatus() == ClientResponse.USER_ABORT) {
+                            outcomeMetrics.aborted(1);
+                        }
+                    } finally {
+                        if (!charging) {
+                            finish();
+                        }
+                    }
+                });
+    }
+
+    // Returns whether ChargeAccount was sent, its callback then finishes the vehicle
+    private boolean charge(ScanRequest scan, VoltTable scanResult) {
+        if (scanResult.getActiveRowIndex() < 0 || scanResult.getLong("ACCOUNT_ID") <= 0) {
+            // Unknown vehicle, billed by mail
+            return false;
+        }
+
+        long scanId = scanResult.getLong("SCAN_ID");
+        int accountId = (int) scanResult.getLong("ACCOUNT_ID");
+        BigDecimal tollAmount = scanResult.getDecimalAsBigDecimal("TOLL_AMOUNT");
+        String tollReason = scanResult.getString("TOLL_REASON");
+
+        client.callProcedureAsync("ChargeAccount",
+                        scanId, scan.scanTimestamp(), scan.location(), scan.lane(), scan.plateNum(),
+                        accountId, tollAmount, tollReason)
+                .whenComplete((response, error) -> {
+                    try {
+                        chargeAccountStats.record(response, error);
+                    } finally {
+                        finish();
+                    }
+                });
+        return true;
+    }
+
+    // Moves to the single row of the scan outcome and returns its toll reason
+    private static String tollReason(VoltTable outcome) {
+        return outcome.advanceRow() ? outcome.getString("TOLL_REASON") : null;
+    }
+
+    private void finish() {
+        vehiclesCompleted.increment();
+        vehiclePermits.release();
+    }
+
+    private void writeSummary(long elapsedNanos) throws IOException {
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        List<ProcedureStats> procedures = List.of(processPlateStats, chargeAccountStats);
+        long transactions = procedures.stream().mapToLong(ProcedureStats::calls).sum();
+
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(summaryFile))) {
+            out.printf("servers: %s%n", servers);
+            out.printf("transactions in flight: %d%n", inflight);
+            out.printf("elapsed: %.1fs%n", seconds);
+            out.printf("vehicles: %d (%.0f/s)%n", vehiclesCompleted.sum(), vehiclesCompleted.sum() / seconds);
+            out.printf("transactions: %d (%.0f/s)%n", transactions, transactions / seconds);
+            if (limiter != null) {
+                out.printf("adaptive limit: %d at the end, lowered %d times, "
+                                + "shed %d ChargeAccount and %d other calls%n",
+                        limiter.limit(), limiter.decreaseCount(),
+                        limiter.shedCount(ConcurrencyLimiter.Priority.HIGH),
+                        limiter.shedCount(ConcurrencyLimiter.Priority.NORMAL));
+            }
+            out.println();
+            out.printf("%-16s %10s %10s %8s %8s  %-8s %9s %9s %9s %9s %9s%n",
+                    "procedure", "calls", "succeeded", "aborted", "failed",
+                    "latency", "mean(ms)", "p50(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+            for (ProcedureStats stats : procedures) {
+                writeLatencies(out, stats, "cluster", stats.clusterRoundtripMicros());
+                writeLatencies(out, stats, "client", stats.clientRoundtripMicros());
+            }
+        }
+    }
+
+    private static void writeLatencies(PrintWriter out, ProcedureStats stats, String kind, LatencyHistogram histogram) {
+        boolean first = "cluster".equals(kind);
+        out.printf("%-16s %10s %10s %8s %8s  %-8s %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+                first ? stats.procedure() : "",
+                first ? Long.toString(stats.calls()) : "",
+                first ? Long.toString(stats.succeeded()) : "",
+                first ? Long.toString(stats.aborted()) : "",
+                first ? Long.toString(stats.failed()) : "",
+                kind,
+                histogram.mean() / 1000.0,
+                histogram.percentile(50) / 1000.0,
+                histogram.percentile(99) / 1000.0,
+                histogram.percentile(99.9) / 1000.0,
+                histogram.max() / 1000.0);
+    }
+
+    record ScanRequest(long scanTimestamp, String location, String lane, String plateNum, String vehicleClass) {
+    }
+}
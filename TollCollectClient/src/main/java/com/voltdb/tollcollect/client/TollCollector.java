@@ -13,6 +13,7 @@ import org.voltdb.client.ProcCallException;
 import java.io.Console;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Arrays;
 
 public class TollCollector {
 
@@ -25,7 +26,34 @@ public class TollCollector {
         this.console = console;
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // A mode as first argument runs that tool with the remaining arguments instead of the interactive client
+        String[] modeArgs = args.length > 0 ? Arrays.copyOfRange(args, 1, args.length) : args;
+        switch (args.length > 0 ? args[0] : "") {
+            case "load":
+                // The headless load driver
+                TollCollectLoadDriver.main(modeArgs);
+                return;
+            case "viewbench":
+                // Compares insert throughput with different vehicle_classes_freq views
+                ViewMaintenanceBenchmark.main(modeArgs);
+                return;
+            case "history":
+                // Pages through the history of a plate or an account
+                HistoryLookup.main(modeArgs);
+                return;
+            case "dataset":
+                // Generates accounts and known vehicles at scale, into CSV files or straight into Volt
+                DatasetGenerator.main(modeArgs);
+                return;
+            case "capacity":
+                // Steps up the offered rate to find the highest one within a latency SLO
+                CapacityFinder.main(modeArgs);
+                return;
+            default:
+                break;
+        }
+
         new TollCollector(System.console()).run();
     }
 
@@ -52,23 +80,13 @@ public class TollCollector {
                 String plateNum = console.readLine("Enter plate number [X000-X999]: ");
                 String vehicleClass = console.readLine("Enter vehicle type [Car|Motorcycle|Small Truck|Large Truck|Bus]: ");
 
-                try {
-                    // Perform Volt procedure call to process plate
-                    tc.processScanRow(scanTimestamp, location, lane, plateNum, vehicleClass);
-                } catch (IOException | ProcCallException e) {
-                    System.err.println("Error processing scan: " + e.getMessage());
-                    continue;
-                }
-
-                System.out.println("Checking Entry...");
-
                 VoltTable scanResult;
-                // Perform Volt query, collect results, and print results with a well formatted string.
                 try {
-                    scanResult = tc.getPlateHistory(plateNum, location, lane,1);
+                    // Perform Volt procedure call to process plate, it returns the scan row it wrote
+                    scanResult = tc.processScanRow(scanTimestamp, location, lane, plateNum, vehicleClass);
                     System.out.println(scanResult.toFormattedString());
                 } catch (IOException | ProcCallException e) {
-                    System.err.println("Error retrieving data: " + e.getMessage());
+                    System.err.println("Error processing scan: " + e.getMessage());
                     continue;
                 }
 
@@ -7,7 +7,9 @@
  */
 package com.voltdb.tollcollect.client;
 
+import com.voltdb.tollcollect.common.PartitionRouting;
 import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
 import org.voltdb.client.Client2;
 import org.voltdb.client.Client2Config;
 import org.voltdb.client.ClientFactory;
@@ -16,12 +18,18 @@ import org.voltdb.client.ProcCallException;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 
 public class TollCollectorDbClient implements AutoCloseable {
 
+    // Asynchronous calls of these procedures go ahead of the others when the cluster is overloaded
+    private static final Set<String> HIGH_PRIORITY_PROCEDURES = Set.of("ChargeAccount");
+
     private final String servers;
     private final Client2 client;
+    private final ConcurrencyLimiter limiter;
 
     public TollCollectorDbClient(String servers) {
         this.servers = servers;
@@ -29,6 +37,28 @@ public class TollCollectorDbClient implements AutoCloseable {
         // Create a client instance with default configuration values
         Client2Config config = new Client2Config();
         client = ClientFactory.createClient(config);
+        limiter = null;
+    }
+
+    // Used by the loader and the benchmarks, allows up to maxInFlight asynchronous calls to be queued in the client
+    public TollCollectorDbClient(String servers, int maxInFlight) {
+        this.servers = servers;
+
+        Client2Config config = new Client2Config()
+                .clientRequestLimit(maxInFlight);
+        client = ClientFactory.createClient(config);
+        limiter = null;
+    }
+
+    // Used by the load driver, asynchronous calls go through the limiter, which keeps them within the request
+    // limit of the client and sheds them when the cluster cannot keep up
+    TollCollectorDbClient(String servers, ConcurrencyLimiter limiter) {
+        this.servers = servers;
+        this.limiter = limiter;
+
+        Client2Config config = new Client2Config()
+                .clientRequestLimit(limiter.maxLimit());
+        client = ClientFactory.createClient(config);
     }
 
     // Method to establish connection with Volt using Client2
@@ -43,24 +73,28 @@ public class TollCollectorDbClient implements AutoCloseable {
         client.close();
     }
 
-    // Method used to process plate
-    void processScanRow(long scanTimestamp, String location, String lane, String plateNum, String vehicleClass)
+    // Method used to process plate, returns the scan row ProcessPlate wrote with the toll it computed
+    VoltTable processScanRow(long scanTimestamp, String location, String lane, String plateNum, String vehicleClass)
             throws IOException, ProcCallException {
         System.out.println("Looking up plate... Calculating toll... Writing to scan log... ");
-        // Call ProcessPlate procedure with synchronous completion and return response into ClientResponse object
-        callProcedureSynchronously("ProcessPlate", scanTimestamp, location, lane, plateNum, vehicleClass);
+        // Call ProcessPlate procedure with synchronous completion, the scan outcome is its only result
+        return callProcedureSynchronously("ProcessPlate", scanTimestamp, location, lane, plateNum, vehicleClass)[0];
     }
 
-    // Method used to get plate history and return query result as VoltTable
-    VoltTable getPlateHistory(String plateNum, String location, String lane, long rowCount) throws IOException, ProcCallException {
-        // Call PlateHistory procedure with synchronous completion and return response into ClientResponse object
-        return callProcedureSynchronously("GetPlateHistory", plateNum, location, lane, rowCount)[0];
+    // Method used to page through the scans of a plate, newest first, starting after the given cursor
+    VoltTable getPlateHistoryPage(String plateNum, HistoryCursor after, long rowCount) throws IOException, ProcCallException {
+        // Single partition call, the cursor supplies the arguments of the keyset condition
+        return callProcedureSynchronously("GetPlateHistoryPage", after.pageArguments(plateNum, rowCount))[0];
     }
 
-    // Method used to get account history and return query result as VoltTable
+    // Method used to get the latest account history and return query result as VoltTable
     VoltTable getAccountHistory(long accountId, long rowCount) throws IOException, ProcCallException {
-        // Call PlateHistory procedure with synchronous completion and return response into ClientResponse object
-        return callProcedureSynchronously("GetAccountHistory", accountId, rowCount)[0];
+        return getAccountHistoryPage(accountId, HistoryCursor.FIRST_PAGE, rowCount);
+    }
+
+    // Method used to page through the transactions of an account, newest first, starting after the given cursor
+    VoltTable getAccountHistoryPage(long accountId, HistoryCursor after, long rowCount) throws IOException, ProcCallException {
+        return callProcedureSynchronously("GetAccountHistoryPage", after.pageArguments(accountId, rowCount))[0];
     }
 
     // Method used to charge account
@@ -71,6 +105,48 @@ public class TollCollectorDbClient implements AutoCloseable {
         callProcedureSynchronously("ChargeAccount", scanId, scanTimestamp, location, lane, plateNum, accountId, tollAmount, tollReason);
     }
 
+    // Method used by the load driver, completes with the response instead of printing it. When the limiter sheds
+    // the call, completes exceptionally with a RejectedExecutionException without sending it
+    CompletableFuture<ClientResponse> callProcedureAsync(String procedure, Object... arguments) {
+        if (limiter == null) {
+            return client.callProcedureAsync(procedure, arguments);
+        }
+        ConcurrencyLimiter.Priority priority = HIGH_PRIORITY_PROCEDURES.contains(procedure)
+                ? ConcurrencyLimiter.Priority.HIGH
+                : ConcurrencyLimiter.Priority.NORMAL;
+        return limiter.submit(priority,
+                () -> client.callProcedureAsync(procedure, arguments),
+                TollCollectorDbClient::clusterRoundtripMillis);
+    }
+
+    // Used by the loader to send each batch of rows to the partition they belong to
+    PartitionRouting partitionRouting(VoltType keyType) throws IOException {
+        try {
+            return PartitionRouting.load(client, keyType);
+        } catch (ProcCallException e) {
+            throw new IOException("Unable to load the partitioning of " + servers, e);
+        }
+    }
+
+    // The limit of asynchronous calls, null when they are not limited
+    ConcurrencyLimiter limiter() {
+        return limiter;
+    }
+
+    // Calls lost or timed out on the way count as slow as can be. A procedure that failed or aborted was executed,
+    // its round trip says how loaded the cluster is
+    private static int clusterRoundtripMillis(ClientResponse response) {
+        switch (response.getStatus()) {
+            case ClientResponse.CONNECTION_TIMEOUT:
+            case ClientResponse.CONNECTION_LOST:
+            case ClientResponse.SERVER_UNAVAILABLE:
+            case ClientResponse.RESPONSE_UNKNOWN:
+                return Integer.MAX_VALUE;
+            default:
+                return response.getClusterRoundtrip();
+        }
+    }
+
     private VoltTable[] callProcedureSynchronously(String procedure, Object... arguments) throws IOException, ProcCallException {
         ClientResponse response = client.callProcedureSync(procedure, arguments);
         if (response.getStatus() != ClientResponse.SUCCESS) {
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import org.voltdb.client.ClientResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the ProcessPlate insert throughput with different definitions of the vehicle_classes_freq view, to
+ * show what maintaining a join view on every SCAN_HISTORY insert and delete costs.
+ * <p>
+ * The view is replaced with {@code @AdHoc} DDL before each round. Rounds of the variants are interleaved so that
+ * a growing SCAN_HISTORY affects them alike, and the single table view of create_db.sql is restored at the end:
+ * <pre>
+ * java -jar TollCollectClient-1.0-SNAPSHOT.jar viewbench --servers=localhost:21212 --inflight=200 --duration=30 --rounds=3
+ * </pre>
+ * Run it against a cluster without other load.
+ */
+public class ViewMaintenanceBenchmark {
+
+    private static final String DROP_VIEW =
+            "DROP PROCEDURE dashboard_vehicle_classes_freq IF EXISTS;\n" +
+            "DROP VIEW vehicle_classes_freq IF EXISTS;\n";
+
+    // The view as defined in create_db.sql, counting the vehicle type recorded on the scan
+    private static final String SINGLE_TABLE_VIEW = DROP_VIEW +
+            "CREATE VIEW vehicle_classes_freq (vehicle_type, scan_count) AS\n" +
+            "SELECT vehicle_type, COUNT(*) AS scan_count FROM SCAN_HISTORY GROUP BY vehicle_type;\n" +
+            "CREATE PROCEDURE dashboard_vehicle_classes_freq AS\n" +
+            "SELECT vt.vehicle_class, f.scan_count FROM vehicle_classes_freq f\n" +
+            "JOIN vehicle_types vt ON f.vehicle_type = vt.vehicle_type;\n";
+
+    // The previous definition, joining every scan to KNOWN_VEHICLES and VEHICLE_TYPES
+    private static final String JOIN_VIEW = DROP_VIEW +
+            "CREATE VIEW vehicle_classes_freq (vehicle_type, vehicle_class, scan_count) AS\n" +
+            "SELECT vt.vehicle_type, vt.vehicle_class, COUNT(*) AS scan_count FROM SCAN_HISTORY sh\n" +
+            "JOIN KNOWN_VEHICLES kv ON sh.plate_num = kv.plate_num\n" +
+            "JOIN VEHICLE_TYPES vt ON kv.vehicle_type = vt.vehicle_type\n" +
+            "GROUP BY vt.vehicle_type, vt.vehicle_class;\n" +
+            "CREATE PROCEDURE dashboard_vehicle_classes_freq AS\n" +
+            "SELECT vehicle_class, scan_count FROM vehicle_classes_freq;\n";
+
+    private static final Map<String, String> VARIANTS = new LinkedHashMap<>();
+
+    static {
+        VARIANTS.put("join", JOIN_VIEW);
+        VARIANTS.put("single", SINGLE_TABLE_VIEW);
+        VARIANTS.put("none", DROP_VIEW);
+    }
+
+    private final String servers;
+    private final int inflight;
+    private final long durationSeconds;
+    private final long warmupSeconds;
+    private final int rounds;
+    private final List<String> variants;
+    private final Path summaryFile;
+    private final SplittableRandom random;
+
+    private TollCollectorDbClient client;
+
+    ViewMaintenanceBenchmark(String servers,
+                             int inflight,
+                             long durationSeconds,
+                             long warmupSeconds,
+                             int rounds,
+                             List<String> variants,
+                             Path summaryFile,
+                             long seed) {
+        this.servers = servers;
+        this.inflight = inflight;
+        this.durationSeconds = durationSeconds;
+        this.warmupSeconds = warmupSeconds;
+        this.rounds = rounds;
+        this.variants = variants;
+        this.summaryFile = summaryFile;
+        this.random = new SplittableRandom(seed);
+
+        for (String variant : variants) {
+            if (!VARIANTS.containsKey(variant)) {
+                throw new IllegalArgumentException("Unknown variant " + variant + ", expected one of " + VARIANTS.keySet());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        Map<String, String> options = TollCollectLoadDriver.parseOptions(args);
+
+        ViewMaintenanceBenchmark benchmark = new ViewMaintenanceBenchmark(
+                options.getOrDefault("servers", "localhost:21212"),
+                Integer.parseInt(options.getOrDefault("inflight", "200")),
+                Long.parseLong(options.getOrDefault("duration", "30")),
+                Long.parseLong(options.getOrDefault("warmup", "5")),
+                Integer.parseInt(options.getOrDefault("rounds", "3")),
+                List.of(options.getOrDefault("variants", "join,single,none").split(",")),
+                Path.of(options.getOrDefault("summary", "view-benchmark.txt")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+        benchmark.run();
+    }
+
+    void run() throws IOException, InterruptedException, ExecutionException {
+        Map<String, List<Round>> results = new LinkedHashMap<>();
+        for (String variant : variants) {
+            results.put(variant, new ArrayList<>());
+        }
+
+        try (TollCollectorDbClient tc = new TollCollectorDbClient(servers, inflight)) {
+            client = tc;
+            client.connectToVolt();
+
+            try {
+                for (int round = 1; round <= rounds; round++) {
+                    for (String variant : variants) {
+                        replaceView(VARIANTS.get(variant));
+                        insert(new ProcedureStats("ProcessPlate"), warmupSeconds);
+
+                        ProcedureStats stats = new ProcedureStats("ProcessPlate");
+                        long elapsedNanos = insert(stats, durationSeconds);
+                        Round result = new Round(stats, elapsedNanos);
+                        results.get(variant).add(result);
+                        System.out.printf("round %d %-6s %10.0f inserts/s  p99 %.3fms%n",
+                                round, variant, result.throughput(),
+                                stats.clusterRoundtripMicros().percentile(99) / 1000.0);
+                    }
+                }
+            } finally {
+                replaceView(SINGLE_TABLE_VIEW);
+            }
+        }
+
+        writeSummary(results);
+        System.out.println("Summary written to " + summaryFile);
+    }
+
+    private void replaceView(String ddl) throws InterruptedException, ExecutionException {
+        ClientResponse response = client.callProcedureAsync("@AdHoc", ddl).get();
+        if (response.getStatus() != ClientResponse.SUCCESS) {
+            throw new IllegalStateException("Unable to replace vehicle_classes_freq: " + response.getStatusString());
+        }
+    }
+
+    /**
+     * Calls ProcessPlate with {@code inflight} calls outstanding for the given time and returns the elapsed time.
+     */
+    private long insert(ProcedureStats stats, long seconds) throws InterruptedException {
+        Semaphore permits = new Semaphore(inflight);
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < deadline) {
+            permits.acquire();
+            client.callProcedureAsync("ProcessPlate",
+                            System.currentTimeMillis(),
+                            TollCollectLoadDriver.LOCATIONS[random.nextInt(TollCollectLoadDriver.LOCATIONS.length)],
+                            Integer.toString(random.nextInt(TollCollectLoadDriver.LANE_COUNT)),
+                            String.format("X%03d", random.nextInt(TollCollectLoadDriver.DEFAULT_PLATE_COUNT)),
+                            TollCollectLoadDriver.VEHICLE_CLASSES[random.nextInt(TollCollectLoadDriver.VEHICLE_CLASSES.length)])
+                    .whenComplete((response, error) -> {
+                        stats.record(response, error);
+                        permits.release();
+                    });
+        }
+        permits.acquire(inflight);
+        return System.nanoTime() - start;
+    }
+
+    private void writeSummary(Map<String, List<Round>> results) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(summaryFile))) {
+            out.printf("servers: %s%n", servers);
+            out.printf("transactions in flight: %d%n", inflight);
+            out.printf("rounds: %d of %ds%n", rounds, durationSeconds);
+            out.println();
+            out.printf("%-8s %12s %12s %12s %10s %10s %10s%n",
+                    "view", "mean(tx/s)", "min(tx/s)", "max(tx/s)", "p50(ms)", "p99(ms)", "failed");
+
+            double baseline = 0;
+            for (Map.Entry<String, List<Round>> entry : results.entrySet()) {
+                List<Round> variantRounds = entry.getValue();
+                double mean = variantRounds.stream().mapToDouble(Round::throughput).average().orElse(0);
+                double min = variantRounds.stream().mapToDouble(Round::throughput).min().orElse(0);
+                double max = variantRounds.stream().mapToDouble(Round::throughput).max().orElse(0);
+                double p50 = variantRounds.stream()
+                        .mapToDouble(round -> round.stats().clusterRoundtripMicros().percentile(50)).average().orElse(0);
+                double p99 = variantRounds.stream()
+                        .mapToDouble(round -> round.stats().clusterRoundtripMicros().percentile(99)).average().orElse(0);
+                long failed = variantRounds.stream()
+                        .mapToLong(round -> round.stats().aborted() + round.stats().failed()).sum();
+
+                out.printf("%-8s %12.0f %12.0f %12.0f %10.3f %10.3f %10d",
+                        entry.getKey(), mean, min, max, p50 / 1000.0, p99 / 1000.0, failed);
+                if (baseline == 0) {
+                    baseline = mean;
+                    out.println();
+                } else {
+                    out.printf("  (%+.1f%% vs %s)%n", (mean / baseline - 1) * 100, variants.get(0));
+                }
+            }
+        }
+    }
+
+    private record Round(ProcedureStats stats, long elapsedNanos) {
+
+        double throughput() {
+            return stats.succeeded() / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import org.voltdb.VoltTable;
+import org.voltdb.client.ClientResponse;
+
+import java.io.IOException;
+
+/**
+ * Sends the vehicles of the capacity finder to a Volt cluster, chaining ChargeAccount from the scan outcome
+ * returned by ProcessPlate.
+ */
+class VoltCapacityTarget implements CapacityTarget {
+
+    private final TollCollectorDbClient client;
+
+    VoltCapacityTarget(String servers, int maxInFlight) throws IOException {
+        client = new TollCollectorDbClient(servers, maxInFlight);
+        client.connectToVolt();
+    }
+
+    @Override
+    public void vehicle(TollCollectLoadDriver.ScanRequest scan, Listener listener) {
+        client.callProcedureAsync("ProcessPlate",
+                        scan.scanTimestamp(), scan.location(), scan.lane(), scan.plateNum(), scan.vehicleClass())
+                .whenComplete((response, error) -> {
+                    if (error != null || response.getStatus() != ClientResponse.SUCCESS) {
+                        listener.scanned(false, false);
+                        return;
+                    }
+
+                    VoltTable outcome = response.getResults()[0];
+                    boolean charging = outcome.advanceRow()
+                            && outcome.getLong("ACCOUNT_ID") > 0
+                            && !"EXEMPT".equals(outcome.getString("TOLL_REASON"));
+                    listener.scanned(true, charging);
+                    if (charging) {
+                        charge(scan, outcome, listener);
+                    }
+                });
+    }
+
+    private void charge(TollCollectLoadDriver.ScanRequest scan, VoltTable outcome, Listener listener) {
+        long submitted = System.nanoTime();
+        client.callProcedureAsync("ChargeAccount",
+                        outcome.getLong("SCAN_ID"), scan.scanTimestamp(), scan.location(), scan.lane(),
+                        scan.plateNum(), (int) outcome.getLong("ACCOUNT_ID"),
+                        outcome.getDecimalAsBigDecimal("TOLL_AMOUNT"), outcome.getString("TOLL_REASON"))
+                .whenComplete((response, error) -> listener.charged(
+                        error == null && response.getStatus() == ClientResponse.SUCCESS,
+                        System.nanoTime() - submitted));
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
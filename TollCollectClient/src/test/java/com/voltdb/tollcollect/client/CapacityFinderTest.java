@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CapacityFinderTest {
+
+    private static final CapacityFinder.Settings SETTINGS = new CapacityFinder.Settings(
+            "simulated", 2000, 2000, 30000, 2, 0.5, 20, 0.95, 0.01, 20000);
+
+    // 20000 transactions a second and 1.75 transactions per vehicle, so about 11400 vehicles a second
+    private static List<CapacityFinder.StepResult> search() throws InterruptedException {
+        SimulatedClock clock = new SimulatedClock();
+        try (CapacityTarget target = new SimulatedCapacityTarget(20000, 500, clock)) {
+            return new CapacityFinder(SETTINGS, 7, TollCollectLoadDriver.DEFAULT_PLATE_COUNT, clock).run(target);
+        }
+    }
+
+    @Test
+    void findsSimulatedCapacity() throws InterruptedException {
+        List<CapacityFinder.StepResult> steps = search();
+
+        assertEquals(10000, CapacityFinder.capacity(steps), "last step below the simulated capacity");
+        CapacityFinder.StepResult last = steps.get(steps.size() - 1);
+        assertFalse(last.passed(), "stops at the first failing step");
+        assertEquals(12000, last.offeredRate(), "failing step follows the capacity");
+        assertTrue(steps.get(0).processPlateP99Millis() < 5, "unloaded latency");
+        assertEquals(steps, search(), "same steps on every run");
+    }
+
+    @Test
+    void baseline(@TempDir Path directory) throws IOException, InterruptedException {
+        List<CapacityFinder.StepResult> steps = search();
+        int capacity = CapacityFinder.capacity(steps);
+        Path output = directory.resolve("capacity.json");
+        Files.writeString(output, CapacityFinder.toJson(SETTINGS, capacity, steps));
+        assertEquals(capacity, CapacityFinder.readBaselineCapacity(output), "capacity read back from the results");
+
+        assertFalse(CapacityFinder.regressed(9000, 10000, 0.1), "within the tolerance");
+        assertTrue(CapacityFinder.regressed(8999, 10000, 0.1), "below the tolerance");
+        assertFalse(CapacityFinder.regressed(12000, 10000, 0.1), "improvement");
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import com.voltdb.tollcollect.metrics.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimiterTest {
+
+    private static final int OFFERED_PER_SECOND = 4000;
+    private static final int TARGET_ROUNDTRIP_MILLIS = 10;
+    private static final long QUEUE_BUDGET_MILLIS = 100;
+
+    private final SimulatedClock clock = new SimulatedClock();
+
+    /**
+     * Stand-in for a cluster executing calls one after the other, each taking {@code serviceNanos}, which can be
+     * raised to slow it down. Completes with the cluster round trip in milliseconds, queueing included.
+     */
+    private final class SlowedCluster {
+        private long serviceNanos;
+        private long nextFreeNanos;
+
+        private SlowedCluster(int transactionsPerSecond) {
+            capacity(transactionsPerSecond);
+        }
+
+        private void capacity(int transactionsPerSecond) {
+            serviceNanos = TimeUnit.SECONDS.toNanos(1) / transactionsPerSecond;
+        }
+
+        private CompletableFuture<Integer> call() {
+            long now = clock.nanoTime();
+            nextFreeNanos = Math.max(nextFreeNanos, now) + serviceNanos;
+            long finished = nextFreeNanos;
+            CompletableFuture<Integer> response = new CompletableFuture<>();
+            int roundtripMillis = (int) TimeUnit.NANOSECONDS.toMillis(finished - now);
+            clock.schedule(() -> response.complete(roundtripMillis), finished - now);
+            return response;
+        }
+    }
+
+    /**
+     * Outcomes of the calls of one priority during a phase.
+     */
+    private static final class Outcomes {
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder shed = new LongAdder();
+        private final LatencyHistogram clusterMicros = new LatencyHistogram();
+        private final LatencyHistogram callerMicros = new LatencyHistogram();
+    }
+
+    @Test
+    void shedsScansWhenTheClusterSlowsDown() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 1, 200, TARGET_ROUNDTRIP_MILLIS,
+                QUEUE_BUDGET_MILLIS, 200, 0.75, clock::nanoTime);
+        SlowedCluster cluster = new SlowedCluster(20_000);
+
+        // A fifth of the calls are ChargeAccount, 800/s, below what the slowed cluster still executes
+        Outcomes fastHigh = new Outcomes();
+        Outcomes fastNormal = new Outcomes();
+        offer(limiter, cluster, 1000, fastHigh, fastNormal);
+        long decreasesBeforeSlowdown = limiter.decreaseCount();
+
+        // The cluster slows down to a quarter of the calls offered; settle for half a second, then measure
+        cluster.capacity(1000);
+        offer(limiter, cluster, 500, new Outcomes(), new Outcomes());
+        Outcomes slowHigh = new Outcomes();
+        Outcomes slowNormal = new Outcomes();
+        offer(limiter, cluster, 1500, slowHigh, slowNormal);
+        int slowLimit = limiter.limit();
+
+        assertEquals(0, fastNormal.shed.sum() + fastHigh.shed.sum(), "nothing shed before the slowdown");
+        assertTrue(limiter.decreaseCount() > decreasesBeforeSlowdown, "limit lowered by the slowdown");
+        assertTrue(slowLimit < 40, "limit near the target round trip, was " + slowLimit);
+
+        // The cluster round trip stays near the target instead of growing with the queue
+        long clusterP90 = Math.max(slowHigh.clusterMicros.percentile(90), slowNormal.clusterMicros.percentile(90));
+        assertTrue(clusterP90 <= TimeUnit.MILLISECONDS.toMicros(3 * TARGET_ROUNDTRIP_MILLIS),
+                "cluster round trip p90 " + clusterP90 + "us");
+
+        // Calls are shed rather than queued past the budget, scans first
+        long callerP99 = Math.max(slowHigh.callerMicros.percentile(99), slowNormal.callerMicros.percentile(99));
+        assertTrue(callerP99 <= TimeUnit.MILLISECONDS.toMicros(QUEUE_BUDGET_MILLIS + 5L * TARGET_ROUNDTRIP_MILLIS),
+                "caller latency p99 " + callerP99 + "us");
+        double normalShed = share(slowNormal.shed, slowNormal.submitted);
+        double highShed = share(slowHigh.shed, slowHigh.submitted);
+        double highSucceeded = share(slowHigh.succeeded, slowHigh.submitted);
+        assertTrue(normalShed > 0.5, "scans shed while overloaded, " + normalShed);
+        assertTrue(highSucceeded > 0.9, "ChargeAccount calls succeeded while overloaded, " + highSucceeded);
+        assertTrue(highShed * 10 < normalShed, "ChargeAccount shed less than scans, " + highShed);
+    }
+
+    // A call waiting behind one that never completes is shed once its budget has passed, without new calls
+    @Test
+    void sweepShedsExpiredCalls() {
+        AtomicLong now = new AtomicLong();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(1, 1, 1, TARGET_ROUNDTRIP_MILLIS, QUEUE_BUDGET_MILLIS,
+                10, 0.75, now::get);
+        limiter.submit(ConcurrencyLimiter.Priority.HIGH, CompletableFuture::new, Integer::intValue);
+        CompletableFuture<Integer> waiting = limiter.submit(ConcurrencyLimiter.Priority.HIGH,
+                () -> CompletableFuture.completedFuture(0), Integer::intValue);
+
+        now.set(TimeUnit.MILLISECONDS.toNanos(QUEUE_BUDGET_MILLIS));
+        limiter.sweep();
+        assertFalse(waiting.isDone(), "within the budget");
+
+        now.incrementAndGet();
+        limiter.sweep();
+        assertInstanceOf(RejectedExecutionException.class, waiting.handle((result, error) -> error).join(),
+                "shed after the budget");
+        assertEquals(1, limiter.shedCount(ConcurrencyLimiter.Priority.HIGH), "shed count");
+    }
+
+    // System.nanoTime may start anywhere and wrap, a call dispatched after the wrap still lowers the limit again
+    @Test
+    void decreasesAcrossClockWrap() {
+        AtomicLong now = new AtomicLong(Long.MAX_VALUE - TimeUnit.MILLISECONDS.toNanos(1));
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(100, 1, 100, TARGET_ROUNDTRIP_MILLIS, QUEUE_BUDGET_MILLIS,
+                100, 0.75, now::get);
+        CompletableFuture<Integer> first = new CompletableFuture<>();
+        limiter.submit(ConcurrencyLimiter.Priority.HIGH, () -> first, Integer::intValue);
+        first.complete(TARGET_ROUNDTRIP_MILLIS + 1);
+        assertEquals(1, limiter.decreaseCount(), "first slow call");
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(2));
+        CompletableFuture<Integer> second = new CompletableFuture<>();
+        limiter.submit(ConcurrencyLimiter.Priority.HIGH, () -> second, Integer::intValue);
+        second.complete(TARGET_ROUNDTRIP_MILLIS + 1);
+        assertEquals(2, limiter.decreaseCount(), "slow call dispatched after the wrap");
+    }
+
+    // Offers calls at a constant rate for the duration, then waits for all of them to complete
+    private void offer(ConcurrencyLimiter limiter, SlowedCluster cluster, long durationMillis,
+                       Outcomes high, Outcomes normal) {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / OFFERED_PER_SECOND;
+        long start = clock.nanoTime();
+        long end = start + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        LongAdder outstanding = new LongAdder();
+        long next = start;
+        for (long i = 0; next < end; i++, next += intervalNanos) {
+            clock.parkUntil(next);
+            boolean charge = i % 5 == 0;
+            Outcomes outcomes = charge ? high : normal;
+            outcomes.submitted.increment();
+            outstanding.increment();
+            long submitted = clock.nanoTime();
+            limiter.submit(charge ? ConcurrencyLimiter.Priority.HIGH : ConcurrencyLimiter.Priority.NORMAL,
+                            cluster::call, Integer::intValue)
+                    .whenComplete((roundtripMillis, error) -> {
+                        if (error == null) {
+                            outcomes.succeeded.increment();
+                            outcomes.clusterMicros.record(TimeUnit.MILLISECONDS.toMicros(roundtripMillis));
+                            outcomes.callerMicros.record((clock.nanoTime() - submitted) / 1000);
+                        } else if (error instanceof RejectedExecutionException) {
+                            outcomes.shed.increment();
+                        }
+                        outstanding.decrement();
+                    });
+        }
+        clock.parkUntil(clock.nanoTime() + TimeUnit.SECONDS.toNanos(10));
+        assertEquals(0, outstanding.sum(), "all calls completed");
+    }
+
+    private static double share(LongAdder part, LongAdder whole) {
+        return whole.sum() == 0 ? 0 : (double) part.sum() / whole.sum();
+    }
+}
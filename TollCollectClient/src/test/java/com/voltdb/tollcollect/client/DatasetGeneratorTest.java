@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DatasetGeneratorTest {
+
+    private static final int PLATES = 2_000_000;
+
+    private final DatasetGenerator generator = new DatasetGenerator(PLATES, 0.975, 0.92, 3);
+
+    @Test
+    void shape() {
+        long[] accountStats = new long[3];
+        generator.accounts(account -> {
+            assertEquals(DatasetGenerator.FIRST_ACCOUNT_ID + accountStats[0], account.accountId(),
+                    "accounts numbered in order");
+            accountStats[0]++;
+            accountStats[1] += account.accountStatus();
+            accountStats[2] += account.autoTopup();
+            assertTrue(account.balance().signum() >= 0, "balance not negative");
+            assertEquals(2, account.balance().scale(), "balance in dollars and cents");
+        });
+        assertEquals(generator.accountCount(), accountStats[0], "account count");
+
+        int[] vehiclesPerAccount = new int[generator.accountCount()];
+        long[] types = new long[6];
+        long[] vehicleStats = new long[3];
+        String[] previous = {""};
+        generator.knownVehicles(vehicle -> {
+            assertTrue(vehicle.plateNum().compareTo(previous[0]) > 0, "plates unique and in order");
+            previous[0] = vehicle.plateNum();
+            vehiclesPerAccount[vehicle.accountId() - DatasetGenerator.FIRST_ACCOUNT_ID]++;
+            types[vehicle.vehicleType()]++;
+            vehicleStats[0]++;
+            vehicleStats[1] += vehicle.active();
+            vehicleStats[2] += vehicle.exemptStatus();
+        });
+
+        long vehicles = vehicleStats[0];
+        assertEquals(0.975, vehicles / (double) PLATES, 0.002, "known share");
+        assertEquals(0.987, accountStats[1] / (double) accountStats[0], 0.002, "active accounts");
+        assertEquals(0.717, accountStats[2] / (double) accountStats[0], 0.002, "auto top-up");
+        assertEquals(0.994, vehicleStats[1] / (double) vehicles, 0.001, "active vehicles");
+        assertEquals(0.048, vehicleStats[2] / (double) vehicles, 0.001, "exempt vehicles");
+        assertEquals(0.583, types[2] / (double) vehicles, 0.002, "cars");
+        assertEquals(0, types[0], "vehicle types from 1");
+
+        // As in the reference data, about a third of the accounts own no vehicle
+        long withoutVehicles = 0;
+        for (int count : vehiclesPerAccount) {
+            if (count == 0) {
+                withoutVehicles++;
+            }
+        }
+        assertEquals(0.34, withoutVehicles / (double) generator.accountCount(), 0.01, "accounts without vehicles");
+    }
+
+    @Test
+    void reproducible() {
+        List<DatasetGenerator.KnownVehicle> first = new ArrayList<>();
+        new DatasetGenerator(1000, 0.975, 0.92, 3).knownVehicles(first::add);
+        List<DatasetGenerator.KnownVehicle> second = new ArrayList<>();
+        new DatasetGenerator(1000, 0.975, 0.92, 3).knownVehicles(second::add);
+        assertEquals(first, second, "same seed, same vehicles");
+
+        List<DatasetGenerator.KnownVehicle> other = new ArrayList<>();
+        new DatasetGenerator(1000, 0.975, 0.92, 4).knownVehicles(other::add);
+        assertNotEquals(first, other, "other seed, other vehicles");
+    }
+
+    @Test
+    void csv(@TempDir Path directory) throws IOException {
+        DatasetGenerator generator = new DatasetGenerator(1000, 0.975, 0.92, 3);
+        generator.writeCsv(directory);
+        List<String> accounts = Files.readAllLines(directory.resolve("accounts.csv"));
+        List<String> vehicles = Files.readAllLines(directory.resolve("known_vehicles.csv"));
+        assertEquals("account_id,account_status,auto_topup,balance", accounts.get(0), "accounts header");
+        assertEquals(generator.accountCount() + 1, accounts.size(), "one line per account");
+        assertEquals("plate_num,account_id,vehicle_type,active,exempt_status", vehicles.get(0), "vehicles header");
+        assertTrue(vehicles.get(1).matches("X\\d{3},\\d+,[1-5],[01],[01]"), "vehicle line " + vehicles.get(1));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.types.TimestampType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryCursorTest {
+
+    private record Row(long timestampMicros, long id) {
+    }
+
+    // Newest first, with runs of rows sharing a timestamp as ChargeAccount writes them
+    private static final List<Row> HISTORY = List.of(
+            new Row(5_000, 9), new Row(5_000, 8), new Row(5_000, 7),
+            new Row(4_000, 6),
+            new Row(3_000, 5), new Row(3_000, 4),
+            new Row(2_000, 3), new Row(2_000, 2), new Row(2_000, 1));
+
+    @Test
+    void firstPage() {
+        assertEquals("9999-12-31 23:59:59.999999", HistoryCursor.FIRST_PAGE.timestamp().toString(),
+                "latest timestamp Volt accepts");
+        assertEquals(Long.MAX_VALUE, HistoryCursor.FIRST_PAGE.id());
+        assertEquals(HISTORY.subList(0, 4), page(HistoryCursor.FIRST_PAGE, 4), "newest rows");
+
+        Row latest = new Row(HistoryCursor.FIRST_PAGE.timestamp().getTime(), Long.MAX_VALUE - 1);
+        assertEquals(List.of(latest), page(List.of(latest), HistoryCursor.FIRST_PAGE, 4),
+                "a row at the latest timestamp is on the first page");
+    }
+
+    @Test
+    void advancesThroughTies() {
+        for (int pageSize = 1; pageSize <= HISTORY.size() + 1; pageSize++) {
+            List<Row> returned = new ArrayList<>();
+            HistoryCursor cursor = HistoryCursor.FIRST_PAGE;
+            while (cursor != null) {
+                List<Row> rows = page(cursor, pageSize);
+                returned.addAll(rows);
+                HistoryCursor next = HistoryCursor.after(table(rows), pageSize, "SCAN_TIMESTAMP", "SCAN_ID");
+                if (next != null) {
+                    Row last = rows.get(rows.size() - 1);
+                    assertEquals(new HistoryCursor(new TimestampType(last.timestampMicros()), last.id()), next,
+                            "cursor at the last row of the page");
+                }
+                cursor = next;
+            }
+            assertEquals(HISTORY, returned, "every row once in pages of " + pageSize);
+        }
+    }
+
+    @Test
+    void lastPage() {
+        VoltTable page = table(HISTORY.subList(0, 3));
+        assertNull(HistoryCursor.after(page, 4, "SCAN_TIMESTAMP", "SCAN_ID"), "short page");
+        assertNull(HistoryCursor.after(table(List.of()), 0, "SCAN_TIMESTAMP", "SCAN_ID"), "empty page");
+
+        HistoryCursor.after(page, 3, "SCAN_TIMESTAMP", "SCAN_ID");
+        assertTrue(page.advanceRow(), "row position of the page untouched");
+        assertEquals(9, page.getLong("SCAN_ID"));
+    }
+
+    @Test
+    void pageArguments() {
+        HistoryCursor cursor = new HistoryCursor(new TimestampType(3_000), 5);
+        assertArrayEquals(new Object[]{"X001", cursor.timestamp(), cursor.timestamp(), 5L, 10L},
+                cursor.pageArguments("X001", 10));
+    }
+
+    private static List<Row> page(HistoryCursor after, int pageSize) {
+        return page(HISTORY, after, pageSize);
+    }
+
+    // The rows GetPlateHistoryPage returns: ts <= ? AND (ts < ? OR id < ?), newest first, LIMIT ?
+    private static List<Row> page(List<Row> history, HistoryCursor after, int pageSize) {
+        Object[] arguments = after.pageArguments("X001", pageSize);
+        long bound = ((TimestampType) arguments[1]).getTime();
+        long before = ((TimestampType) arguments[2]).getTime();
+        long id = (Long) arguments[3];
+        return history.stream()
+                .filter(row -> row.timestampMicros() <= bound && (row.timestampMicros() < before || row.id() < id))
+                .limit((Long) arguments[4])
+                .toList();
+    }
+
+    private static VoltTable table(List<Row> rows) {
+        VoltTable table = new VoltTable(
+                new VoltTable.ColumnInfo("SCAN_ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("SCAN_TIMESTAMP", VoltType.TIMESTAMP));
+        for (Row row : rows) {
+            table.addRow(row.id(), new TimestampType(row.timestampMicros()));
+        }
+        return table;
+    }
+}
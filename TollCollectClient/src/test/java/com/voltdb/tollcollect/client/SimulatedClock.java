@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.client;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Clock that only moves when the thread using it waits: scheduled tasks run on that thread, in the order they are
+ * due, while the clock jumps from one to the next. Runs are repeatable and take no longer than the work done.
+ */
+final class SimulatedClock implements CapacityClock {
+
+    private record Task(long dueNanos, long sequence, Runnable action) {
+    }
+
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>((a, b) -> a.dueNanos() != b.dueNanos()
+            ? Long.compare(a.dueNanos(), b.dueNanos())
+            : Long.compare(a.sequence(), b.sequence()));
+    private long now;
+    private long sequence;
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    @Override
+    public void parkUntil(long deadlineNanos) {
+        while (!tasks.isEmpty() && tasks.peek().dueNanos() <= deadlineNanos) {
+            runNext();
+        }
+        now = Math.max(now, deadlineNanos);
+    }
+
+    @Override
+    public boolean tryAcquire(Semaphore permits, int count, long timeoutNanos) {
+        long deadline = now + timeoutNanos;
+        while (!permits.tryAcquire(count)) {
+            if (tasks.isEmpty() || tasks.peek().dueNanos() > deadline) {
+                now = Math.max(now, deadline);
+                return false;
+            }
+            runNext();
+        }
+        return true;
+    }
+
+    @Override
+    public void schedule(Runnable task, long delayNanos) {
+        tasks.add(new Task(now + Math.max(0, delayNanos), sequence++, task));
+    }
+
+    private void runNext() {
+        Task task = tasks.poll();
+        now = Math.max(now, task.dueNanos());
+        task.action().run();
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.invoicing;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the CSV values Volt exports from {@code bill_by_mail_stream} to {@code bill_by_mail_topic}:
+ * <pre>
+ * scan_id,scan_timestamp,plate_num,toll_loc,toll_lane_num,toll_amount,toll_reason,scan_fee_amount,tx_fee_amount,total_amount
+ * </pre>
+ * optionally preceded by the six export metadata columns, which are skipped. Fields may be quoted, nulls are
+ * empty or {@code NULL}. Timestamps are {@code yyyy-MM-dd HH:mm:ss[.SSS...]} in UTC, or a number of
+ * microseconds or milliseconds since the epoch.
+ * <p>
+ * Fields are parsed straight from the message bytes; only the plate becomes a string. Amounts are converted to
+ * a long number of ten-thousandths, rounded half up, which holds every toll the procedures compute exactly. A
+ * decoder keeps the field positions of the last event as state and must only be used by one thread.
+ */
+final class BillByMailDecoder {
+
+    static final int AMOUNT_SCALE = 4;
+    static final long AMOUNT_UNIT = 10_000;
+
+    private static final int COLUMNS = 10;
+    private static final int METADATA_COLUMNS = 6;
+    private static final int MAX_FIELDS = COLUMNS + METADATA_COLUMNS;
+
+    private static final int SCAN_ID = 0;
+    private static final int SCAN_TIMESTAMP = 1;
+    private static final int PLATE_NUM = 2;
+    private static final int TOLL_AMOUNT = 5;
+    private static final int SCAN_FEE_AMOUNT = 7;
+    private static final int TX_FEE_AMOUNT = 8;
+    private static final int TOTAL_AMOUNT = 9;
+
+    // Numbers from here on are microseconds, below are milliseconds, about year 5138 in milliseconds
+    private static final long MICROSECONDS_THRESHOLD = 100_000_000_000_000L;
+
+    private final int[] starts = new int[MAX_FIELDS];
+    private final int[] ends = new int[MAX_FIELDS];
+    private byte[] value;
+    private int first;
+
+    /**
+     * Decodes an event, throwing IllegalArgumentException when it does not have the expected columns.
+     */
+    BillByMailEvent decode(byte[] value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Empty bill by mail event");
+        }
+        this.value = value;
+        int fields = split(value);
+        if (fields == COLUMNS) {
+            first = 0;
+        } else if (fields == MAX_FIELDS) {
+            first = METADATA_COLUMNS;
+        } else {
+            throw new IllegalArgumentException("Expected " + COLUMNS + " columns, found " + fields);
+        }
+
+        long scanId = parseLong(SCAN_ID);
+        long scanTimestamp = parseTimestamp(SCAN_TIMESTAMP);
+        String plateNum = new String(value, start(PLATE_NUM), length(PLATE_NUM), StandardCharsets.UTF_8);
+        long tollAmount = parseAmount(TOLL_AMOUNT);
+        long feeAmount = parseAmount(SCAN_FEE_AMOUNT) + parseAmount(TX_FEE_AMOUNT);
+        long totalAmount = parseAmount(TOTAL_AMOUNT);
+        return new BillByMailEvent(scanId, scanTimestamp, plateNum, tollAmount, feeAmount, totalAmount);
+    }
+
+    // Records the bounds of each field, without the quotes, and returns the number of fields
+    private int split(byte[] value) {
+        int length = value.length;
+        while (length > 0 && (value[length - 1] == '\n' || value[length - 1] == '\r')) {
+            length--;
+        }
+        int fields = 0;
+        int i = 0;
+        while (true) {
+            if (fields == MAX_FIELDS) {
+                return fields + 1;
+            }
+            if (i < length && value[i] == '"') {
+                int close = i + 1;
+                while (close < length && value[close] != '"') {
+                    close++;
+                }
+                starts[fields] = i + 1;
+                ends[fields] = close;
+                i = close + 1;
+            } else {
+                int end = i;
+                while (end < length && value[end] != ',') {
+                    end++;
+                }
+                starts[fields] = i;
+                ends[fields] = end;
+                i = end;
+            }
+            fields++;
+            if (i >= length) {
+                return fields;
+            }
+            if (value[i] != ',') {
+                throw new IllegalArgumentException("Expected a comma at byte " + i);
+            }
+            i++;
+        }
+    }
+
+    private int start(int column) {
+        return starts[first + column];
+    }
+
+    private int length(int column) {
+        return ends[first + column] - starts[first + column];
+    }
+
+    private boolean isNull(int column) {
+        int length = length(column);
+        int start = start(column);
+        return length == 0 || (length == 4 && value[start] == 'N' && value[start + 1] == 'U'
+                && value[start + 2] == 'L' && value[start + 3] == 'L');
+    }
+
+    private long parseLong(int column) {
+        return parseDigits(start(column), start(column) + length(column), column);
+    }
+
+    private long parseDigits(int from, int to, int column) {
+        if (from >= to) {
+            throw new IllegalArgumentException("Empty number in column " + column);
+        }
+        boolean negative = value[from] == '-';
+        long result = 0;
+        for (int i = negative ? from + 1 : from; i < to; i++) {
+            int digit = value[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid number in column " + column);
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    private long parseAmount(int column) {
+        if (isNull(column)) {
+            return 0;
+        }
+        int from = start(column);
+        int to = from + length(column);
+        boolean negative = value[from] == '-';
+        int i = negative ? from + 1 : from;
+
+        long units = 0;
+        for (; i < to && value[i] != '.'; i++) {
+            int digit = value[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid amount in column " + column);
+            }
+            units = units * 10 + digit;
+        }
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        for (i++; i < to; i++) {
+            int digit = value[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Invalid amount in column " + column);
+            }
+            if (fractionDigits < AMOUNT_SCALE) {
+                fraction = fraction * 10 + digit;
+                fractionDigits++;
+            } else if (fractionDigits == AMOUNT_SCALE) {
+                roundUp = digit >= 5;
+                fractionDigits++;
+            }
+        }
+        for (int d = Math.min(fractionDigits, AMOUNT_SCALE); d < AMOUNT_SCALE; d++) {
+            fraction *= 10;
+        }
+        long amount = units * AMOUNT_UNIT + fraction + (roundUp ? 1 : 0);
+        return negative ? -amount : amount;
+    }
+
+    private long parseTimestamp(int column) {
+        int from = start(column);
+        int to = from + length(column);
+        if (to - from < 19 || value[from + 4] != '-') {
+            long number = parseDigits(from, to, column);
+            return number >= MICROSECONDS_THRESHOLD ? number / 1000 : number;
+        }
+        // yyyy-MM-dd HH:mm:ss[.fraction], UTC
+        int year = (int) parseDigits(from, from + 4, column);
+        int month = (int) parseDigits(from + 5, from + 7, column);
+        int day = (int) parseDigits(from + 8, from + 10, column);
+        int hour = (int) parseDigits(from + 11, from + 13, column);
+        int minute = (int) parseDigits(from + 14, from + 16, column);
+        int second = (int) parseDigits(from + 17, from + 19, column);
+        int millis = 0;
+        if (to > from + 20 && value[from + 19] == '.') {
+            int digits = Math.min(3, to - from - 20);
+            millis = (int) parseDigits(from + 20, from + 20 + digits, column);
+            for (int d = digits; d < 3; d++) {
+                millis *= 10;
+            }
+        }
+        long seconds = epochDay(year, month, day) * 86_400L + hour * 3600L + minute * 60L + second;
+        return seconds * 1000 + millis;
+    }
+
+    // Days since 1970-01-01 of a proleptic Gregorian date, see "chrono-Compatible Low-Level Date Algorithms"
+    static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097L + dayOfEra - 719_468;
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.invoicing;
+
+/**
+ * A row of {@code bill_by_mail_stream}, written by ProcessPlate for unknown vehicles and by ChargeAccount for
+ * accounts that could not pay. Amounts are in ten-thousandths, see {@link BillByMailDecoder#AMOUNT_SCALE}, and
+ * the fees are the scan fee and the transaction fee added up, zero when absent.
+ */
+record BillByMailEvent(
+        long scanId,
+        long scanTimestamp,
+        String plateNum,
+        long tollAmount,
+        long feeAmount,
+        long totalAmount
+) {
+}
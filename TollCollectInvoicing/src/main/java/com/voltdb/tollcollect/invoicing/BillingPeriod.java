@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.invoicing;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.YearMonth;
+
+/**
+ * Billing periods in UTC: calendar months, or fixed periods of a number of seconds from the epoch.
+ * <p>
+ * Scans arrive roughly in time order, so the bounds of the last period looked up are kept and a lookup within
+ * them costs two comparisons. An instance is not thread safe.
+ */
+final class BillingPeriod {
+
+    private final String name;
+    private final long fixedMillis;
+
+    private long cachedStart = Long.MAX_VALUE;
+    private long cachedEnd = Long.MIN_VALUE;
+
+    private BillingPeriod(String name, long fixedMillis) {
+        this.name = name;
+        this.fixedMillis = fixedMillis;
+    }
+
+    /**
+     * Parses {@code month}, {@code day} or a number of seconds.
+     */
+    static BillingPeriod parse(String period) {
+        if ("month".equals(period)) {
+            return new BillingPeriod(period, 0);
+        }
+        if ("day".equals(period)) {
+            return new BillingPeriod(period, 86_400_000L);
+        }
+        long seconds = Long.parseLong(period);
+        if (seconds <= 0) {
+            throw new IllegalArgumentException("Billing period must be positive, was " + period);
+        }
+        return new BillingPeriod(period, seconds * 1000);
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * Start of the period holding the given time, in milliseconds since the epoch.
+     */
+    long start(long epochMillis) {
+        if (epochMillis >= cachedStart && epochMillis < cachedEnd) {
+            return cachedStart;
+        }
+        long start;
+        if (fixedMillis > 0) {
+            start = Math.floorDiv(epochMillis, fixedMillis) * fixedMillis;
+        } else {
+            LocalDate date = Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC).toLocalDate();
+            start = YearMonth.from(date).atDay(1).toEpochDay() * 86_400_000L;
+        }
+        cachedStart = start;
+        cachedEnd = end(start);
+        return start;
+    }
+
+    /**
+     * End of the period starting at the given time, exclusive.
+     */
+    long end(long start) {
+        if (fixedMillis > 0) {
+            return start + fixedMillis;
+        }
+        LocalDate first = LocalDate.ofEpochDay(Math.floorDiv(start, 86_400_000L));
+        return first.plusMonths(1).toEpochDay() * 86_400_000L;
+    }
+}
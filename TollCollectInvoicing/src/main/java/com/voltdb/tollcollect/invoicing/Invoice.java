@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.invoicing;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Charges of one plate in one billing period, added up as the events arrive. Amounts are in ten-thousandths.
+ */
+final class Invoice {
+
+    private final long periodStart;
+    private final String plateNum;
+    private int scans;
+    private long tollAmount;
+    private long feeAmount;
+    private long totalAmount;
+    private long firstScanTimestamp = Long.MAX_VALUE;
+    private long lastScanTimestamp = Long.MIN_VALUE;
+
+    Invoice(long periodStart, String plateNum) {
+        this.periodStart = periodStart;
+        this.plateNum = plateNum;
+    }
+
+    void add(BillByMailEvent event) {
+        scans++;
+        tollAmount += event.tollAmount();
+        feeAmount += event.feeAmount();
+        totalAmount += event.totalAmount();
+        firstScanTimestamp = Math.min(firstScanTimestamp, event.scanTimestamp());
+        lastScanTimestamp = Math.max(lastScanTimestamp, event.scanTimestamp());
+    }
+
+    long periodStart() {
+        return periodStart;
+    }
+
+    String plateNum() {
+        return plateNum;
+    }
+
+    int scans() {
+        return scans;
+    }
+
+    long tollAmount() {
+        return tollAmount;
+    }
+
+    long feeAmount() {
+        return feeAmount;
+    }
+
+    long totalAmount() {
+        return totalAmount;
+    }
+
+    long firstScanTimestamp() {
+        return firstScanTimestamp;
+    }
+
+    long lastScanTimestamp() {
+        return lastScanTimestamp;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeLong(periodStart);
+        out.writeUTF(plateNum);
+        out.writeInt(scans);
+        out.writeLong(tollAmount);
+        out.writeLong(feeAmount);
+        out.writeLong(totalAmount);
+        out.writeLong(firstScanTimestamp);
+        out.writeLong(lastScanTimestamp);
+    }
+
+    static Invoice read(DataInput in) throws IOException {
+        Invoice invoice = new Invoice(in.readLong(), in.readUTF());
+        invoice.scans = in.readInt();
+        invoice.tollAmount = in.readLong();
+        invoice.feeAmount = in.readLong();
+        invoice.totalAmount = in.readLong();
+        invoice.firstScanTimestamp = in.readLong();
+        invoice.lastScanTimestamp = in.readLong();
+        return invoice;
+    }
+}
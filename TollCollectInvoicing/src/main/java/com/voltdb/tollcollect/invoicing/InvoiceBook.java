@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.invoicing;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The open invoices, one per plate and billing period, and the rule for closing them.
+ * <p>
+ * Time is the scan time of the events, not the clock, so a replay of the topic closes the same periods. A period
+ * is closed once a scan more than {@code latenessMillis} after its end has been seen. An event for a period that
+ * was already closed opens a new invoice for it, written with the next closed period; the invoices of a plate
+ * and period add up. The state is bounded: while more than {@code maxOpenInvoices} are open, the oldest period is
+ * closed early, which splits its invoices the same way.
+ * <p>
+ * An instance is not thread safe.
+ */
+final class InvoiceBook {
+
+    private static final Comparator<Invoice> BY_PLATE = Comparator.comparing(Invoice::plateNum);
+
+    private final BillingPeriod period;
+    private final long latenessMillis;
+    private final int maxOpenInvoices;
+    private final TreeMap<Long, Map<String, Invoice>> periods = new TreeMap<>();
+
+    private int openInvoices;
+    // Latest scan seen, and the end of the latest period closed on time
+    private long watermark = Long.MIN_VALUE;
+    private long closedUntil = Long.MIN_VALUE;
+    private long lateEvents;
+    private long earlyCloses;
+
+    InvoiceBook(BillingPeriod period, long latenessMillis, int maxOpenInvoices) {
+        if (maxOpenInvoices <= 0) {
+            throw new IllegalArgumentException("Max open invoices must be positive, was " + maxOpenInvoices);
+        }
+        this.period = period;
+        this.latenessMillis = latenessMillis;
+        this.maxOpenInvoices = maxOpenInvoices;
+    }
+
+    void add(BillByMailEvent event) {
+        long scanTimestamp = event.scanTimestamp();
+        watermark = Math.max(watermark, scanTimestamp);
+        long start = period.start(scanTimestamp);
+        if (start < closedUntil) {
+            lateEvents++;
+        }
+
+        Map<String, Invoice> invoices = periods.computeIfAbsent(start, key -> new HashMap<>());
+        Invoice invoice = invoices.get(event.plateNum());
+        if (invoice == null) {
+            invoice = new Invoice(start, event.plateNum());
+            invoices.put(event.plateNum(), invoice);
+            openInvoices++;
+        }
+        invoice.add(event);
+    }
+
+    /**
+     * Removes and returns the invoices of the periods that can be closed, by period and plate.
+     */
+    List<Invoice> close() {
+        List<Invoice> closed = new ArrayList<>();
+        long horizon = watermark == Long.MIN_VALUE ? Long.MIN_VALUE : watermark - latenessMillis;
+        while (!periods.isEmpty()) {
+            long start = periods.firstKey();
+            long end = period.end(start);
+            boolean ended = end <= horizon;
+            if (!ended && openInvoices <= maxOpenInvoices) {
+                break;
+            }
+            if (ended) {
+                closedUntil = Math.max(closedUntil, end);
+            } else {
+                earlyCloses++;
+            }
+
+            Map<String, Invoice> invoices = periods.pollFirstEntry().getValue();
+            openInvoices -= invoices.size();
+            int from = closed.size();
+            closed.addAll(invoices.values());
+            closed.subList(from, closed.size()).sort(BY_PLATE);
+        }
+        return closed;
+    }
+
+    int openInvoices() {
+        return openInvoices;
+    }
+
+    long watermark() {
+        return watermark;
+    }
+
+    long lateEvents() {
+        return lateEvents;
+    }
+
+    long earlyCloses() {
+        return earlyCloses;
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeLong(watermark);
+        out.writeLong(closedUntil);
+        out.writeLong(lateEvents);
+        out.writeLong(earlyCloses);
+        out.writeInt(openInvoices);
+        for (Map<String, Invoice> invoices : periods.values()) {
+            for (Invoice invoice : invoices.values()) {
+                invoice.write(out);
+            }
+        }
+    }
+
+    static InvoiceBook read(DataInput in, BillingPeriod period, long latenessMillis, int maxOpenInvoices)
+            throws IOException {
+        InvoiceBook book = new InvoiceBook(period, latenessMillis, maxOpenInvoices);
+        book.watermark = in.readLong();
+        book.closedUntil = in.readLong();
+        book.lateEvents = in.readLong();
+        book.earlyCloses = in.readLong();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            Invoice invoice = Invoice.read(in);
+            book.periods.computeIfAbsent(invoice.periodStart(), key -> new HashMap<>())
+                    .put(invoice.plateNum(), invoice);
+        }
+        book.openInvoices = count;
+        return book;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.invoicing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Position of the aggregator: the next offset of every partition of the topic, the open invoices, the sequence
+ * number of the next invoice file, and the invoice file written for this checkpoint but not yet renamed into
+ * place, if any.
+ * <p>
+ * A checkpoint is written to a temporary file, forced to disk and renamed over the previous one, so the file
+ * always holds a complete checkpoint. The offsets and the open invoices are taken at the same time, so after a
+ * restart every event is counted exactly once: either in an invoice file or in the open invoices.
+ */
+record InvoiceCheckpoint(long nextSequence, String pendingFile, Map<Integer, Long> offsets, InvoiceBook book) {
+
+    static final String FILE_NAME = "checkpoint.bin";
+
+    private static final int MAGIC = 0x54434943;
+    private static final short VERSION = 1;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    void write(Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        Path temporary = directory.resolve(FILE_NAME + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, BUFFER_BYTES))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(nextSequence);
+            out.writeUTF(pendingFile == null ? "" : pendingFile);
+            out.writeInt(offsets.size());
+            for (Map.Entry<Integer, Long> offset : offsets.entrySet()) {
+                out.writeInt(offset.getKey());
+                out.writeLong(offset.getValue());
+            }
+            book.write(out);
+            out.flush();
+            output.getFD().sync();
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the checkpoint of the directory, or returns null when there is none.
+     */
+    static InvoiceCheckpoint read(Path directory, BillingPeriod period, long latenessMillis, int maxOpenInvoices)
+            throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_BYTES))) {
+            if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+                throw new IOException(file + " is not an invoicing checkpoint");
+            }
+            long nextSequence = in.readLong();
+            String pendingFile = in.readUTF();
+            int partitions = in.readInt();
+            Map<Integer, Long> offsets = new HashMap<>();
+            for (int i = 0; i < partitions; i++) {
+                offsets.put(in.readInt(), in.readLong());
+            }
+            InvoiceBook book = InvoiceBook.read(in, period, latenessMillis, maxOpenInvoices);
+            return new InvoiceCheckpoint(nextSequence, pendingFile.isEmpty() ? null : pendingFile, offsets, book);
+        }
+    }
+}
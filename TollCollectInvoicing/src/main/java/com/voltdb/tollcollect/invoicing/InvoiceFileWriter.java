@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.invoicing;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Writes closed invoices to a CSV file in one pass through a large buffer, then forces it to disk:
+ * <pre>
+ * period_start,plate_num,scans,toll_amount,fee_amount,total_amount,first_scan,last_scan
+ * </pre>
+ * Times are ISO-8601 in UTC, amounts are rounded half up to cents.
+ */
+final class InvoiceFileWriter {
+
+    static final String HEADER = "period_start,plate_num,scans,toll_amount,fee_amount,total_amount,first_scan,last_scan\n";
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final long CENT = BillByMailDecoder.AMOUNT_UNIT / 100;
+
+    private InvoiceFileWriter() {
+    }
+
+    static void write(Path file, List<Invoice> invoices) throws IOException {
+        try (FileOutputStream output = new FileOutputStream(file.toFile());
+             BufferedOutputStream buffered = new BufferedOutputStream(output, BUFFER_BYTES)) {
+            buffered.write(HEADER.getBytes(StandardCharsets.US_ASCII));
+            StringBuilder line = new StringBuilder(128);
+            long periodStart = Long.MIN_VALUE;
+            String period = null;
+            for (Invoice invoice : invoices) {
+                if (invoice.periodStart() != periodStart) {
+                    periodStart = invoice.periodStart();
+                    period = Instant.ofEpochMilli(periodStart).toString();
+                }
+                line.setLength(0);
+                line.append(period).append(',')
+                        .append(invoice.plateNum()).append(',')
+                        .append(invoice.scans()).append(',');
+                appendAmount(line, invoice.tollAmount()).append(',');
+                appendAmount(line, invoice.feeAmount()).append(',');
+                appendAmount(line, invoice.totalAmount()).append(',')
+                        .append(Instant.ofEpochMilli(invoice.firstScanTimestamp())).append(',')
+                        .append(Instant.ofEpochMilli(invoice.lastScanTimestamp())).append('\n');
+                buffered.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            buffered.flush();
+            output.getFD().sync();
+        }
+    }
+
+    static StringBuilder appendAmount(StringBuilder line, long amount) {
+        long cents = Math.floorDiv(amount + CENT / 2, CENT);
+        if (cents < 0) {
+            line.append('-');
+            cents = -cents;
+        }
+        line.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            line.append('0');
+        }
+        return line.append(fraction);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.invoicing;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class InvoiceAggregatorTest {
+
+    private static final String TOPIC = "bill_by_mail_topic";
+    private static final int PARTITIONS = 2;
+    private static final int EVENTS = 20_000;
+    private static final int FIRST_RUN_EVENTS = 12_000;
+    private static final long START = 1_740_000_000_000L;
+
+    @Test
+    void resumesFromCheckpoint(@TempDir Path directory) throws Exception {
+        // Ten minutes of events of 50 plates over two partitions, with one minute billing periods
+        SplittableRandom random = new SplittableRandom(42);
+        List<byte[]> events = new ArrayList<>();
+        Map<String, BigDecimal> expectedTotals = new HashMap<>();
+        for (int i = 0; i < EVENTS; i++) {
+            String plate = "X" + random.nextInt(50);
+            long timestamp = START + i * 30L;
+            BigDecimal toll = BigDecimal.valueOf(random.nextInt(1, 40), 1);
+            events.add(event(i, timestamp, plate, toll));
+            expectedTotals.merge(plate, toll, BigDecimal::add);
+        }
+        expectedTotals.replaceAll((plate, total) -> total.stripTrailingZeros());
+        // Far in the future, so that every period of the events above closes
+        byte[] last = event(EVENTS, START + TimeUnit.HOURS.toMillis(1), "LAST", BigDecimal.ONE);
+
+        // Unreferenced leftover of an interrupted flush
+        Path leftover = directory.resolve("invoices-00000099.csv.tmp");
+        Files.writeString(leftover, "partial");
+
+        // The first run stops part way, the second starts from its checkpoint with the whole topic available
+        InvoiceAggregator first = aggregator(consumer(events.subList(0, FIRST_RUN_EVENTS)), directory);
+        runUntil(first, FIRST_RUN_EVENTS);
+        assertFalse(Files.exists(leftover), "leftover temporary file removed");
+        long firstRunInvoices = first.invoiceCount();
+
+        List<byte[]> all = new ArrayList<>(events);
+        all.add(last);
+        InvoiceAggregator second = aggregator(consumer(all), directory);
+        runUntil(second, EVENTS - FIRST_RUN_EVENTS + 1);
+        assertNotEquals(0, firstRunInvoices, "invoices of the first run");
+        assertNotEquals(0, second.invoiceCount(), "invoices of the second run");
+
+        // Every event is in exactly one invoice line
+        Map<String, BigDecimal> totals = new HashMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(".csv"))
+                    .forEach(file -> readInvoices(file, totals));
+        }
+        assertEquals(expectedTotals, totals, "invoice totals");
+    }
+
+    private static byte[] event(long scanId, long timestamp, String plate, BigDecimal toll) {
+        String value = scanId + "," + timestamp * 1000 + ",\"" + plate + "\",\"Quantum Tunnel\",\"1\"," + toll
+                + ",\"UNKNOWN_VEHICLE\",NULL,NULL," + toll;
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static MockConsumer<byte[], byte[]> consumer(List<byte[]> events) {
+        MockConsumer<byte[], byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        Map<TopicPartition, Long> beginning = new HashMap<>();
+        for (int p = 0; p < PARTITIONS; p++) {
+            partitions.add(new PartitionInfo(TOPIC, p, null, null, null));
+            beginning.put(new TopicPartition(TOPIC, p), 0L);
+        }
+        consumer.updatePartitions(TOPIC, partitions);
+        consumer.updateBeginningOffsets(beginning);
+        // Records can only be added once the aggregator assigned the partitions
+        consumer.schedulePollTask(() -> {
+            for (int i = 0; i < events.size(); i++) {
+                consumer.addRecord(new ConsumerRecord<>(TOPIC, i % PARTITIONS, i / PARTITIONS, null, events.get(i)));
+            }
+        });
+        return consumer;
+    }
+
+    private static InvoiceAggregator aggregator(MockConsumer<byte[], byte[]> consumer, Path directory) {
+        return new InvoiceAggregator(consumer, TOPIC, directory, BillingPeriod.parse("60"), 5_000, 100_000, 1);
+    }
+
+    private static void runUntil(InvoiceAggregator aggregator, long events) throws InterruptedException {
+        Thread thread = new Thread(() -> {
+            try {
+                aggregator.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        thread.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (aggregator.eventCount() < events && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        aggregator.stop();
+        thread.join();
+        assertEquals(events, aggregator.eventCount(), "events read");
+    }
+
+    private static void readInvoices(Path file, Map<String, BigDecimal> totals) {
+        try {
+            List<String> lines = Files.readAllLines(file);
+            assertEquals(InvoiceFileWriter.HEADER.trim(), lines.get(0), "header of " + file);
+            for (String line : lines.subList(1, lines.size())) {
+                String[] fields = line.split(",");
+                totals.merge(fields[1], new BigDecimal(fields[5]).stripTrailingZeros(), BigDecimal::add);
+            }
+            totals.replaceAll((plate, total) -> total.stripTrailingZeros());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
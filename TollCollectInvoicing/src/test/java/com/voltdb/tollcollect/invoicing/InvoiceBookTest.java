@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.invoicing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InvoiceBookTest {
+
+    private static final long MINUTE = 60_000;
+
+    @Test
+    void decoder() {
+        BillByMailDecoder decoder = new BillByMailDecoder();
+        BillByMailEvent event = decoder.decode(bytes(
+                "42,\"2025-03-01 12:34:56.789\",\"X123\",\"Infinity Bridge\",\"2\",3.500000000000,\"UNKNOWN_VEHICLE\","
+                        + "2.000000000000,NULL,3.500000000000"));
+        assertEquals(42, event.scanId(), "scan id");
+        assertEquals(Instant.parse("2025-03-01T12:34:56.789Z").toEpochMilli(), event.scanTimestamp(), "timestamp");
+        assertEquals("X123", event.plateNum(), "plate");
+        assertEquals(35_000, event.tollAmount(), "toll");
+        assertEquals(20_000, event.feeAmount(), "fees");
+        assertEquals(35_000, event.totalAmount(), "total");
+
+        // Export metadata columns, microsecond timestamps, unquoted fields and rounding past four decimals
+        event = decoder.decode(bytes("1,2,3,4,5,6,7,1740832496789000,X9,Here,0,1.23456,STANDARD,,0.5,1.73456\n"));
+        assertEquals(7, event.scanId(), "scan id after metadata");
+        assertEquals(1740832496789L, event.scanTimestamp(), "microsecond timestamp");
+        assertEquals(12_346, event.tollAmount(), "rounded toll");
+        assertEquals(5_000, event.feeAmount(), "fee with a null");
+
+        for (String invalid : new String[]{"1,2,3", "x,2025-03-01 00:00:00,X1,L,0,1,R,0,0,1", ""}) {
+            assertThrows(IllegalArgumentException.class, () -> decoder.decode(bytes(invalid)), invalid);
+        }
+
+        for (int day = -800_000; day < 800_000; day += 997) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            assertEquals(day, BillByMailDecoder.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()),
+                    "epoch day of " + date);
+        }
+    }
+
+    @Test
+    void periods() {
+        BillingPeriod month = BillingPeriod.parse("month");
+        long march = Instant.parse("2025-03-01T00:00:00Z").toEpochMilli();
+        long april = Instant.parse("2025-04-01T00:00:00Z").toEpochMilli();
+        assertEquals(march, month.start(Instant.parse("2025-03-31T23:59:59.999Z").toEpochMilli()), "month start");
+        assertEquals(april, month.start(april), "next month start");
+        assertEquals(april, month.end(march), "month end");
+        assertEquals(MINUTE * 5, BillingPeriod.parse("60").start(MINUTE * 5 + 59_999), "fixed period start");
+    }
+
+    @Test
+    void closing() throws IOException {
+        InvoiceBook book = new InvoiceBook(BillingPeriod.parse("60"), 5_000, 1000);
+        book.add(event(1, 10_000, "B", 20_000));
+        book.add(event(2, 20_000, "A", 10_000));
+        book.add(event(3, 50_000, "B", 30_000));
+        book.add(event(4, 62_000, "A", 10_000));
+        // The first period ended at 60s, but 5s of lateness have not passed yet
+        assertEquals(0, book.close().size(), "invoices closed within lateness");
+
+        // Restored state closes the same way
+        ByteArrayOutputStream state = new ByteArrayOutputStream();
+        book.write(new DataOutputStream(state));
+        book = InvoiceBook.read(new DataInputStream(new ByteArrayInputStream(state.toByteArray())),
+                BillingPeriod.parse("60"), 5_000, 1000);
+        assertEquals(3, book.openInvoices(), "restored invoices");
+
+        book.add(event(5, 66_000, "C", 10_000));
+        List<Invoice> closed = book.close();
+        assertEquals(2, closed.size(), "invoices of the first period");
+        assertEquals("A", closed.get(0).plateNum(), "invoices sorted by plate");
+        assertEquals("B", closed.get(1).plateNum(), "invoices sorted by plate");
+        Invoice b = closed.get(1);
+        assertEquals(2, b.scans(), "scans of B");
+        assertEquals(50_000, b.totalAmount(), "total of B");
+        assertEquals(10_000, b.firstScanTimestamp(), "first scan of B");
+        assertEquals(50_000, b.lastScanTimestamp(), "last scan of B");
+
+        // A late event reopens the first period and is written with the next closed period
+        book.add(event(6, 30_000, "A", 70_000));
+        assertEquals(1, book.lateEvents(), "late events");
+        book.add(event(7, 200_000, "A", 10_000));
+        closed = book.close();
+        assertEquals(3, closed.size(), "late invoice and second period");
+        assertEquals(0, closed.get(0).periodStart(), "late invoice period");
+        assertEquals(70_000, closed.get(0).totalAmount(), "late invoice total");
+        assertEquals(1, book.openInvoices(), "open invoices");
+    }
+
+    @Test
+    void sharedScanId() {
+        // The scans of one ProcessPlateBatch share their scan id, invoices are kept by plate
+        InvoiceBook book = new InvoiceBook(BillingPeriod.parse("60"), 0, 1000);
+        book.add(event(42, 10_000, "A", 10_000));
+        book.add(event(42, 10_000, "B", 20_000));
+        book.add(event(43, 70_000, "C", 10_000));
+        List<Invoice> closed = book.close();
+        assertEquals(2, closed.size(), "one invoice per plate");
+        assertEquals(10_000, closed.get(0).totalAmount(), "total of A");
+        assertEquals(20_000, closed.get(1).totalAmount(), "total of B");
+    }
+
+    @Test
+    void bound() {
+        InvoiceBook book = new InvoiceBook(BillingPeriod.parse("month"), 0, 100);
+        for (int i = 0; i < 150; i++) {
+            book.add(event(i, 1_000 + i, "P" + i, 10_000));
+        }
+        List<Invoice> closed = book.close();
+        assertEquals(150, closed.size(), "invoices closed early");
+        assertEquals(1, book.earlyCloses(), "early closes");
+        assertEquals(0, book.openInvoices(), "open invoices after an early close");
+    }
+
+    private static BillByMailEvent event(long scanId, long scanTimestamp, String plateNum, long totalAmount) {
+        return new BillByMailEvent(scanId, scanTimestamp, plateNum, totalAmount, 0, totalAmount);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.common;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.Client2;
+import org.voltdb.client.HashinatorLite;
+import org.voltdb.client.ProcCallException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps values of a partitioning column onto the database partitions, using the same hash function as the cluster.
+ * <p>
+ * The hash configuration comes from {@code @Statistics TOPO}, and a key that routes a procedure call to each
+ * partition from {@code @GetPartitionKeys} for the column type. Both change when the cluster is resized, so
+ * long running callers load the routing again periodically. An instance is immutable and can be shared between
+ * threads.
+ */
+public final class PartitionRouting {
+
+    private final HashinatorLite hashinator;
+    private final VoltType keyType;
+    private final Map<Integer, Object> partitionKeys;
+
+    private PartitionRouting(HashinatorLite hashinator, VoltType keyType, Map<Integer, Object> partitionKeys) {
+        this.hashinator = hashinator;
+        this.keyType = keyType;
+        this.partitionKeys = partitionKeys;
+    }
+
+    /**
+     * Loads the routing for a STRING or INTEGER partitioning column.
+     */
+    public static PartitionRouting load(Client2 client, VoltType keyType) throws IOException, ProcCallException {
+        if (keyType != VoltType.STRING && keyType != VoltType.INTEGER) {
+            throw new IllegalArgumentException("Partitioning column must be STRING or INTEGER, was " + keyType);
+        }
+        VoltTable[] topology = client.callProcedureSync("@Statistics", "TOPO", 0).getResults();
+        VoltTable hashConfig = topology[1];
+        if (!hashConfig.advanceRow()) {
+            throw new IllegalStateException("@Statistics TOPO returned no hash configuration");
+        }
+        HashinatorLite hashinator = new HashinatorLite(hashConfig.getVarbinary("HASHCONFIG"), false);
+
+        Map<Integer, Object> partitionKeys = new HashMap<>();
+        VoltTable keys = client.callProcedureSync("@GetPartitionKeys",
+                keyType == VoltType.STRING ? "STRING" : "INTEGER").getResults()[0];
+        while (keys.advanceRow()) {
+            Object key = keyType == VoltType.STRING
+                    ? keys.getString("PARTITION_KEY")
+                    : (Object) (int) keys.getLong("PARTITION_KEY");
+            partitionKeys.put((int) keys.getLong("PARTITION_ID"), key);
+        }
+        return new PartitionRouting(hashinator, keyType, partitionKeys);
+    }
+
+    public int partitionCount() {
+        return partitionKeys.size();
+    }
+
+    public int partitionOf(Object value) {
+        return hashinator.getHashedPartitionForParameter(keyType.getValue(), value);
+    }
+
+    /**
+     * Returns a value of the partitioning column that is routed to the given partition.
+     */
+    public Object partitionKey(int partition) {
+        Object key = partitionKeys.get(partition);
+        if (key == null) {
+            throw new IllegalArgumentException("No partition key for partition " + partition);
+        }
+        return key;
+    }
+}
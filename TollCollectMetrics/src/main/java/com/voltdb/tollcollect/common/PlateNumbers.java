@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.common;
+
+/**
+ * The plate numbers of the generated datasets and scans: {@code X} followed by the zero padded plate index for
+ * known vehicles, {@code K} for scans that cannot match one.
+ * <p>
+ * Indexes are padded to the digits of {@code plateCount - 1}, at least 3, so 1000 plates are X000 to X999 as in
+ * {@code csv/known_vehicles.csv}, and 10,000,000 plates are X0000000 to X9999999. The dataset generator of
+ * TollCollectClient writes the KNOWN_VEHICLES with these plates, and the load driver and the stream pipeline scan
+ * them.
+ * <p>
+ * Up to {@link #MAX_CACHED_PLATES} plates the strings are built once and interned, larger plate spaces build
+ * them on demand. An instance is immutable and can be shared between threads.
+ */
+public class PlateNumbers {
+
+    public static final int DEFAULT_PLATE_COUNT = 1000;
+    static final int MAX_CACHED_PLATES = 100_000;
+
+    private static final int MIN_WIDTH = 3;
+
+    private final int count;
+    private final int width;
+    private final String[] valid;
+    private final String[] invalid;
+
+    public PlateNumbers(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Plate count must be positive, was " + count);
+        }
+        this.count = count;
+        this.width = width(count);
+        if (count <= MAX_CACHED_PLATES) {
+            valid = new String[count];
+            invalid = new String[count];
+            for (int i = 0; i < count; i++) {
+                valid[i] = format('X', i, width).intern();
+                invalid[i] = format('K', i, width).intern();
+            }
+        } else {
+            valid = null;
+            invalid = null;
+        }
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public String valid(int plate) {
+        return valid != null ? valid[plate] : format('X', plate, width);
+    }
+
+    public String invalid(int plate) {
+        return invalid != null ? invalid[plate] : format('K', plate, width);
+    }
+
+    static int width(int count) {
+        return Math.max(MIN_WIDTH, Integer.toString(count - 1).length());
+    }
+
+    static String format(char prefix, int plate, int width) {
+        char[] chars = new char[width + 1];
+        chars[0] = prefix;
+        for (int i = width; i > 0; i--) {
+            chars[i] = (char) ('0' + plate % 10);
+            plate /= 10;
+        }
+        return new String(chars);
+    }
+}
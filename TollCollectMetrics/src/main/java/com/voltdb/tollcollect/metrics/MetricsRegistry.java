@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.metrics;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * Named metrics rendered in the Prometheus text exposition format, see {@link MetricsServer}.
+ * <p>
+ * Every metric is identified by its name and label pairs, given as {@code "name", "value", ...}. Counters and
+ * histograms created here are shared by everyone asking for the same name and labels. Existing values, such as
+ * the adders a stage already keeps for its log line, are registered as suppliers instead and replace an earlier
+ * registration of the same series. Nothing is computed until a scrape, recording stays on the hot path's own
+ * lock-free counters.
+ * <p>
+ * Histograms hold latencies in microseconds and are exposed in seconds with {@link #LATENCY_BUCKET_SECONDS}.
+ */
+public class MetricsRegistry {
+
+    public static final double[] LATENCY_BUCKET_SECONDS = {
+            0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private static final long[] LATENCY_BUCKET_MICROS = new long[LATENCY_BUCKET_SECONDS.length];
+    private static final String[] LATENCY_BUCKET_LABELS = new String[LATENCY_BUCKET_SECONDS.length];
+    private static final Pattern NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    static {
+        for (int i = 0; i < LATENCY_BUCKET_SECONDS.length; i++) {
+            LATENCY_BUCKET_MICROS[i] = Math.round(LATENCY_BUCKET_SECONDS[i] * 1_000_000);
+            String bound = BigDecimal.valueOf(LATENCY_BUCKET_SECONDS[i]).stripTrailingZeros().toPlainString();
+            LATENCY_BUCKET_LABELS[i] = "le=\"" + bound + '"';
+        }
+    }
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    private record Family(Type type, String help, Map<String, Object> series) {
+    }
+
+    // Sorted by name so scrapes are stable, series in registration order
+    private final Map<String, Family> families = new TreeMap<>();
+
+    /**
+     * The registry shared by everything in the JVM, served by the pipeline and the load driver.
+     */
+    public static MetricsRegistry defaultRegistry() {
+        return DEFAULT;
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) getOrCreate(Type.COUNTER, name, help, labels, new Counter());
+    }
+
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) getOrCreate(Type.HISTOGRAM, name, help, labels, new LatencyHistogram());
+    }
+
+    public void registerCounter(String name, String help, LongSupplier value, String... labels) {
+        register(Type.COUNTER, name, help, labels, value);
+    }
+
+    public void registerGauge(String name, String help, DoubleSupplier value, String... labels) {
+        register(Type.GAUGE, name, help, labels, value);
+    }
+
+    public void registerHistogram(String name, String help, LatencyHistogram micros, String... labels) {
+        register(Type.HISTOGRAM, name, help, labels, micros);
+    }
+
+    private synchronized Object getOrCreate(Type type, String name, String help, String[] labels, Object created) {
+        Family family = family(type, name, help);
+        return family.series().computeIfAbsent(labelText(labels), key -> created);
+    }
+
+    private synchronized void register(Type type, String name, String help, String[] labels, Object value) {
+        family(type, name, help).series().put(labelText(labels), value);
+    }
+
+    private Family family(Type type, String name, String help) {
+        if (!NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name " + name);
+        }
+        Family family = families.computeIfAbsent(name, key -> new Family(type, help, new LinkedHashMap<>()));
+        if (family.type() != type) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type());
+        }
+        return family;
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format, version 0.0.4.
+     */
+    public synchronized String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(escapeHelp(family.help())).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type().name().toLowerCase()).append('\n');
+
+            for (Map.Entry<String, Object> series : family.series().entrySet()) {
+                String labels = series.getKey();
+                switch (family.type()) {
+                    case COUNTER -> sample(out, name, labels, counterValue(series.getValue()));
+                    case GAUGE -> sample(out, name, labels, ((DoubleSupplier) series.getValue()).getAsDouble());
+                    case HISTOGRAM -> histogram(out, name, labels, (LatencyHistogram) series.getValue());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static double counterValue(Object value) {
+        return value instanceof Counter counter
+                ? counter.value()
+                : ((LongSupplier) value).getAsLong();
+    }
+
+    private static void histogram(StringBuilder out, String name, String labels, LatencyHistogram micros) {
+        long[] cumulative = micros.cumulativeCounts(LATENCY_BUCKET_MICROS);
+        String separator = labels.isEmpty() ? "" : labels + ",";
+        for (int i = 0; i < LATENCY_BUCKET_SECONDS.length; i++) {
+            sample(out, name + "_bucket", separator + LATENCY_BUCKET_LABELS[i], cumulative[i]);
+        }
+        long count = cumulative[LATENCY_BUCKET_SECONDS.length];
+        sample(out, name + "_bucket", separator + "le=\"+Inf\"", count);
+        sample(out, name + "_sum", labels, micros.sum() / 1_000_000.0);
+        sample(out, name + "_count", labels, count);
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    static String labelText(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name and value pairs");
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (!NAME.matcher(labels[i]).matches()) {
+                throw new IllegalArgumentException("Invalid label name " + labels[i]);
+            }
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int c = 0; c < value.length(); c++) {
+                char ch = value.charAt(c);
+                switch (ch) {
+                    case '\\' -> text.append("\\\\");
+                    case '"' -> text.append("\\\"");
+                    case '\n' -> text.append("\\n");
+                    default -> text.append(ch);
+                }
+            }
+            text.append('"');
+        }
+        return text.toString();
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves a {@link MetricsRegistry} at {@code /metrics} for Prometheus to scrape, with the HTTP server of the JDK.
+ * <p>
+ * There is at most one server per port in the JVM, asking for a port that is already served returns the
+ * running server, so every pipeline stage can start it without coordinating.
+ */
+public final class MetricsServer implements AutoCloseable {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final Map<Integer, MetricsServer> RUNNING = new HashMap<>();
+
+    private final HttpServer server;
+    private final int requestedPort;
+
+    private MetricsServer(HttpServer server, int requestedPort) {
+        this.server = server;
+        this.requestedPort = requestedPort;
+    }
+
+    /**
+     * Starts serving the registry on the port, 0 for an ephemeral one, or returns the server already running on it.
+     */
+    public static synchronized MetricsServer start(int port, MetricsRegistry registry) {
+        MetricsServer running = RUNNING.get(port);
+        if (running != null) {
+            return running;
+        }
+
+        HttpServer server;
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to serve metrics on port " + port, e);
+        }
+        server.createContext("/metrics", exchange -> handle(exchange, registry));
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+
+        MetricsServer started = new MetricsServer(server, port);
+        RUNNING.put(port, started);
+        return started;
+    }
+
+    private static void handle(HttpExchange exchange, MetricsRegistry registry) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!"GET".equals(method) && !"HEAD".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * The port the server is bound to.
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        synchronized (MetricsServer.class) {
+            if (RUNNING.remove(requestedPort, this)) {
+                server.stop(0);
+            }
+        }
+    }
+}
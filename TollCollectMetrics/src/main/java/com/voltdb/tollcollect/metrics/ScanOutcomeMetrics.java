@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.metrics;
+
+/**
+ * Counts of ProcessPlate outcomes by toll reason, plus the calls that aborted, as
+ * {@code tollcollect_scan_outcomes_total}. The reasons are folded into a fixed set of label values so counting
+ * does not allocate: the standard toll reason carries the vehicle class.
+ */
+public class ScanOutcomeMetrics {
+
+    private static final String NAME = "tollcollect_scan_outcomes_total";
+    private static final String HELP = "ProcessPlate outcomes by toll reason, and calls that aborted";
+
+    private final Counter exempt;
+    private final Counter standard;
+    private final Counter unknownVehicle;
+    private final Counter other;
+    private final Counter aborted;
+
+    public ScanOutcomeMetrics(MetricsRegistry registry, String source) {
+        this.exempt = registry.counter(NAME, HELP, "source", source, "outcome", "EXEMPT");
+        this.standard = registry.counter(NAME, HELP, "source", source, "outcome", "STANDARD");
+        this.unknownVehicle = registry.counter(NAME, HELP, "source", source, "outcome", "UNKNOWN_VEHICLE");
+        this.other = registry.counter(NAME, HELP, "source", source, "outcome", "OTHER");
+        this.aborted = registry.counter(NAME, HELP, "source", source, "outcome", "ABORTED");
+    }
+
+    /**
+     * Counts a scan with the TOLL_REASON returned by ProcessPlate.
+     */
+    public void record(String tollReason) {
+        if (tollReason == null) {
+            other.increment();
+        } else if (tollReason.startsWith("STANDARD")) {
+            standard.increment();
+        } else if ("EXEMPT".equals(tollReason)) {
+            exempt.increment();
+        } else if ("UNKNOWN_VEHICLE".equals(tollReason)) {
+            unknownVehicle.increment();
+        } else {
+            other.increment();
+        }
+    }
+
+    /**
+     * Counts the scans of a call that aborted, more than one for a batch.
+     */
+    public void aborted(long scans) {
+        aborted.add(scans);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PlateNumbersTest {
+
+    // The plates of csv/known_vehicles.csv, the generated datasets and the scans must all agree
+    @Test
+    void format() {
+        PlateNumbers plates = new PlateNumbers(1000);
+        assertEquals("X007", plates.valid(7), "1000 plates");
+        assertEquals("X999", plates.valid(999), "last of 1000 plates");
+        assertEquals("K042", plates.invalid(42), "invalid plate");
+        assertEquals("X007", new PlateNumbers(10).valid(7), "at least 3 digits");
+        assertEquals("X0000042", new PlateNumbers(10_000_000).valid(42), "10M plates");
+        assertEquals("K9999999", new PlateNumbers(10_000_000).invalid(9_999_999), "last invalid of 10M plates");
+        assertEquals(8, PlateNumbers.width(10_000_001), "width of 10M + 1 plates");
+    }
+
+    @Test
+    void cached() {
+        PlateNumbers plates = new PlateNumbers(PlateNumbers.MAX_CACHED_PLATES);
+        assertSame(plates.valid(7), plates.valid(7), "built once");
+        assertEquals("X99999", plates.valid(PlateNumbers.MAX_CACHED_PLATES - 1), "last cached plate");
+        PlateNumbers large = new PlateNumbers(PlateNumbers.MAX_CACHED_PLATES + 1);
+        assertEquals("X100000", large.valid(PlateNumbers.MAX_CACHED_PLATES), "built on demand");
+    }
+}
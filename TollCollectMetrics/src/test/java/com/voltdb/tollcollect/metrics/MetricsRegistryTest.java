@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsRegistryTest {
+
+    @Test
+    void exposition() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("test_calls_total", "Calls", "stage", "Process\"Plate", "outcome", "ok");
+        counter.add(3);
+        assertSame(counter, registry.counter("test_calls_total", "Calls", "stage", "Process\"Plate", "outcome", "ok"),
+                "counters are shared");
+
+        AtomicLong inFlight = new AtomicLong(7);
+        registry.registerGauge("test_in_flight", "In flight", inFlight::get);
+        registry.registerGauge("test_in_flight", "In flight", () -> 0.25);
+
+        LatencyHistogram latency = registry.histogram("test_latency_seconds", "Latency", "stage", "a");
+        latency.record(400);
+        latency.record(2_000);
+        latency.record(20_000_000);
+
+        String text = registry.scrape();
+        assertTrue(text.contains("# TYPE test_calls_total counter\n"), "counter type");
+        assertTrue(text.contains("test_calls_total{stage=\"Process\\\"Plate\",outcome=\"ok\"} 3\n"), "escaped labels");
+        assertTrue(text.contains("test_in_flight 0.25\n"), "registering again replaces the gauge");
+        assertTrue(text.contains("test_latency_seconds_bucket{stage=\"a\",le=\"0.0005\"} 1\n"), "first bucket");
+        assertTrue(text.contains("test_latency_seconds_bucket{stage=\"a\",le=\"0.0025\"} 2\n"), "cumulative bucket");
+        assertTrue(text.contains("test_latency_seconds_bucket{stage=\"a\",le=\"10\"} 2\n"), "last bucket");
+        assertTrue(text.contains("test_latency_seconds_bucket{stage=\"a\",le=\"+Inf\"} 3\n"), "overflow");
+        assertTrue(text.contains("test_latency_seconds_sum{stage=\"a\"} 20.0024\n"), "sum in seconds");
+        assertTrue(text.contains("test_latency_seconds_count{stage=\"a\"} 3\n"), "count");
+
+        // A name has one type
+        assertThrows(IllegalArgumentException.class,
+                () -> registry.registerGauge("test_calls_total", "Calls", () -> 1));
+    }
+
+    // The bucket counts match an exact count to within the bucket width, 1/64 of the value
+    @Test
+    void cumulativeCounts() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] bounds = {100, 1_000, 10_000, 100_000};
+        long[] exact = new long[bounds.length];
+        long[] withinResolution = new long[bounds.length];
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 1_000_000; i++) {
+            long value = (long) Math.exp(random.nextDouble() * 14);
+            histogram.record(value);
+            for (int b = 0; b < bounds.length; b++) {
+                if (value <= bounds[b]) {
+                    exact[b]++;
+                }
+                if (value <= bounds[b] + bounds[b] / 64) {
+                    withinResolution[b]++;
+                }
+            }
+        }
+
+        // Values just above a bound share its bucket
+        long[] cumulative = histogram.cumulativeCounts(bounds);
+        for (int b = 0; b < bounds.length; b++) {
+            assertTrue(cumulative[b] >= exact[b], "bucket " + bounds[b] + " holds every value below it");
+            assertTrue(cumulative[b] <= withinResolution[b], "bucket " + bounds[b] + " within the bucket width");
+        }
+        assertEquals(histogram.count(), cumulative[bounds.length], "total");
+    }
+
+    @Test
+    void served() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_served_total", "Served").increment();
+
+        try (MetricsServer server = MetricsServer.start(0, registry)) {
+            assertSame(server, MetricsServer.start(0, registry), "one server per port");
+
+            HttpURLConnection connection = (HttpURLConnection) new URL(
+                    "http://localhost:" + server.port() + "/metrics").openConnection();
+            assertEquals(200, connection.getResponseCode(), "status");
+            assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"), "content type");
+            try (InputStream in = connection.getInputStream()) {
+                String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                assertTrue(body.contains("test_served_total 1\n"), "scraped body");
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.VoltProcedure.VoltAbortException;
+import org.voltdb.VoltTable;
+
+/**
+ * Values of APPLICATION_PARAMETERS, read from the result of a getAppParam statement of the calling procedure.
+ * Parameters that are not set take their default value.
+ * <p>
+ * KEEP_MINUTES is how long scan history is kept. The scheduled PruneScanHistory task enforces it on every
+ * partition. INLINE_PRUNING = 0 leaves it all to the task; any other value, or none, also has the ProcessPlate
+ * procedures delete up to two stale rows of the scanned plate, as they did before the task existed.
+ */
+final class ApplicationParameters {
+
+    static final long DEFAULT_KEEP_MINUTES = 10;
+
+    private ApplicationParameters() {
+    }
+
+    static long keepMinutes(VoltTable result) {
+        return longValue(result, DEFAULT_KEEP_MINUTES, "keep minutes");
+    }
+
+    /**
+     * Returns the REFERENCE_DATA_VERSION, bumped by BumpReferenceDataVersion whenever fares or multipliers change.
+     */
+    static long referenceDataVersion(VoltTable result) {
+        return longValue(result, 0, "reference data version");
+    }
+
+    static boolean inlinePruning(VoltTable result) {
+        return !result.advanceRow() || !"0".equals(result.getString("PARAMETER_VALUE"));
+    }
+
+    // The value of the parameter, or defaultValue when it is not set
+    private static long longValue(VoltTable result, long defaultValue, String name) {
+        if (!result.advanceRow()) {
+            return defaultValue;
+        }
+        String value = result.getString("PARAMETER_VALUE");
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new VoltAbortException("Invalid " + name + " of " + value);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+
+/**
+ * Increments the REFERENCE_DATA_VERSION application parameter. Run it after changing TOLL_LOCATIONS or
+ * VEHICLE_TYPES so that cached snapshots in the stream pipeline are refreshed and stale prices are detected
+ * by ProcessPlatePriced.
+ */
+public class BumpReferenceDataVersion extends VoltProcedure {
+
+    public final SQLStmt getVersion = new SQLStmt(
+            "SELECT parameter_value FROM application_parameters WHERE parameter_name = 'REFERENCE_DATA_VERSION';"
+    );
+
+    public final SQLStmt setVersion = new SQLStmt(
+            "UPSERT INTO application_parameters (parameter_name, parameter_value) VALUES ('REFERENCE_DATA_VERSION', ?);"
+    );
+
+    public long run() throws VoltAbortException {
+        voltQueueSQL(getVersion);
+        long version = ApplicationParameters.referenceDataVersion(voltExecuteSQL()[0]);
+
+        version++;
+        voltQueueSQL(setVersion, Long.toString(version));
+        voltExecuteSQL(true);
+
+        return version;
+    }
+}
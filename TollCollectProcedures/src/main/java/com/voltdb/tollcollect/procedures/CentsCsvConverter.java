@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Converts the csv files of the csv directory for the cents money model of ddl/other/create_db_cents.sql.
+ * Balances and fares become whole cents and vehicle multipliers thousandths; a value that cannot be converted
+ * exactly stops the conversion instead of being rounded. Other columns and files are copied unchanged.
+ * <pre>
+ * java -cp TollCollectProcedures-1.0-SNAPSHOT.jar com.voltdb.tollcollect.procedures.CentsCsvConverter csv csv-cents
+ * </pre>
+ */
+public class CentsCsvConverter {
+
+    private static final String BYTE_ORDER_MARK = "﻿";
+
+    // File name to the column converted in it
+    private static final Map<String, ColumnConversion> CONVERSIONS = Map.of(
+            "accounts.csv", new ColumnConversion("balance", TollMathCents::toCents),
+            "toll_locations.csv", new ColumnConversion("base_fare", TollMathCents::toCents),
+            "vehicle_types.csv", new ColumnConversion("toll_multip", TollMathCents::toThousandths)
+    );
+
+    private static final String[] FILES = {"accounts.csv", "known_vehicles.csv", "toll_locations.csv", "vehicle_types.csv"};
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: CentsCsvConverter <csv directory> <output directory>");
+            System.exit(1);
+        }
+        Path input = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        Files.createDirectories(output);
+
+        for (String file : FILES) {
+            ColumnConversion conversion = CONVERSIONS.get(file);
+            if (conversion == null) {
+                Files.copy(input.resolve(file), output.resolve(file), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                convert(input.resolve(file), output.resolve(file), conversion);
+            }
+            System.out.println("Converted " + file);
+        }
+    }
+
+    static void convert(Path input, Path output, ColumnConversion conversion) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException(input + " is empty");
+            }
+            writer.write(header);
+            writer.newLine();
+
+            String[] columns = header.replace(BYTE_ORDER_MARK, "").split(",");
+            int column = -1;
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].trim().equalsIgnoreCase(conversion.column())) {
+                    column = i;
+                }
+            }
+            if (column < 0) {
+                throw new IOException(input + " has no column " + conversion.column());
+            }
+
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] values = line.split(",", -1);
+                try {
+                    values[column] = Long.toString(conversion.converter().apply(new BigDecimal(values[column].trim())));
+                } catch (ArithmeticException | NumberFormatException e) {
+                    throw new IOException(input + " line " + lineNumber + ": cannot convert "
+                            + conversion.column() + " value " + values[column], e);
+                }
+                writer.write(String.join(",", values));
+                writer.newLine();
+            }
+        }
+    }
+
+    record ColumnConversion(String column, Function<BigDecimal, Long> converter) {
+    }
+}
@@ -60,14 +60,17 @@ public class ChargeAccount extends VoltProcedure {
                            String tollReason) throws VoltAbortException {
         //Initialize transaction variables
 
-        BigDecimal txFeeAmount = new BigDecimal(0);
+        BigDecimal txFeeAmount = TollMath.NO_CHARGE;
 
-        final BigDecimal topup_amount = new BigDecimal(30);
+        final BigDecimal topup_amount = TollMath.TOP_UP_AMOUNT;
         BigDecimal finalTotalAmount = tollAmount;
 
         // Use Volt to generate a safe uniqueId and timestamp for this transaction.
         long acct_tx_id = getUniqueId();
         Date acct_tx_timestamp = getTransactionTime();
+        // The top-up needs its own row in ACCOUNT_HISTORY. The unique id ends with the partition id, so adding one
+        // gives an id no transaction of this partition is ever assigned.
+        long topup_tx_id = acct_tx_id + 1;
 
         // Get account information
         voltQueueSQL(getAccountInfo, accountId);
@@ -83,15 +86,15 @@ public class ChargeAccount extends VoltProcedure {
 
 
         // Check if balance after deduction would be below threshold
-        BigDecimal projectedBalance = currentBalance.subtract(tollAmount);
+        BigDecimal projectedBalance = TollMath.projectedBalance(currentBalance, tollAmount);
 
-        if (projectedBalance.compareTo(new BigDecimal(10)) == -1 && autoTopup == 1) {
+        if (TollMath.needsTopUp(projectedBalance, autoTopup == 1)) {
             // Process auto top-up
             voltQueueSQL(addTopUpAmount, topup_amount, accountId);
 
-            // Send to top-up stream to charge payment method. Assume successful.
+            // Send to top-up stream to charge payment method. A declined charge is reversed by SettleTopUp.
             voltQueueSQL(exportTopUp,
-                    acct_tx_id,
+                    topup_tx_id,
                     acct_tx_timestamp,
                     accountId,
                     topup_amount);
@@ -99,7 +102,7 @@ public class ChargeAccount extends VoltProcedure {
 
             // Record top-up in account history
             voltQueueSQL(insertAccountHistory,
-                    acct_tx_id,
+                    topup_tx_id,
                     acct_tx_timestamp,
                     accountId,
                     null,
@@ -112,10 +115,10 @@ public class ChargeAccount extends VoltProcedure {
                     null,
                     topup_amount,
                     "CREDIT");
-        } else if (projectedBalance.compareTo(new BigDecimal(0)) == -1 && autoTopup == 0) {
+        } else if (TollMath.isOverdrawn(projectedBalance, autoTopup == 1)) {
             // Add administrative fee
-            txFeeAmount = new BigDecimal(25);
-            finalTotalAmount = txFeeAmount.add(tollAmount);
+            txFeeAmount = TollMath.INSUFFICIENT_BALANCE_FEE;
+            finalTotalAmount = TollMath.overdrawnTotal(tollAmount);
 
             // Send to bill-by-mail export stream. Separate export stream recommended to avoid MP transaction.
             voltQueueSQL(exportBillByMail,
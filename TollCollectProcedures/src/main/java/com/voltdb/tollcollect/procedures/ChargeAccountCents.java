@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTableRow;
+import org.voltdb.VoltType;
+
+import java.util.Date;
+
+/**
+ * ChargeAccount for the fixed-point money model of ddl/other/create_db_cents.sql, with the toll and all balances
+ * in cents.
+ */
+public class ChargeAccountCents extends VoltProcedure {
+
+    public final SQLStmt getAccountInfo = new SQLStmt(
+            "SELECT balance, auto_topup, account_status FROM ACCOUNTS " +
+            "WHERE account_id = ? AND account_status = 1;"
+    );
+
+    public final SQLStmt addTopUpAmount = new SQLStmt(
+            "UPDATE ACCOUNTS SET balance = balance + ? " +
+            "WHERE account_id = ?;"
+    );
+
+    public final SQLStmt exportTopUp = new SQLStmt(
+            "INSERT INTO top_up_stream VALUES (?, ?, ?, ?);"
+    );
+
+    public final SQLStmt updateBalance = new SQLStmt(
+            "UPDATE ACCOUNTS SET balance = balance - ? " +
+            "WHERE account_id = ?;"
+    );
+
+    public final SQLStmt insertAccountHistory = new SQLStmt(
+            "INSERT INTO ACCOUNT_HISTORY (acct_tx_id, acct_tx_timestamp, account_id, " +
+            "plate_num, scan_id, scan_timestamp, toll_loc, toll_lane_num, " +
+            "toll_amount, toll_reason, tx_fee_amount, " +
+            "total_amount, tx_type) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);"
+    );
+
+
+    // Insert into bill_by_mail_export stream
+    public final SQLStmt exportBillByMail = new SQLStmt(
+            "INSERT INTO bill_by_mail_stream VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?);"
+    );  
+
+    public VoltTable[] run(long scanId,
+                           long scanTimestamp,
+                           String location,
+                           String lane,
+                           String plateNum,
+                           int accountId,
+                           long tollAmount,
+                           String tollReason) throws VoltAbortException {
+        //Initialize transaction variables
+
+        long txFeeAmount = TollMathCents.NO_CHARGE;
+
+        final long topup_amount = TollMathCents.TOP_UP_AMOUNT;
+        long finalTotalAmount = tollAmount;
+
+        // Use Volt to generate a safe uniqueId and timestamp for this transaction.
+        long acct_tx_id = getUniqueId();
+        Date acct_tx_timestamp = getTransactionTime();
+        // The top-up needs its own row in ACCOUNT_HISTORY. The unique id ends with the partition id, so adding one
+        // gives an id no transaction of this partition is ever assigned.
+        long topup_tx_id = acct_tx_id + 1;
+
+        // Get account information
+        voltQueueSQL(getAccountInfo, accountId);
+        VoltTable[] accountResults = voltExecuteSQL();
+
+        if (accountResults[0].getRowCount() == 0) {
+            throw new VoltAbortException("Invalid account");
+        }
+
+        VoltTableRow accountRow = accountResults[0].fetchRow(0);
+        long currentBalance = accountRow.getLong("balance");
+        byte autoTopup = (byte) accountRow.get("auto_topup", VoltType.TINYINT);
+
+
+        // Check if balance after deduction would be below threshold
+        long projectedBalance = TollMathCents.projectedBalance(currentBalance, tollAmount);
+
+        if (TollMathCents.needsTopUp(projectedBalance, autoTopup == 1)) {
+            // Process auto top-up
+            voltQueueSQL(addTopUpAmount, topup_amount, accountId);
+
+            // Send to top-up stream to charge payment method. A declined charge is reversed by SettleTopUpCents.
+            voltQueueSQL(exportTopUp,
+                    topup_tx_id,
+                    acct_tx_timestamp,
+                    accountId,
+                    topup_amount);
+
+
+            // Record top-up in account history
+            voltQueueSQL(insertAccountHistory,
+                    topup_tx_id,
+                    acct_tx_timestamp,
+                    accountId,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    "AUTO_TOPUP",
+                    null,
+                    topup_amount,
+                    "CREDIT");
+        } else if (TollMathCents.isOverdrawn(projectedBalance, autoTopup == 1)) {
+            // Add administrative fee
+            txFeeAmount = TollMathCents.INSUFFICIENT_BALANCE_FEE;
+            finalTotalAmount = TollMathCents.overdrawnTotal(tollAmount);
+
+            // Send to bill-by-mail export stream. Separate export stream recommended to avoid MP transaction.
+            voltQueueSQL(exportBillByMail,
+                    scanId,
+                    scanTimestamp,
+                    plateNum,
+                    location,
+                    lane,
+                    tollAmount,
+                    "INSUFFICIENT_BALANCE",
+                    null,
+                    txFeeAmount,
+                    finalTotalAmount);
+
+        }
+
+        // Update account balance
+        voltQueueSQL(updateBalance, finalTotalAmount, accountId);
+
+        // Record toll transaction in account history
+        voltQueueSQL(insertAccountHistory,
+                acct_tx_id,
+                acct_tx_timestamp,
+                accountId,
+                plateNum,
+                scanId,
+                new java.util.Date(scanTimestamp),
+                location,
+                lane,
+                tollAmount,
+                tollReason,
+                txFeeAmount,
+                finalTotalAmount,
+                "DEBIT");
+
+        return voltExecuteSQL();
+    }
+}
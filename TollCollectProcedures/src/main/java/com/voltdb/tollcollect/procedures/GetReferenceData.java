@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+
+/**
+ * Reads the replicated reference tables in one transaction so that clients caching them get a consistent
+ * snapshot. The REFERENCE_DATA_VERSION application parameter in the third table identifies the snapshot.
+ */
+public class GetReferenceData extends VoltProcedure {
+
+    public final SQLStmt getTollLocations = new SQLStmt(
+            "SELECT toll_loc_id, toll_loc, toll_loc_status, base_fare, latitude, longitude FROM TOLL_LOCATIONS;"
+    );
+
+    public final SQLStmt getVehicleTypes = new SQLStmt(
+            "SELECT vehicle_type, vehicle_class, toll_multip FROM VEHICLE_TYPES;"
+    );
+
+    public final SQLStmt getAppParams = new SQLStmt(
+            "SELECT parameter_name, parameter_value FROM application_parameters;"
+    );
+
+    public VoltTable[] run() throws VoltAbortException {
+        voltQueueSQL(getTollLocations);
+        voltQueueSQL(getVehicleTypes);
+        voltQueueSQL(getAppParams);
+        return voltExecuteSQL(true);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+
+import java.math.BigDecimal;
+
+/**
+ * Upserts a batch of ACCOUNTS rows in one transaction, used by the bulk loader of TollCollectClient.
+ * <p>
+ * The rows are passed as parallel arrays. All accounts must belong to the partition of {@code partitionKey},
+ * which is what the procedure is routed on; callers group rows by the partition of their account and use the
+ * key returned by {@code @GetPartitionKeys INTEGER} for that partition. Loading the same rows again leaves the
+ * table unchanged.
+ */
+public class LoadAccounts extends VoltProcedure {
+
+    // Statements executed per round trip to the execution engine
+    private static final int STATEMENTS_PER_EXECUTE = 200;
+
+    public final SQLStmt upsertAccount = new SQLStmt(
+            "UPSERT INTO ACCOUNTS (account_id, account_status, auto_topup, balance) VALUES (?, ?, ?, ?);"
+    );
+
+    public long run(
+            int partitionKey,
+            int[] accountIds,
+            int[] accountStatuses,
+            int[] autoTopups,
+            BigDecimal[] balances) throws VoltAbortException {
+
+        final int rowCount = accountIds.length;
+        if (accountStatuses.length != rowCount || autoTopups.length != rowCount || balances.length != rowCount) {
+            throw new VoltAbortException("Account arrays differ in length");
+        }
+
+        for (int i = 0; i < rowCount; i++) {
+            voltQueueSQL(upsertAccount, accountIds[i], accountStatuses[i], autoTopups[i], balances[i]);
+            if ((i + 1) % STATEMENTS_PER_EXECUTE == 0) {
+                voltExecuteSQL();
+            }
+        }
+        voltExecuteSQL(true);
+        return rowCount;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+
+/**
+ * Upserts a batch of KNOWN_VEHICLES rows in one transaction, used by the bulk loader of TollCollectClient.
+ * <p>
+ * The rows are passed as parallel arrays. All plates must belong to the partition of {@code partitionKey},
+ * which is what the procedure is routed on; callers group rows by the partition of their plate and use the
+ * key returned by {@code @GetPartitionKeys STRING} for that partition. Loading the same rows again leaves the
+ * table unchanged.
+ */
+public class LoadKnownVehicles extends VoltProcedure {
+
+    // Statements executed per round trip to the execution engine
+    private static final int STATEMENTS_PER_EXECUTE = 200;
+
+    public final SQLStmt upsertVehicle = new SQLStmt(
+            "UPSERT INTO KNOWN_VEHICLES (plate_num, account_id, vehicle_type, active, exempt_status) " +
+            "VALUES (?, ?, ?, ?, ?);"
+    );
+
+    public long run(
+            String partitionKey,
+            String[] plateNums,
+            int[] accountIds,
+            int[] vehicleTypes,
+            int[] active,
+            int[] exemptStatuses) throws VoltAbortException {
+
+        final int rowCount = plateNums.length;
+        if (accountIds.length != rowCount || vehicleTypes.length != rowCount
+                || active.length != rowCount || exemptStatuses.length != rowCount) {
+            throw new VoltAbortException("Vehicle arrays differ in length");
+        }
+
+        for (int i = 0; i < rowCount; i++) {
+            voltQueueSQL(upsertVehicle, plateNums[i], accountIds[i], vehicleTypes[i], active[i], exemptStatuses[i]);
+            if ((i + 1) % STATEMENTS_PER_EXECUTE == 0) {
+                voltExecuteSQL();
+            }
+        }
+        voltExecuteSQL(true);
+        return rowCount;
+    }
+}
@@ -10,9 +10,10 @@ package com.voltdb.tollcollect.procedures;
 import org.voltdb.SQLStmt;
 import org.voltdb.VoltProcedure;
 import org.voltdb.VoltTable;
-import org.voltdb.VoltTableRow;
 import org.voltdb.VoltType;
+
 import java.math.BigDecimal;
+import java.util.Date;
 
 public class ProcessPlate extends VoltProcedure {
 
@@ -25,11 +26,11 @@ public class ProcessPlate extends VoltProcedure {
     public final SQLStmt getAppParam = new SQLStmt(
             "SELECT parameter_value FROM application_parameters WHERE parameter_name = ?;"
     );
-    
+
     public final SQLStmt getVehicleMultiplier = new SQLStmt(
             "SELECT toll_multip FROM VEHICLE_TYPES WHERE vehicle_class = ?;"
     );
-    
+
     // SQL statement to check known vehicles
     public final SQLStmt checkVehicle = new SQLStmt(
             "SELECT account_id, exempt_status, vehicle_type FROM KNOWN_VEHICLES " +
@@ -43,7 +44,7 @@ public class ProcessPlate extends VoltProcedure {
 
     // SQL statement to insert scan history
     public final SQLStmt insertScanHistory = new SQLStmt(
-            "INSERT INTO SCAN_HISTORY VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?);"
+            "INSERT INTO SCAN_HISTORY VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);"
     );
 
    // Delete up to 2 old scan history records
@@ -53,8 +54,15 @@ public class ProcessPlate extends VoltProcedure {
               + "AND scan_timestamp < DATEADD(MINUTE, (-1 * ?),NOW) "
               + "ORDER BY scan_timestamp, scan_id, plate_num LIMIT 2;");
 
-    public long run(
-            long scanTimestamp, 
+    // Positions of the lookup results in the first batch
+    private static final int TOLL_RESULT = 0;
+    private static final int VEHICLE_RESULT = 1;
+    private static final int PARAM_RESULT = 2;
+    private static final int KNOWN_VEHICLE_RESULT = 3;
+    private static final int INLINE_PRUNING_RESULT = 4;
+
+    public VoltTable run(
+            long scanTimestamp,
             String location,
             String lane,
             String plateNum,
@@ -62,98 +70,43 @@ public class ProcessPlate extends VoltProcedure {
 
         final long scanId = getUniqueId();
 
-        // Set default values for parameters
-	long keepMinutes = 10;
-
-        //Initialize toll calculation variables
-        BigDecimal baseToll;
-        BigDecimal vehicleMultiplier;
-        BigDecimal scanFeeAmount = new BigDecimal(0);
-        BigDecimal tollAmount;
-        BigDecimal totalAmount;
-        String tollReason;
-
-        //Initialize lookup values
-        int accountId = 0;
-        byte exemptStatus;
-
-        // Get base toll for location
+        // Queue every lookup and run them in a single round trip to the execution engine.
+        // The statements are independent of each other, so the branching below is decided
+        // in Java once all results are back.
         voltQueueSQL(getTollInfo, location);
-        VoltTable[] tollResults = voltExecuteSQL();
-        if (tollResults[0].getRowCount() == 0) {
-            throw new VoltAbortException("Invalid toll location");
-        }
-
-        // Get vehicle type multiplier
         voltQueueSQL(getVehicleMultiplier, vehicleClass);
-        VoltTable[] vehicleResults = voltExecuteSQL();
-        if (vehicleResults[0].getRowCount() == 0) {
-            throw new VoltAbortException("Invalid vehicle class");
-        }
-
-        // Get how long to keep records for
         voltQueueSQL(getAppParam, "KEEP_MINUTES");
-        VoltTable[] paramResults = voltExecuteSQL();
-        if (paramResults[0].advanceRow()) {
-            try {
-                keepMinutes = Long.parseLong(paramResults[0].getString("PARAMETER_VALUE"));
-                }
-            catch (NumberFormatException e) {
-                throw new VoltAbortException("Invalid keep minutes of " + paramResults[0].getString("PARAMETER_VALUE"));
-                }
-        }
-
-        baseToll = tollResults[0]
-                .fetchRow(0)
-                .getDecimalAsBigDecimal("base_fare");
+        voltQueueSQL(checkVehicle, plateNum);
+        voltQueueSQL(getAppParam, "INLINE_PRUNING");
+        VoltTable[] lookupResults = voltExecuteSQL();
 
-        vehicleMultiplier = vehicleResults[0]
-                .fetchRow(0)
-                .getDecimalAsBigDecimal("toll_multip");
+        BigDecimal tollAmount = ScanOutcomes.toll(lookupResults[TOLL_RESULT], lookupResults[VEHICLE_RESULT]);
 
-        tollAmount = baseToll.multiply(vehicleMultiplier);
+        // How long to keep records for, and whether this call deletes stale ones, see ApplicationParameters
+        long keepMinutes = ApplicationParameters.keepMinutes(lookupResults[PARAM_RESULT]);
+        boolean inlinePruning = ApplicationParameters.inlinePruning(lookupResults[INLINE_PRUNING_RESULT]);
 
-        // Check if vehicle is known
-        voltQueueSQL(checkVehicle, plateNum);
-        VoltTable[] vehicleCheckResults = voltExecuteSQL();
-        if (vehicleCheckResults[0].getRowCount() > 0) {
-            VoltTableRow vehicleRow = vehicleCheckResults[0].fetchRow(0);
-            accountId = (int) vehicleRow.getLong("account_id");
-            exemptStatus = (byte) vehicleRow.get("exempt_status", VoltType.TINYINT);
-
-            if (exemptStatus == 1) {
-                tollAmount = new BigDecimal(0);
-                totalAmount = new BigDecimal(0);
-                tollReason = "EXEMPT";
-            } else {
-                totalAmount = tollAmount;
-                tollReason = "STANDARD TOLL ( " + vehicleClass + ")";
-            }
-        } else {
-            // Unknown vehicle or mismatched type
-            scanFeeAmount = new BigDecimal(2);
-            totalAmount = tollAmount.add(scanFeeAmount);
-            tollReason = "UNKNOWN_VEHICLE";
-
-            // Insert into bill_by_mail_stream stream
-            voltQueueSQL(exportBillByMail,
-                    scanId, new java.util.Date(scanTimestamp), plateNum, location, lane,
-                    tollAmount, tollReason, scanFeeAmount, null, tollAmount
-            );
-
-            voltExecuteSQL();
+        ScanOutcomes.Outcome<BigDecimal> outcome =
+                ScanOutcomes.decide(lookupResults[KNOWN_VEHICLE_RESULT], tollAmount, vehicleClass);
+        Date scanDate = new Date(scanTimestamp);
+        if (outcome.unknownVehicle()) {
+            // Insert into bill_by_mail_stream stream. Queued together with the writes below.
+            voltQueueSQL(exportBillByMail, outcome.billByMailRow(scanId, scanDate, plateNum, location, lane));
         }
 
         // Insert into scan history
-        voltQueueSQL(insertScanHistory,
-                scanId, new java.util.Date(scanTimestamp), plateNum, accountId,
-                location, lane, tollAmount, tollReason, scanFeeAmount, totalAmount);
+        voltQueueSQL(insertScanHistory, outcome.scanHistoryRow(scanId, scanDate, plateNum, location, lane));
 
         // Delete stale scan history records
-        voltQueueSQL(removeOldestTransaction, plateNum, keepMinutes);
+        if (inlinePruning) {
+            voltQueueSQL(removeOldestTransaction, plateNum, keepMinutes);
+        }
 
         voltExecuteSQL(true);
 
-        return 0;
+        // Return the scan outcome so callers can charge the account without reading it back
+        VoltTable scanOutcome = ScanOutcomes.newTable(VoltType.DECIMAL);
+        scanOutcome.addRow(outcome.scanHistoryRow(scanId, scanDate, plateNum, location, lane));
+        return scanOutcome;
     }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Processes a batch of scans in one transaction, with the same outcome for every scan as {@link ProcessPlate}.
+ * <p>
+ * The scans are passed as parallel arrays. All plates must belong to the partition of {@code partitionKey},
+ * which is what the procedure is routed on; callers group scans by the partition of their plate and use the
+ * key returned by {@code @GetPartitionKeys STRING} for that partition.
+ * <p>
+ * A transaction has a single unique id, so all scans of a batch share it as their scan id. Volt uses every bit
+ * of the id for the time, a counter and the partition, which leaves no room to number the scans within it. Each
+ * plate may only appear once per batch, so a scan is identified by (plate_num, scan_id): the SCAN_HISTORY
+ * primary key, the plate and scan id ChargeAccount writes to ACCOUNT_HISTORY, and bill_by_mail_stream, which
+ * is keyed and invoiced by plate. Nothing downstream keys on scan_id alone.
+ * <p>
+ * Fares, multipliers and known vehicles are looked up once per distinct value in the batch. A scan with an
+ * invalid location or vehicle class is skipped and listed in the second result table instead of aborting the
+ * whole batch. The first result table holds the outcome of every processed scan, like ProcessPlate returns it.
+ */
+public class ProcessPlateBatch extends VoltProcedure {
+
+    public final SQLStmt getTollInfo = new SQLStmt(
+            "SELECT base_fare FROM TOLL_LOCATIONS WHERE toll_loc = ? AND toll_loc_status = 1;"
+    );
+
+    public final SQLStmt getAppParam = new SQLStmt(
+            "SELECT parameter_value FROM application_parameters WHERE parameter_name = ?;"
+    );
+
+    public final SQLStmt getVehicleMultiplier = new SQLStmt(
+            "SELECT toll_multip FROM VEHICLE_TYPES WHERE vehicle_class = ?;"
+    );
+
+    // SQL statement to check known vehicles
+    public final SQLStmt checkVehicle = new SQLStmt(
+            "SELECT account_id, exempt_status, vehicle_type FROM KNOWN_VEHICLES " +
+            "WHERE plate_num = ? AND active = 1;"
+    );
+
+    // Insert into bill_by_mail_stream stream
+    public final SQLStmt exportBillByMail = new SQLStmt(
+            "INSERT INTO bill_by_mail_stream VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?);"
+    );
+
+    // SQL statement to insert scan history
+    public final SQLStmt insertScanHistory = new SQLStmt(
+            "INSERT INTO SCAN_HISTORY VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);"
+    );
+
+    // Delete up to 2 old scan history records
+    public final SQLStmt removeOldestTransaction = new SQLStmt("DELETE "
+            + "FROM scan_history "
+            + "WHERE plate_num = ? "
+            + "AND scan_timestamp < DATEADD(MINUTE, (-1 * ?),NOW) "
+            + "ORDER BY scan_timestamp, scan_id, plate_num LIMIT 2;");
+
+    // Scans that were not processed, by position in the batch
+    private static final VoltTable.ColumnInfo[] REJECTED_SCAN_COLUMNS = new VoltTable.ColumnInfo[]{
+            new VoltTable.ColumnInfo("SCAN_INDEX", VoltType.INTEGER),
+            new VoltTable.ColumnInfo("REASON", VoltType.STRING)
+    };
+
+    public VoltTable[] run(
+            String partitionKey,
+            long[] scanTimestamps,
+            String[] locations,
+            String[] lanes,
+            String[] plateNums,
+            String[] vehicleClasses) throws VoltAbortException {
+
+        final long scanId = getUniqueId();
+        final int scanCount = scanTimestamps.length;
+        if (locations.length != scanCount || lanes.length != scanCount
+                || plateNums.length != scanCount || vehicleClasses.length != scanCount) {
+            throw new VoltAbortException("Scan arrays differ in length");
+        }
+
+
+        // Queue one lookup per distinct location and vehicle class and one per plate,
+        // remembering the position of each result
+        Map<String, Integer> tollResultIndexes = new HashMap<>();
+        Map<String, Integer> vehicleResultIndexes = new HashMap<>();
+        Map<String, Integer> knownVehicleResultIndexes = new HashMap<>();
+        voltQueueSQL(getAppParam, "KEEP_MINUTES");
+        voltQueueSQL(getAppParam, "INLINE_PRUNING");
+        int queued = 2;
+        for (int i = 0; i < scanCount; i++) {
+            if (!tollResultIndexes.containsKey(locations[i])) {
+                voltQueueSQL(getTollInfo, locations[i]);
+                tollResultIndexes.put(locations[i], queued++);
+            }
+            if (!vehicleResultIndexes.containsKey(vehicleClasses[i])) {
+                voltQueueSQL(getVehicleMultiplier, vehicleClasses[i]);
+                vehicleResultIndexes.put(vehicleClasses[i], queued++);
+            }
+            if (knownVehicleResultIndexes.containsKey(plateNums[i])) {
+                throw new VoltAbortException("Plate " + plateNums[i] + " appears more than once in the batch");
+            }
+            voltQueueSQL(checkVehicle, plateNums[i]);
+            knownVehicleResultIndexes.put(plateNums[i], queued++);
+        }
+        VoltTable[] lookupResults = voltExecuteSQL();
+
+        // How long to keep records for, and whether this call deletes stale ones, see ApplicationParameters
+        long keepMinutes = ApplicationParameters.keepMinutes(lookupResults[0]);
+        boolean inlinePruning = ApplicationParameters.inlinePruning(lookupResults[1]);
+
+        VoltTable scanOutcomes = ScanOutcomes.newTable(VoltType.DECIMAL);
+        VoltTable rejectedScans = new VoltTable(REJECTED_SCAN_COLUMNS);
+
+        for (int i = 0; i < scanCount; i++) {
+            VoltTable tollResults = lookupResults[tollResultIndexes.get(locations[i])];
+            VoltTable vehicleResults = lookupResults[vehicleResultIndexes.get(vehicleClasses[i])];
+            String invalidScan = ScanOutcomes.invalidScan(tollResults, vehicleResults);
+            if (invalidScan != null) {
+                rejectedScans.addRow(i, invalidScan);
+                continue;
+            }
+
+            BigDecimal tollAmount = ScanOutcomes.toll(tollResults, vehicleResults);
+            ScanOutcomes.Outcome<BigDecimal> outcome = ScanOutcomes.decide(
+                    lookupResults[knownVehicleResultIndexes.get(plateNums[i])], tollAmount, vehicleClasses[i]);
+            Date scanDate = new Date(scanTimestamps[i]);
+            if (outcome.unknownVehicle()) {
+                voltQueueSQL(exportBillByMail,
+                        outcome.billByMailRow(scanId, scanDate, plateNums[i], locations[i], lanes[i]));
+            }
+
+            Object[] scanHistoryRow = outcome.scanHistoryRow(scanId, scanDate, plateNums[i], locations[i], lanes[i]);
+            voltQueueSQL(insertScanHistory, scanHistoryRow);
+
+            // Delete stale scan history records, as many per scan as ProcessPlate does
+            if (inlinePruning) {
+                voltQueueSQL(removeOldestTransaction, plateNums[i], keepMinutes);
+            }
+
+            scanOutcomes.addRow(scanHistoryRow);
+        }
+
+        voltExecuteSQL(true);
+
+        return new VoltTable[]{scanOutcomes, rejectedScans};
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+import java.util.Date;
+
+/**
+ * ProcessPlate for the fixed-point money model of ddl/other/create_db_cents.sql: amounts are BIGINT cents and
+ * toll_multip is an INTEGER in thousandths, so the toll arithmetic works on longs instead of BigDecimals.
+ */
+public class ProcessPlateCents extends VoltProcedure {
+
+    // This section defines SQL statements to be executed as part of this transaction
+    // This two statements will look up base toll for a toll location and vehicle multiplier
+    public final SQLStmt getTollInfo = new SQLStmt(
+            "SELECT base_fare FROM TOLL_LOCATIONS WHERE toll_loc = ? AND toll_loc_status = 1;"
+    );
+
+    public final SQLStmt getAppParam = new SQLStmt(
+            "SELECT parameter_value FROM application_parameters WHERE parameter_name = ?;"
+    );
+
+    public final SQLStmt getVehicleMultiplier = new SQLStmt(
+            "SELECT toll_multip FROM VEHICLE_TYPES WHERE vehicle_class = ?;"
+    );
+
+    // SQL statement to check known vehicles
+    public final SQLStmt checkVehicle = new SQLStmt(
+            "SELECT account_id, exempt_status, vehicle_type FROM KNOWN_VEHICLES " +
+            "WHERE plate_num = ? AND active = 1;"
+    );
+
+    // Insert into bill_by_mail_stream stream
+    public final SQLStmt exportBillByMail = new SQLStmt(
+            "INSERT INTO bill_by_mail_stream VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?);"
+    );
+
+    // SQL statement to insert scan history
+    public final SQLStmt insertScanHistory = new SQLStmt(
+            "INSERT INTO SCAN_HISTORY VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);"
+    );
+
+   // Delete up to 2 old scan history records
+   public static final SQLStmt removeOldestTransaction = new SQLStmt("DELETE "
+              + "FROM scan_history "
+              + "WHERE plate_num = ? "
+              + "AND scan_timestamp < DATEADD(MINUTE, (-1 * ?),NOW) "
+              + "ORDER BY scan_timestamp, scan_id, plate_num LIMIT 2;");
+
+    // Positions of the lookup results in the first batch
+    private static final int TOLL_RESULT = 0;
+    private static final int VEHICLE_RESULT = 1;
+    private static final int PARAM_RESULT = 2;
+    private static final int KNOWN_VEHICLE_RESULT = 3;
+    private static final int INLINE_PRUNING_RESULT = 4;
+
+    public VoltTable run(
+            long scanTimestamp,
+            String location,
+            String lane,
+            String plateNum,
+            String vehicleClass) throws VoltAbortException {
+
+        final long scanId = getUniqueId();
+
+        // Queue every lookup and run them in a single round trip to the execution engine.
+        // The statements are independent of each other, so the branching below is decided
+        // in Java once all results are back.
+        voltQueueSQL(getTollInfo, location);
+        voltQueueSQL(getVehicleMultiplier, vehicleClass);
+        voltQueueSQL(getAppParam, "KEEP_MINUTES");
+        voltQueueSQL(checkVehicle, plateNum);
+        voltQueueSQL(getAppParam, "INLINE_PRUNING");
+        VoltTable[] lookupResults = voltExecuteSQL();
+
+        long tollAmount = ScanOutcomes.tollCents(lookupResults[TOLL_RESULT], lookupResults[VEHICLE_RESULT]);
+
+        // How long to keep records for, and whether this call deletes stale ones, see ApplicationParameters
+        long keepMinutes = ApplicationParameters.keepMinutes(lookupResults[PARAM_RESULT]);
+        boolean inlinePruning = ApplicationParameters.inlinePruning(lookupResults[INLINE_PRUNING_RESULT]);
+
+        ScanOutcomes.Outcome<Long> outcome =
+                ScanOutcomes.decideCents(lookupResults[KNOWN_VEHICLE_RESULT], tollAmount, vehicleClass);
+        Date scanDate = new Date(scanTimestamp);
+        if (outcome.unknownVehicle()) {
+            // Insert into bill_by_mail_stream stream. Queued together with the writes below.
+            voltQueueSQL(exportBillByMail, outcome.billByMailRow(scanId, scanDate, plateNum, location, lane));
+        }
+
+        // Insert into scan history
+        voltQueueSQL(insertScanHistory, outcome.scanHistoryRow(scanId, scanDate, plateNum, location, lane));
+
+        // Delete stale scan history records
+        if (inlinePruning) {
+            voltQueueSQL(removeOldestTransaction, plateNum, keepMinutes);
+        }
+
+        voltExecuteSQL(true);
+
+        // Return the scan outcome so callers can charge the account without reading it back
+        VoltTable scanOutcome = ScanOutcomes.newTable(VoltType.BIGINT);
+        scanOutcome.addRow(outcome.scanHistoryRow(scanId, scanDate, plateNum, location, lane));
+        return scanOutcome;
+    }
+}
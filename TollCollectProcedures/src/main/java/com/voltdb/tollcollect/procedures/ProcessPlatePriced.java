@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Variant of {@link ProcessPlate} for callers that keep a snapshot of the reference data (TOLL_LOCATIONS,
+ * VEHICLE_TYPES and APPLICATION_PARAMETERS) and have already priced the scan as base_fare * toll_multip.
+ * <p>
+ * The caller passes the REFERENCE_DATA_VERSION of its snapshot. When it matches the database the precomputed
+ * toll is used as is and the fare tables are not read. When it does not, the toll is priced from the tables
+ * like ProcessPlate does and the app status code is set to {@link #STALE_REFERENCE_DATA} so the caller
+ * knows to refresh its snapshot. A stale cache therefore costs one extra round trip, never a wrong toll.
+ */
+public class ProcessPlatePriced extends VoltProcedure {
+
+    // App status code returned when the caller's snapshot is out of date
+    public static final byte STALE_REFERENCE_DATA = 1;
+
+    public final SQLStmt getAppParam = new SQLStmt(
+            "SELECT parameter_value FROM application_parameters WHERE parameter_name = ?;"
+    );
+
+    // SQL statement to check known vehicles
+    public final SQLStmt checkVehicle = new SQLStmt(
+            "SELECT account_id, exempt_status, vehicle_type FROM KNOWN_VEHICLES " +
+            "WHERE plate_num = ? AND active = 1;"
+    );
+
+    // Only used when the caller's snapshot is stale
+    public final SQLStmt getTollInfo = new SQLStmt(
+            "SELECT base_fare FROM TOLL_LOCATIONS WHERE toll_loc = ? AND toll_loc_status = 1;"
+    );
+
+    public final SQLStmt getVehicleMultiplier = new SQLStmt(
+            "SELECT toll_multip FROM VEHICLE_TYPES WHERE vehicle_class = ?;"
+    );
+
+    // Insert into bill_by_mail_stream stream
+    public final SQLStmt exportBillByMail = new SQLStmt(
+            "INSERT INTO bill_by_mail_stream VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?);"
+    );
+
+    // SQL statement to insert scan history
+    public final SQLStmt insertScanHistory = new SQLStmt(
+            "INSERT INTO SCAN_HISTORY VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);"
+    );
+
+    // Delete up to 2 old scan history records
+    public final SQLStmt removeOldestTransaction = new SQLStmt("DELETE "
+            + "FROM scan_history "
+            + "WHERE plate_num = ? "
+            + "AND scan_timestamp < DATEADD(MINUTE, (-1 * ?),NOW) "
+            + "ORDER BY scan_timestamp, scan_id, plate_num LIMIT 2;");
+
+    // Positions of the lookup results in the first batch
+    private static final int KEEP_MINUTES_RESULT = 0;
+    private static final int VERSION_RESULT = 1;
+    private static final int KNOWN_VEHICLE_RESULT = 2;
+    private static final int INLINE_PRUNING_RESULT = 3;
+
+    public VoltTable run(
+            long scanTimestamp,
+            String location,
+            String lane,
+            String plateNum,
+            String vehicleClass,
+            BigDecimal pricedToll,
+            long referenceDataVersion) throws VoltAbortException {
+
+        final long scanId = getUniqueId();
+
+        // Only the partitioned lookup and the parameters are needed when the snapshot is current
+        voltQueueSQL(getAppParam, "KEEP_MINUTES");
+        voltQueueSQL(getAppParam, "REFERENCE_DATA_VERSION");
+        voltQueueSQL(checkVehicle, plateNum);
+        voltQueueSQL(getAppParam, "INLINE_PRUNING");
+        VoltTable[] lookupResults = voltExecuteSQL();
+
+        // How long to keep records for, and whether this call deletes stale ones, see ApplicationParameters
+        long keepMinutes = ApplicationParameters.keepMinutes(lookupResults[KEEP_MINUTES_RESULT]);
+        boolean inlinePruning = ApplicationParameters.inlinePruning(lookupResults[INLINE_PRUNING_RESULT]);
+
+        BigDecimal tollAmount = pricedToll;
+        long currentVersion = ApplicationParameters.referenceDataVersion(lookupResults[VERSION_RESULT]);
+        if (currentVersion != referenceDataVersion) {
+            // The caller priced against an outdated snapshot, price from the tables instead
+            setAppStatusCode(STALE_REFERENCE_DATA);
+            setAppStatusString("Reference data version is " + currentVersion);
+
+            voltQueueSQL(getTollInfo, location);
+            voltQueueSQL(getVehicleMultiplier, vehicleClass);
+            VoltTable[] fareResults = voltExecuteSQL();
+            tollAmount = ScanOutcomes.toll(fareResults[0], fareResults[1]);
+        }
+
+        ScanOutcomes.Outcome<BigDecimal> outcome =
+                ScanOutcomes.decide(lookupResults[KNOWN_VEHICLE_RESULT], tollAmount, vehicleClass);
+        Date scanDate = new Date(scanTimestamp);
+        if (outcome.unknownVehicle()) {
+            // Insert into bill_by_mail_stream stream
+            voltQueueSQL(exportBillByMail, outcome.billByMailRow(scanId, scanDate, plateNum, location, lane));
+        }
+
+        // Insert into scan history
+        voltQueueSQL(insertScanHistory, outcome.scanHistoryRow(scanId, scanDate, plateNum, location, lane));
+
+        // Delete stale scan history records
+        if (inlinePruning) {
+            voltQueueSQL(removeOldestTransaction, plateNum, keepMinutes);
+        }
+
+        voltExecuteSQL(true);
+
+        VoltTable scanOutcome = ScanOutcomes.newTable(VoltType.DECIMAL);
+        scanOutcome.addRow(outcome.scanHistoryRow(scanId, scanDate, plateNum, location, lane));
+        return scanOutcome;
+    }
+}
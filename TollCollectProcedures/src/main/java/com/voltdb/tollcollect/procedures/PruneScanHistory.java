@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+/**
+ * Deletes scan history older than KEEP_MINUTES in bounded chunks. Directed procedure run on every partition by
+ * the prune_scan_history task, so pruning does not have to happen inline in ProcessPlate (see INLINE_PRUNING).
+ * <p>
+ * Each run deletes overdue rows oldest first in chunks, starting with {@link #MIN_CHUNK_SIZE} rows and doubling
+ * the chunk while the previous one came back full, up to {@link #MAX_CHUNK_SIZE} rows in all. A growing backlog is
+ * worked off in a few runs while a single run never holds the partition for long, and the backlog is never
+ * counted: an idle partition costs one short index scan. The chunks only depend on the rows deleted, so they are
+ * the same on every replica.
+ */
+public class PruneScanHistory extends VoltProcedure {
+
+    static final int MIN_CHUNK_SIZE = 100;
+    static final int MAX_CHUNK_SIZE = 10_000;
+
+    public final SQLStmt getAppParam = new SQLStmt(
+            "SELECT parameter_value FROM application_parameters WHERE parameter_name = ?;"
+    );
+
+    // Oldest first, ordered on sh_prune_idx so that the deleted rows are the same on every replica
+    public final SQLStmt deleteOverdue = new SQLStmt("DELETE "
+            + "FROM scan_history "
+            + "WHERE scan_timestamp < DATEADD(MINUTE, (-1 * ?), NOW) "
+            + "ORDER BY scan_timestamp, scan_id, plate_num LIMIT ?;");
+
+    private static final VoltTable.ColumnInfo[] PRUNING_COLUMNS = new VoltTable.ColumnInfo[]{
+            new VoltTable.ColumnInfo("CHUNKS", VoltType.INTEGER),
+            new VoltTable.ColumnInfo("DELETED", VoltType.BIGINT)
+    };
+
+    public VoltTable run() throws VoltAbortException {
+        voltQueueSQL(getAppParam, "KEEP_MINUTES");
+        long keepMinutes = ApplicationParameters.keepMinutes(voltExecuteSQL()[0]);
+
+        int chunks = 0;
+        long deleted = 0;
+        int chunkSize = MIN_CHUNK_SIZE;
+        while (chunkSize > 0) {
+            voltQueueSQL(deleteOverdue, keepMinutes, chunkSize);
+            long chunkDeleted = voltExecuteSQL()[0].asScalarLong();
+            chunks++;
+            deleted += chunkDeleted;
+            if (chunkDeleted < chunkSize) {
+                // No overdue rows left
+                break;
+            }
+            chunkSize = nextChunkSize(chunkSize, deleted);
+        }
+
+        VoltTable pruning = new VoltTable(PRUNING_COLUMNS);
+        pruning.addRow(chunks, deleted);
+        return pruning;
+    }
+
+    // Twice the previous chunk, within what is left of MAX_CHUNK_SIZE for the run
+    static int nextChunkSize(int chunkSize, long deleted) {
+        return (int) Math.min(2L * chunkSize, MAX_CHUNK_SIZE - deleted);
+    }
+}
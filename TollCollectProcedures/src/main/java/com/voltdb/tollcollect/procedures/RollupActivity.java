@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.types.TimestampType;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maintains the tiered ACTIVITY_ROLLUP time series, run by the rollup_activity task.
+ * <p>
+ * Completed minutes of the activity_by_minute view are copied into the one minute tier before SCAN_HISTORY
+ * pruning removes their scans. Completed five minute and one hour buckets are then compacted from the next finer
+ * tier, and every tier is trimmed to its retention. ACTIVITY_ROLLUP_WATERMARK records up to where each tier is
+ * complete, so every bucket is written once and a run only reads what is new since the previous one.
+ * <p>
+ * The first run starts the one minute tier at the oldest minute still in the view, whose older scans may already
+ * have been pruned. A coarser tier therefore starts at its first bucket that the tier below covers completely:
+ * a bucket compacted from part of its window would be written once with a partial total and never revisited.
+ */
+public class RollupActivity extends VoltProcedure {
+
+    static final int MINUTE_TIER = 60;
+    static final int FIVE_MINUTE_TIER = 300;
+    static final int HOUR_TIER = 3600;
+
+    // A minute is only rolled up once this much time has passed after its end, for scans that arrive late
+    static final long GRACE_SECONDS = 30;
+
+    static final long MINUTE_TIER_RETENTION_SECONDS = 24 * 3600;
+    static final long FIVE_MINUTE_TIER_RETENTION_SECONDS = 14 * 24 * 3600;
+    static final long HOUR_TIER_RETENTION_SECONDS = 400 * 24 * 3600;
+
+    public final SQLStmt getWatermarks = new SQLStmt(
+            "SELECT tier_seconds, rolled_up_to FROM ACTIVITY_ROLLUP_WATERMARK;"
+    );
+
+    public final SQLStmt getFirstMinute = new SQLStmt(
+            "SELECT MIN(scan_timestamp) FROM activity_by_minute;"
+    );
+
+    public final SQLStmt getCompletedMinutes = new SQLStmt(
+            "SELECT scan_timestamp, toll_loc, total_amount, tolls_per_minute FROM activity_by_minute " +
+            "WHERE scan_timestamp >= ? AND scan_timestamp < ?;"
+    );
+
+    public final SQLStmt getFirstBucket = new SQLStmt(
+            "SELECT MIN(bucket_start) FROM ACTIVITY_ROLLUP WHERE tier_seconds = ?;"
+    );
+
+    public final SQLStmt getTier = new SQLStmt(
+            "SELECT bucket_start, toll_loc, total_amount, scan_count FROM ACTIVITY_ROLLUP " +
+            "WHERE tier_seconds = ? AND bucket_start >= ? AND bucket_start < ?;"
+    );
+
+    public final SQLStmt upsertBucket = new SQLStmt(
+            "UPSERT INTO ACTIVITY_ROLLUP (toll_loc, tier_seconds, bucket_start, total_amount, scan_count) " +
+            "VALUES (?, ?, ?, ?, ?);"
+    );
+
+    public final SQLStmt upsertWatermark = new SQLStmt(
+            "UPSERT INTO ACTIVITY_ROLLUP_WATERMARK (tier_seconds, rolled_up_to) VALUES (?, ?);"
+    );
+
+    public final SQLStmt removeExpiredBuckets = new SQLStmt(
+            "DELETE FROM ACTIVITY_ROLLUP WHERE tier_seconds = ? AND bucket_start < ?;"
+    );
+
+    private static final VoltTable.ColumnInfo[] ROLLUP_COLUMNS = new VoltTable.ColumnInfo[]{
+            new VoltTable.ColumnInfo("TIER_SECONDS", VoltType.INTEGER),
+            new VoltTable.ColumnInfo("ROLLED_UP_TO", VoltType.TIMESTAMP),
+            new VoltTable.ColumnInfo("BUCKETS_WRITTEN", VoltType.INTEGER)
+    };
+
+    public VoltTable run() throws VoltAbortException {
+        long nowSeconds = getTransactionTime().getTime() / 1000;
+
+        voltQueueSQL(getWatermarks);
+        voltQueueSQL(getFirstMinute);
+        VoltTable[] lookupResults = voltExecuteSQL();
+
+        Map<Integer, Long> watermarks = new TreeMap<>();
+        VoltTable watermarkResults = lookupResults[0];
+        while (watermarkResults.advanceRow()) {
+            watermarks.put((int) watermarkResults.getLong("TIER_SECONDS"),
+                    watermarkResults.getTimestampAsLong("ROLLED_UP_TO") / 1_000_000);
+        }
+
+        // Start from the oldest minute still in the view the first time
+        long firstMinute = nowSeconds;
+        VoltTable firstMinuteResults = lookupResults[1];
+        if (firstMinuteResults.advanceRow()) {
+            TimestampType first = firstMinuteResults.getTimestampAsTimestamp(0);
+            if (!firstMinuteResults.wasNull()) {
+                firstMinute = first.getTime() / 1_000_000;
+            }
+        }
+
+        VoltTable rollup = new VoltTable(ROLLUP_COLUMNS);
+
+        // One minute tier, copied from the view
+        long minuteFrom = watermarks.getOrDefault(MINUTE_TIER, bucketStart(firstMinute, MINUTE_TIER));
+        long minuteTo = bucketStart(nowSeconds - GRACE_SECONDS, MINUTE_TIER);
+        int minuteBuckets = 0;
+        if (minuteTo > minuteFrom) {
+            voltQueueSQL(getCompletedMinutes, timestamp(minuteFrom), timestamp(minuteTo));
+            VoltTable minutes = voltExecuteSQL()[0];
+            while (minutes.advanceRow()) {
+                voltQueueSQL(upsertBucket,
+                        minutes.getString("TOLL_LOC"),
+                        MINUTE_TIER,
+                        minutes.getTimestampAsTimestamp("SCAN_TIMESTAMP"),
+                        minutes.get("TOTAL_AMOUNT", amountType(minutes)),
+                        minutes.getLong("TOLLS_PER_MINUTE"));
+                minuteBuckets++;
+            }
+            voltQueueSQL(upsertWatermark, MINUTE_TIER, timestamp(minuteTo));
+            voltExecuteSQL();
+        } else {
+            minuteTo = minuteFrom;
+        }
+        rollup.addRow(MINUTE_TIER, timestamp(minuteTo), minuteBuckets);
+
+        // Coarser tiers, compacted from the tier below up to where that one is complete
+        long fiveMinuteTo = compact(MINUTE_TIER, FIVE_MINUTE_TIER, minuteTo, watermarks, rollup);
+        compact(FIVE_MINUTE_TIER, HOUR_TIER, fiveMinuteTo, watermarks, rollup);
+
+        // Keep each tier for its retention only
+        voltQueueSQL(removeExpiredBuckets, MINUTE_TIER, timestamp(nowSeconds - MINUTE_TIER_RETENTION_SECONDS));
+        voltQueueSQL(removeExpiredBuckets, FIVE_MINUTE_TIER, timestamp(nowSeconds - FIVE_MINUTE_TIER_RETENTION_SECONDS));
+        voltQueueSQL(removeExpiredBuckets, HOUR_TIER, timestamp(nowSeconds - HOUR_TIER_RETENTION_SECONDS));
+        voltExecuteSQL(true);
+
+        return rollup;
+    }
+
+    /**
+     * Writes the buckets of {@code tier} that are complete in {@code sourceTier} up to {@code sourceTo} and
+     * returns up to where {@code tier} is complete. Without a watermark the tier starts at its first bucket that
+     * begins at or after the oldest bucket of {@code sourceTier}.
+     */
+    private long compact(int sourceTier,
+                         int tier,
+                         long sourceTo,
+                         Map<Integer, Long> watermarks,
+                         VoltTable rollup) {
+        long to = bucketStart(sourceTo, tier);
+        Long from = watermarks.get(tier);
+        if (from == null) {
+            voltQueueSQL(getFirstBucket, sourceTier);
+            VoltTable firstBucket = voltExecuteSQL()[0];
+            long sourceFrom = sourceTo;
+            if (firstBucket.advanceRow()) {
+                TimestampType first = firstBucket.getTimestampAsTimestamp(0);
+                if (!firstBucket.wasNull()) {
+                    sourceFrom = first.getTime() / 1_000_000;
+                }
+            }
+            from = nextBucketStart(sourceFrom, tier);
+        }
+        if (to <= from) {
+            rollup.addRow(tier, timestamp(from), 0);
+            return from;
+        }
+
+        voltQueueSQL(getTier, sourceTier, timestamp(from), timestamp(to));
+        VoltTable source = voltExecuteSQL()[0];
+
+        // Sorted, so the buckets are written in the same order on every replica
+        Map<String, BigDecimal> amounts = new TreeMap<>();
+        Map<String, Long> counts = new TreeMap<>();
+        Map<String, String> locations = new TreeMap<>();
+        Map<String, Long> starts = new TreeMap<>();
+        VoltType amountType = amountType(source);
+        while (source.advanceRow()) {
+            long start = bucketStart(source.getTimestampAsLong("BUCKET_START") / 1_000_000, tier);
+            String location = source.getString("TOLL_LOC");
+            String key = start + "|" + location;
+            BigDecimal amount = amountType == VoltType.BIGINT
+                    ? BigDecimal.valueOf(source.getLong("TOTAL_AMOUNT"))
+                    : source.getDecimalAsBigDecimal("TOTAL_AMOUNT");
+            amounts.merge(key, amount, BigDecimal::add);
+            counts.merge(key, source.getLong("SCAN_COUNT"), Long::sum);
+            locations.put(key, location);
+            starts.put(key, start);
+        }
+
+        for (String key : amounts.keySet()) {
+            Object amount = amountType == VoltType.BIGINT ? amounts.get(key).longValueExact() : amounts.get(key);
+            voltQueueSQL(upsertBucket, locations.get(key), tier, timestamp(starts.get(key)), amount, counts.get(key));
+        }
+        voltQueueSQL(upsertWatermark, tier, timestamp(to));
+        voltExecuteSQL();
+
+        rollup.addRow(tier, timestamp(to), amounts.size());
+        return to;
+    }
+
+    // DECIMAL, or BIGINT cents with the schema of create_db_cents.sql
+    private static VoltType amountType(VoltTable table) {
+        return table.getColumnType(table.getColumnIndex("TOTAL_AMOUNT"));
+    }
+
+    static long bucketStart(long epochSeconds, int tierSeconds) {
+        return Math.floorDiv(epochSeconds, tierSeconds) * tierSeconds;
+    }
+
+    // The start of the bucket beginning at or after epochSeconds
+    static long nextBucketStart(long epochSeconds, int tierSeconds) {
+        return -Math.floorDiv(-epochSeconds, tierSeconds) * tierSeconds;
+    }
+
+    private static TimestampType timestamp(long epochSeconds) {
+        return new TimestampType(epochSeconds * 1_000_000);
+    }
+}
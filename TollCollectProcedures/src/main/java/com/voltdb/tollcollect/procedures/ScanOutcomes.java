@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.VoltProcedure.VoltAbortException;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTableRow;
+import org.voltdb.VoltType;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Pricing rules and result schema shared by ProcessPlate, ProcessPlatePriced, ProcessPlateBatch and
+ * ProcessPlateCents, so that every way of processing a scan reaches the same outcome.
+ * <p>
+ * The procedures run the lookups in their own batches and pass the results in: the fare of the location from
+ * getTollInfo, the multiplier of the vehicle class from getVehicleMultiplier and the known vehicle of the plate
+ * from checkVehicle. Amounts are BigDecimal USD, or cents with the multiplier in thousandths for the cents money
+ * model.
+ */
+final class ScanOutcomes {
+
+    static final String EXEMPT = "EXEMPT";
+    static final String UNKNOWN_VEHICLE = "UNKNOWN_VEHICLE";
+
+    private ScanOutcomes() {
+    }
+
+    /**
+     * Returns a table for the scan outcomes returned to the caller, with the columns of the SCAN_HISTORY row and
+     * the amounts of the given type.
+     */
+    static VoltTable newTable(VoltType amountType) {
+        return new VoltTable(
+                new VoltTable.ColumnInfo("SCAN_ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("SCAN_TIMESTAMP", VoltType.TIMESTAMP),
+                new VoltTable.ColumnInfo("PLATE_NUM", VoltType.STRING),
+                new VoltTable.ColumnInfo("ACCOUNT_ID", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("TOLL_LOC", VoltType.STRING),
+                new VoltTable.ColumnInfo("TOLL_LANE_NUM", VoltType.STRING),
+                new VoltTable.ColumnInfo("TOLL_AMOUNT", amountType),
+                new VoltTable.ColumnInfo("TOLL_REASON", VoltType.STRING),
+                new VoltTable.ColumnInfo("SCAN_FEE_AMOUNT", amountType),
+                new VoltTable.ColumnInfo("TOTAL_AMOUNT", amountType),
+                new VoltTable.ColumnInfo("VEHICLE_TYPE", VoltType.SMALLINT));
+    }
+
+    /**
+     * Returns why the scan cannot be priced, or null when its location and vehicle class are valid.
+     */
+    static String invalidScan(VoltTable tollResult, VoltTable vehicleResult) {
+        if (tollResult.getRowCount() == 0) {
+            return "Invalid toll location";
+        }
+        if (vehicleResult.getRowCount() == 0) {
+            return "Invalid vehicle class";
+        }
+        return null;
+    }
+
+    /**
+     * Returns base_fare * toll_multip, aborting the transaction when the location or vehicle class is invalid.
+     */
+    static BigDecimal toll(VoltTable tollResult, VoltTable vehicleResult) {
+        abortIfInvalid(tollResult, vehicleResult);
+        return TollMath.toll(
+                tollResult.fetchRow(0).getDecimalAsBigDecimal("base_fare"),
+                vehicleResult.fetchRow(0).getDecimalAsBigDecimal("toll_multip"));
+    }
+
+    static long tollCents(VoltTable tollResult, VoltTable vehicleResult) {
+        abortIfInvalid(tollResult, vehicleResult);
+        return TollMathCents.toll(
+                tollResult.fetchRow(0).getLong("base_fare"),
+                vehicleResult.fetchRow(0).getLong("toll_multip"));
+    }
+
+    private static void abortIfInvalid(VoltTable tollResult, VoltTable vehicleResult) {
+        String invalid = invalidScan(tollResult, vehicleResult);
+        if (invalid != null) {
+            throw new VoltAbortException(invalid);
+        }
+    }
+
+    /**
+     * Decides the outcome of a scan priced at {@code toll}: known vehicles pay the toll unless they are exempt,
+     * unknown ones pay it plus the scan fee and are billed by mail.
+     */
+    static Outcome<BigDecimal> decide(VoltTable knownVehicleResult, BigDecimal toll, String vehicleClass) {
+        return decide(knownVehicleResult, toll, vehicleClass, TollMath.NO_CHARGE,
+                TollMath.UNKNOWN_VEHICLE_SCAN_FEE, TollMath.unknownVehicleTotal(toll));
+    }
+
+    static Outcome<Long> decideCents(VoltTable knownVehicleResult, long toll, String vehicleClass) {
+        return decide(knownVehicleResult, toll, vehicleClass, TollMathCents.NO_CHARGE,
+                TollMathCents.UNKNOWN_VEHICLE_SCAN_FEE, TollMathCents.unknownVehicleTotal(toll));
+    }
+
+    private static <A> Outcome<A> decide(VoltTable knownVehicleResult,
+                                         A toll,
+                                         String vehicleClass,
+                                         A noCharge,
+                                         A unknownVehicleScanFee,
+                                         A unknownVehicleTotal) {
+        if (knownVehicleResult.getRowCount() == 0) {
+            // Unknown vehicle or mismatched type
+            return new Outcome<>(0, null, toll, UNKNOWN_VEHICLE, unknownVehicleScanFee, unknownVehicleTotal);
+        }
+        VoltTableRow vehicleRow = knownVehicleResult.fetchRow(0);
+        int accountId = (int) vehicleRow.getLong("account_id");
+        byte exemptStatus = (byte) vehicleRow.get("exempt_status", VoltType.TINYINT);
+        short vehicleType = (short) vehicleRow.getLong("vehicle_type");
+        if (exemptStatus == 1) {
+            return new Outcome<>(accountId, vehicleType, noCharge, EXEMPT, noCharge, noCharge);
+        }
+        return new Outcome<>(accountId, vehicleType, toll, "STANDARD TOLL ( " + vehicleClass + ")", noCharge, toll);
+    }
+
+    /**
+     * The outcome of a scan, with amounts of type {@code A}. The account is 0 and the vehicle type null for
+     * unknown vehicles.
+     */
+    record Outcome<A>(int accountId, Short vehicleType, A tollAmount, String tollReason, A scanFeeAmount,
+                      A totalAmount) {
+
+        boolean unknownVehicle() {
+            return UNKNOWN_VEHICLE.equals(tollReason);
+        }
+
+        /**
+         * Returns the SCAN_HISTORY row of the scan, which is also the row returned to the caller.
+         */
+        Object[] scanHistoryRow(long scanId, Date scanTimestamp, String plateNum, String location, String lane) {
+            return new Object[]{scanId, scanTimestamp, plateNum, accountId, location, lane,
+                    tollAmount, tollReason, scanFeeAmount, totalAmount, vehicleType};
+        }
+
+        /**
+         * Returns the bill_by_mail_stream row of an unknown vehicle.
+         */
+        Object[] billByMailRow(long scanId, Date scanTimestamp, String plateNum, String location, String lane) {
+            return new Object[]{scanId, scanTimestamp, plateNum, location, lane,
+                    tollAmount, tollReason, scanFeeAmount, null, tollAmount};
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Records the outcome of charging the payment method of an account for the auto top-ups ChargeAccount credited
+ * and exported to {@code top_up_stream}, used by the settlement consumer of TollCollectSettlement.
+ * <p>
+ * The top-ups of one account are settled together, as they were charged in one gateway request. Each is
+ * recorded in TOP_UP_SETTLEMENTS as SETTLED or REVERSED. When the charge was declined, the credited amount is
+ * taken off the balance again, with a DEBIT row in ACCOUNT_HISTORY, and the account leaves auto top-up so that
+ * it is not credited again against the same payment method. Top-ups already recorded, or passed twice in one
+ * call, are skipped, so a consumer replaying events after a restart never reverses a credit twice.
+ */
+public class SettleTopUp extends VoltProcedure {
+
+    static final String SETTLED = "SETTLED";
+    static final String REVERSED = "REVERSED";
+    static final String REVERSAL_REASON = "TOPUP_REVERSAL";
+
+    public final SQLStmt getSettlement = new SQLStmt(
+            "SELECT status FROM TOP_UP_SETTLEMENTS WHERE account_id = ? AND acct_tx_id = ?;"
+    );
+
+    public final SQLStmt insertSettlement = new SQLStmt(
+            "INSERT INTO TOP_UP_SETTLEMENTS (account_id, acct_tx_id, settled_timestamp, status, amount, " +
+            "payment_reference) VALUES (?, ?, ?, ?, ?, ?);"
+    );
+
+    public final SQLStmt reverseTopUp = new SQLStmt(
+            "UPDATE ACCOUNTS SET balance = balance - ?, auto_topup = 0 " +
+            "WHERE account_id = ?;"
+    );
+
+    public final SQLStmt insertAccountHistory = new SQLStmt(
+            "INSERT INTO ACCOUNT_HISTORY (acct_tx_id, acct_tx_timestamp, account_id, " +
+            "toll_reason, total_amount, tx_type) VALUES (?, ?, ?, ?, ?, ?);"
+    );
+
+    /**
+     * Returns the number of top-ups that were not settled before.
+     */
+    public long run(int accountId,
+                    long[] acctTxIds,
+                    BigDecimal[] amounts,
+                    int approved,
+                    String paymentReference) throws VoltAbortException {
+
+        final int topUpCount = acctTxIds.length;
+        if (amounts.length != topUpCount) {
+            throw new VoltAbortException("Top-up arrays differ in length");
+        }
+
+        for (long acctTxId : acctTxIds) {
+            voltQueueSQL(getSettlement, accountId, acctTxId);
+        }
+        VoltTable[] settlements = voltExecuteSQL();
+
+        Date settledTimestamp = getTransactionTime();
+        String status = approved == 1 ? SETTLED : REVERSED;
+        BigDecimal reversedAmount = TollMath.NO_CHARGE;
+        long newlySettled = 0;
+        Set<Long> queued = new HashSet<>();
+        for (int i = 0; i < topUpCount; i++) {
+            if (settlements[i].getRowCount() > 0 || !queued.add(acctTxIds[i])) {
+                continue;
+            }
+            voltQueueSQL(insertSettlement, accountId, acctTxIds[i], settledTimestamp, status, amounts[i],
+                    paymentReference);
+            if (approved != 1) {
+                reversedAmount = reversedAmount.add(amounts[i]);
+            }
+            newlySettled++;
+        }
+
+        if (reversedAmount.signum() > 0) {
+            voltQueueSQL(reverseTopUp, reversedAmount, accountId);
+            voltQueueSQL(insertAccountHistory,
+                    getUniqueId(),
+                    settledTimestamp,
+                    accountId,
+                    REVERSAL_REASON,
+                    reversedAmount,
+                    "DEBIT");
+        }
+        voltExecuteSQL(true);
+        return newlySettled;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@link SettleTopUp} for the fixed-point money model of ddl/other/create_db_cents.sql, with the top-up amounts in
+ * cents.
+ */
+public class SettleTopUpCents extends VoltProcedure {
+
+    public final SQLStmt getSettlement = new SQLStmt(
+            "SELECT status FROM TOP_UP_SETTLEMENTS WHERE account_id = ? AND acct_tx_id = ?;"
+    );
+
+    public final SQLStmt insertSettlement = new SQLStmt(
+            "INSERT INTO TOP_UP_SETTLEMENTS (account_id, acct_tx_id, settled_timestamp, status, amount, " +
+            "payment_reference) VALUES (?, ?, ?, ?, ?, ?);"
+    );
+
+    public final SQLStmt reverseTopUp = new SQLStmt(
+            "UPDATE ACCOUNTS SET balance = balance - ?, auto_topup = 0 " +
+            "WHERE account_id = ?;"
+    );
+
+    public final SQLStmt insertAccountHistory = new SQLStmt(
+            "INSERT INTO ACCOUNT_HISTORY (acct_tx_id, acct_tx_timestamp, account_id, " +
+            "toll_reason, total_amount, tx_type) VALUES (?, ?, ?, ?, ?, ?);"
+    );
+
+    /**
+     * Returns the number of top-ups that were not settled before.
+     */
+    public long run(int accountId,
+                    long[] acctTxIds,
+                    long[] amounts,
+                    int approved,
+                    String paymentReference) throws VoltAbortException {
+
+        final int topUpCount = acctTxIds.length;
+        if (amounts.length != topUpCount) {
+            throw new VoltAbortException("Top-up arrays differ in length");
+        }
+
+        for (long acctTxId : acctTxIds) {
+            voltQueueSQL(getSettlement, accountId, acctTxId);
+        }
+        VoltTable[] settlements = voltExecuteSQL();
+
+        Date settledTimestamp = getTransactionTime();
+        String status = approved == 1 ? SettleTopUp.SETTLED : SettleTopUp.REVERSED;
+        long reversedAmount = TollMathCents.NO_CHARGE;
+        long newlySettled = 0;
+        Set<Long> queued = new HashSet<>();
+        for (int i = 0; i < topUpCount; i++) {
+            if (settlements[i].getRowCount() > 0 || !queued.add(acctTxIds[i])) {
+                continue;
+            }
+            voltQueueSQL(insertSettlement, accountId, acctTxIds[i], settledTimestamp, status, amounts[i],
+                    paymentReference);
+            if (approved != 1) {
+                reversedAmount += amounts[i];
+            }
+            newlySettled++;
+        }
+
+        if (reversedAmount > 0) {
+            voltQueueSQL(reverseTopUp, reversedAmount, accountId);
+            voltQueueSQL(insertAccountHistory,
+                    getUniqueId(),
+                    settledTimestamp,
+                    accountId,
+                    SettleTopUp.REVERSAL_REASON,
+                    reversedAmount,
+                    "DEBIT");
+        }
+        voltExecuteSQL(true);
+        return newlySettled;
+    }
+}
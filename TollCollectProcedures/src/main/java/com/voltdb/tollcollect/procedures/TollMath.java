@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import java.math.BigDecimal;
+
+/**
+ * Toll, fee and top-up arithmetic shared by ProcessPlate and ChargeAccount. Amounts are in USD.
+ */
+public final class TollMath {
+
+    public static final BigDecimal NO_CHARGE = BigDecimal.ZERO;
+
+    // Charged on top of the toll when the plate does not belong to a known vehicle
+    public static final BigDecimal UNKNOWN_VEHICLE_SCAN_FEE = BigDecimal.valueOf(2);
+
+    // Accounts enrolled in auto top-up are credited when a toll would take them below this balance
+    public static final BigDecimal TOP_UP_THRESHOLD = BigDecimal.valueOf(10);
+    public static final BigDecimal TOP_UP_AMOUNT = BigDecimal.valueOf(30);
+
+    // Charged when a toll overdraws an account that is not enrolled in auto top-up
+    public static final BigDecimal INSUFFICIENT_BALANCE_FEE = BigDecimal.valueOf(25);
+
+    private TollMath() {
+    }
+
+    public static BigDecimal toll(BigDecimal baseFare, BigDecimal vehicleMultiplier) {
+        return baseFare.multiply(vehicleMultiplier);
+    }
+
+    public static BigDecimal unknownVehicleTotal(BigDecimal tollAmount) {
+        return tollAmount.add(UNKNOWN_VEHICLE_SCAN_FEE);
+    }
+
+    public static BigDecimal projectedBalance(BigDecimal balance, BigDecimal tollAmount) {
+        return balance.subtract(tollAmount);
+    }
+
+    public static boolean needsTopUp(BigDecimal projectedBalance, boolean autoTopUp) {
+        return autoTopUp && projectedBalance.compareTo(TOP_UP_THRESHOLD) < 0;
+    }
+
+    public static boolean isOverdrawn(BigDecimal projectedBalance, boolean autoTopUp) {
+        return !autoTopUp && projectedBalance.compareTo(NO_CHARGE) < 0;
+    }
+
+    public static BigDecimal overdrawnTotal(BigDecimal tollAmount) {
+        return INSUFFICIENT_BALANCE_FEE.add(tollAmount);
+    }
+}
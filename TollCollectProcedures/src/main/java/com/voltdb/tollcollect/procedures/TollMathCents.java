@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point counterpart of {@link TollMath} used by ProcessPlateCents and ChargeAccountCents. Amounts are in
+ * USD cents, vehicle multipliers in thousandths, so all arithmetic is done on primitive longs.
+ * <p>
+ * For whole cent fares and multipliers with at most three decimals every result equals the DECIMAL result of
+ * {@link TollMath}, except that a toll with a fraction of a cent is rounded half even to the cent.
+ */
+public final class TollMathCents {
+
+    public static final int CENTS_SCALE = 2;
+    public static final long MULTIPLIER_SCALE = 1000;
+    public static final int MULTIPLIER_DECIMALS = 3;
+
+    public static final long NO_CHARGE = 0;
+    public static final long UNKNOWN_VEHICLE_SCAN_FEE = 200;
+    public static final long TOP_UP_THRESHOLD = 1000;
+    public static final long TOP_UP_AMOUNT = 3000;
+    public static final long INSUFFICIENT_BALANCE_FEE = 2500;
+
+    private TollMathCents() {
+    }
+
+    public static long toll(long baseFareCents, long vehicleMultiplierThousandths) {
+        long scaled = Math.multiplyExact(baseFareCents, vehicleMultiplierThousandths);
+        long toll = Math.floorDiv(scaled, MULTIPLIER_SCALE);
+        long remainder = Math.floorMod(scaled, MULTIPLIER_SCALE);
+        // Round half even
+        if (remainder * 2 > MULTIPLIER_SCALE || (remainder * 2 == MULTIPLIER_SCALE && (toll & 1) == 1)) {
+            toll++;
+        }
+        return toll;
+    }
+
+    public static long unknownVehicleTotal(long tollAmount) {
+        return tollAmount + UNKNOWN_VEHICLE_SCAN_FEE;
+    }
+
+    public static long projectedBalance(long balance, long tollAmount) {
+        return balance - tollAmount;
+    }
+
+    public static boolean needsTopUp(long projectedBalance, boolean autoTopUp) {
+        return autoTopUp && projectedBalance < TOP_UP_THRESHOLD;
+    }
+
+    public static boolean isOverdrawn(long projectedBalance, boolean autoTopUp) {
+        return !autoTopUp && projectedBalance < NO_CHARGE;
+    }
+
+    public static long overdrawnTotal(long tollAmount) {
+        return INSUFFICIENT_BALANCE_FEE + tollAmount;
+    }
+
+    /**
+     * Converts a USD amount to cents, failing on fractions of a cent.
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(CENTS_SCALE).setScale(0).longValueExact();
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, CENTS_SCALE);
+    }
+
+    /**
+     * Converts a vehicle multiplier to thousandths, failing on more than three decimals.
+     */
+    public static long toThousandths(BigDecimal multiplier) {
+        return multiplier.movePointRight(MULTIPLIER_DECIMALS).setScale(0).longValueExact();
+    }
+}
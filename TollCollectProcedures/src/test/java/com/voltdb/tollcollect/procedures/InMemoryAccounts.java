@@ -0,0 +1,641 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.voltdb.SQLStmt;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.types.TimestampType;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * ACCOUNTS, ACCOUNT_HISTORY, TOP_UP_SETTLEMENTS, SCAN_HISTORY, the reference data, the streams written by
+ * the ProcessPlate procedures, ChargeAccount and SettleTopUp, and the activity rollup, kept in memory so that the
+ * procedures can be run without a server. Primary keys are enforced, and a procedure that throws leaves the tables
+ * as they were, as it would in Volt. Amounts are BigDecimals for the decimal procedures and longs for the cents
+ * ones, as are the toll multipliers.
+ * <p>
+ * Unique ids are laid out as in Volt, with the partition id in the low 14 bits, all transactions running on
+ * partition 0.
+ */
+final class InMemoryAccounts {
+
+    record Account(Object balance, byte autoTopup) {
+    }
+
+    record HistoryRow(long acctTxId, String tollReason, Object totalAmount, String txType) {
+    }
+
+    record Settlement(String status, Object amount) {
+    }
+
+    record TopUp(long acctTxId, int accountId, Object amount) {
+    }
+
+    record KnownVehicle(int accountId, byte exemptStatus, short vehicleType) {
+    }
+
+    // A row of the activity_by_minute view or of ACTIVITY_ROLLUP
+    record Activity(Object totalAmount, long scanCount) {
+    }
+
+    record Scan(long scanId, String plateNum, int accountId, Object tollAmount, String tollReason,
+                Object scanFeeAmount, Object totalAmount) {
+    }
+
+    final Map<Integer, Account> accounts = new HashMap<>();
+    final Map<List<Object>, HistoryRow> history = new LinkedHashMap<>();
+    final Map<List<Object>, Settlement> settlements = new LinkedHashMap<>();
+    final List<TopUp> topUps = new ArrayList<>();
+    final List<Object[]> billsByMail = new ArrayList<>();
+    final Map<String, Object> baseFares = new HashMap<>();
+    final Map<String, Object> tollMultipliers = new HashMap<>();
+    final Map<String, KnownVehicle> knownVehicles = new HashMap<>();
+    final Map<String, String> parameters = new HashMap<>();
+    final Map<List<Object>, Scan> scans = new LinkedHashMap<>();
+    // Keyed on the minute in epoch seconds and the location
+    final Map<List<Object>, Activity> activityByMinute = new LinkedHashMap<>();
+    // Keyed on the location, the tier and the bucket start in epoch seconds
+    final Map<List<Object>, Activity> rollup = new HashMap<>();
+    // Rolled up to, in epoch seconds
+    final Map<Integer, Long> rollupWatermarks = new HashMap<>();
+
+    // App status code set by the last call, 0 when it set none
+    byte appStatusCode;
+    // Time of the transactions when set, otherwise one second after the previous one
+    Date now;
+
+    private final Map<SQLStmt, String> statementNames = new IdentityHashMap<>();
+    private final List<Object[]> queued = new ArrayList<>();
+    // Reverts the table changes of the current call, latest first
+    private final Deque<Runnable> undo = new ArrayDeque<>();
+    private long transactions;
+
+    InMemoryAccounts() {
+        // Stale scans are left to the PruneScanHistory task, which is not run here
+        parameters.put("INLINE_PRUNING", "0");
+    }
+
+    ProcessPlate processPlate() {
+        return bind(new ProcessPlate() {
+            @Override
+            public void voltQueueSQL(SQLStmt stmt, Object... args) {
+                queue(stmt, args);
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL() {
+                return execute();
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL(boolean isFinalSQL) {
+                return execute();
+            }
+
+            @Override
+            public long getUniqueId() {
+                return uniqueId();
+            }
+
+            @Override
+            public Date getTransactionTime() {
+                return transactionTime();
+            }
+        });
+    }
+
+    ProcessPlateBatch processPlateBatch() {
+        return bind(new ProcessPlateBatch() {
+            @Override
+            public void voltQueueSQL(SQLStmt stmt, Object... args) {
+                queue(stmt, args);
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL() {
+                return execute();
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL(boolean isFinalSQL) {
+                return execute();
+            }
+
+            @Override
+            public long getUniqueId() {
+                return uniqueId();
+            }
+
+            @Override
+            public Date getTransactionTime() {
+                return transactionTime();
+            }
+        });
+    }
+
+    ProcessPlateCents processPlateCents() {
+        return bind(new ProcessPlateCents() {
+            @Override
+            public void voltQueueSQL(SQLStmt stmt, Object... args) {
+                queue(stmt, args);
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL() {
+                return execute();
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL(boolean isFinalSQL) {
+                return execute();
+            }
+
+            @Override
+            public long getUniqueId() {
+                return uniqueId();
+            }
+
+            @Override
+            public Date getTransactionTime() {
+                return transactionTime();
+            }
+        });
+    }
+
+    ProcessPlatePriced processPlatePriced() {
+        return bind(new ProcessPlatePriced() {
+            @Override
+            public void voltQueueSQL(SQLStmt stmt, Object... args) {
+                queue(stmt, args);
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL() {
+                return execute();
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL(boolean isFinalSQL) {
+                return execute();
+            }
+
+            @Override
+            public long getUniqueId() {
+                return uniqueId();
+            }
+
+            @Override
+            public Date getTransactionTime() {
+                return transactionTime();
+            }
+
+            @Override
+            public void setAppStatusCode(byte statusCode) {
+                appStatusCode = statusCode;
+            }
+
+            @Override
+            public void setAppStatusString(String statusString) {
+            }
+        });
+    }
+
+    ChargeAccount chargeAccount() {
+        return bind(new ChargeAccount() {
+            @Override
+            public void voltQueueSQL(SQLStmt stmt, Object... args) {
+                queue(stmt, args);
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL() {
+                return execute();
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL(boolean isFinalSQL) {
+                return execute();
+            }
+
+            @Override
+            public long getUniqueId() {
+                return uniqueId();
+            }
+
+            @Override
+            public Date getTransactionTime() {
+                return transactionTime();
+            }
+        });
+    }
+
+    ChargeAccountCents chargeAccountCents() {
+        return bind(new ChargeAccountCents() {
+            @Override
+            public void voltQueueSQL(SQLStmt stmt, Object... args) {
+                queue(stmt, args);
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL() {
+                return execute();
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL(boolean isFinalSQL) {
+                return execute();
+            }
+
+            @Override
+            public long getUniqueId() {
+                return uniqueId();
+            }
+
+            @Override
+            public Date getTransactionTime() {
+                return transactionTime();
+            }
+        });
+    }
+
+    RollupActivity rollupActivity() {
+        return bind(new RollupActivity() {
+            @Override
+            public void voltQueueSQL(SQLStmt stmt, Object... args) {
+                queue(stmt, args);
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL() {
+                return execute();
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL(boolean isFinalSQL) {
+                return execute();
+            }
+
+            @Override
+            public long getUniqueId() {
+                return uniqueId();
+            }
+
+            @Override
+            public Date getTransactionTime() {
+                return transactionTime();
+            }
+        });
+    }
+
+    SettleTopUp settleTopUp() {
+        return bind(new SettleTopUp() {
+            @Override
+            public void voltQueueSQL(SQLStmt stmt, Object... args) {
+                queue(stmt, args);
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL() {
+                return execute();
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL(boolean isFinalSQL) {
+                return execute();
+            }
+
+            @Override
+            public long getUniqueId() {
+                return uniqueId();
+            }
+
+            @Override
+            public Date getTransactionTime() {
+                return transactionTime();
+            }
+        });
+    }
+
+    SettleTopUpCents settleTopUpCents() {
+        return bind(new SettleTopUpCents() {
+            @Override
+            public void voltQueueSQL(SQLStmt stmt, Object... args) {
+                queue(stmt, args);
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL() {
+                return execute();
+            }
+
+            @Override
+            public VoltTable[] voltExecuteSQL(boolean isFinalSQL) {
+                return execute();
+            }
+
+            @Override
+            public long getUniqueId() {
+                return uniqueId();
+            }
+
+            @Override
+            public Date getTransactionTime() {
+                return transactionTime();
+            }
+        });
+    }
+
+    /**
+     * Runs one call of a procedure as a transaction: when it throws, every change it made is undone.
+     */
+    <T> T call(Callable<T> procedure) throws Exception {
+        int topUpsBefore = topUps.size();
+        int billsBefore = billsByMail.size();
+        transactions++;
+        appStatusCode = 0;
+        try {
+            return procedure.call();
+        } catch (Exception | Error e) {
+            while (!undo.isEmpty()) {
+                undo.pop().run();
+            }
+            topUps.subList(topUpsBefore, topUps.size()).clear();
+            billsByMail.subList(billsBefore, billsByMail.size()).clear();
+            throw e;
+        } finally {
+            undo.clear();
+            queued.clear();
+        }
+    }
+
+    List<HistoryRow> history(int accountId) {
+        List<HistoryRow> rows = new ArrayList<>();
+        history.forEach((key, row) -> {
+            if (key.get(0).equals(accountId)) {
+                rows.add(row);
+            }
+        });
+        return rows;
+    }
+
+    private <P extends VoltProcedure> P bind(P procedure) {
+        for (Field field : procedure.getClass().getSuperclass().getFields()) {
+            if (field.getType() == SQLStmt.class) {
+                try {
+                    statementNames.put((SQLStmt) field.get(procedure), field.getName());
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return procedure;
+    }
+
+    private void queue(SQLStmt stmt, Object[] args) {
+        String name = statementNames.get(stmt);
+        if (name == null) {
+            throw new IllegalArgumentException("Statement not bound: " + stmt.getText());
+        }
+        queued.add(new Object[]{name, args});
+    }
+
+    private long uniqueId() {
+        return transactions << 14;
+    }
+
+    private Date transactionTime() {
+        return now != null ? now : new Date(transactions * 1000);
+    }
+
+    private VoltTable[] execute() {
+        VoltTable[] results = new VoltTable[queued.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = execute((String) queued.get(i)[0], (Object[]) queued.get(i)[1]);
+        }
+        queued.clear();
+        return results;
+    }
+
+    private VoltTable execute(String statement, Object[] args) {
+        switch (statement) {
+            case "getTollInfo":
+                return row("base_fare", amountType(baseFares.get((String) args[0])), baseFares.get((String) args[0]));
+            case "getVehicleMultiplier": {
+                Object multiplier = tollMultipliers.get((String) args[0]);
+                return row("toll_multip", amountType(multiplier), multiplier);
+            }
+            case "getAppParam":
+                return row("PARAMETER_VALUE", VoltType.STRING, parameters.get((String) args[0]));
+            case "checkVehicle": {
+                VoltTable table = new VoltTable(
+                        new VoltTable.ColumnInfo("account_id", VoltType.INTEGER),
+                        new VoltTable.ColumnInfo("exempt_status", VoltType.TINYINT),
+                        new VoltTable.ColumnInfo("vehicle_type", VoltType.SMALLINT));
+                KnownVehicle vehicle = knownVehicles.get((String) args[0]);
+                if (vehicle != null) {
+                    table.addRow(vehicle.accountId(), vehicle.exemptStatus(), vehicle.vehicleType());
+                }
+                return table;
+            }
+            case "insertScanHistory":
+                insert(scans, List.of(args[2], args[0]), new Scan((Long) args[0], (String) args[2],
+                        (Integer) args[3], args[6], (String) args[7], args[8], args[9]), "SCAN_HISTORY");
+                return modified(1);
+            case "getAccountInfo": {
+                Account account = accounts.get((Integer) args[0]);
+                VoltTable table = new VoltTable(
+                        new VoltTable.ColumnInfo("balance", amountType(account == null ? null : account.balance())),
+                        new VoltTable.ColumnInfo("auto_topup", VoltType.TINYINT),
+                        new VoltTable.ColumnInfo("account_status", VoltType.TINYINT));
+                if (account != null) {
+                    table.addRow(account.balance(), account.autoTopup(), (byte) 1);
+                }
+                return table;
+            }
+            case "addTopUpAmount":
+                return updateBalance((Integer) args[1], args[0], false);
+            case "updateBalance":
+                return updateBalance((Integer) args[1], negate(args[0]), false);
+            case "reverseTopUp":
+                return updateBalance((Integer) args[1], negate(args[0]), true);
+            case "exportTopUp":
+                topUps.add(new TopUp((Long) args[0], (Integer) args[2], args[3]));
+                return modified(1);
+            case "exportBillByMail":
+                billsByMail.add(args);
+                return modified(1);
+            case "insertAccountHistory":
+                // ChargeAccount fills every column, SettleTopUp only those of a reversal
+                return args.length == 13
+                        ? insertHistory((Integer) args[2], (Long) args[0], (String) args[9], args[11],
+                                (String) args[12])
+                        : insertHistory((Integer) args[2], (Long) args[0], (String) args[3], args[4],
+                                (String) args[5]);
+            case "getSettlement": {
+                VoltTable table = new VoltTable(new VoltTable.ColumnInfo("status", VoltType.STRING));
+                Settlement settlement = settlements.get(List.of(args[0], args[1]));
+                if (settlement != null) {
+                    table.addRow(settlement.status());
+                }
+                return table;
+            }
+            case "insertSettlement":
+                insert(settlements, List.of(args[0], args[1]), new Settlement((String) args[3], args[4]),
+                        "TOP_UP_SETTLEMENTS");
+                return modified(1);
+            case "getWatermarks": {
+                VoltTable table = new VoltTable(
+                        new VoltTable.ColumnInfo("TIER_SECONDS", VoltType.INTEGER),
+                        new VoltTable.ColumnInfo("ROLLED_UP_TO", VoltType.TIMESTAMP));
+                rollupWatermarks.forEach((tier, seconds) -> table.addRow(tier, timestamp(seconds)));
+                return table;
+            }
+            case "getFirstMinute":
+                return row("C1", VoltType.TIMESTAMP, activityByMinute.keySet().stream()
+                        .map(key -> (Long) key.get(0)).min(Long::compare).map(InMemoryAccounts::timestamp)
+                        .orElse(null));
+            case "getCompletedMinutes": {
+                VoltTable table = new VoltTable(
+                        new VoltTable.ColumnInfo("SCAN_TIMESTAMP", VoltType.TIMESTAMP),
+                        new VoltTable.ColumnInfo("TOLL_LOC", VoltType.STRING),
+                        new VoltTable.ColumnInfo("TOTAL_AMOUNT", amountType(null)),
+                        new VoltTable.ColumnInfo("TOLLS_PER_MINUTE", VoltType.BIGINT));
+                activityByMinute.forEach((key, activity) -> {
+                    long minute = (Long) key.get(0);
+                    if (minute >= seconds(args[0]) && minute < seconds(args[1])) {
+                        table.addRow(timestamp(minute), key.get(1), activity.totalAmount(), activity.scanCount());
+                    }
+                });
+                return table;
+            }
+            case "getFirstBucket":
+                return row("C1", VoltType.TIMESTAMP, rollup.keySet().stream()
+                        .filter(key -> key.get(1).equals(args[0]))
+                        .map(key -> (Long) key.get(2)).min(Long::compare).map(InMemoryAccounts::timestamp)
+                        .orElse(null));
+            case "getTier": {
+                VoltTable table = new VoltTable(
+                        new VoltTable.ColumnInfo("BUCKET_START", VoltType.TIMESTAMP),
+                        new VoltTable.ColumnInfo("TOLL_LOC", VoltType.STRING),
+                        new VoltTable.ColumnInfo("TOTAL_AMOUNT", amountType(null)),
+                        new VoltTable.ColumnInfo("SCAN_COUNT", VoltType.BIGINT));
+                rollup.forEach((key, activity) -> {
+                    long start = (Long) key.get(2);
+                    if (key.get(1).equals(args[0]) && start >= seconds(args[1]) && start < seconds(args[2])) {
+                        table.addRow(timestamp(start), key.get(0), activity.totalAmount(), activity.scanCount());
+                    }
+                });
+                return table;
+            }
+            case "upsertBucket":
+                upsert(rollup, List.of(args[0], args[1], seconds(args[2])), new Activity(args[3], (Long) args[4]));
+                return modified(1);
+            case "upsertWatermark":
+                upsert(rollupWatermarks, (Integer) args[0], seconds(args[1]));
+                return modified(1);
+            case "removeExpiredBuckets": {
+                Map<List<Object>, Activity> expired = new HashMap<>();
+                rollup.forEach((key, activity) -> {
+                    if (key.get(1).equals(args[0]) && (Long) key.get(2) < seconds(args[1])) {
+                        expired.put(key, activity);
+                    }
+                });
+                rollup.keySet().removeAll(expired.keySet());
+                undo.push(() -> rollup.putAll(expired));
+                return modified(expired.size());
+            }
+            default:
+                throw new IllegalArgumentException("Statement not supported: " + statement);
+        }
+    }
+
+    private VoltTable updateBalance(int accountId, Object amount, boolean leaveAutoTopUp) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            return modified(0);
+        }
+        Object balance = account.balance() instanceof Long cents
+                ? (Object) (cents + ((Number) amount).longValue())
+                : ((BigDecimal) account.balance()).add((BigDecimal) amount);
+        accounts.put(accountId, new Account(balance, leaveAutoTopUp ? 0 : account.autoTopup()));
+        undo.push(() -> accounts.put(accountId, account));
+        return modified(1);
+    }
+
+    private VoltTable insertHistory(int accountId, long acctTxId, String tollReason, Object totalAmount,
+                                    String txType) {
+        insert(history, List.of(accountId, acctTxId), new HistoryRow(acctTxId, tollReason, totalAmount, txType),
+                "ACCOUNT_HISTORY");
+        return modified(1);
+    }
+
+    private <V> void insert(Map<List<Object>, V> table, List<Object> key, V row, String tableName) {
+        if (table.putIfAbsent(key, row) != null) {
+            throw new VoltProcedure.VoltAbortException(
+                    "Constraint violation: duplicate primary key " + key + " in " + tableName);
+        }
+        undo.push(() -> table.remove(key));
+    }
+
+    private <K, V> void upsert(Map<K, V> table, K key, V row) {
+        V previous = table.put(key, row);
+        undo.push(() -> {
+            if (previous == null) {
+                table.remove(key);
+            } else {
+                table.put(key, previous);
+            }
+        });
+    }
+
+    private static TimestampType timestamp(long epochSeconds) {
+        return new TimestampType(epochSeconds * 1_000_000);
+    }
+
+    private static long seconds(Object timestamp) {
+        return ((TimestampType) timestamp).getTime() / 1_000_000;
+    }
+
+    private static Object negate(Object amount) {
+        return amount instanceof BigDecimal decimal ? decimal.negate() : (Object) (-((Number) amount).longValue());
+    }
+
+    // BIGINT for cents and thousandths, DECIMAL otherwise
+    private static VoltType amountType(Object amount) {
+        return amount instanceof Long ? VoltType.BIGINT : VoltType.DECIMAL;
+    }
+
+    // Table of one column with a row holding the value, or no row when it is null
+    private static VoltTable row(String column, VoltType type, Object value) {
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo(column, type));
+        if (value != null) {
+            table.addRow(value);
+        }
+        return table;
+    }
+
+    private static VoltTable modified(long count) {
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo("modified_tuples", VoltType.BIGINT));
+        table.addRow(count);
+        return table;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcessPlateBatchTest {
+
+    private static final int ACCOUNT_ID = 7;
+    private static final BigDecimal BALANCE = new BigDecimal("100.00");
+
+    private final InMemoryAccounts db = new InMemoryAccounts();
+    private ProcessPlateBatch processPlateBatch;
+
+    @BeforeEach
+    void load() {
+        db.baseFares.put("LOC1", new BigDecimal("2.50"));
+        db.tollMultipliers.put("CAR", BigDecimal.ONE);
+        // Two cars on one account and an exempt one
+        db.knownVehicles.put("X001", new InMemoryAccounts.KnownVehicle(ACCOUNT_ID, (byte) 0, (short) 1));
+        db.knownVehicles.put("X002", new InMemoryAccounts.KnownVehicle(ACCOUNT_ID, (byte) 0, (short) 1));
+        db.knownVehicles.put("X003", new InMemoryAccounts.KnownVehicle(8, (byte) 1, (short) 1));
+        db.accounts.put(ACCOUNT_ID, new InMemoryAccounts.Account(BALANCE, (byte) 0));
+        processPlateBatch = db.processPlateBatch();
+    }
+
+    @Test
+    void sameOutcomesAsProcessPlate() throws Exception {
+        List<String> plates = List.of("X001", "X003", "U001");
+        VoltTable batchOutcomes = run(plates)[0];
+
+        InMemoryAccounts single = new InMemoryAccounts();
+        single.baseFares.putAll(db.baseFares);
+        single.tollMultipliers.putAll(db.tollMultipliers);
+        single.knownVehicles.putAll(db.knownVehicles);
+        ProcessPlate processPlate = single.processPlate();
+        for (String plate : plates) {
+            VoltTable outcome = single.call(() -> processPlate.run(1000, "LOC1", "1", plate, "CAR"));
+            outcome.advanceRow();
+            assertTrue(batchOutcomes.advanceRow(), "outcome of " + plate);
+            assertEquals(plate, batchOutcomes.getString("PLATE_NUM"), "in scan order");
+            assertEquals(outcome.getString("TOLL_REASON"), batchOutcomes.getString("TOLL_REASON"), plate);
+            assertEquals(outcome.getLong("ACCOUNT_ID"), batchOutcomes.getLong("ACCOUNT_ID"), plate);
+            assertEquals(0, outcome.getDecimalAsBigDecimal("TOTAL_AMOUNT")
+                    .compareTo(batchOutcomes.getDecimalAsBigDecimal("TOTAL_AMOUNT")), plate);
+        }
+        assertEquals(1, db.billsByMail.size(), "bills by mail");
+        assertEquals(3, db.scans.size(), "scan history");
+    }
+
+    @Test
+    void invalidScansReturnedNotAborted() throws Exception {
+        VoltTable[] results = db.call(() -> processPlateBatch.run("key",
+                new long[]{1000, 1000, 1000},
+                new String[]{"LOC1", "Nowhere", "LOC1"},
+                new String[]{"1", "1", "1"},
+                new String[]{"X001", "X002", "X003"},
+                new String[]{"CAR", "CAR", "Hovercraft"}));
+
+        assertEquals(1, results[0].getRowCount(), "processed scans");
+        VoltTable rejected = results[1];
+        assertTrue(rejected.advanceRow());
+        assertEquals(1, rejected.getLong("SCAN_INDEX"));
+        assertEquals("Invalid toll location", rejected.getString("REASON"));
+        assertTrue(rejected.advanceRow());
+        assertEquals(2, rejected.getLong("SCAN_INDEX"));
+        assertEquals("Invalid vehicle class", rejected.getString("REASON"));
+        assertEquals(1, db.scans.size(), "scan history of the valid scan");
+    }
+
+    @Test
+    void repeatedPlateAborts() {
+        VoltProcedure.VoltAbortException e = assertThrows(VoltProcedure.VoltAbortException.class,
+                () -> run(List.of("X001", "U001", "X001")));
+        assertEquals("Plate X001 appears more than once in the batch", e.getMessage());
+        assertTrue(db.scans.isEmpty(), "nothing written");
+    }
+
+    @Test
+    void scansOfOneBatchChargedApart() throws Exception {
+        VoltTable outcomes = run(List.of("X001", "X002"))[0];
+
+        // The scans share the id of the transaction, ACCOUNT_HISTORY keys the charges on their own ids
+        ChargeAccount chargeAccount = db.chargeAccount();
+        long scanId = -1;
+        while (outcomes.advanceRow()) {
+            long outcomeScanId = outcomes.getLong("SCAN_ID");
+            assertTrue(scanId == -1 || scanId == outcomeScanId, "one scan id per batch");
+            scanId = outcomeScanId;
+            String plate = outcomes.getString("PLATE_NUM");
+            BigDecimal toll = outcomes.getDecimalAsBigDecimal("TOLL_AMOUNT");
+            String tollReason = outcomes.getString("TOLL_REASON");
+            long chargedScanId = scanId;
+            db.call(() -> chargeAccount.run(chargedScanId, 1000, "LOC1", "1", plate, ACCOUNT_ID, toll, tollReason));
+        }
+
+        assertEquals(2, db.scans.size(), "scan history keyed on plate and scan id");
+        assertEquals(2, db.history(ACCOUNT_ID).size(), "both charges recorded");
+        assertEquals(0, new BigDecimal("95.00").compareTo((BigDecimal) db.accounts.get(ACCOUNT_ID).balance()),
+                "both charged");
+    }
+
+    @Test
+    void arraysOfDifferentLengthAbort() {
+        assertThrows(VoltProcedure.VoltAbortException.class, () -> db.call(() -> processPlateBatch.run("key",
+                new long[]{1000}, new String[]{"LOC1"}, new String[]{"1"}, new String[]{"X001", "X002"},
+                new String[]{"CAR"})));
+    }
+
+    private VoltTable[] run(List<String> plates) throws Exception {
+        int size = plates.size();
+        long[] timestamps = new long[size];
+        String[] locations = new String[size];
+        String[] lanes = new String[size];
+        String[] vehicleClasses = new String[size];
+        for (int i = 0; i < size; i++) {
+            timestamps[i] = 1000;
+            locations[i] = "LOC1";
+            lanes[i] = "1";
+            vehicleClasses[i] = "CAR";
+        }
+        String[] plateNums = plates.toArray(new String[0]);
+        return db.call(() -> processPlateBatch.run("key", timestamps, locations, lanes, plateNums, vehicleClasses));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs ProcessPlatePriced with a current and an outdated REFERENCE_DATA_VERSION and checks that a stale snapshot
+ * is priced from the tables, like ProcessPlate prices it, and reported with the STALE_REFERENCE_DATA status.
+ */
+class ProcessPlatePricedTest {
+
+    private static final String PLATE = "X001";
+    private static final BigDecimal BASE_FARE = new BigDecimal("2.50");
+    private static final BigDecimal MULTIPLIER = new BigDecimal("2.00");
+    // What the caller priced from a snapshot taken before the fare was raised to BASE_FARE
+    private static final BigDecimal CACHED_TOLL = new BigDecimal("4.00");
+
+    private final InMemoryAccounts db = new InMemoryAccounts();
+    private ProcessPlatePriced procedure;
+
+    @BeforeEach
+    void load() {
+        db.baseFares.put("LOC1", BASE_FARE);
+        db.tollMultipliers.put("TRUCK", MULTIPLIER);
+        db.knownVehicles.put(PLATE, new InMemoryAccounts.KnownVehicle(7, (byte) 0, (short) 2));
+        db.parameters.put("REFERENCE_DATA_VERSION", "3");
+        procedure = db.processPlatePriced();
+    }
+
+    @Test
+    void currentVersionUsesPricedToll() throws Exception {
+        VoltTable outcome = db.call(() -> procedure.run(1000, "LOC1", "1", PLATE, "TRUCK", CACHED_TOLL, 3));
+
+        assertEquals(0, db.appStatusCode, "status");
+        assertTrue(outcome.advanceRow());
+        assertAmount(CACHED_TOLL, outcome.getDecimalAsBigDecimal("TOTAL_AMOUNT"), "total");
+        assertEquals("STANDARD TOLL ( TRUCK)", outcome.getString("TOLL_REASON"));
+    }
+
+    @Test
+    void staleVersionIsRepriced() throws Exception {
+        VoltTable outcome = db.call(() -> procedure.run(1000, "LOC1", "1", PLATE, "TRUCK", CACHED_TOLL, 2));
+
+        assertEquals(ProcessPlatePriced.STALE_REFERENCE_DATA, db.appStatusCode, "status");
+        assertTrue(outcome.advanceRow());
+        assertAmount(TollMath.toll(BASE_FARE, MULTIPLIER), outcome.getDecimalAsBigDecimal("TOTAL_AMOUNT"), "total");
+        InMemoryAccounts.Scan scan = db.scans.values().iterator().next();
+        assertAmount(TollMath.toll(BASE_FARE, MULTIPLIER), (BigDecimal) scan.totalAmount(), "scan history total");
+    }
+
+    @Test
+    void staleVersionOfUnknownVehicleIsRepriced() throws Exception {
+        VoltTable outcome = db.call(() -> procedure.run(1000, "LOC1", "1", "U001", "TRUCK", CACHED_TOLL, 2));
+
+        assertEquals(ProcessPlatePriced.STALE_REFERENCE_DATA, db.appStatusCode, "status");
+        assertTrue(outcome.advanceRow());
+        assertEquals(ScanOutcomes.UNKNOWN_VEHICLE, outcome.getString("TOLL_REASON"));
+        assertAmount(TollMath.toll(BASE_FARE, MULTIPLIER), outcome.getDecimalAsBigDecimal("TOLL_AMOUNT"), "toll");
+        assertEquals(1, db.billsByMail.size(), "bills by mail");
+    }
+
+    @Test
+    void unsetVersionIsZero() throws Exception {
+        db.parameters.remove("REFERENCE_DATA_VERSION");
+
+        db.call(() -> procedure.run(1000, "LOC1", "1", PLATE, "TRUCK", CACHED_TOLL, 0));
+
+        assertEquals(0, db.appStatusCode, "status");
+    }
+
+    @Test
+    void staleVersionOfRemovedLocationAborts() {
+        db.baseFares.remove("LOC1");
+
+        VoltProcedure.VoltAbortException e = assertThrows(VoltProcedure.VoltAbortException.class,
+                () -> db.call(() -> procedure.run(1000, "LOC1", "1", PLATE, "TRUCK", CACHED_TOLL, 2)));
+        assertEquals("Invalid toll location", e.getMessage());
+        assertTrue(db.scans.isEmpty(), "scan history rolled back");
+    }
+
+    private static void assertAmount(BigDecimal expected, BigDecimal actual, String what) {
+        assertEquals(0, expected.compareTo(actual), what + " is " + actual + ", expected " + expected);
+    }
+}
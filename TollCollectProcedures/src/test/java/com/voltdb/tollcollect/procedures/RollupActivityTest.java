@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltTable;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+
+import static com.voltdb.tollcollect.procedures.RollupActivity.FIVE_MINUTE_TIER;
+import static com.voltdb.tollcollect.procedures.RollupActivity.HOUR_TIER;
+import static com.voltdb.tollcollect.procedures.RollupActivity.MINUTE_TIER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollupActivityTest {
+
+    // The start of an hour
+    private static final long BASE = 472_222L * HOUR_TIER;
+    private static final BigDecimal TOLL = new BigDecimal("2.50");
+
+    private final InMemoryAccounts db = new InMemoryAccounts();
+    private final RollupActivity rollupActivity = db.rollupActivity();
+
+    @Test
+    void copiesCompletedMinutes() throws Exception {
+        scans(BASE + 60, "LOC1", 1);
+        scans(BASE + 60, "LOC2", 2);
+        scans(BASE + 120, "LOC1", 3);
+
+        // The minute starting at BASE + 120 is still within its grace period
+        VoltTable result = run(BASE + 180 + RollupActivity.GRACE_SECONDS - 1);
+        assertTrue(result.advanceRow());
+        assertEquals(MINUTE_TIER, result.getLong("TIER_SECONDS"));
+        assertEquals(2, result.getLong("BUCKETS_WRITTEN"), "one bucket per location");
+        assertEquals(activity("5.00", 2), bucket("LOC2", MINUTE_TIER, BASE + 60));
+        assertNull(bucket("LOC1", MINUTE_TIER, BASE + 120), "minute in grace period");
+        assertEquals(BASE + 120, db.rollupWatermarks.get(MINUTE_TIER));
+
+        // Scans of a minute already rolled up are not read again
+        scans(BASE + 60, "LOC1", 1);
+        run(BASE + 180 + RollupActivity.GRACE_SECONDS);
+        assertEquals(activity("2.50", 1), bucket("LOC1", MINUTE_TIER, BASE + 60), "written once");
+        assertEquals(activity("7.50", 3), bucket("LOC1", MINUTE_TIER, BASE + 120));
+        assertEquals(BASE + 180, db.rollupWatermarks.get(MINUTE_TIER));
+    }
+
+    @Test
+    void compactsCompleteBuckets() throws Exception {
+        // The oldest minute still in the view is BASE + 60, so the buckets starting at BASE are partial
+        for (long minute = BASE + 60; minute < BASE + 2 * HOUR_TIER + 600; minute += MINUTE_TIER) {
+            scans(minute, "LOC1", 1);
+        }
+
+        VoltTable result = run(BASE + 2 * HOUR_TIER + 300 + RollupActivity.GRACE_SECONDS);
+        assertEquals(BASE + 2 * HOUR_TIER + 300, db.rollupWatermarks.get(MINUTE_TIER));
+        assertEquals(BASE + 2 * HOUR_TIER + 300, db.rollupWatermarks.get(FIVE_MINUTE_TIER));
+        assertEquals(BASE + 2 * HOUR_TIER, db.rollupWatermarks.get(HOUR_TIER));
+
+        assertNull(bucket("LOC1", FIVE_MINUTE_TIER, BASE), "partial first five minutes");
+        assertEquals(activity("12.50", 5), bucket("LOC1", FIVE_MINUTE_TIER, BASE + 300));
+        assertEquals(activity("12.50", 5), bucket("LOC1", FIVE_MINUTE_TIER, BASE + 2 * HOUR_TIER));
+        assertNull(bucket("LOC1", FIVE_MINUTE_TIER, BASE + 2 * HOUR_TIER + 300), "incomplete five minutes");
+
+        assertNull(bucket("LOC1", HOUR_TIER, BASE), "partial first hour");
+        assertEquals(activity("150.00", 60), bucket("LOC1", HOUR_TIER, BASE + HOUR_TIER));
+        assertNull(bucket("LOC1", HOUR_TIER, BASE + 2 * HOUR_TIER), "incomplete hour");
+
+        assertTrue(result.advanceRow());
+        assertTrue(result.advanceRow());
+        assertEquals(FIVE_MINUTE_TIER, result.getLong("TIER_SECONDS"));
+        assertEquals(24, result.getLong("BUCKETS_WRITTEN"), "all but the partial first bucket");
+        assertTrue(result.advanceRow());
+        assertEquals(HOUR_TIER, result.getLong("TIER_SECONDS"));
+        assertEquals(1, result.getLong("BUCKETS_WRITTEN"));
+
+        // The next run continues from the watermarks
+        run(BASE + 3 * HOUR_TIER + RollupActivity.GRACE_SECONDS);
+        assertEquals(activity("12.50", 5), bucket("LOC1", FIVE_MINUTE_TIER, BASE + 2 * HOUR_TIER + 300));
+        assertEquals(activity("25.00", 10), bucket("LOC1", HOUR_TIER, BASE + 2 * HOUR_TIER),
+                "compacted from both tiers below");
+        assertEquals(BASE + 3 * HOUR_TIER, db.rollupWatermarks.get(HOUR_TIER));
+    }
+
+    @Test
+    void removesExpiredBuckets() throws Exception {
+        long now = BASE + 400L * 24 * HOUR_TIER;
+        for (int tier : List.of(MINUTE_TIER, FIVE_MINUTE_TIER, HOUR_TIER)) {
+            db.rollupWatermarks.put(tier, now);
+        }
+        db.rollup.put(key(MINUTE_TIER, now - RollupActivity.MINUTE_TIER_RETENTION_SECONDS - MINUTE_TIER),
+                activity("1.00", 1));
+        db.rollup.put(key(MINUTE_TIER, now - RollupActivity.MINUTE_TIER_RETENTION_SECONDS),
+                activity("1.00", 1));
+        db.rollup.put(key(FIVE_MINUTE_TIER, now - RollupActivity.FIVE_MINUTE_TIER_RETENTION_SECONDS - 1),
+                activity("1.00", 1));
+        db.rollup.put(key(FIVE_MINUTE_TIER, now - RollupActivity.MINUTE_TIER_RETENTION_SECONDS - MINUTE_TIER),
+                activity("1.00", 1));
+        db.rollup.put(key(HOUR_TIER, BASE - HOUR_TIER), activity("1.00", 1));
+        db.rollup.put(key(HOUR_TIER, BASE), activity("1.00", 1));
+
+        run(now);
+        assertFalse(db.rollup.containsKey(key(MINUTE_TIER,
+                now - RollupActivity.MINUTE_TIER_RETENTION_SECONDS - MINUTE_TIER)), "expired minute");
+        assertTrue(db.rollup.containsKey(key(MINUTE_TIER, now - RollupActivity.MINUTE_TIER_RETENTION_SECONDS)),
+                "minute at its retention");
+        assertFalse(db.rollup.containsKey(key(FIVE_MINUTE_TIER,
+                now - RollupActivity.FIVE_MINUTE_TIER_RETENTION_SECONDS - 1)), "expired five minutes");
+        assertTrue(db.rollup.containsKey(key(FIVE_MINUTE_TIER,
+                now - RollupActivity.MINUTE_TIER_RETENTION_SECONDS - MINUTE_TIER)), "retained five minutes");
+        assertFalse(db.rollup.containsKey(key(HOUR_TIER, BASE - HOUR_TIER)), "expired hour");
+        assertTrue(db.rollup.containsKey(key(HOUR_TIER, BASE)), "retained hour");
+    }
+
+    // Adds count scans of TOLL to the minute starting at minute
+    private void scans(long minute, String location, int count) {
+        BigDecimal amount = TOLL.multiply(BigDecimal.valueOf(count));
+        db.activityByMinute.merge(List.of(minute, location), new InMemoryAccounts.Activity(amount, count),
+                (a, b) -> new InMemoryAccounts.Activity(((BigDecimal) a.totalAmount()).add(amount),
+                        a.scanCount() + count));
+    }
+
+    private VoltTable run(long nowSeconds) throws Exception {
+        db.now = new Date(nowSeconds * 1000);
+        return db.call(rollupActivity::run);
+    }
+
+    // The bucket with its amount at the scale of activity(), or null when there is none
+    private InMemoryAccounts.Activity bucket(String location, int tier, long start) {
+        InMemoryAccounts.Activity bucket = db.rollup.get(List.of(location, tier, start));
+        return bucket == null ? null : new InMemoryAccounts.Activity(
+                ((BigDecimal) bucket.totalAmount()).stripTrailingZeros(), bucket.scanCount());
+    }
+
+    private static List<Object> key(int tier, long start) {
+        return List.of("LOC1", tier, start);
+    }
+
+    private static InMemoryAccounts.Activity activity(String amount, long count) {
+        return new InMemoryAccounts.Activity(new BigDecimal(amount).stripTrailingZeros(), count);
+    }
+}
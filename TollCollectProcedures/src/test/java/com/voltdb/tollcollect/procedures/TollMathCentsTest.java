@@ -0,0 +1,190 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltProcedure;
+import org.voltdb.VoltTable;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replays generated scans against the reference data of the csv directory through ProcessPlate and ChargeAccount
+ * on DECIMAL amounts, and through ProcessPlateCents and ChargeAccountCents on the same data converted to cents,
+ * and checks that every toll, fee, total, reason, abort and balance is identical.
+ */
+class TollMathCentsTest {
+
+    // The reference data of the repository, tests run in the module directory
+    private static final Path CSV = Path.of("..", "csv");
+    private static final int SCANS = 20_000;
+
+    @Test
+    void centsProceduresMatchDecimalOnes() throws Exception {
+        InMemoryAccounts decimal = new InMemoryAccounts();
+        InMemoryAccounts cents = new InMemoryAccounts();
+        List<String[]> locations = read("toll_locations.csv");
+        List<String[]> vehicleTypes = read("vehicle_types.csv");
+        List<String[]> knownVehicles = read("known_vehicles.csv");
+        load(decimal, cents, locations, vehicleTypes, knownVehicles);
+
+        ProcessPlate processPlate = decimal.processPlate();
+        ProcessPlateCents processPlateCents = cents.processPlateCents();
+        ChargeAccount chargeAccount = decimal.chargeAccount();
+        ChargeAccountCents chargeAccountCents = cents.chargeAccountCents();
+
+        SplittableRandom random = new SplittableRandom(42);
+        int charged = 0;
+        for (int i = 0; i < SCANS; i++) {
+            String location = locations.get(random.nextInt(locations.size()))[1].trim();
+            String vehicleClass = vehicleTypes.get(random.nextInt(vehicleTypes.size()))[1].trim();
+            // One in ten scans is of an unknown vehicle
+            String plateNum = random.nextInt(10) == 0
+                    ? "U" + i
+                    : knownVehicles.get(random.nextInt(knownVehicles.size()))[0].trim();
+            long scanTimestamp = i * 1000L;
+            String scan = "Scan " + i + " of " + plateNum + ": ";
+
+            VoltTable decimalOutcome = decimal.call(() ->
+                    processPlate.run(scanTimestamp, location, "1", plateNum, vehicleClass));
+            VoltTable centsOutcome = cents.call(() ->
+                    processPlateCents.run(scanTimestamp, location, "1", plateNum, vehicleClass));
+            decimalOutcome.advanceRow();
+            centsOutcome.advanceRow();
+            String tollReason = decimalOutcome.getString("TOLL_REASON");
+            assertEquals(tollReason, centsOutcome.getString("TOLL_REASON"), scan + "reason");
+            for (String amount : List.of("TOLL_AMOUNT", "SCAN_FEE_AMOUNT", "TOTAL_AMOUNT")) {
+                assertSameAmount(decimalOutcome.getDecimalAsBigDecimal(amount), centsOutcome.getLong(amount),
+                        scan + amount);
+            }
+
+            int accountId = (int) decimalOutcome.getLong("ACCOUNT_ID");
+            if (accountId <= 0 || "EXEMPT".equals(tollReason)) {
+                continue;
+            }
+            BigDecimal decimalToll = decimalOutcome.getDecimalAsBigDecimal("TOLL_AMOUNT");
+            long centsToll = centsOutcome.getLong("TOLL_AMOUNT");
+            long decimalScanId = decimalOutcome.getLong("SCAN_ID");
+            long centsScanId = centsOutcome.getLong("SCAN_ID");
+            String decimalAbort = abort(decimal, () -> chargeAccount.run(decimalScanId, scanTimestamp,
+                    location, "1", plateNum, accountId, decimalToll, tollReason));
+            String centsAbort = abort(cents, () -> chargeAccountCents.run(centsScanId, scanTimestamp,
+                    location, "1", plateNum, accountId, centsToll, tollReason));
+            assertEquals(decimalAbort, centsAbort, scan + "abort");
+            if (decimalAbort == null) {
+                charged++;
+            }
+            assertSameAmount((BigDecimal) balance(decimal, accountId), (Long) balance(cents, accountId),
+                    scan + "balance of account " + accountId);
+        }
+
+        assertTrue(charged > SCANS / 2, "most scans charged, was " + charged);
+        assertEquals(decimal.history.size(), cents.history.size(), "account history rows");
+        List<InMemoryAccounts.HistoryRow> decimalHistory = new ArrayList<>(decimal.history.values());
+        List<InMemoryAccounts.HistoryRow> centsHistory = new ArrayList<>(cents.history.values());
+        for (int i = 0; i < decimalHistory.size(); i++) {
+            assertEquals(decimalHistory.get(i).txType(), centsHistory.get(i).txType(), "history row " + i);
+            assertSameAmount((BigDecimal) decimalHistory.get(i).totalAmount(),
+                    (Long) centsHistory.get(i).totalAmount(), "history row " + i);
+        }
+        assertEquals(decimal.topUps.size(), cents.topUps.size(), "top-ups");
+        assertEquals(decimal.billsByMail.size(), cents.billsByMail.size(), "bills by mail");
+    }
+
+    @Test
+    void roundsHalfEven() {
+        // Tolls with fractions of a cent are rounded half even, which DECIMAL does not do
+        assertSameAmount(new BigDecimal("0.02"), TollMathCents.toll(3, 625), "0.01875");
+        assertSameAmount(new BigDecimal("0.04"), TollMathCents.toll(7, 500), "0.035");
+        assertSameAmount(new BigDecimal("0.02"), TollMathCents.toll(5, 500), "0.025");
+    }
+
+    // Loads the reference data and the active accounts into both models
+    private static void load(InMemoryAccounts decimal,
+                             InMemoryAccounts cents,
+                             List<String[]> locations,
+                             List<String[]> vehicleTypes,
+                             List<String[]> knownVehicles) throws IOException {
+        for (String[] location : locations) {
+            BigDecimal baseFare = new BigDecimal(location[3].trim());
+            decimal.baseFares.put(location[1].trim(), baseFare);
+            cents.baseFares.put(location[1].trim(), TollMathCents.toCents(baseFare));
+        }
+        for (String[] vehicleType : vehicleTypes) {
+            BigDecimal multiplier = new BigDecimal(vehicleType[2].trim());
+            decimal.tollMultipliers.put(vehicleType[1].trim(), multiplier);
+            cents.tollMultipliers.put(vehicleType[1].trim(), TollMathCents.toThousandths(multiplier));
+        }
+        for (String[] vehicle : knownVehicles) {
+            if ("1".equals(vehicle[3].trim())) {
+                InMemoryAccounts.KnownVehicle row = new InMemoryAccounts.KnownVehicle(
+                        Integer.parseInt(vehicle[1].trim()),
+                        Byte.parseByte(vehicle[4].trim()),
+                        Short.parseShort(vehicle[2].trim()));
+                decimal.knownVehicles.put(vehicle[0].trim(), row);
+                cents.knownVehicles.put(vehicle[0].trim(), row);
+            }
+        }
+        // Inactive accounts are left out, ChargeAccount aborts on them as on unknown ones
+        for (String[] account : read("accounts.csv")) {
+            if ("1".equals(account[1].trim())) {
+                BigDecimal balance = new BigDecimal(account[3].trim());
+                byte autoTopup = Byte.parseByte(account[2].trim());
+                int accountId = Integer.parseInt(account[0].trim());
+                decimal.accounts.put(accountId, new InMemoryAccounts.Account(balance, autoTopup));
+                cents.accounts.put(accountId, new InMemoryAccounts.Account(TollMathCents.toCents(balance), autoTopup));
+            }
+        }
+    }
+
+    // Runs the call and returns the message it aborted with, or null
+    private static String abort(InMemoryAccounts db, Callable<?> call) throws Exception {
+        try {
+            db.call(call);
+            return null;
+        } catch (VoltProcedure.VoltAbortException e) {
+            return e.getMessage();
+        }
+    }
+
+    private static Object balance(InMemoryAccounts db, int accountId) {
+        InMemoryAccounts.Account account = db.accounts.get(accountId);
+        return account == null ? null : account.balance();
+    }
+
+    private static void assertSameAmount(BigDecimal decimal, Long cents, String what) {
+        if (decimal == null || cents == null) {
+            assertEquals(decimal == null, cents == null, what);
+            return;
+        }
+        assertEquals(0, decimal.compareTo(TollMathCents.fromCents(cents)),
+                what + " is " + decimal + " as DECIMAL but " + cents + " cents");
+    }
+
+    private static List<String[]> read(String file) throws IOException {
+        List<String> lines = Files.readAllLines(CSV.resolve(file), StandardCharsets.UTF_8);
+        List<String[]> rows = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            if (!line.isBlank()) {
+                rows.add(line.split(","));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.procedures;
+
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltProcedure;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TopUpSettlementTest {
+
+    private static final int ACCOUNT_ID = 42;
+
+    // A toll taking the balance below the threshold credits a top-up in the same transaction
+    private static InMemoryAccounts toppedUp() throws Exception {
+        InMemoryAccounts db = new InMemoryAccounts();
+        db.accounts.put(ACCOUNT_ID, new InMemoryAccounts.Account(BigDecimal.valueOf(12), (byte) 1));
+        ChargeAccount chargeAccount = db.chargeAccount();
+        db.call(() -> chargeAccount.run(1, 1_000, "Toll-1", "1", "ABC123", ACCOUNT_ID, BigDecimal.valueOf(5),
+                "TOLL"));
+        return db;
+    }
+
+    @Test
+    void topUpRecordedWithTheToll() throws Exception {
+        InMemoryAccounts db = toppedUp();
+
+        assertEquals(new BigDecimal(37), db.accounts.get(ACCOUNT_ID).balance(), "credited then charged");
+        List<InMemoryAccounts.HistoryRow> history = db.history(ACCOUNT_ID);
+        assertEquals(List.of("CREDIT", "DEBIT"), history.stream().map(InMemoryAccounts.HistoryRow::txType).toList(),
+                "top-up and toll rows");
+        assertNotEquals(history.get(0).acctTxId(), history.get(1).acctTxId(), "rows keyed apart");
+        assertEquals(1, db.topUps.size(), "top-up exported");
+        assertEquals(history.get(0).acctTxId(), db.topUps.get(0).acctTxId(), "exported with the id of the credit");
+    }
+
+    @Test
+    void declinedTopUpReversedOnce() throws Exception {
+        InMemoryAccounts db = toppedUp();
+        long topUpId = db.topUps.get(0).acctTxId();
+        SettleTopUp settleTopUp = db.settleTopUp();
+
+        // The consumer read the event twice before settling
+        long settled = db.call(() -> settleTopUp.run(ACCOUNT_ID, new long[]{topUpId, topUpId},
+                new BigDecimal[]{TollMath.TOP_UP_AMOUNT, TollMath.TOP_UP_AMOUNT}, 0, "DECLINED"));
+        assertEquals(1, settled, "settled once");
+        assertEquals(new InMemoryAccounts.Settlement(SettleTopUp.REVERSED, TollMath.TOP_UP_AMOUNT),
+                db.settlements.get(List.of(ACCOUNT_ID, topUpId)), "settlement keyed on the credit");
+        assertEquals(new InMemoryAccounts.Account(new BigDecimal(7), (byte) 0), db.accounts.get(ACCOUNT_ID),
+                "credit taken back and auto top-up turned off");
+        assertEquals(SettleTopUp.REVERSAL_REASON, db.history(ACCOUNT_ID).get(2).tollReason(), "reversal recorded");
+
+        // Replayed after a restart
+        settled = db.call(() -> settleTopUp.run(ACCOUNT_ID, new long[]{topUpId},
+                new BigDecimal[]{TollMath.TOP_UP_AMOUNT}, 0, "DECLINED"));
+        assertEquals(0, settled, "already settled");
+        assertEquals(new BigDecimal(7), db.accounts.get(ACCOUNT_ID).balance(), "reversed once");
+        assertEquals(3, db.history(ACCOUNT_ID).size(), "no second reversal");
+    }
+
+    @Test
+    void approvedTopUpKept() throws Exception {
+        InMemoryAccounts db = toppedUp();
+        long topUpId = db.topUps.get(0).acctTxId();
+        SettleTopUp settleTopUp = db.settleTopUp();
+
+        long settled = db.call(() -> settleTopUp.run(ACCOUNT_ID, new long[]{topUpId},
+                new BigDecimal[]{TollMath.TOP_UP_AMOUNT}, 1, "payment-1"));
+        assertEquals(1, settled, "settled");
+        assertEquals(SettleTopUp.SETTLED, db.settlements.get(List.of(ACCOUNT_ID, topUpId)).status(), "status");
+        assertEquals(new InMemoryAccounts.Account(new BigDecimal(37), (byte) 1), db.accounts.get(ACCOUNT_ID),
+                "balance kept");
+    }
+
+    @Test
+    void cents() throws Exception {
+        InMemoryAccounts db = new InMemoryAccounts();
+        db.accounts.put(ACCOUNT_ID, new InMemoryAccounts.Account(1_200L, (byte) 1));
+        ChargeAccountCents chargeAccount = db.chargeAccountCents();
+        db.call(() -> chargeAccount.run(1, 1_000, "Toll-1", "1", "ABC123", ACCOUNT_ID, 500, "TOLL"));
+
+        List<InMemoryAccounts.HistoryRow> history = db.history(ACCOUNT_ID);
+        assertEquals(2, history.size(), "top-up and toll rows");
+        long topUpId = db.topUps.get(0).acctTxId();
+        assertEquals(history.get(0).acctTxId(), topUpId, "exported with the id of the credit");
+
+        SettleTopUpCents settleTopUp = db.settleTopUpCents();
+        long settled = db.call(() -> settleTopUp.run(ACCOUNT_ID, new long[]{topUpId, topUpId},
+                new long[]{TollMathCents.TOP_UP_AMOUNT, TollMathCents.TOP_UP_AMOUNT}, 0, "DECLINED"));
+        assertEquals(1, settled, "settled once");
+        assertEquals(new InMemoryAccounts.Account(700L, (byte) 0), db.accounts.get(ACCOUNT_ID), "credit taken back");
+    }
+
+    @Test
+    void abortedCallChangesNothing() throws Exception {
+        InMemoryAccounts db = toppedUp();
+        ChargeAccount chargeAccount = db.chargeAccount();
+
+        // A row already holds the id of the next transaction, its toll cannot be recorded
+        db.history.put(List.of(ACCOUNT_ID, 2L << 14), db.history(ACCOUNT_ID).get(1));
+        assertThrows(VoltProcedure.VoltAbortException.class, () -> db.call(() -> chargeAccount.run(2, 2_000,
+                "Toll-1", "1", "ABC123", ACCOUNT_ID, BigDecimal.valueOf(30), "TOLL")));
+        assertEquals(new InMemoryAccounts.Account(new BigDecimal(37), (byte) 1), db.accounts.get(ACCOUNT_ID),
+                "top-up and toll undone");
+        assertEquals(3, db.history.size(), "no row added");
+        assertEquals(1, db.topUps.size(), "no top-up exported");
+    }
+}
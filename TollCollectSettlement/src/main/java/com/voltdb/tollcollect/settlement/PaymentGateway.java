@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.settlement;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Charges the payment methods of accounts for their top-ups, many accounts per call.
+ * <p>
+ * The settler loads the implementation named by {@code --gateway}, either {@code stub} for
+ * {@link StubPaymentGateway} or the name of a class with a public constructor without arguments. Calls are
+ * made from one thread, one at a time.
+ */
+public interface PaymentGateway extends AutoCloseable {
+
+    /**
+     * A charge of {@code amount} to the payment method of an account. A gateway that sees the same
+     * idempotency key again returns the outcome of the first charge instead of charging twice.
+     */
+    record Request(String idempotencyKey, int accountId, BigDecimal amount) {
+    }
+
+    /**
+     * Outcome of a request. A declined charge carries the reason given by the gateway.
+     */
+    record Result(boolean approved, String reference, String declineReason) {
+    }
+
+    /**
+     * Largest number of requests accepted in one call.
+     */
+    int maxBatchSize();
+
+    /**
+     * Charges a batch of at most {@link #maxBatchSize()} requests and returns one result per request, in the
+     * same order. Throws IOException when the batch could not be processed at all, in which case none of it
+     * was charged and the batch can be sent again.
+     */
+    List<Result> charge(List<Request> requests) throws IOException;
+
+    @Override
+    default void close() {
+    }
+}
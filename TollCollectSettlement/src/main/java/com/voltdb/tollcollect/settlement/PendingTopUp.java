@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.settlement;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * The top-ups of one account read within a coalescing window, charged to its payment method as one amount.
+ * Each top-up keeps the partition and offset it was read from, so that its offset can be committed once the
+ * settlement is written. A top-up read again, as export delivers at least once, is charged and settled once but
+ * its offset is still committed.
+ */
+final class PendingTopUp {
+
+    record Read(TopUpEvent event, int partition, long offset) {
+    }
+
+    private final int accountId;
+    private final long firstReadNanos;
+    private final List<Read> reads = new ArrayList<>(2);
+    private final LinkedHashMap<Long, TopUpEvent> topUps = new LinkedHashMap<>(4);
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    PendingTopUp(int accountId, long firstReadNanos) {
+        this.accountId = accountId;
+        this.firstReadNanos = firstReadNanos;
+    }
+
+    /**
+     * Returns false when the top-up was already read in this window.
+     */
+    boolean add(TopUpEvent event, int partition, long offset) {
+        reads.add(new Read(event, partition, offset));
+        if (topUps.putIfAbsent(event.acctTxId(), event) != null) {
+            return false;
+        }
+        totalAmount = totalAmount.add(event.topUpAmount());
+        return true;
+    }
+
+    int accountId() {
+        return accountId;
+    }
+
+    long firstReadNanos() {
+        return firstReadNanos;
+    }
+
+    List<Read> reads() {
+        return reads;
+    }
+
+    int size() {
+        return topUps.size();
+    }
+
+    BigDecimal totalAmount() {
+        return totalAmount;
+    }
+
+    long[] acctTxIds() {
+        long[] acctTxIds = new long[topUps.size()];
+        int i = 0;
+        for (TopUpEvent event : topUps.values()) {
+            acctTxIds[i++] = event.acctTxId();
+        }
+        return acctTxIds;
+    }
+
+    BigDecimal[] amounts() {
+        BigDecimal[] amounts = new BigDecimal[topUps.size()];
+        int i = 0;
+        for (TopUpEvent event : topUps.values()) {
+            amounts[i++] = event.topUpAmount();
+        }
+        return amounts;
+    }
+
+    /**
+     * Key the gateway uses to recognise a charge it has already made. It is derived from the first top-up of
+     * the account, which is read first again when the events are replayed after a restart.
+     */
+    String idempotencyKey() {
+        return "topup-" + accountId + "-" + reads.get(0).event().acctTxId();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.settlement;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Offsets of the top-ups read but not settled yet, per partition. The offset that can be committed for a
+ * partition is the lowest unsettled one, or the next to read when all are settled, so a restart reads again
+ * every top-up whose settlement was not written.
+ * <p>
+ * Offsets are read on the consumer thread and settled on the threads completing the settlement writes.
+ */
+final class SettledOffsets {
+
+    private static final class Partition {
+        private final ConcurrentSkipListSet<Long> unsettled = new ConcurrentSkipListSet<>();
+        private volatile long nextOffset = -1;
+    }
+
+    private final Map<Integer, Partition> partitions = new ConcurrentHashMap<>();
+
+    /**
+     * Records that an offset was read, to be settled later unless {@code settled} is already true.
+     */
+    void read(int partition, long offset, boolean settled) {
+        Partition state = partitions.computeIfAbsent(partition, p -> new Partition());
+        if (!settled) {
+            state.unsettled.add(offset);
+        }
+        state.nextOffset = offset + 1;
+    }
+
+    void settled(int partition, long offset) {
+        partitions.get(partition).unsettled.remove(offset);
+    }
+
+    /**
+     * Returns the offset to commit for every partition read so far.
+     */
+    Map<Integer, Long> committable() {
+        Map<Integer, Long> offsets = new HashMap<>();
+        for (Map.Entry<Integer, Partition> entry : partitions.entrySet()) {
+            Partition state = entry.getValue();
+            long next = state.nextOffset;
+            Long lowest = state.unsettled.ceiling(Long.MIN_VALUE);
+            offsets.put(entry.getKey(), lowest == null ? next : lowest);
+        }
+        return offsets;
+    }
+
+    int unsettled() {
+        int unsettled = 0;
+        for (Partition state : partitions.values()) {
+            unsettled += state.unsettled.size();
+        }
+        return unsettled;
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.settlement;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Writes the outcome of a charge back to the database. The future completes with true once the settlement is
+ * durable, and with false or exceptionally when it was not written.
+ */
+interface SettlementWriter extends AutoCloseable {
+
+    CompletableFuture<Boolean> write(PendingTopUp topUp, PaymentGateway.Result result);
+
+    @Override
+    default void close() {
+    }
+}
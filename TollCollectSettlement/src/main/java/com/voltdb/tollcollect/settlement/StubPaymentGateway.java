@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.settlement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A local stand-in for a payment gateway. Every call takes {@code latencyMillis}, whatever its size, the way
+ * the round trip to a remote gateway dominates the cost of a charge. The payment methods of
+ * {@code declinePercent} percent of the accounts are declined, always the same accounts.
+ */
+public class StubPaymentGateway implements PaymentGateway {
+
+    private final int declinePercent;
+    private final long latencyMillis;
+    private final int maxBatchSize;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong charges = new AtomicLong();
+
+    public StubPaymentGateway() {
+        this(5, 20, 100);
+    }
+
+    public StubPaymentGateway(int declinePercent, long latencyMillis, int maxBatchSize) {
+        this.declinePercent = declinePercent;
+        this.latencyMillis = latencyMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public List<Result> charge(List<Request> requests) throws IOException {
+        if (requests.size() > maxBatchSize) {
+            throw new IOException("Batch of " + requests.size() + " charges exceeds " + maxBatchSize);
+        }
+        if (latencyMillis > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        }
+        long call = calls.incrementAndGet();
+        List<Result> results = new ArrayList<>(requests.size());
+        for (Request request : requests) {
+            if (declines(request.accountId())) {
+                results.add(new Result(false, null, "card_declined"));
+            } else {
+                results.add(new Result(true, "stub-" + call + "-" + request.idempotencyKey(), null));
+            }
+        }
+        charges.addAndGet(requests.size());
+        return results;
+    }
+
+    boolean declines(int accountId) {
+        return Math.floorMod(accountId * 0x9E3779B1, 100) < declinePercent;
+    }
+
+    long calls() {
+        return calls.get();
+    }
+
+    long charges() {
+        return charges.get();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.settlement;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Gathers the top-ups of each account until the first of them is {@code windowMillis} old, so that an account
+ * topping up several times in a row is charged once. Accounts are kept in the order of their first top-up, so
+ * the due ones are always at the head. While more than {@code maxPendingAccounts} accounts are pending, the
+ * oldest are released early.
+ * <p>
+ * Not thread safe, the settler uses it from its consumer thread only.
+ */
+final class TopUpCoalescer {
+
+    private final long windowNanos;
+    private final int maxPendingAccounts;
+    private final LinkedHashMap<Integer, PendingTopUp> pending = new LinkedHashMap<>();
+    private int pendingTopUps;
+    private long earlyReleases;
+
+    TopUpCoalescer(long windowMillis, int maxPendingAccounts) {
+        this.windowNanos = windowMillis * 1_000_000;
+        this.maxPendingAccounts = maxPendingAccounts;
+    }
+
+    void add(TopUpEvent event, int partition, long offset, long nowNanos) {
+        if (pending.computeIfAbsent(event.accountId(), accountId -> new PendingTopUp(accountId, nowNanos))
+                .add(event, partition, offset)) {
+            pendingTopUps++;
+        }
+    }
+
+    /**
+     * Removes and returns the accounts whose window has passed, oldest first.
+     */
+    List<PendingTopUp> releaseDue(long nowNanos) {
+        List<PendingTopUp> due = new ArrayList<>();
+        Iterator<PendingTopUp> oldest = pending.values().iterator();
+        while (oldest.hasNext()) {
+            PendingTopUp topUp = oldest.next();
+            boolean overLimit = pending.size() > maxPendingAccounts;
+            if (!overLimit && nowNanos - topUp.firstReadNanos() < windowNanos) {
+                break;
+            }
+            if (overLimit) {
+                earlyReleases++;
+            }
+            oldest.remove();
+            pendingTopUps -= topUp.size();
+            due.add(topUp);
+        }
+        return due;
+    }
+
+    int pendingAccounts() {
+        return pending.size();
+    }
+
+    int pendingTopUps() {
+        return pendingTopUps;
+    }
+
+    long earlyReleases() {
+        return earlyReleases;
+    }
+}
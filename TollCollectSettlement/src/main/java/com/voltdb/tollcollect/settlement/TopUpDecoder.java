@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.settlement;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+
+/**
+ * Decodes the CSV values Volt exports from {@code top_up_stream} to {@code top_up_topic}:
+ * <pre>
+ * acct_tx_id,acct_tx_timestamp,account_id,topup_amount
+ * </pre>
+ * optionally preceded by the six export metadata columns, which are skipped. Fields may be quoted. Timestamps
+ * are {@code yyyy-MM-dd HH:mm:ss[.SSS...]} in UTC, or a number of microseconds or milliseconds since the epoch.
+ * <p>
+ * There is one top-up for many scans, so unlike the bill by mail decoder of TollCollectInvoicing this one
+ * simply splits the value into strings.
+ */
+final class TopUpDecoder {
+
+    private static final int COLUMNS = 4;
+    private static final int METADATA_COLUMNS = 6;
+
+    // Numbers from here on are microseconds, below are milliseconds, about year 5138 in milliseconds
+    private static final long MICROSECONDS_THRESHOLD = 100_000_000_000_000L;
+
+    private static final DateTimeFormatter TIMESTAMP = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd HH:mm:ss")
+            .optionalStart()
+            .appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true)
+            .optionalEnd()
+            .toFormatter();
+
+    private TopUpDecoder() {
+    }
+
+    /**
+     * Decodes an event, throwing IllegalArgumentException when it does not have the expected columns.
+     */
+    static TopUpEvent decode(byte[] value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Empty top-up event");
+        }
+        String[] fields = new String(value, StandardCharsets.UTF_8).strip().split(",", -1);
+        int first;
+        if (fields.length == COLUMNS) {
+            first = 0;
+        } else if (fields.length == COLUMNS + METADATA_COLUMNS) {
+            first = METADATA_COLUMNS;
+        } else {
+            throw new IllegalArgumentException("Expected " + COLUMNS + " columns, found " + fields.length);
+        }
+
+        try {
+            long acctTxId = Long.parseLong(unquote(fields[first]));
+            long acctTxTimestamp = parseTimestamp(unquote(fields[first + 1]));
+            int accountId = Integer.parseInt(unquote(fields[first + 2]));
+            BigDecimal topUpAmount = new BigDecimal(unquote(fields[first + 3]));
+            return new TopUpEvent(acctTxId, acctTxTimestamp, accountId, topUpAmount);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid top-up event", e);
+        }
+    }
+
+    private static String unquote(String field) {
+        if (field.length() >= 2 && field.charAt(0) == '"' && field.charAt(field.length() - 1) == '"') {
+            return field.substring(1, field.length() - 1);
+        }
+        return field;
+    }
+
+    private static long parseTimestamp(String field) {
+        if (field.length() >= 19 && field.charAt(4) == '-') {
+            return LocalDateTime.parse(field, TIMESTAMP).toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        long number = Long.parseLong(field);
+        return number >= MICROSECONDS_THRESHOLD ? number / 1000 : number;
+    }
+}
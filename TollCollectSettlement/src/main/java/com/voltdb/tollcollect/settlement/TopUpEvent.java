@@ -0,0 +1,17 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.settlement;
+
+import java.math.BigDecimal;
+
+/**
+ * An auto top-up credited by ChargeAccount, as exported to {@code top_up_topic}. The timestamp is in
+ * milliseconds since the epoch.
+ */
+record TopUpEvent(long acctTxId, long acctTxTimestamp, int accountId, BigDecimal topUpAmount) {
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.settlement;
+
+import com.voltdb.tollcollect.metrics.MetricsRegistry;
+import com.voltdb.tollcollect.metrics.MetricsServer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Consumes {@code top_up_topic}, charges the payment method of every account for the auto top-ups ChargeAccount
+ * credited, and writes the outcome back to Volt with the SettleTopUp procedure.
+ * <pre>
+ * java -jar TollCollectSettlement-1.0-SNAPSHOT.jar --servers=localhost --topicServers=localhost:9092
+ * </pre>
+ * The top-ups of an account are gathered for {@code --windowMillis} by a {@link TopUpCoalescer} and charged as
+ * one amount. Every half window the accounts whose window has passed are released and sent to the
+ * {@link PaymentGateway} in batches of up to its {@link PaymentGateway#maxBatchSize()} accounts, so at peak a
+ * gateway call covers many top-ups instead of one. A batch the gateway fails to process is sent again with
+ * increasing pauses; a declined charge is settled as REVERSED, which takes the credit back.
+ * <p>
+ * Offsets are committed to the consumer group every {@code --commitSeconds} up to the first top-up whose
+ * settlement is not written yet, see {@link SettledOffsets}. After a restart, top-ups are read again from
+ * there: SettleTopUp skips the top-ups it already settled, and the gateway recognises the charges it already
+ * made by their idempotency key. Settlements that fail to be written are written again at the next release.
+ * <p>
+ * {@code --moneyModel=cents} settles the top-ups of ddl/other/create_db_cents.sql with SettleTopUpCents.
+ */
+public class TopUpSettler {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(200);
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final long MIN_RETRY_PAUSE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MAX_RETRY_PAUSE_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private record Settlement(PendingTopUp topUp, PaymentGateway.Result result) {
+    }
+
+    private final Consumer<byte[], byte[]> consumer;
+    private final String topic;
+    private final PaymentGateway gateway;
+    private final SettlementWriter writer;
+    private final TopUpCoalescer coalescer;
+    private final long releaseIntervalNanos;
+    private final long commitIntervalNanos;
+    private final Duration pollTimeout;
+    private final SettledOffsets offsets = new SettledOffsets();
+    private final Queue<Settlement> failedWrites = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder undecodable = new LongAdder();
+    private final LongAdder gatewayCalls = new LongAdder();
+    private final LongAdder gatewayErrors = new LongAdder();
+    private final LongAdder charges = new LongAdder();
+    private final LongAdder settled = new LongAdder();
+    private final LongAdder reversed = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private volatile boolean running = true;
+    private final Map<Integer, Long> committed = new HashMap<>();
+    private List<TopicPartition> partitions;
+
+    TopUpSettler(Consumer<byte[], byte[]> consumer,
+                 String topic,
+                 PaymentGateway gateway,
+                 SettlementWriter writer,
+                 long windowMillis,
+                 int maxPendingAccounts,
+                 int commitSeconds) {
+        this.consumer = consumer;
+        this.topic = topic;
+        this.gateway = gateway;
+        this.writer = writer;
+        this.coalescer = new TopUpCoalescer(windowMillis, maxPendingAccounts);
+        this.releaseIntervalNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(windowMillis) / 2);
+        this.commitIntervalNanos = TimeUnit.SECONDS.toNanos(commitSeconds);
+        this.pollTimeout = Duration.ofNanos(Math.min(POLL_TIMEOUT.toNanos(), releaseIntervalNanos));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, options.getOrDefault("topicServers", "localhost:9092"));
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, options.getOrDefault("groupId", "tollcollect-settlement"));
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+
+        PaymentGateway gateway = createGateway(options);
+        SettlementWriter writer = new VoltSettlementWriter(
+                options.getOrDefault("servers", "localhost"),
+                Integer.parseInt(options.getOrDefault("inflight", "100")),
+                "cents".equals(options.getOrDefault("moneyModel", "decimal")));
+        TopUpSettler settler = new TopUpSettler(
+                new KafkaConsumer<>(properties),
+                options.getOrDefault("topic", "top_up_topic"),
+                gateway,
+                writer,
+                Long.parseLong(options.getOrDefault("windowMillis", "1000")),
+                Integer.parseInt(options.getOrDefault("maxPendingAccounts", "100000")),
+                Integer.parseInt(options.getOrDefault("commitSeconds", "5")));
+
+        int metricsPort = Integer.parseInt(options.getOrDefault("metricsPort", "0"));
+        if (metricsPort > 0) {
+            settler.registerMetrics(MetricsRegistry.defaultRegistry());
+            MetricsServer.start(metricsPort, MetricsRegistry.defaultRegistry());
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(settler::stop, "top-up-settler-stop"));
+        settler.run();
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    static PaymentGateway createGateway(Map<String, String> options) throws ReflectiveOperationException {
+        String gateway = options.getOrDefault("gateway", "stub");
+        if (gateway.equals("stub")) {
+            return new StubPaymentGateway(
+                    Integer.parseInt(options.getOrDefault("declinePercent", "5")),
+                    Long.parseLong(options.getOrDefault("gatewayLatencyMillis", "20")),
+                    Integer.parseInt(options.getOrDefault("batchSize", "100")));
+        }
+        return Class.forName(gateway).asSubclass(PaymentGateway.class).getConstructor().newInstance();
+    }
+
+    void registerMetrics(MetricsRegistry registry) {
+        registry.registerCounter("tollcollect_settlement_topups_total", "Top-up events consumed",
+                events::sum);
+        registry.registerCounter("tollcollect_settlement_undecodable_total", "Top-up events skipped",
+                undecodable::sum);
+        registry.registerCounter("tollcollect_settlement_gateway_calls_total", "Batches sent to the payment gateway",
+                gatewayCalls::sum);
+        registry.registerCounter("tollcollect_settlement_gateway_errors_total", "Batches the gateway failed to process",
+                gatewayErrors::sum);
+        registry.registerCounter("tollcollect_settlement_settled_total", "Top-ups charged and settled",
+                settled::sum);
+        registry.registerCounter("tollcollect_settlement_reversed_total", "Top-ups declined and reversed",
+                reversed::sum);
+        registry.registerCounter("tollcollect_settlement_write_failures_total", "Settlements not written to Volt",
+                writeFailures::sum);
+        registry.registerGauge("tollcollect_settlement_unsettled", "Top-ups read and not settled yet",
+                offsets::unsettled);
+    }
+
+    /**
+     * Settles top-ups until {@link #stop()} is called, then waits for the settlements being written, commits
+     * their offsets and closes the consumer, the gateway and the writer. Top-ups still gathered are settled
+     * after the next start.
+     */
+    void run() {
+        try {
+            assign();
+            long start = System.nanoTime();
+            long nextReleaseNanos = start + releaseIntervalNanos;
+            long nextCommitNanos = start + commitIntervalNanos;
+            long nextProgressNanos = start + PROGRESS_INTERVAL_NANOS;
+            while (running) {
+                for (ConsumerRecord<byte[], byte[]> record : consumer.poll(pollTimeout)) {
+                    long now = System.nanoTime();
+                    try {
+                        coalescer.add(TopUpDecoder.decode(record.value()), record.partition(), record.offset(), now);
+                        offsets.read(record.partition(), record.offset(), false);
+                        events.increment();
+                    } catch (IllegalArgumentException e) {
+                        offsets.read(record.partition(), record.offset(), true);
+                        undecodable.increment();
+                    }
+                }
+
+                long now = System.nanoTime();
+                if (now >= nextReleaseNanos) {
+                    nextReleaseNanos = now + releaseIntervalNanos;
+                    retryFailedWrites();
+                    settle(coalescer.releaseDue(now));
+                }
+                if (now >= nextCommitNanos) {
+                    nextCommitNanos = now + commitIntervalNanos;
+                    commit(false);
+                }
+                if (now >= nextProgressNanos) {
+                    nextProgressNanos = now + PROGRESS_INTERVAL_NANOS;
+                    System.out.println(report((now - start) / 1_000_000_000.0));
+                }
+            }
+        } catch (WakeupException e) {
+            // stopping
+        } finally {
+            try {
+                writer.close();
+                if (partitions != null) {
+                    finalCommit();
+                }
+            } finally {
+                consumer.close();
+                gateway.close();
+                stopped.countDown();
+            }
+        }
+    }
+
+    void stop() {
+        running = false;
+        consumer.wakeup();
+        try {
+            stopped.await(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long eventCount() {
+        return events.sum();
+    }
+
+    long gatewayCallCount() {
+        return gatewayCalls.sum();
+    }
+
+    long settledCount() {
+        return settled.sum();
+    }
+
+    long reversedCount() {
+        return reversed.sum();
+    }
+
+    private String report(double seconds) {
+        long calls = gatewayCalls.sum();
+        return String.format("Settlement: %,d top-ups (%,.0f/s), %,d undecodable, %,d gateway calls "
+                        + "(%.1f top-ups, %.1f accounts per call), %,d gateway errors, %,d settled, %,d reversed, "
+                        + "%,d write failures, %,d unsettled, %,d early releases",
+                events.sum(), events.sum() / seconds, undecodable.sum(), calls,
+                calls == 0 ? 0.0 : (double) (settled.sum() + reversed.sum()) / calls,
+                calls == 0 ? 0.0 : (double) charges.sum() / calls,
+                gatewayErrors.sum(), settled.sum(), reversed.sum(), writeFailures.sum(), offsets.unsettled(),
+                coalescer.earlyReleases());
+    }
+
+    // Assigns every partition of the topic and resumes from the offsets committed to the group
+    private void assign() {
+        partitions = new ArrayList<>();
+        for (PartitionInfo partition : consumer.partitionsFor(topic)) {
+            partitions.add(new TopicPartition(topic, partition.partition()));
+        }
+        consumer.assign(partitions);
+        Map<TopicPartition, OffsetAndMetadata> groupOffsets = consumer.committed(new HashSet<>(partitions));
+        for (TopicPartition partition : partitions) {
+            OffsetAndMetadata offset = groupOffsets.get(partition);
+            if (offset != null) {
+                consumer.seek(partition, offset.offset());
+                committed.put(partition.partition(), offset.offset());
+            } else {
+                consumer.seekToBeginning(List.of(partition));
+            }
+        }
+        System.out.printf("Settling top-ups of %s from %d partitions, %d of them resumed%n",
+                topic, partitions.size(), committed.size());
+    }
+
+    private void settle(List<PendingTopUp> due) {
+        int batchSize = gateway.maxBatchSize();
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<PendingTopUp> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+            List<PaymentGateway.Request> requests = new ArrayList<>(batch.size());
+            for (PendingTopUp topUp : batch) {
+                requests.add(new PaymentGateway.Request(topUp.idempotencyKey(), topUp.accountId(),
+                        topUp.totalAmount()));
+            }
+            List<PaymentGateway.Result> results = charge(requests);
+            if (results == null) {
+                // Stopping, the batch is charged again after the next start
+                return;
+            }
+            charges.add(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                write(new Settlement(batch.get(i), results.get(i)));
+            }
+        }
+    }
+
+    // Sends a batch until the gateway processes it, or returns null when stopped first
+    private List<PaymentGateway.Result> charge(List<PaymentGateway.Request> requests) {
+        long pauseNanos = MIN_RETRY_PAUSE_NANOS;
+        while (running) {
+            gatewayCalls.increment();
+            try {
+                List<PaymentGateway.Result> results = gateway.charge(requests);
+                if (results.size() == requests.size()) {
+                    return results;
+                }
+                System.err.printf("Payment gateway returned %d results for %d charges%n",
+                        results.size(), requests.size());
+            } catch (IOException e) {
+                System.err.println("Payment gateway failed: " + e.getMessage());
+            }
+            gatewayErrors.increment();
+            LockSupport.parkNanos(pauseNanos);
+            pauseNanos = Math.min(pauseNanos * 2, MAX_RETRY_PAUSE_NANOS);
+        }
+        return null;
+    }
+
+    private void write(Settlement settlement) {
+        writer.write(settlement.topUp(), settlement.result())
+                .whenComplete((written, error) -> {
+                    if (error == null && written) {
+                        for (PendingTopUp.Read read : settlement.topUp().reads()) {
+                            offsets.settled(read.partition(), read.offset());
+                        }
+                        (settlement.result().approved() ? settled : reversed).add(settlement.topUp().size());
+                    } else {
+                        writeFailures.increment();
+                        failedWrites.add(settlement);
+                    }
+                });
+    }
+
+    private void retryFailedWrites() {
+        for (int i = failedWrites.size(); i > 0; i--) {
+            Settlement settlement = failedWrites.poll();
+            if (settlement == null) {
+                return;
+            }
+            write(settlement);
+        }
+    }
+
+    private void finalCommit() {
+        try {
+            commit(true);
+        } catch (WakeupException e) {
+            // A stop outside of poll leaves the wakeup for the next call, which is now done
+            commit(true);
+        }
+    }
+
+    private void commit(boolean sync) {
+        Map<TopicPartition, OffsetAndMetadata> changed = new HashMap<>();
+        for (Map.Entry<Integer, Long> offset : offsets.committable().entrySet()) {
+            if (!offset.getValue().equals(committed.get(offset.getKey()))) {
+                changed.put(new TopicPartition(topic, offset.getKey()), new OffsetAndMetadata(offset.getValue()));
+            }
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        if (sync) {
+            consumer.commitSync(changed);
+            recordCommitted(changed);
+        } else {
+            // The callback runs on this thread, during a later poll
+            consumer.commitAsync(changed, (done, error) -> {
+                if (error == null) {
+                    recordCommitted(done);
+                }
+            });
+        }
+    }
+
+    private void recordCommitted(Map<TopicPartition, OffsetAndMetadata> offsets) {
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> offset : offsets.entrySet()) {
+            committed.put(offset.getKey().partition(), offset.getValue().offset());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.settlement;
+
+import org.voltdb.client.Client2;
+import org.voltdb.client.Client2Config;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ClientResponse;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Writes settlements with the SettleTopUp procedure, one call per account, routed to the partition of the
+ * account. At most {@code inflight} calls are outstanding; {@link #write} blocks the settler when they are.
+ * With the cents money model of ddl/other/create_db_cents.sql, SettleTopUpCents is called with the amounts in
+ * cents instead.
+ */
+final class VoltSettlementWriter implements SettlementWriter {
+
+    private final Client2 client;
+    private final Semaphore permits;
+    private final boolean centsMoneyModel;
+
+    VoltSettlementWriter(String servers, int inflight, boolean centsMoneyModel) throws IOException {
+        this.client = ClientFactory.createClient(new Client2Config().clientRequestLimit(inflight));
+        this.permits = new Semaphore(inflight);
+        this.centsMoneyModel = centsMoneyModel;
+        client.connectSync(servers);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> write(PendingTopUp topUp, PaymentGateway.Result result) {
+        permits.acquireUninterruptibly();
+        return client.callProcedureAsync(centsMoneyModel ? "SettleTopUpCents" : "SettleTopUp",
+                        topUp.accountId(),
+                        topUp.acctTxIds(),
+                        centsMoneyModel ? cents(topUp.amounts()) : topUp.amounts(),
+                        result.approved() ? 1 : 0,
+                        result.approved() ? result.reference() : result.declineReason())
+                .whenComplete((response, error) -> permits.release())
+                .thenApply(response -> response.getStatus() == ClientResponse.SUCCESS);
+    }
+
+    // The cents schema exports the top-up amount as a BIGINT number of cents
+    private static long[] cents(BigDecimal[] amounts) {
+        long[] cents = new long[amounts.length];
+        for (int i = 0; i < amounts.length; i++) {
+            cents[i] = amounts[i].longValueExact();
+        }
+        return cents;
+    }
+
+    @Override
+    public void close() {
+        try {
+            client.drain();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        client.close();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.settlement;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TopUpCoalescerTest {
+
+    private static final long MILLI = 1_000_000;
+
+    @Test
+    void decoder() {
+        TopUpEvent event = TopUpDecoder.decode(bytes("42,\"2025-03-01 12:34:56.789\",17,30.000000000000"));
+        assertEquals(42, event.acctTxId(), "transaction id");
+        assertEquals(Instant.parse("2025-03-01T12:34:56.789Z").toEpochMilli(), event.acctTxTimestamp(), "timestamp");
+        assertEquals(17, event.accountId(), "account");
+        assertEquals(0, event.topUpAmount().compareTo(BigDecimal.valueOf(30)), "amount " + event.topUpAmount());
+
+        // Export metadata columns and a microsecond timestamp
+        event = TopUpDecoder.decode(bytes("1,2,3,4,5,6,7,1740832496789000,9,30\n"));
+        assertEquals(7, event.acctTxId(), "transaction id after metadata");
+        assertEquals(1740832496789L, event.acctTxTimestamp(), "microsecond timestamp");
+
+        for (String invalid : new String[]{"1,2,3", "x,2025-03-01 00:00:00,1,30", "1,2025-03-01,1,30", ""}) {
+            assertThrows(IllegalArgumentException.class, () -> TopUpDecoder.decode(bytes(invalid)), invalid);
+        }
+    }
+
+    @Test
+    void window() {
+        TopUpCoalescer coalescer = new TopUpCoalescer(100, 1000);
+        coalescer.add(topUp(1, 10), 0, 0, 0);
+        coalescer.add(topUp(2, 20), 0, 1, 10 * MILLI);
+        coalescer.add(topUp(3, 10), 0, 2, 50 * MILLI);
+        assertEquals(2, coalescer.pendingAccounts(), "pending accounts");
+        assertEquals(0, coalescer.releaseDue(99 * MILLI).size(), "released within the window");
+
+        // Account 10 is due, account 20 is not, although its top-up was read before the second of account 10
+        List<PendingTopUp> due = coalescer.releaseDue(100 * MILLI);
+        assertEquals(1, due.size(), "released accounts");
+        PendingTopUp account = due.get(0);
+        assertEquals(10, account.accountId(), "released account");
+        assertEquals(2, account.size(), "coalesced top-ups");
+        assertEquals(60, account.totalAmount().intValueExact(), "coalesced amount");
+        assertEquals(3, account.acctTxIds()[1], "second transaction id");
+        assertEquals("topup-10-1", account.idempotencyKey(), "idempotency key");
+        assertEquals(1, coalescer.pendingTopUps(), "pending top-ups");
+
+        // A top-up after the release starts a new window
+        coalescer.add(topUp(4, 10), 0, 3, 120 * MILLI);
+        due = coalescer.releaseDue(200 * MILLI);
+        assertEquals(1, due.size(), "second release");
+        assertEquals(20, due.get(0).accountId(), "second released account");
+        assertEquals(1, coalescer.pendingAccounts(), "accounts left");
+    }
+
+    // Export delivers at least once, a top-up read again is charged once but both offsets are kept
+    @Test
+    void duplicates() {
+        TopUpCoalescer coalescer = new TopUpCoalescer(100, 1000);
+        coalescer.add(topUp(1, 10), 0, 0, 0);
+        coalescer.add(topUp(1, 10), 0, 1, 0);
+        assertEquals(1, coalescer.pendingTopUps(), "pending top-ups");
+
+        PendingTopUp account = coalescer.releaseDue(100 * MILLI).get(0);
+        assertEquals(1, account.size(), "top-ups");
+        assertEquals(1, account.acctTxIds().length, "transaction ids");
+        assertEquals(30, account.totalAmount().intValueExact(), "charged once");
+        assertEquals(2, account.reads().size(), "offsets to commit");
+        assertEquals(0, coalescer.pendingTopUps(), "pending top-ups after the release");
+    }
+
+    @Test
+    void bound() {
+        TopUpCoalescer coalescer = new TopUpCoalescer(1000, 100);
+        for (int i = 0; i < 150; i++) {
+            coalescer.add(topUp(i, i), 0, i, i);
+        }
+        List<PendingTopUp> due = coalescer.releaseDue(1000);
+        assertEquals(50, due.size(), "accounts released early");
+        assertEquals(0, due.get(0).accountId(), "oldest account released first");
+        assertEquals(50, coalescer.earlyReleases(), "early releases");
+        assertEquals(100, coalescer.pendingAccounts(), "accounts kept");
+    }
+
+    @Test
+    void offsets() {
+        SettledOffsets offsets = new SettledOffsets();
+        offsets.read(0, 10, false);
+        offsets.read(0, 11, true);
+        offsets.read(0, 12, false);
+        offsets.read(1, 5, false);
+        assertEquals(10, offsets.committable().get(0), "first unsettled offset");
+        offsets.settled(0, 12);
+        assertEquals(10, offsets.committable().get(0), "offset held by an earlier top-up");
+        offsets.settled(0, 10);
+        offsets.settled(1, 5);
+        Map<Integer, Long> committable = offsets.committable();
+        assertEquals(13, committable.get(0), "next offset of partition 0");
+        assertEquals(6, committable.get(1), "next offset of partition 1");
+        assertEquals(0, offsets.unsettled(), "unsettled");
+    }
+
+    private static TopUpEvent topUp(long acctTxId, int accountId) {
+        return new TopUpEvent(acctTxId, 0, accountId, BigDecimal.valueOf(30));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
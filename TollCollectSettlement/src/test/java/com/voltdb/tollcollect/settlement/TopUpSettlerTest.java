@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.settlement;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopUpSettlerTest {
+
+    private static final String TOPIC = "top_up_topic";
+    private static final int PARTITIONS = 2;
+    private static final int ACCOUNTS = 4_000;
+    private static final int TOP_UPS = 10_000;
+    private static final BigDecimal TOP_UP_AMOUNT = BigDecimal.valueOf(30);
+
+    /**
+     * Stands in for SettleTopUp: records each top-up once and sums the reversed amounts per account. Every
+     * 25th write fails the first time.
+     */
+    private static final class Ledger implements SettlementWriter {
+        private final Map<Long, Boolean> settlements = new ConcurrentHashMap<>();
+        private final Map<Integer, BigDecimal> reversedAmounts = new ConcurrentHashMap<>();
+        private final AtomicInteger writes = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final ExecutorService completions = Executors.newSingleThreadExecutor();
+
+        @Override
+        public CompletableFuture<Boolean> write(PendingTopUp topUp, PaymentGateway.Result result) {
+            boolean fail = writes.incrementAndGet() % 25 == 0;
+            return CompletableFuture.supplyAsync(() -> {
+                if (fail) {
+                    failures.incrementAndGet();
+                    return false;
+                }
+                synchronized (this) {
+                    for (int i = 0; i < topUp.size(); i++) {
+                        if (settlements.putIfAbsent(topUp.acctTxIds()[i], result.approved()) == null
+                                && !result.approved()) {
+                            reversedAmounts.merge(topUp.accountId(), topUp.amounts()[i], BigDecimal::add);
+                        }
+                    }
+                }
+                return true;
+            }, completions);
+        }
+
+        @Override
+        public void close() {
+            completions.shutdown();
+        }
+    }
+
+    @Test
+    void settlesEveryTopUpOnce() throws Exception {
+        // A burst of top-ups, a few accounts topping up several times
+        SplittableRandom random = new SplittableRandom(42);
+        List<List<byte[]>> events = new ArrayList<>();
+        for (int p = 0; p < PARTITIONS; p++) {
+            events.add(new ArrayList<>());
+        }
+        Map<Integer, BigDecimal> toppedUp = new HashMap<>();
+        for (int i = 0; i < TOP_UPS; i++) {
+            int accountId = i < ACCOUNTS ? i : random.nextInt(ACCOUNTS);
+            String value = i + ",\"2025-03-01 12:00:00.000\"," + accountId + "," + TOP_UP_AMOUNT;
+            events.get(accountId % PARTITIONS).add(value.getBytes(StandardCharsets.UTF_8));
+            toppedUp.merge(accountId, TOP_UP_AMOUNT, BigDecimal::add);
+        }
+        events.get(0).add("not a top-up".getBytes(StandardCharsets.UTF_8));
+
+        StubPaymentGateway gateway = new StubPaymentGateway(10, 1, 100);
+        Ledger ledger = new Ledger();
+        MockConsumer<byte[], byte[]> consumer = consumer(events);
+        TopUpSettler settler = new TopUpSettler(consumer, TOPIC, gateway, ledger, 200, 100_000, 1);
+        Thread thread = new Thread(settler::run);
+        thread.start();
+        // Settlements are written and their offsets committed every second
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        Map<TopicPartition, OffsetAndMetadata> committed = Map.of();
+        while (!allCommitted(committed, events) && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            committed = consumer.committed(partitions());
+        }
+        settler.stop();
+        thread.join();
+
+        assertEquals(TOP_UPS, settler.eventCount(), "top-ups read");
+        assertEquals(TOP_UPS, ledger.settlements.size(), "top-ups settled");
+        assertEquals(TOP_UPS, settler.settledCount() + settler.reversedCount(), "settled and reversed top-ups");
+        assertNotEquals(0, ledger.failures.get(), "writes failed and written again");
+
+        // Coalescing and batching cut gateway calls by more than an order of magnitude
+        assertTrue(gateway.calls() * 10 <= TOP_UPS, gateway.calls() + " gateway calls for " + TOP_UPS + " top-ups");
+        assertEquals(ACCOUNTS, gateway.charges(), "charges, one per account");
+
+        // Exactly the top-ups of the declined accounts are reversed
+        Map<Integer, BigDecimal> expectedReversals = new HashMap<>();
+        toppedUp.forEach((accountId, amount) -> {
+            if (gateway.declines(accountId)) {
+                expectedReversals.put(accountId, amount);
+            }
+        });
+        assertFalse(expectedReversals.isEmpty(), "declined accounts");
+        assertEquals(expectedReversals, ledger.reversedAmounts, "reversed amounts");
+
+        assertTrue(allCommitted(committed, events), "committed offsets " + committed);
+    }
+
+    private static MockConsumer<byte[], byte[]> consumer(List<List<byte[]>> events) {
+        MockConsumer<byte[], byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        Map<TopicPartition, Long> beginning = new HashMap<>();
+        for (int p = 0; p < PARTITIONS; p++) {
+            partitions.add(new PartitionInfo(TOPIC, p, null, null, null));
+            beginning.put(new TopicPartition(TOPIC, p), 0L);
+        }
+        consumer.updatePartitions(TOPIC, partitions);
+        consumer.updateBeginningOffsets(beginning);
+        // Records can only be added once the settler assigned the partitions
+        consumer.schedulePollTask(() -> {
+            for (int p = 0; p < PARTITIONS; p++) {
+                List<byte[]> partitionEvents = events.get(p);
+                for (int i = 0; i < partitionEvents.size(); i++) {
+                    consumer.addRecord(new ConsumerRecord<>(TOPIC, p, i, null, partitionEvents.get(i)));
+                }
+            }
+        });
+        return consumer;
+    }
+
+    private static Set<TopicPartition> partitions() {
+        Set<TopicPartition> partitions = new HashSet<>();
+        for (int p = 0; p < PARTITIONS; p++) {
+            partitions.add(new TopicPartition(TOPIC, p));
+        }
+        return partitions;
+    }
+
+    private static boolean allCommitted(Map<TopicPartition, OffsetAndMetadata> committed, List<List<byte[]>> events) {
+        for (int p = 0; p < PARTITIONS; p++) {
+            OffsetAndMetadata offset = committed.get(new TopicPartition(TOPIC, p));
+            if (offset == null || offset.offset() != events.get(p).size()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
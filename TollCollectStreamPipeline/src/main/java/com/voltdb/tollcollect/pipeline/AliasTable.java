@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Walker's alias method: samples an index from a fixed discrete distribution in constant time using a
+ * single random long and no allocation.
+ */
+final class AliasTable {
+
+    private static final double THRESHOLD_SCALE = 0x1p31;
+
+    private final int[] alias;
+    private final int[] threshold;
+
+    AliasTable(double[] probabilities) {
+        int n = probabilities.length;
+        alias = new int[n];
+        threshold = new int[n];
+
+        double sum = 0;
+        for (double probability : probabilities) {
+            sum += probability;
+        }
+
+        double[] scaled = new double[n];
+        Deque<Integer> small = new ArrayDeque<>();
+        Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            scaled[i] = probabilities[i] * n / sum;
+            if (scaled[i] < 1.0) {
+                small.push(i);
+            } else {
+                large.push(i);
+            }
+        }
+
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+
+            threshold[less] = (int) (scaled[less] * THRESHOLD_SCALE);
+            alias[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small.push(more);
+            } else {
+                large.push(more);
+            }
+        }
+
+        // Whatever is left has probability 1 up to rounding error
+        while (!large.isEmpty()) {
+            int index = large.pop();
+            threshold[index] = Integer.MAX_VALUE;
+            alias[index] = index;
+        }
+        while (!small.isEmpty()) {
+            int index = small.pop();
+            threshold[index] = Integer.MAX_VALUE;
+            alias[index] = index;
+        }
+    }
+
+    int size() {
+        return alias.length;
+    }
+
+    /**
+     * Uses the high 32 bits to pick a column and the low 31 bits to choose between it and its alias.
+     */
+    int sample(long random) {
+        int column = (int) (((random >>> 32) * alias.length) >>> 32);
+        int uniform = (int) random & Integer.MAX_VALUE;
+        return uniform < threshold[column] ? column : alias[column];
+    }
+}
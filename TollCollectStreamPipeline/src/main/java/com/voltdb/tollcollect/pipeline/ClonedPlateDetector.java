@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.voltdb.client.Client2;
+import org.voltdb.client.Client2Config;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcCallException;
+import org.voltdb.stream.api.ExecutionContext;
+import org.voltdb.stream.api.pipeline.VoltStreamFunction;
+import org.voltdb.types.TimestampType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Pass-through stage flagging plates seen at two toll locations too far apart for the time between the scans,
+ * a sign of a cloned plate.
+ * <p>
+ * The last sighting of every plate is kept in {@link PlateSightings}, and the shortest travel times between the
+ * locations are computed once from TOLL_LOCATIONS at {@code maxSpeedKmh}. Every record is passed on before it
+ * is checked, and impossible pairs are sent to ReportClonedPlate asynchronously, which writes them to
+ * cloned_plate_stream and so to cloned_plate_topic. At most {@code maxReportsInFlight} reports are outstanding;
+ * reports beyond that are counted and dropped rather than slowing down the pipeline.
+ * <p>
+ * The connection for the reports is opened with the first record and closed by {@link #close()}, which a
+ * shutdown hook calls when nothing else did.
+ */
+public class ClonedPlateDetector implements VoltStreamFunction<PlateRecord, PlateRecord>, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClonedPlateDetector.class);
+
+    private final String servers;
+    private final double maxSpeedKmh;
+    private final int maxPlates;
+    private final int stripes;
+    private final long cooldownMillis;
+    private final Semaphore reportPermits;
+    private final long reportIntervalNanos;
+
+    private final ThreadLocal<PlateSightings.Conflict> conflicts = ThreadLocal.withInitial(PlateSightings.Conflict::new);
+    private final LongAdder sightings = new LongAdder();
+    private final LongAdder unknownLocations = new LongAdder();
+    private final LongAdder flagged = new LongAdder();
+    private final LongAdder reported = new LongAdder();
+    private final LongAdder reportsDropped = new LongAdder();
+    private final LongAdder reportsFailed = new LongAdder();
+    private final AtomicLong lastReportNanos = new AtomicLong(System.nanoTime());
+
+    private volatile TollLocationDistances distances;
+    private volatile PlateSightings plateSightings;
+    private volatile Client2 client;
+
+    public ClonedPlateDetector(String servers,
+                               double maxSpeedKmh,
+                               int maxPlates,
+                               int stripes,
+                               int cooldownSeconds,
+                               int maxReportsInFlight,
+                               int reportIntervalSeconds) {
+        this.servers = servers;
+        this.maxSpeedKmh = maxSpeedKmh;
+        this.maxPlates = maxPlates;
+        this.stripes = stripes;
+        this.cooldownMillis = TimeUnit.SECONDS.toMillis(cooldownSeconds);
+        this.reportPermits = new Semaphore(maxReportsInFlight);
+        this.reportIntervalNanos = TimeUnit.SECONDS.toNanos(reportIntervalSeconds);
+    }
+
+    @Override
+    public void process(PlateRecord record, Consumer<PlateRecord> consumer, ExecutionContext context) {
+        // Never hold back the scan itself
+        consumer.accept(record);
+
+        PlateSightings sightingsTable = plateSightings;
+        if (sightingsTable == null) {
+            sightingsTable = start();
+        }
+
+        sightings.increment();
+        int location = distances.index(record.location());
+        if (location < 0) {
+            unknownLocations.increment();
+        } else {
+            PlateSightings.Conflict conflict = conflicts.get();
+            long key = PlateSightings.key(record.plateNum());
+            if (sightingsTable.observe(key, record.scanTimestamp(), location, conflict)) {
+                flagged.increment();
+                report(record, location, conflict);
+            }
+        }
+
+        long now = System.nanoTime();
+        long last = lastReportNanos.get();
+        if (now - last >= reportIntervalNanos && lastReportNanos.compareAndSet(last, now)) {
+            LOG.info(statistics());
+        }
+    }
+
+    private void report(PlateRecord record, int location, PlateSightings.Conflict conflict) {
+        Client2 reportClient = client;
+        if (reportClient == null || !reportPermits.tryAcquire()) {
+            reportsDropped.increment();
+            return;
+        }
+
+        // Report the pair in time order, the records may arrive slightly out of order
+        boolean previousFirst = conflict.previousTimestamp() <= record.scanTimestamp();
+        long firstTimestamp = previousFirst ? conflict.previousTimestamp() : record.scanTimestamp();
+        long secondTimestamp = previousFirst ? record.scanTimestamp() : conflict.previousTimestamp();
+        int firstLocation = previousFirst ? conflict.previousLocation() : location;
+        int secondLocation = previousFirst ? location : conflict.previousLocation();
+
+        double distanceKm = distances.distanceKm(firstLocation, secondLocation);
+        double elapsedSeconds = (secondTimestamp - firstTimestamp) / 1000.0;
+        double impliedSpeedKmh = distanceKm / Math.max(elapsedSeconds, 0.001) * 3600;
+
+        reportClient.callProcedureAsync("ReportClonedPlate",
+                        record.plateNum(),
+                        new TimestampType(firstTimestamp * 1000),
+                        distances.location(firstLocation),
+                        new TimestampType(secondTimestamp * 1000),
+                        distances.location(secondLocation),
+                        distanceKm,
+                        elapsedSeconds,
+                        impliedSpeedKmh)
+                .whenComplete((response, error) -> {
+                    reportPermits.release();
+                    if (error == null && response.getStatus() == ClientResponse.SUCCESS) {
+                        reported.increment();
+                    } else {
+                        reportsFailed.increment();
+                        LOG.debug("Unable to report cloned plate {}", record.plateNum(), error);
+                    }
+                });
+    }
+
+    private synchronized PlateSightings start() {
+        if (plateSightings != null) {
+            return plateSightings;
+        }
+
+        Client2 created = ClientFactory.createClient(new Client2Config());
+        try {
+            created.connectSync(servers);
+            distances = TollLocationDistances.fromTable(
+                    created.callProcedureSync("GetReferenceData").getResults()[0], maxSpeedKmh);
+        } catch (IOException e) {
+            created.close();
+            throw new UncheckedIOException("Unable to connect to Volt at " + servers, e);
+        } catch (ProcCallException e) {
+            created.close();
+            throw new IllegalStateException("Unable to load toll locations from " + servers, e);
+        }
+        client = created;
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "cloned-plate-detector-close"));
+
+        PlateSightings sightingsTable = new PlateSightings(distances, maxPlates, stripes, cooldownMillis);
+        LOG.info("Checking plates for travel faster than {} km/h, sightings kept for {} minutes, {} MB",
+                maxSpeedKmh, TimeUnit.MILLISECONDS.toMinutes(distances.maxMinTravelMillis()),
+                sightingsTable.footprintBytes() >> 20);
+        plateSightings = sightingsTable;
+        return sightingsTable;
+    }
+
+    /**
+     * Closes the connection used for the reports. Flagged plates are counted as dropped from then on.
+     */
+    @Override
+    public synchronized void close() {
+        Client2 closing = client;
+        if (closing != null) {
+            client = null;
+            closing.close();
+        }
+    }
+
+    String statistics() {
+        PlateSightings sightingsTable = plateSightings;
+        return String.format("Cloned plates: %d sightings, %d flagged, %d reported, %d dropped, %d failed, "
+                        + "%d unknown locations, %d plates held, early rotations %d",
+                sightings.sum(),
+                flagged.sum(),
+                reported.sum(),
+                reportsDropped.sum(),
+                reportsFailed.sum(),
+                unknownLocations.sum(),
+                sightingsTable == null ? 0 : sightingsTable.size(),
+                sightingsTable == null ? 0 : sightingsTable.earlyRotations());
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.voltdb.stream.api.ExecutionContext;
+import org.voltdb.stream.api.pipeline.VoltStreamFunction;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Drops repeated reads of the same plate at the same location and lane within {@code windowSeconds} of the read
+ * that was let through, so that a gantry reading a plate several times leads to one ProcessPlate transaction.
+ * <p>
+ * Reads are compared by scan timestamp, so replayed traffic is deduplicated the same way as live traffic. Recent
+ * reads are held in a {@link RecentReadSet} of fixed size. Two distinct reads are only confused when their 64-bit
+ * keys collide, which is negligible at the number of keys held. Passed and dropped reads, early rotations and the
+ * memory held are logged every {@code reportIntervalSeconds}. Dropped reads are handed to the
+ * {@link ScanAcknowledger}, they are done.
+ */
+public class DuplicateReadFilter implements VoltStreamFunction<PlateRecord, PlateRecord> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DuplicateReadFilter.class);
+
+    private final RecentReadSet recentReads;
+    private final long reportIntervalNanos;
+    private final ScanAcknowledger acknowledger;
+
+    private final LongAdder passed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong lastReportNanos = new AtomicLong(System.nanoTime());
+
+    public DuplicateReadFilter(int windowSeconds, int maxKeysPerWindow, int stripes, int reportIntervalSeconds) {
+        this(windowSeconds, maxKeysPerWindow, stripes, reportIntervalSeconds, ScanAcknowledger.NONE);
+    }
+
+    public DuplicateReadFilter(int windowSeconds,
+                               int maxKeysPerWindow,
+                               int stripes,
+                               int reportIntervalSeconds,
+                               ScanAcknowledger acknowledger) {
+        this.recentReads = new RecentReadSet(TimeUnit.SECONDS.toMillis(windowSeconds), maxKeysPerWindow, stripes);
+        this.reportIntervalNanos = TimeUnit.SECONDS.toNanos(reportIntervalSeconds);
+        this.acknowledger = acknowledger;
+
+        LOG.info("Dropping repeated reads within {}s, {} stripes holding up to {} reads per window in {} MB",
+                windowSeconds, recentReads.stripes(), maxKeysPerWindow, recentReads.footprintBytes() >> 20);
+    }
+
+    @Override
+    public void process(PlateRecord record, Consumer<PlateRecord> consumer, ExecutionContext context) {
+        long key = RecentReadSet.key(record.plateNum(), record.location(), record.lane());
+        if (recentReads.add(key, record.scanTimestamp())) {
+            passed.increment();
+            consumer.accept(record);
+        } else {
+            dropped.increment();
+            acknowledger.acknowledge(record);
+        }
+
+        long now = System.nanoTime();
+        long last = lastReportNanos.get();
+        if (now - last >= reportIntervalNanos && lastReportNanos.compareAndSet(last, now)) {
+            LOG.info(report());
+        }
+    }
+
+    public long passedCount() {
+        return passed.sum();
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    public long footprintBytes() {
+        return recentReads.footprintBytes();
+    }
+
+    String report() {
+        long passedCount = passedCount();
+        long droppedCount = droppedCount();
+        long total = passedCount + droppedCount;
+        return String.format("Duplicate reads: passed %d, dropped %d (%.1f%%), held %d, early rotations %d, %d MB",
+                passedCount,
+                droppedCount,
+                total == 0 ? 0.0 : droppedCount * 100.0 / total,
+                recentReads.size(),
+                recentReads.earlyRotations(),
+                recentReads.footprintBytes() >> 20);
+    }
+}
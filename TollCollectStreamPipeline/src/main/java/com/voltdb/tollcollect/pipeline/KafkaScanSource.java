@@ -0,0 +1,386 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Reads scan events, see {@link ScanEventFormat}, from a Kafka topic as a record supplier for
+ * {@code Sources.generateAtRate}, and commits the offsets of the scans the pipeline is done with.
+ * <p>
+ * {@code consumers} threads each run a consumer of group {@code groupId}, so the topic's partitions are spread
+ * over them and over every other pipeline in the group. They decode the events into one bounded queue that
+ * {@link #get()} takes from, blocking while it is empty; a consumer pauses its partitions while the queue has no
+ * room for another poll, so a slow pipeline is not buffered without bound. They also pause while
+ * {@code maxPendingScans} scans handed out are not acknowledged yet, which bounds the offsets tracked for the
+ * commits when scans are lost inside the pipeline.
+ * <p>
+ * Offsets are committed in batches: every {@code commitIntervalMillis} each consumer commits, for each of its
+ * partitions, the lowest offset not yet acknowledged through {@link #acknowledge(PlateRecord)}, so a commit never
+ * passes a scan that is still in flight. Sinks acknowledge a scan once its ProcessPlate call completed, whatever
+ * the outcome, so a lost connection or a timeout does not hold the commit of its partition back. Delivery is at
+ * least once for the scans in flight when the pipeline stops, or when their partition moves to another consumer,
+ * which are read again. Acknowledgements are matched by record value, so of two identical scans in flight either
+ * acknowledgement completes either one.
+ * <p>
+ * Events that cannot be decoded are logged and skipped.
+ */
+public class KafkaScanSource implements Supplier<PlateRecord>, ScanAcknowledger, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KafkaScanSource.class);
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+    private static final int MAX_POLL_RECORDS = 500;
+
+    private final Supplier<Consumer<byte[], byte[]>> consumerFactory;
+    private final String topic;
+    private final int consumers;
+    private final long commitIntervalNanos;
+    private final ScanEventFormat format = new ScanEventFormat();
+    private final BlockingQueue<PlateRecord> queue;
+    private final int maxPendingScans;
+    private final Map<PlateRecord, PendingScan> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingScans = new AtomicInteger();
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder undecodable = new LongAdder();
+    private final LongAdder acknowledged = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder failedCommits = new LongAdder();
+
+    private final List<ConsumerThread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    public KafkaScanSource(String bootstrapServers,
+                           String topic,
+                           String groupId,
+                           int consumers,
+                           int queueCapacity,
+                           int maxPendingScans,
+                           int commitIntervalMillis) {
+        this(() -> new KafkaConsumer<>(consumerProperties(bootstrapServers, groupId)),
+                topic, consumers, queueCapacity, maxPendingScans, commitIntervalMillis);
+    }
+
+    KafkaScanSource(Supplier<Consumer<byte[], byte[]>> consumerFactory,
+                    String topic,
+                    int consumers,
+                    int queueCapacity,
+                    int maxPendingScans,
+                    int commitIntervalMillis) {
+        if (consumers <= 0) {
+            throw new IllegalArgumentException("Consumers must be positive, was " + consumers);
+        }
+        if (queueCapacity < MAX_POLL_RECORDS) {
+            throw new IllegalArgumentException("Queue capacity must be at least " + MAX_POLL_RECORDS
+                    + ", was " + queueCapacity);
+        }
+        if (maxPendingScans < queueCapacity) {
+            throw new IllegalArgumentException("Pending scans must be at least the queue capacity of "
+                    + queueCapacity + ", was " + maxPendingScans);
+        }
+        this.consumerFactory = consumerFactory;
+        this.topic = topic;
+        this.consumers = consumers;
+        this.commitIntervalNanos = TimeUnit.MILLISECONDS.toNanos(commitIntervalMillis);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxPendingScans = maxPendingScans;
+    }
+
+    static Properties consumerProperties(String bootstrapServers, String groupId) {
+        Properties properties = new Properties();
+        properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        properties.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        properties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Integer.toString(MAX_POLL_RECORDS));
+        properties.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        return properties;
+    }
+
+    /**
+     * Starts the consumers, done by the first call to {@link #get()} otherwise.
+     */
+    public synchronized void start() {
+        if (running || !threads.isEmpty()) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < consumers; i++) {
+            ConsumerThread thread = new ConsumerThread(i, consumerFactory.get());
+            threads.add(thread);
+            thread.start();
+        }
+        LOG.info("Reading scans from {} with {} consumers", topic, consumers);
+    }
+
+    @Override
+    public PlateRecord get() {
+        if (!running) {
+            start();
+        }
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for scans", e);
+        }
+    }
+
+    @Override
+    public void acknowledge(PlateRecord record) {
+        PendingScan[] scan = new PendingScan[1];
+        pending.computeIfPresent(record, (key, head) -> {
+            scan[0] = head;
+            return head.next;
+        });
+        if (scan[0] != null) {
+            scan[0].offsets.pending.remove(scan[0].offset);
+            pendingScans.decrementAndGet();
+            acknowledged.increment();
+        }
+    }
+
+    public long receivedCount() {
+        return received.sum();
+    }
+
+    public long acknowledgedCount() {
+        return acknowledged.sum();
+    }
+
+    public long undecodableCount() {
+        return undecodable.sum();
+    }
+
+    public long commitCount() {
+        return commits.sum();
+    }
+
+    String report() {
+        return String.format("Kafka scans: received %d, acknowledged %d, undecodable %d, queued %d, pending %d, "
+                        + "commits %d failed %d",
+                receivedCount(),
+                acknowledgedCount(),
+                undecodableCount(),
+                queue.size(),
+                pendingScans.get(),
+                commitCount(),
+                failedCommits.sum());
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        List<ConsumerThread> stopping;
+        synchronized (this) {
+            stopping = new ArrayList<>(threads);
+        }
+        for (ConsumerThread thread : stopping) {
+            thread.consumer.wakeup();
+        }
+        for (ConsumerThread thread : stopping) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        LOG.info(report());
+    }
+
+    /**
+     * Offsets of one partition handed to the pipeline and not acknowledged yet. Emitted only by the thread of
+     * the consumer owning the partition, acknowledged from any thread.
+     */
+    private static final class PartitionOffsets {
+        private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+        private long nextOffset = -1;
+        // The position the partition was read from counts as committed
+        private long committedOffset;
+
+        private PartitionOffsets(long firstOffset) {
+            this.committedOffset = firstOffset;
+        }
+
+        // The offset to commit: the first one still pending, or the one after the last emitted
+        private long committable() {
+            Long first = pending.ceiling(Long.MIN_VALUE);
+            return first != null ? first : nextOffset;
+        }
+    }
+
+    private record PendingScan(PartitionOffsets offsets, long offset, PendingScan next) {
+    }
+
+    private final class ConsumerThread extends Thread implements ConsumerRebalanceListener {
+        private final Consumer<byte[], byte[]> consumer;
+        private final Map<TopicPartition, PartitionOffsets> partitions = new HashMap<>();
+        private long nextCommitNanos = System.nanoTime() + commitIntervalNanos;
+        private boolean pausedForPending;
+
+        private ConsumerThread(int index, Consumer<byte[], byte[]> consumer) {
+            super("kafka-scans-" + index);
+            setDaemon(true);
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void run() {
+            try {
+                consumer.subscribe(List.of(topic), this);
+                while (running) {
+                    applyBackpressure();
+                    ConsumerRecords<byte[], byte[]> records = consumer.poll(POLL_TIMEOUT);
+                    for (ConsumerRecord<byte[], byte[]> record : records) {
+                        emit(record);
+                    }
+                    if (System.nanoTime() >= nextCommitNanos) {
+                        nextCommitNanos = System.nanoTime() + commitIntervalNanos;
+                        commitAsync();
+                    }
+                }
+            } catch (WakeupException e) {
+                // closing
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                LOG.error("Scan consumer {} failed", getName(), e);
+            } finally {
+                try {
+                    commitSync(partitions.keySet());
+                } catch (RuntimeException e) {
+                    LOG.warn("Final offset commit of {} failed", getName(), e);
+                }
+                consumer.close();
+            }
+        }
+
+        // Pause fetching while the queue has no room for another poll, so put below never waits for long, and while
+        // another poll could take the unacknowledged scans past maxPendingScans
+        private void applyBackpressure() {
+            boolean tooManyPending = pendingScans.get() > maxPendingScans - MAX_POLL_RECORDS;
+            if (tooManyPending && !pausedForPending) {
+                LOG.warn("{} scans not acknowledged, {} pauses until the pipeline is done with them",
+                        pendingScans.get(), getName());
+            }
+            pausedForPending = tooManyPending;
+            if (tooManyPending || queue.remainingCapacity() < MAX_POLL_RECORDS) {
+                consumer.pause(consumer.assignment());
+            } else if (!consumer.paused().isEmpty()) {
+                consumer.resume(consumer.paused());
+            }
+        }
+
+        private void emit(ConsumerRecord<byte[], byte[]> record) throws InterruptedException {
+            received.increment();
+            TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+            PartitionOffsets offsets = partitions.computeIfAbsent(partition, key -> new PartitionOffsets(record.offset()));
+            offsets.nextOffset = record.offset() + 1;
+
+            PlateRecord scan;
+            try {
+                scan = format.decode(record.value());
+            } catch (IllegalArgumentException e) {
+                undecodable.increment();
+                LOG.warn("Skipping undecodable scan event at {} offset {}: {}", partition, record.offset(), e.getMessage());
+                return;
+            }
+
+            offsets.pending.add(record.offset());
+            pending.compute(scan, (key, head) -> new PendingScan(offsets, record.offset(), head));
+            pendingScans.incrementAndGet();
+            queue.put(scan);
+        }
+
+        private Map<TopicPartition, OffsetAndMetadata> committableOffsets(Collection<TopicPartition> owned) {
+            Map<TopicPartition, OffsetAndMetadata> commit = new HashMap<>();
+            for (TopicPartition partition : owned) {
+                PartitionOffsets offsets = partitions.get(partition);
+                if (offsets == null || offsets.nextOffset < 0) {
+                    continue;
+                }
+                long offset = offsets.committable();
+                if (offset > offsets.committedOffset) {
+                    commit.put(partition, new OffsetAndMetadata(offset));
+                    offsets.committedOffset = offset;
+                }
+            }
+            return commit;
+        }
+
+        private void commitAsync() {
+            Map<TopicPartition, OffsetAndMetadata> commit = committableOffsets(partitions.keySet());
+            if (commit.isEmpty()) {
+                return;
+            }
+            consumer.commitAsync(commit, (offsets, error) -> {
+                if (error == null) {
+                    commits.increment();
+                } else {
+                    // A later commit covers these offsets, or they are read again after a restart
+                    failedCommits.increment();
+                    LOG.debug("Offset commit failed", error);
+                }
+            });
+        }
+
+        private void commitSync(Collection<TopicPartition> owned) {
+            Map<TopicPartition, OffsetAndMetadata> commit = committableOffsets(owned);
+            if (!commit.isEmpty()) {
+                consumer.commitSync(commit);
+                commits.increment();
+            }
+        }
+
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> revoked) {
+            // Commit what is done before another consumer takes over, the scans still in flight are read again
+            try {
+                commitSync(revoked);
+            } catch (RuntimeException e) {
+                LOG.warn("Offset commit of revoked partitions {} failed", revoked, e);
+            }
+            partitions.keySet().removeAll(revoked);
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> assigned) {
+            LOG.info("{} assigned {}", getName(), assigned);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import com.voltdb.tollcollect.metrics.MetricsRegistry;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counts the records taken from the source so the achieved rate can be compared with the configured
+ * {@code tps}. The records the source is behind are the records it should have produced at {@code tps} since
+ * the first one, minus those it did; a growing value means the stages downstream cannot keep up.
+ */
+public class MeteredSupplier<T> implements Supplier<T> {
+
+    private final Supplier<T> source;
+    private final int tps;
+    private final LongAdder produced = new LongAdder();
+    private final AtomicLong firstNanos = new AtomicLong(Long.MIN_VALUE);
+
+    public MeteredSupplier(Supplier<T> source, int tps) {
+        this.source = source;
+        this.tps = tps;
+
+        MetricsRegistry registry = MetricsRegistry.defaultRegistry();
+        registry.registerCounter("tollcollect_source_records_total", "Records taken from the source",
+                produced::sum);
+        registry.registerGauge("tollcollect_source_target_rate", "Configured source rate in records per second",
+                () -> tps);
+        registry.registerGauge("tollcollect_source_behind_records", "Records the source is behind the target rate",
+                this::behind);
+    }
+
+    @Override
+    public T get() {
+        if (firstNanos.get() == Long.MIN_VALUE) {
+            firstNanos.compareAndSet(Long.MIN_VALUE, System.nanoTime());
+        }
+        T record = source.get();
+        produced.increment();
+        return record;
+    }
+
+    double behind() {
+        long first = firstNanos.get();
+        if (first == Long.MIN_VALUE) {
+            return 0;
+        }
+        double expected = (System.nanoTime() - first) / 1_000_000_000.0 * tps;
+        return Math.max(0, expected - produced.sum());
+    }
+}
@@ -0,0 +1,467 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import com.voltdb.tollcollect.common.PartitionRouting;
+import com.voltdb.tollcollect.metrics.MetricsRegistry;
+import com.voltdb.tollcollect.metrics.ScanOutcomeMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.Client2;
+import org.voltdb.client.Client2Config;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcCallException;
+import org.voltdb.stream.api.ExecutionContext;
+import org.voltdb.stream.api.pipeline.VoltStreamSink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Sink that groups plate records by the database partition of their plate and processes each group with one
+ * ProcessPlateBatch transaction, followed by ChargeAccount for the charge-eligible scans.
+ * <p>
+ * A partition's batch is sent when it reaches {@code maxBatchSize} records, when its oldest record has waited
+ * {@code lingerMillis}, or when a plate shows up again before the batch is sent, since a plate may only appear
+ * once per batch. Batch sizes, flush reasons and linger times are logged every {@code reportIntervalSeconds}
+ * together with the throughput of both legs.
+ * <p>
+ * The partitioning is reloaded every {@code partitionRefreshSeconds}. Batches sent while the cluster is being
+ * resized can be routed with an outdated partitioning.
+ * <p>
+ * The records of a batch are handed to the {@link ScanAcknowledger} once ProcessPlateBatch succeeded or aborted.
+ * <p>
+ * Before a batch is sent, one ChargeAccount permit is reserved for each of its records, out of
+ * {@code maxChargesInFlight}. The permits of the scans that turn out not to be chargeable are returned with the
+ * batch response, the others when their charge completes. Charges, issued from client callbacks that must not
+ * block, therefore never exceed the request limit of the client.
+ */
+public class PartitionBatchingSink implements VoltStreamSink<PlateRecord> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PartitionBatchingSink.class);
+
+    private final String servers;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final int maxBatchesInFlight;
+    private final int maxChargesInFlight;
+    private final int reportIntervalSeconds;
+    private final int partitionRefreshSeconds;
+    private final ScanAcknowledger acknowledger;
+    private final Function<Client2Config, Client2> clientFactory;
+
+    // Batch lag is the ProcessPlateBatch round trip, charge lag is the time from the batch acknowledgement to the
+    // charge acknowledgement
+    private final StageStats batchStats = new StageStats("ProcessPlateBatch");
+    private final StageStats chargeStats = new StageStats("ChargeAccount");
+    private final ScanOutcomeMetrics outcomeMetrics =
+            new ScanOutcomeMetrics(MetricsRegistry.defaultRegistry(), "pipeline");
+
+    private final LongAdder batchedScans = new LongAdder();
+    private final LongAdder rejectedScans = new LongAdder();
+    private final LongAdder sizeFlushes = new LongAdder();
+    private final LongAdder lingerFlushes = new LongAdder();
+    private final LongAdder repeatedPlateFlushes = new LongAdder();
+    private final LongAdder intervalBatches = new LongAdder();
+    private final LongAdder intervalBatchedScans = new LongAdder();
+    private final LongAccumulator intervalMaxBatchSize = new LongAccumulator(Long::max, 0);
+    private final LongAdder intervalLingerNanos = new LongAdder();
+    private final LongAccumulator intervalMaxLingerNanos = new LongAccumulator(Long::max, 0);
+
+    private final Map<Integer, PartitionBatch> batches = new ConcurrentHashMap<>();
+
+    private volatile PartitionRouting partitioner;
+    private Client2 client;
+    private Semaphore batchPermits;
+    private Semaphore chargePermits;
+    private ScheduledExecutorService scheduler;
+
+    public PartitionBatchingSink(String servers,
+                                 int maxBatchSize,
+                                 int lingerMillis,
+                                 int maxBatchesInFlight,
+                                 int maxChargesInFlight,
+                                 int reportIntervalSeconds,
+                                 int partitionRefreshSeconds) {
+        this(servers, maxBatchSize, lingerMillis, maxBatchesInFlight, maxChargesInFlight, reportIntervalSeconds,
+                partitionRefreshSeconds, ScanAcknowledger.NONE);
+    }
+
+    public PartitionBatchingSink(String servers,
+                                 int maxBatchSize,
+                                 int lingerMillis,
+                                 int maxBatchesInFlight,
+                                 int maxChargesInFlight,
+                                 int reportIntervalSeconds,
+                                 int partitionRefreshSeconds,
+                                 ScanAcknowledger acknowledger) {
+        this(servers, maxBatchSize, lingerMillis, maxBatchesInFlight, maxChargesInFlight, reportIntervalSeconds,
+                partitionRefreshSeconds, acknowledger, ClientFactory::createClient);
+    }
+
+    /**
+     * Sink connecting with a client from {@code clientFactory}, which tests replace to run without a database.
+     */
+    PartitionBatchingSink(String servers,
+                          int maxBatchSize,
+                          int lingerMillis,
+                          int maxBatchesInFlight,
+                          int maxChargesInFlight,
+                          int reportIntervalSeconds,
+                          int partitionRefreshSeconds,
+                          ScanAcknowledger acknowledger,
+                          Function<Client2Config, Client2> clientFactory) {
+        if (maxChargesInFlight < maxBatchSize) {
+            throw new IllegalArgumentException("maxChargesInFlight " + maxChargesInFlight
+                    + " is below maxBatchSize " + maxBatchSize + ", a batch could never be sent");
+        }
+        this.servers = servers;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.maxBatchesInFlight = maxBatchesInFlight;
+        this.maxChargesInFlight = maxChargesInFlight;
+        this.reportIntervalSeconds = reportIntervalSeconds;
+        this.partitionRefreshSeconds = partitionRefreshSeconds;
+        this.acknowledger = acknowledger;
+        this.clientFactory = clientFactory;
+    }
+
+    @Override
+    public void start(ExecutionContext context) {
+        Client2Config config = new Client2Config()
+                .clientRequestLimit(maxBatchesInFlight + maxChargesInFlight);
+        client = clientFactory.apply(config);
+        try {
+            client.connectSync(servers);
+            partitioner = PartitionRouting.load(client, VoltType.STRING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to connect to Volt at " + servers, e);
+        } catch (ProcCallException e) {
+            throw new IllegalStateException("Unable to load the partitioning of " + servers, e);
+        }
+        LOG.info("Batching scans for {} partitions", partitioner.partitionCount());
+
+        batchPermits = new Semaphore(maxBatchesInFlight);
+        chargePermits = new Semaphore(maxChargesInFlight);
+
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "partition-batching");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long lingerCheckNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), lingerNanos / 2);
+        scheduler.scheduleAtFixedRate(this::flushLingering, lingerCheckNanos, lingerCheckNanos, TimeUnit.NANOSECONDS);
+        scheduler.scheduleAtFixedRate(this::refreshPartitioner,
+                partitionRefreshSeconds,
+                partitionRefreshSeconds,
+                TimeUnit.SECONDS);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(reportIntervalSeconds);
+        scheduler.scheduleAtFixedRate(() -> {
+                    LOG.info(reportAndReset(intervalNanos));
+                    LOG.info(batchStats.reportAndReset(intervalNanos));
+                    LOG.info(chargeStats.reportAndReset(intervalNanos));
+                },
+                reportIntervalSeconds,
+                reportIntervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void consume(PlateRecord record, ExecutionContext context) {
+        int partition = partitioner.partitionOf(record.plateNum());
+        PartitionBatch batch = batches.computeIfAbsent(partition, PartitionBatch::new);
+
+        PendingBatch repeated = null;
+        PendingBatch full = null;
+        synchronized (batch) {
+            if (batch.contains(record.plateNum())) {
+                repeated = batch.drain();
+                repeatedPlateFlushes.increment();
+            }
+            batch.add(record);
+            if (batch.size() >= maxBatchSize) {
+                full = batch.drain();
+                sizeFlushes.increment();
+            }
+        }
+
+        if (repeated != null) {
+            send(repeated);
+        }
+        if (full != null) {
+            send(full);
+        }
+    }
+
+    private void flushLingering() {
+        long now = System.nanoTime();
+        for (PartitionBatch batch : batches.values()) {
+            PendingBatch lingering = null;
+            synchronized (batch) {
+                if (batch.size() > 0 && now - batch.firstRecordNanos >= lingerNanos) {
+                    lingering = batch.drain();
+                    lingerFlushes.increment();
+                }
+            }
+            if (lingering != null) {
+                send(lingering);
+            }
+        }
+    }
+
+    private void flushAll() {
+        for (PartitionBatch batch : batches.values()) {
+            PendingBatch pending = null;
+            synchronized (batch) {
+                if (batch.size() > 0) {
+                    pending = batch.drain();
+                }
+            }
+            if (pending != null) {
+                send(pending);
+            }
+        }
+    }
+
+    private void refreshPartitioner() {
+        try {
+            partitioner = PartitionRouting.load(client, VoltType.STRING);
+        } catch (IOException | ProcCallException | RuntimeException e) {
+            LOG.warn("Unable to refresh the partitioning, keeping the current one", e);
+        }
+    }
+
+    private void send(PendingBatch pending) {
+        // Charges are issued from client callbacks which must never block, so apply their backpressure here
+        chargePermits.acquireUninterruptibly(pending.size());
+        batchPermits.acquireUninterruptibly();
+
+        long lingered = System.nanoTime() - pending.firstRecordNanos();
+        intervalBatches.increment();
+        intervalBatchedScans.add(pending.size());
+        intervalMaxBatchSize.accumulate(pending.size());
+        intervalLingerNanos.add(lingered);
+        intervalMaxLingerNanos.accumulate(lingered);
+
+        batchStats.started();
+        long submitted = System.nanoTime();
+        callAsync("ProcessPlateBatch",
+                        partitioner.partitionKey(pending.partition()),
+                        pending.scanTimestamps(),
+                        pending.locations(),
+                        pending.lanes(),
+                        pending.plateNums(),
+                        pending.vehicleClasses())
+                .whenComplete((response, error) -> {
+                    batchPermits.release();
+                    // Done whatever the outcome, rejected scans are reported in the second result and retrying a
+                    // lost connection or a timeout could charge twice
+                    acknowledge(pending);
+                    if (!isSuccess("ProcessPlateBatch", response, error)) {
+                        chargePermits.release(pending.size());
+                        batchStats.failed(response);
+                        if (response != null && response.getStatus() == ClientResponse.USER_ABORT) {
+                            outcomeMetrics.aborted(pending.size());
+                        }
+                        return;
+                    }
+
+                    long acknowledged = System.nanoTime();
+                    batchStats.succeeded(acknowledged - submitted);
+
+                    VoltTable outcomes = response.getResults()[0];
+                    batchedScans.add(outcomes.getRowCount());
+                    rejectedScans.add(response.getResults()[1].getRowCount());
+                    int unusedPermits = pending.size();
+                    try {
+                        while (outcomes.advanceRow()) {
+                            ScanOutcome outcome = ScanOutcome.fromCurrentRow(outcomes);
+                            outcomeMetrics.record(outcome.tollReason());
+                            if (outcome.isChargeable()) {
+                                unusedPermits--;
+                                charge(outcome, acknowledged);
+                            }
+                        }
+                    } finally {
+                        chargePermits.release(unusedPermits);
+                    }
+                });
+    }
+
+    private void acknowledge(PendingBatch pending) {
+        for (PlateRecord record : pending.records()) {
+            acknowledger.acknowledge(record);
+        }
+    }
+
+    // Called with a charge permit reserved by send
+    private void charge(ScanOutcome outcome, long batchAcknowledged) {
+        chargeStats.started();
+        callAsync("ChargeAccount", outcome.toChargeAccountArguments())
+                .whenComplete((response, error) -> {
+                    chargePermits.release();
+                    if (isSuccess("ChargeAccount", response, error)) {
+                        chargeStats.succeeded(System.nanoTime() - batchAcknowledged);
+                    } else {
+                        chargeStats.failed(response);
+                    }
+                });
+    }
+
+    /**
+     * Calls the procedure, completing exceptionally when the call throws before it is queued, such as on a closed
+     * client. The callback then releases the permits and counts the failure like for any other failed call.
+     */
+    private CompletableFuture<ClientResponse> callAsync(String procedure, Object... arguments) {
+        try {
+            return client.callProcedureAsync(procedure, arguments);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static boolean isSuccess(String procedure, ClientResponse response, Throwable error) {
+        if (error != null) {
+            LOG.debug("Error calling procedure {}", procedure, error);
+            return false;
+        }
+        if (response.getStatus() != ClientResponse.SUCCESS) {
+            LOG.debug("Error calling procedure {}: {}", procedure, response.getStatusString());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns a one line summary of the batching since the previous call and starts a new interval.
+     */
+    private String reportAndReset(long intervalNanos) {
+        long count = intervalBatches.sumThenReset();
+        long scans = intervalBatchedScans.sumThenReset();
+        long maxSize = intervalMaxBatchSize.getThenReset();
+        long linger = intervalLingerNanos.sumThenReset();
+        long maxLinger = intervalMaxLingerNanos.getThenReset();
+
+        double seconds = intervalNanos / 1_000_000_000.0;
+        return String.format("Batching: %.0f batches/s, size mean %.1f max %d, linger mean %.2fms max %.2fms, "
+                        + "flushed on size %d linger %d repeated plate %d, scans processed %d rejected %d",
+                count / seconds,
+                count == 0 ? 0.0 : scans / (double) count,
+                maxSize,
+                count == 0 ? 0.0 : linger / (double) count / 1_000_000.0,
+                maxLinger / 1_000_000.0,
+                sizeFlushes.sum(),
+                lingerFlushes.sum(),
+                repeatedPlateFlushes.sum(),
+                batchedScans.sum(),
+                rejectedScans.sum());
+    }
+
+    @Override
+    public void commit(ExecutionContext context) {
+        // Records still waiting in a batch are not done yet
+        flushAll();
+        while (batchStats.inFlight() > 0 || chargeStats.inFlight() > 0) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    @Override
+    public void close(ExecutionContext context) {
+        if (client == null) {
+            return;
+        }
+
+        commit(context);
+        scheduler.shutdownNow();
+        client.close();
+    }
+
+    /**
+     * Records waiting to be sent to one partition. Guarded by its own monitor.
+     */
+    private final class PartitionBatch {
+        private final int partition;
+        private final List<PlateRecord> records = new ArrayList<>(maxBatchSize);
+        private final Set<String> plates = new HashSet<>();
+        private long firstRecordNanos;
+
+        private PartitionBatch(int partition) {
+            this.partition = partition;
+        }
+
+        private int size() {
+            return records.size();
+        }
+
+        private boolean contains(String plateNum) {
+            return plates.contains(plateNum);
+        }
+
+        private void add(PlateRecord record) {
+            if (records.isEmpty()) {
+                firstRecordNanos = System.nanoTime();
+            }
+            records.add(record);
+            plates.add(record.plateNum());
+        }
+
+        private PendingBatch drain() {
+            int size = records.size();
+            long[] scanTimestamps = new long[size];
+            String[] locations = new String[size];
+            String[] lanes = new String[size];
+            String[] plateNums = new String[size];
+            String[] vehicleClasses = new String[size];
+            PlateRecord[] drained = records.toArray(new PlateRecord[size]);
+            for (int i = 0; i < size; i++) {
+                PlateRecord record = drained[i];
+                scanTimestamps[i] = record.scanTimestamp();
+                locations[i] = record.location();
+                lanes[i] = record.lane();
+                plateNums[i] = record.plateNum();
+                vehicleClasses[i] = record.vehicleClass();
+            }
+            records.clear();
+            plates.clear();
+            return new PendingBatch(partition, firstRecordNanos, drained, scanTimestamps, locations, lanes, plateNums,
+                    vehicleClasses);
+        }
+    }
+
+    private record PendingBatch(int partition,
+                                long firstRecordNanos,
+                                PlateRecord[] records,
+                                long[] scanTimestamps,
+                                String[] locations,
+                                String[] lanes,
+                                String[] plateNums,
+                                String[] vehicleClasses) {
+        int size() {
+            return scanTimestamps.length;
+        }
+    }
+}
@@ -7,11 +7,13 @@
  */
 package com.voltdb.tollcollect.pipeline;
 
+import com.voltdb.tollcollect.common.PlateNumbers;
+
 import java.util.concurrent.ThreadLocalRandom;
 
 public class PlateRecordGenerator {
 
-    private enum Location {
+    enum Location {
         SKYLINE_TOLL_PLAZA("Skyline Toll Plaza", 0.1),
         NEXUS_CROSSING("Nexus Crossing", 0.04),
         ELEVATION_PASS("Elevation Pass", 0.13),
@@ -36,12 +38,16 @@ public class PlateRecordGenerator {
             return name;
         }
 
+        double invalidScanProbability() {
+            return invalidScanProbabilities;
+        }
+
         public boolean shouldProduceInvalidScan() {
             return ThreadLocalRandom.current().nextFloat() < invalidScanProbabilities;
         }
     }
 
-    private static final String[] VEHICLE_TYPES = new String[]{
+    static final String[] VEHICLE_TYPES = new String[]{
             "Motorcycle",
             "Car",
             "Small Truck",
@@ -49,6 +55,16 @@ public class PlateRecordGenerator {
             "Bus"
     };
 
+    private final PlateNumbers plates;
+
+    public PlateRecordGenerator() {
+        this(PlateNumbers.DEFAULT_PLATE_COUNT);
+    }
+
+    public PlateRecordGenerator(int plateCount) {
+        this.plates = new PlateNumbers(plateCount);
+    }
+
     private Location randomLocation() {
         double exponentialDistributionSample = ThreadLocalRandom.current().nextExponential() * 2;
 
@@ -71,11 +87,11 @@ public class PlateRecordGenerator {
     String randomPlate(Location location) {
         ThreadLocalRandom random = ThreadLocalRandom.current();
 
-        int plateNumber = random.nextInt(1000);
+        int plateNumber = random.nextInt(plates.count());
         if (location.shouldProduceInvalidScan()) {
-            return String.format("K%03d", plateNumber);
+            return plates.invalid(plateNumber);
         } else {
-            return String.format("X%03d", plateNumber);
+            return plates.valid(plateNumber);
         }
     }
 
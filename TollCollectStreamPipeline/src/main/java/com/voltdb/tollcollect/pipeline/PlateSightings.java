@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import java.util.Arrays;
+
+/**
+ * Last sighting of every plate, in primitive open addressing tables keyed by a 64-bit hash of the plate, and
+ * the check of each new sighting against it.
+ * <p>
+ * A sighting is impossible when the vehicle could not have travelled from the previous location in the time
+ * between the two scans, see {@link TollLocationDistances#minTravelMillis}. Like {@link RecentReadSet}, every
+ * stripe keeps two generations, each as long as the longest minimum travel time, so sightings that can no
+ * longer be part of an impossible pair are evicted as a whole and memory is fixed by {@code maxPlates}.
+ * A plate is reported at most once per {@code cooldownMillis}.
+ */
+public class PlateSightings {
+
+    private static final long EMPTY = 0;
+    private static final int MAX_LOAD_PERCENT = 75;
+
+    /**
+     * The earlier sighting of an impossible pair, filled in by {@link #observe}.
+     */
+    public static final class Conflict {
+        long previousTimestamp;
+        int previousLocation;
+
+        public long previousTimestamp() {
+            return previousTimestamp;
+        }
+
+        public int previousLocation() {
+            return previousLocation;
+        }
+    }
+
+    private final TollLocationDistances distances;
+    private final long generationMillis;
+    private final long cooldownMillis;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    public PlateSightings(TollLocationDistances distances, int maxPlates, int stripes, long cooldownMillis) {
+        if (maxPlates <= 0 || stripes <= 0) {
+            throw new IllegalArgumentException("Plates and stripes must be positive");
+        }
+        this.distances = distances;
+        this.generationMillis = Math.max(1, distances.maxMinTravelMillis());
+        this.cooldownMillis = cooldownMillis;
+
+        int stripeCount = Integer.highestOneBit(stripes);
+        if (stripeCount < stripes) {
+            stripeCount <<= 1;
+        }
+        int capacity = RecentReadSet.tableCapacity(Math.max(1, (maxPlates + stripeCount - 1) / stripeCount));
+
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe(capacity);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Records a sighting of the plate with hash {@code key} at the location with index {@code location}. Returns
+     * true and fills in {@code conflict} if it and the previous sighting are impossible and the plate has not
+     * been reported within the cooldown.
+     */
+    public boolean observe(long key, long timestamp, int location, Conflict conflict) {
+        if (key == EMPTY) {
+            key = 1;
+        }
+        Stripe stripe = stripes[(int) (key >>> 40) & stripeMask];
+        synchronized (stripe) {
+            return stripe.observe(key, timestamp, location, conflict);
+        }
+    }
+
+    public int stripes() {
+        return stripes.length;
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.currentSize + stripe.previousSize;
+            }
+        }
+        return size;
+    }
+
+    public long earlyRotations() {
+        long rotations = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                rotations += stripe.earlyRotations;
+            }
+        }
+        return rotations;
+    }
+
+    /**
+     * Bytes held by the tables of all stripes, allocated up front.
+     */
+    public long footprintBytes() {
+        return (long) stripes.length * 2 * stripes[0].currentKeys.length * (Long.BYTES * 3 + Integer.BYTES);
+    }
+
+    /**
+     * 64-bit hash of the plate, computed without allocating.
+     */
+    public static long key(String plateNum) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < plateNum.length(); i++) {
+            hash = (hash ^ plateNum.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private final class Stripe {
+
+        private final int maxSize;
+        private final int mask;
+
+        private long[] currentKeys;
+        private long[] currentTimes;
+        private int[] currentLocations;
+        private long[] currentReported;
+        private int currentSize;
+
+        private long[] previousKeys;
+        private long[] previousTimes;
+        private int[] previousLocations;
+        private long[] previousReported;
+        private int previousSize;
+
+        private long generationStart = Long.MIN_VALUE;
+        private long earlyRotations;
+
+        Stripe(int capacity) {
+            this.mask = capacity - 1;
+            this.maxSize = (int) ((long) capacity * MAX_LOAD_PERCENT / 100);
+            this.currentKeys = new long[capacity];
+            this.currentTimes = new long[capacity];
+            this.currentLocations = new int[capacity];
+            this.currentReported = new long[capacity];
+            this.previousKeys = new long[capacity];
+            this.previousTimes = new long[capacity];
+            this.previousLocations = new int[capacity];
+            this.previousReported = new long[capacity];
+        }
+
+        boolean observe(long key, long timestamp, int location, Conflict conflict) {
+            if (generationStart == Long.MIN_VALUE) {
+                generationStart = timestamp;
+            } else if (timestamp - generationStart >= 2 * generationMillis) {
+                Arrays.fill(currentKeys, EMPTY);
+                Arrays.fill(previousKeys, EMPTY);
+                currentSize = 0;
+                previousSize = 0;
+                generationStart = timestamp;
+            } else if (timestamp - generationStart >= generationMillis) {
+                rotate(timestamp);
+            }
+
+            int slot = find(currentKeys, key);
+            boolean found = currentKeys[slot] == key;
+            if (!found) {
+                int previousSlot = find(previousKeys, key);
+                if (previousKeys[previousSlot] != key) {
+                    insert(slot, key, timestamp, location, Long.MIN_VALUE);
+                    return false;
+                }
+                // Move the sighting into the current generation
+                slot = insert(slot, key, previousTimes[previousSlot], previousLocations[previousSlot],
+                        previousReported[previousSlot]);
+            }
+
+            long previousTimestamp = currentTimes[slot];
+            int previousLocation = currentLocations[slot];
+            if (timestamp >= previousTimestamp) {
+                currentTimes[slot] = timestamp;
+                currentLocations[slot] = location;
+            }
+
+            if (previousLocation == location
+                    || Math.abs(timestamp - previousTimestamp) >= distances.minTravelMillis(previousLocation, location)
+                    || (currentReported[slot] != Long.MIN_VALUE && timestamp - currentReported[slot] < cooldownMillis)) {
+                return false;
+            }
+
+            currentReported[slot] = timestamp;
+            conflict.previousTimestamp = previousTimestamp;
+            conflict.previousLocation = previousLocation;
+            return true;
+        }
+
+        // Inserts into the current generation at the empty slot found for the key and returns the slot
+        private int insert(int slot, long key, long timestamp, int location, long reported) {
+            if (currentSize >= maxSize) {
+                earlyRotations++;
+                rotate(timestamp);
+                slot = find(currentKeys, key);
+            }
+            currentKeys[slot] = key;
+            currentTimes[slot] = timestamp;
+            currentLocations[slot] = location;
+            currentReported[slot] = reported;
+            currentSize++;
+            return slot;
+        }
+
+        private void rotate(long timestamp) {
+            long[] keys = previousKeys;
+            long[] times = previousTimes;
+            int[] locations = previousLocations;
+            long[] reported = previousReported;
+            Arrays.fill(keys, EMPTY);
+
+            previousKeys = currentKeys;
+            previousTimes = currentTimes;
+            previousLocations = currentLocations;
+            previousReported = currentReported;
+            previousSize = currentSize;
+
+            currentKeys = keys;
+            currentTimes = times;
+            currentLocations = locations;
+            currentReported = reported;
+            currentSize = 0;
+            generationStart = timestamp;
+        }
+
+        private int find(long[] keys, long key) {
+            int slot = (int) key & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import java.util.Arrays;
+
+/**
+ * Bounded memory set of the reads accepted within a time window, keyed by a 64-bit hash of the read.
+ * <p>
+ * Keys and accept times are kept in primitive open addressing tables, so adding a read allocates nothing. Each
+ * stripe has two generations of one window each: reads are added to the current generation, and once the window
+ * has passed the previous generation is cleared and becomes the current one. A read is therefore always compared
+ * with every read accepted during the last window. When a generation is full before its window has passed, it is
+ * rotated early and the window is shortened for that stripe, which is counted in {@link #earlyRotations()}.
+ * <p>
+ * Stripes are locked independently, so concurrent callers only contend when their keys share a stripe.
+ */
+public class RecentReadSet {
+
+    private static final long EMPTY = 0;
+    private static final int MAX_LOAD_PERCENT = 75;
+
+    private final long windowMillis;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    /**
+     * @param windowMillis      reads of a key within this time of its last accepted read are duplicates
+     * @param maxKeysPerWindow  distinct keys that fit in one window before generations rotate early
+     * @param stripes           number of independently locked stripes, rounded up to a power of two
+     */
+    public RecentReadSet(long windowMillis, int maxKeysPerWindow, int stripes) {
+        if (windowMillis <= 0 || maxKeysPerWindow <= 0 || stripes <= 0) {
+            throw new IllegalArgumentException("Window, keys and stripes must be positive");
+        }
+        this.windowMillis = windowMillis;
+
+        int stripeCount = Integer.highestOneBit(stripes);
+        if (stripeCount < stripes) {
+            stripeCount <<= 1;
+        }
+        int keysPerStripe = Math.max(1, (maxKeysPerWindow + stripeCount - 1) / stripeCount);
+        int capacity = tableCapacity(keysPerStripe);
+
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe(capacity);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Adds a read of {@code key} at {@code timestampMillis} and returns true if it is the first within the window,
+     * or false if it duplicates a read accepted less than the window before.
+     */
+    public boolean add(long key, long timestampMillis) {
+        if (key == EMPTY) {
+            key = 1;
+        }
+        // The low bits pick the slot within a stripe, so the stripe comes from the high bits
+        Stripe stripe = stripes[(int) (key >>> 40) & stripeMask];
+        synchronized (stripe) {
+            return stripe.add(key, timestampMillis, windowMillis);
+        }
+    }
+
+    public int stripes() {
+        return stripes.length;
+    }
+
+    public long earlyRotations() {
+        long rotations = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                rotations += stripe.earlyRotations;
+            }
+        }
+        return rotations;
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.currentSize + stripe.previousSize;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Bytes held by the key and time tables of all stripes. The tables are allocated up front and never grow.
+     */
+    public long footprintBytes() {
+        return (long) stripes.length * 2 * stripes[0].currentKeys.length * (Long.BYTES + Long.BYTES);
+    }
+
+    /**
+     * Mixes the plate, location and lane into a 64-bit key without allocating.
+     */
+    public static long key(String plateNum, String location, String lane) {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, plateNum);
+        hash = mix(hash, location);
+        hash = mix(hash, lane);
+
+        // fmix64 finalizer of MurmurHash3, spreads the FNV-1a state over all bits
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        // Separator, so that ("AB", "C") and ("A", "BC") differ
+        return (hash ^ 0xff) * 0x100000001b3L;
+    }
+
+    static int tableCapacity(int keys) {
+        long slots = (long) keys * 100 / MAX_LOAD_PERCENT + 1;
+        if (slots > 1 << 30) {
+            throw new IllegalArgumentException("Too many keys per stripe: " + keys);
+        }
+        return Integer.highestOneBit((int) slots - 1) << 1;
+    }
+
+    private static final class Stripe {
+
+        private final int maxSize;
+        private final int mask;
+
+        private long[] currentKeys;
+        private long[] currentTimes;
+        private int currentSize;
+        private long[] previousKeys;
+        private long[] previousTimes;
+        private int previousSize;
+
+        // Start of the current generation, Long.MIN_VALUE until the first read
+        private long generationStart = Long.MIN_VALUE;
+        private long earlyRotations;
+
+        Stripe(int capacity) {
+            this.mask = capacity - 1;
+            this.maxSize = (int) ((long) capacity * MAX_LOAD_PERCENT / 100);
+            this.currentKeys = new long[capacity];
+            this.currentTimes = new long[capacity];
+            this.previousKeys = new long[capacity];
+            this.previousTimes = new long[capacity];
+        }
+
+        boolean add(long key, long timestamp, long windowMillis) {
+            if (generationStart == Long.MIN_VALUE) {
+                generationStart = timestamp;
+            } else if (timestamp - generationStart >= 2 * windowMillis) {
+                // Nothing seen in either generation is within the window any more
+                clear(currentKeys);
+                clear(previousKeys);
+                currentSize = 0;
+                previousSize = 0;
+                generationStart = timestamp;
+            } else if (timestamp - generationStart >= windowMillis) {
+                rotate(timestamp);
+            }
+
+            int currentSlot = find(currentKeys, key);
+            if (currentKeys[currentSlot] == key) {
+                if (timestamp - currentTimes[currentSlot] < windowMillis) {
+                    return false;
+                }
+                currentTimes[currentSlot] = timestamp;
+                return true;
+            }
+
+            int previousSlot = find(previousKeys, key);
+            if (previousKeys[previousSlot] == key && timestamp - previousTimes[previousSlot] < windowMillis) {
+                return false;
+            }
+
+            if (currentSize >= maxSize) {
+                earlyRotations++;
+                rotate(timestamp);
+                currentSlot = find(currentKeys, key);
+            }
+            currentKeys[currentSlot] = key;
+            currentTimes[currentSlot] = timestamp;
+            currentSize++;
+            return true;
+        }
+
+        private void rotate(long timestamp) {
+            long[] keys = previousKeys;
+            long[] times = previousTimes;
+            clear(keys);
+
+            previousKeys = currentKeys;
+            previousTimes = currentTimes;
+            previousSize = currentSize;
+            currentKeys = keys;
+            currentTimes = times;
+            currentSize = 0;
+            generationStart = timestamp;
+        }
+
+        // Slot holding the key, or the empty slot where it belongs
+        private int find(long[] keys, long key) {
+            int slot = (int) key & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static void clear(long[] keys) {
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+}
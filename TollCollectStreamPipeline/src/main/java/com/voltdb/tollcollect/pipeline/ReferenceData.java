@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.voltdb.VoltTable;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the replicated reference tables as returned by the GetReferenceData procedure,
+ * with the toll for every active location and vehicle class already multiplied out.
+ */
+public final class ReferenceData {
+
+    private final long version;
+    private final Map<String, Map<String, BigDecimal>> tollByLocationAndClass;
+
+    ReferenceData(long version, Map<String, Map<String, BigDecimal>> tollByLocationAndClass) {
+        this.version = version;
+        this.tollByLocationAndClass = tollByLocationAndClass;
+    }
+
+    /**
+     * Builds a snapshot from the TOLL_LOCATIONS, VEHICLE_TYPES and APPLICATION_PARAMETERS tables, in that order.
+     */
+    static ReferenceData fromTables(VoltTable tollLocations, VoltTable vehicleTypes, VoltTable parameters) {
+        long version = 0;
+        while (parameters.advanceRow()) {
+            if ("REFERENCE_DATA_VERSION".equals(parameters.getString("PARAMETER_NAME"))) {
+                version = Long.parseLong(parameters.getString("PARAMETER_VALUE"));
+            }
+        }
+
+        Map<String, BigDecimal> multiplierByClass = new HashMap<>();
+        while (vehicleTypes.advanceRow()) {
+            multiplierByClass.put(
+                    vehicleTypes.getString("VEHICLE_CLASS"),
+                    vehicleTypes.getDecimalAsBigDecimal("TOLL_MULTIP"));
+        }
+
+        Map<String, Map<String, BigDecimal>> tollByLocationAndClass = new HashMap<>();
+        while (tollLocations.advanceRow()) {
+            // Inactive locations are left out, ProcessPlate rejects them as well
+            if (tollLocations.getLong("TOLL_LOC_STATUS") != 1) {
+                continue;
+            }
+
+            BigDecimal baseFare = tollLocations.getDecimalAsBigDecimal("BASE_FARE");
+            Map<String, BigDecimal> tollByClass = new HashMap<>();
+            multiplierByClass.forEach((vehicleClass, multiplier) ->
+                    tollByClass.put(vehicleClass, baseFare.multiply(multiplier)));
+            tollByLocationAndClass.put(tollLocations.getString("TOLL_LOC"), tollByClass);
+        }
+
+        return new ReferenceData(version, tollByLocationAndClass);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public boolean isValidLocation(String location) {
+        return tollByLocationAndClass.containsKey(location);
+    }
+
+    /**
+     * Returns base_fare * toll_multip for the scan, or null if the location is inactive or unknown or the
+     * vehicle class is unknown.
+     */
+    public BigDecimal toll(String location, String vehicleClass) {
+        Map<String, BigDecimal> tollByClass = tollByLocationAndClass.get(location);
+        if (tollByClass == null) {
+            return null;
+        }
+        return tollByClass.get(vehicleClass);
+    }
+}
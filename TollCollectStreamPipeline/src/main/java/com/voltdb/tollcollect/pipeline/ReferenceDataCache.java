@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.voltdb.VoltTable;
+import org.voltdb.client.Client2;
+import org.voltdb.client.Client2Config;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ProcCallException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a {@link ReferenceData} snapshot of the replicated reference tables and prices scans from it, so that
+ * the database does not re-read the fare tables for every scan and never sees scans for unknown locations or
+ * vehicle classes.
+ * <p>
+ * The REFERENCE_DATA_VERSION parameter is polled every {@code pollIntervalSeconds} and the snapshot is reloaded
+ * when it changes, when ProcessPlatePriced reports that a scan was priced against a stale version, and at least
+ * every {@code refreshIntervalSeconds}. The first snapshot is loaded on first use.
+ */
+public class ReferenceDataCache implements AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReferenceDataCache.class);
+
+    // Must match ProcessPlatePriced.STALE_REFERENCE_DATA
+    static final byte STALE_REFERENCE_DATA = 1;
+
+    /**
+     * Where the snapshots and the current version are read from, replaced by tests to run without a database.
+     */
+    interface Source extends AutoCloseable {
+
+        ReferenceData load() throws IOException, ProcCallException;
+
+        long currentVersion() throws IOException, ProcCallException;
+
+        @Override
+        void close();
+    }
+
+    private final Supplier<Source> sourceFactory;
+    private final int pollIntervalSeconds;
+    private final int refreshIntervalSeconds;
+    private final LongSupplier nanoClock;
+
+    private final AtomicBoolean refreshPending = new AtomicBoolean();
+    private final LongAdder invalidLocations = new LongAdder();
+    private final LongAdder invalidVehicleClasses = new LongAdder();
+
+    private volatile ReferenceData snapshot;
+    private volatile long snapshotLoadedNanos;
+    private long reportedRejections;
+
+    private Source source;
+    private ScheduledExecutorService scheduler;
+
+    public ReferenceDataCache(String servers, int pollIntervalSeconds, int refreshIntervalSeconds) {
+        this(() -> new DatabaseSource(servers), pollIntervalSeconds, refreshIntervalSeconds, System::nanoTime);
+    }
+
+    ReferenceDataCache(Supplier<Source> sourceFactory,
+                       int pollIntervalSeconds,
+                       int refreshIntervalSeconds,
+                       LongSupplier nanoClock) {
+        this.sourceFactory = sourceFactory;
+        this.pollIntervalSeconds = pollIntervalSeconds;
+        this.refreshIntervalSeconds = refreshIntervalSeconds;
+        this.nanoClock = nanoClock;
+    }
+
+    public ReferenceData current() {
+        ReferenceData current = snapshot;
+        if (current == null) {
+            current = start();
+        }
+        return current;
+    }
+
+    /**
+     * Prices the record and returns the parameters of the ProcessPlatePriced procedure, or null if the
+     * location or vehicle class is not valid in the current snapshot.
+     */
+    public Object[] processPlatePricedArguments(PlateRecord record) {
+        ReferenceData referenceData = current();
+
+        BigDecimal toll = referenceData.toll(record.location(), record.vehicleClass());
+        if (toll == null) {
+            if (referenceData.isValidLocation(record.location())) {
+                invalidVehicleClasses.increment();
+            } else {
+                invalidLocations.increment();
+            }
+            return null;
+        }
+
+        return new Object[]{
+                record.scanTimestamp(),
+                record.location(),
+                record.lane(),
+                record.plateNum(),
+                record.vehicleClass(),
+                toll,
+                referenceData.version()
+        };
+    }
+
+    public long invalidLocations() {
+        return invalidLocations.sum();
+    }
+
+    public long invalidVehicleClasses() {
+        return invalidVehicleClasses.sum();
+    }
+
+    /**
+     * Reloads the snapshot in the background. Repeated requests while a reload is pending are coalesced.
+     */
+    public void refreshNow() {
+        if (scheduler != null && refreshPending.compareAndSet(false, true)) {
+            scheduler.execute(this::reload);
+        }
+    }
+
+    private synchronized ReferenceData start() {
+        if (snapshot != null) {
+            return snapshot;
+        }
+
+        source = sourceFactory.get();
+        refreshPending.set(true);
+        reload();
+        if (snapshot == null) {
+            throw new IllegalStateException("Unable to load reference data");
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reference-data-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::poll, pollIntervalSeconds, pollIntervalSeconds, TimeUnit.SECONDS);
+        return snapshot;
+    }
+
+    // Runs on the scheduler thread
+    void poll() {
+        long rejections = invalidLocations() + invalidVehicleClasses();
+        if (rejections != reportedRejections) {
+            LOG.info("Rejected scans before ProcessPlatePriced: {} invalid locations, {} invalid vehicle classes",
+                    invalidLocations(), invalidVehicleClasses());
+            reportedRejections = rejections;
+        }
+
+        try {
+            long age = nanoClock.getAsLong() - snapshotLoadedNanos;
+            if (age >= TimeUnit.SECONDS.toNanos(refreshIntervalSeconds)
+                    || source.currentVersion() != snapshot.version()) {
+                refreshPending.set(true);
+                reload();
+            }
+        } catch (IOException | ProcCallException | RuntimeException e) {
+            LOG.warn("Unable to check reference data version: {}", e.getMessage());
+        }
+    }
+
+    private void reload() {
+        if (!refreshPending.getAndSet(false)) {
+            return;
+        }
+
+        try {
+            ReferenceData loaded = source.load();
+
+            ReferenceData previous = snapshot;
+            snapshot = loaded;
+            snapshotLoadedNanos = nanoClock.getAsLong();
+            if (previous == null || previous.version() != loaded.version()) {
+                LOG.info("Loaded reference data version {}", loaded.version());
+            }
+        } catch (IOException | ProcCallException | RuntimeException e) {
+            LOG.warn("Unable to load reference data: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (source != null) {
+            source.close();
+        }
+    }
+
+    private static final class DatabaseSource implements Source {
+
+        private final Client2 client = ClientFactory.createClient(new Client2Config());
+
+        DatabaseSource(String servers) {
+            try {
+                client.connectSync(servers);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to connect to Volt at " + servers, e);
+            }
+        }
+
+        @Override
+        public ReferenceData load() throws IOException, ProcCallException {
+            VoltTable[] tables = client.callProcedureSync("GetReferenceData").getResults();
+            return ReferenceData.fromTables(tables[0], tables[1], tables[2]);
+        }
+
+        @Override
+        public long currentVersion() throws IOException, ProcCallException {
+            VoltTable result = client.callProcedureSync("GetReferenceDataVersion").getResults()[0];
+            return result.advanceRow() ? Long.parseLong(result.getString("PARAMETER_VALUE")) : 0;
+        }
+
+        @Override
+        public void close() {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+/**
+ * Told when the pipeline is done with a plate record, so that a source reading from a log can move its position
+ * past it, see {@link KafkaScanSource}.
+ * <p>
+ * A record is done once its ProcessPlate call completed, whatever the outcome, or once it was dropped as invalid or
+ * as a repeated read. A lost connection or a timeout is acknowledged too: the transaction may have committed, so
+ * reading the record again could charge it twice, and the failure is counted in the stage statistics instead.
+ * Implementations are called from client callbacks and must not block.
+ */
+@FunctionalInterface
+public interface ScanAcknowledger {
+
+    ScanAcknowledger NONE = record -> {
+    };
+
+    void acknowledge(PlateRecord record);
+}
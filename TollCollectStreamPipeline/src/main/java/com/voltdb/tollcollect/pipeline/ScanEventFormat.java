@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import com.voltdb.tollcollect.pipeline.PlateRecordGenerator.Location;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Layout of a scan event on the scan topic read by {@link KafkaScanSource}, one event per message value.
+ * <p>
+ * Unlike a scan log record an event is self-contained, so producers need no dictionary:
+ * <pre>
+ *   0  long   scan timestamp in milliseconds, big endian
+ *   8  location: unsigned byte length and that many UTF-8 bytes
+ *      lane: unsigned byte length and that many UTF-8 bytes
+ *      plate: unsigned byte length and that many ASCII bytes
+ *      vehicle class: unsigned byte length and that many UTF-8 bytes
+ * </pre>
+ * Decoding reads the message bytes in place. Locations, lanes and vehicle classes are matched against the
+ * encoded form of the values the generators produce and decode to those shared strings; only the plate, and
+ * values outside that set, are materialized per event. An instance is immutable and can be shared between threads.
+ */
+final class ScanEventFormat {
+
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int FIELDS_OFFSET = 8;
+    static final int MAX_FIELD_LENGTH = 255;
+    static final int MAX_LANES = 10;
+
+    private final KnownValues locations;
+    private final KnownValues lanes;
+    private final KnownValues vehicleClasses;
+
+    ScanEventFormat() {
+        String[] locationNames = new String[Location.values().length];
+        for (Location location : Location.values()) {
+            locationNames[location.ordinal()] = location.getName();
+        }
+        String[] laneNames = new String[MAX_LANES];
+        for (int i = 0; i < MAX_LANES; i++) {
+            laneNames[i] = Integer.toString(i);
+        }
+        this.locations = new KnownValues(locationNames);
+        this.lanes = new KnownValues(laneNames);
+        this.vehicleClasses = new KnownValues(PlateRecordGenerator.VEHICLE_TYPES);
+    }
+
+    static byte[] encode(PlateRecord record) {
+        byte[] location = field(record.location());
+        byte[] lane = field(record.lane());
+        byte[] plate = field(record.plateNum());
+        byte[] vehicleClass = field(record.vehicleClass());
+        byte[] event = new byte[FIELDS_OFFSET + 4 + location.length + lane.length + plate.length + vehicleClass.length];
+
+        long timestamp = record.scanTimestamp();
+        for (int i = 7; i >= 0; i--) {
+            event[TIMESTAMP_OFFSET + i] = (byte) timestamp;
+            timestamp >>>= 8;
+        }
+        int offset = FIELDS_OFFSET;
+        offset = put(event, offset, location);
+        offset = put(event, offset, lane);
+        offset = put(event, offset, plate);
+        put(event, offset, vehicleClass);
+        return event;
+    }
+
+    private static byte[] field(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("Field longer than " + MAX_FIELD_LENGTH + " bytes: " + value);
+        }
+        return bytes;
+    }
+
+    private static int put(byte[] event, int offset, byte[] field) {
+        event[offset] = (byte) field.length;
+        System.arraycopy(field, 0, event, offset + 1, field.length);
+        return offset + 1 + field.length;
+    }
+
+    /**
+     * Decodes an event, throwing IllegalArgumentException when it is truncated.
+     */
+    PlateRecord decode(byte[] event) {
+        if (event == null || event.length < FIELDS_OFFSET + 4) {
+            throw new IllegalArgumentException("Scan event too short");
+        }
+        long timestamp = 0;
+        for (int i = 0; i < 8; i++) {
+            timestamp = (timestamp << 8) | (event[TIMESTAMP_OFFSET + i] & 0xFF);
+        }
+
+        int locationOffset = FIELDS_OFFSET;
+        int laneOffset = next(event, locationOffset);
+        int plateOffset = next(event, laneOffset);
+        int vehicleClassOffset = next(event, plateOffset);
+        next(event, vehicleClassOffset);
+
+        return new PlateRecord(
+                timestamp,
+                locations.decode(event, locationOffset),
+                lanes.decode(event, laneOffset),
+                new String(event, plateOffset + 1, Byte.toUnsignedInt(event[plateOffset]), StandardCharsets.ISO_8859_1),
+                vehicleClasses.decode(event, vehicleClassOffset));
+    }
+
+    // Offset of the field after the one at offset
+    private static int next(byte[] event, int offset) {
+        if (offset >= event.length) {
+            throw new IllegalArgumentException("Scan event truncated at byte " + offset);
+        }
+        int end = offset + 1 + Byte.toUnsignedInt(event[offset]);
+        if (end > event.length) {
+            throw new IllegalArgumentException("Scan event truncated at byte " + offset);
+        }
+        return end;
+    }
+
+    /**
+     * Encoded form of the expected values of a field, for decoding them without a copy.
+     */
+    private static final class KnownValues {
+        private final String[] values;
+        private final byte[][] encoded;
+
+        private KnownValues(String[] values) {
+            this.values = values;
+            this.encoded = new byte[values.length][];
+            for (int i = 0; i < values.length; i++) {
+                encoded[i] = values[i].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        private String decode(byte[] event, int offset) {
+            int length = Byte.toUnsignedInt(event[offset]);
+            int from = offset + 1;
+            for (int i = 0; i < encoded.length; i++) {
+                if (encoded[i].length == length
+                        && Arrays.equals(encoded[i], 0, length, event, from, from + length)) {
+                    return values[i];
+                }
+            }
+            return new String(event, from, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes scans of the table driven generator to the scan topic read by {@link KafkaScanSource}.
+ * <p>
+ * Events are keyed by plate, so the scans of a plate stay in order on one partition of the topic.
+ */
+public class ScanEventPublisher {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: ScanEventPublisher <bootstrapServers> <topic> <count> <tps> [seed]");
+            System.exit(1);
+        }
+        String topic = args[1];
+        long count = Long.parseLong(args[2]);
+        double tps = Double.parseDouble(args[3]);
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+
+        Properties properties = new Properties();
+        properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, args[0]);
+        properties.put(ProducerConfig.LINGER_MS_CONFIG, "5");
+        properties.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+        properties.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+
+        TablePlateRecordGenerator generator = new TablePlateRecordGenerator(seed);
+        AtomicReference<Exception> firstError = new AtomicReference<>();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / tps);
+        long start = System.nanoTime();
+        try (KafkaProducer<byte[], byte[]> producer = new KafkaProducer<>(properties)) {
+            for (long i = 0; i < count && firstError.get() == null; i++) {
+                for (long wait = start + i * intervalNanos - System.nanoTime(); wait > 0;
+                     wait = start + i * intervalNanos - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                PlateRecord record = generator.generatePlateRecord();
+                producer.send(new ProducerRecord<>(topic,
+                                record.plateNum().getBytes(StandardCharsets.ISO_8859_1),
+                                ScanEventFormat.encode(record)),
+                        (metadata, error) -> {
+                            if (error != null) {
+                                firstError.compareAndSet(null, error);
+                            }
+                        });
+            }
+        }
+        if (firstError.get() != null) {
+            System.err.println("Publishing failed: " + firstError.get());
+            System.exit(2);
+        }
+        System.out.printf("Published %,d scans at %.0f tps to %s%n", count, tps, topic);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+/**
+ * Layout of the binary scan log written by {@link ScanLogWriter} and read by {@link ScanLogReader}.
+ * <p>
+ * A scan log is a fixed size header followed by fixed width records, so record {@code i} starts at
+ * {@code HEADER_SIZE + i * RECORD_SIZE} and a file can be read at any position without an index.
+ * <pre>
+ * header (4096 bytes, big endian)
+ *   0  int    magic "TCSL"
+ *   4  short  format version
+ *   6  short  record size
+ *   8  long   record count when the header was last written
+ *  16  three dictionaries (location, lane, vehicle class), each an unsigned byte entry count
+ *      followed by the entries as an unsigned byte length and that many UTF-8 bytes
+ *
+ * record (32 bytes)
+ *   0  long   scan timestamp in milliseconds
+ *   8  byte   location dictionary index
+ *   9  byte   lane dictionary index
+ *  10  byte   vehicle class dictionary index
+ *  11  byte   plate length
+ *  12  20 ASCII plate bytes, zero padded
+ * </pre>
+ */
+final class ScanLogFormat {
+
+    static final int MAGIC = 0x5443534C;
+    static final short VERSION = 1;
+
+    static final int HEADER_SIZE = 4096;
+    static final int RECORD_COUNT_OFFSET = 8;
+    static final int DICTIONARIES_OFFSET = 16;
+
+    static final int MAX_DICTIONARY_ENTRIES = 255;
+    static final int MAX_DICTIONARY_ENTRY_LENGTH = 255;
+
+    static final int RECORD_SIZE = 32;
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int LOCATION_OFFSET = 8;
+    static final int LANE_OFFSET = 9;
+    static final int VEHICLE_CLASS_OFFSET = 10;
+    static final int PLATE_LENGTH_OFFSET = 11;
+    static final int PLATE_OFFSET = 12;
+    static final int MAX_PLATE_LENGTH = 20;
+
+    private ScanLogFormat() {
+    }
+}
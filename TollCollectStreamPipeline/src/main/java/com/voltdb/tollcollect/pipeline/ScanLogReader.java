@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.voltdb.tollcollect.pipeline.ScanLogFormat.*;
+
+/**
+ * Random access reader of a binary scan log, see {@link ScanLogFormat}.
+ * <p>
+ * The file is memory mapped one window at a time, so logs larger than the heap, or than the 2GB a single
+ * {@link MappedByteBuffer} can address, are read through the page cache without being copied onto the heap.
+ * Records are decoded straight from the mapping; dictionary values are shared strings, only the plate is
+ * materialized per record. The record count comes from the file size, so a log that is still being written, or
+ * whose writer died, is readable up to the last complete record.
+ * <p>
+ * A reader keeps the current window as state and must only be used by one thread.
+ */
+public class ScanLogReader implements Closeable {
+
+    // 256MB, a multiple of the record size so records never straddle two windows
+    static final long DEFAULT_WINDOW_SIZE = 1L << 28;
+
+    private final FileChannel channel;
+    private final long windowSize;
+    private final long recordsPerWindow;
+    private final long recordCount;
+
+    private final String[] locations;
+    private final String[] lanes;
+    private final String[] vehicleClasses;
+
+    private final byte[] plate = new byte[MAX_PLATE_LENGTH];
+    private MappedByteBuffer window;
+    private long windowIndex = -1;
+
+    public ScanLogReader(Path file) throws IOException {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    ScanLogReader(Path file, long windowSize) throws IOException {
+        if (windowSize <= 0 || windowSize % RECORD_SIZE != 0 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Window size must be a positive multiple of " + RECORD_SIZE
+                    + " below 2GB: " + windowSize);
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.windowSize = windowSize;
+        this.recordsPerWindow = windowSize / RECORD_SIZE;
+
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // read the whole header
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException(file + " is not a scan log");
+            }
+            short version = header.getShort();
+            short recordSize = header.getShort();
+            if (version != VERSION || recordSize != RECORD_SIZE) {
+                throw new IOException(file + " has unsupported scan log version " + version);
+            }
+            header.position(DICTIONARIES_OFFSET);
+            this.locations = readDictionary(header);
+            this.lanes = readDictionary(header);
+            this.vehicleClasses = readDictionary(header);
+            this.recordCount = Math.max(0, (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long recordCount() {
+        return recordCount;
+    }
+
+    public long timestamp(long index) {
+        ByteBuffer buffer = windowFor(index);
+        return buffer.getLong(offsetInWindow(index) + TIMESTAMP_OFFSET);
+    }
+
+    public PlateRecord read(long index) {
+        return read(index, timestamp(index));
+    }
+
+    // Decodes a record with its scan timestamp replaced, for replays shifting records onto their own clock
+    PlateRecord read(long index, long scanTimestamp) {
+        ByteBuffer buffer = windowFor(index);
+        int offset = offsetInWindow(index);
+
+        int plateLength = buffer.get(offset + PLATE_LENGTH_OFFSET);
+        for (int i = 0; i < plateLength; i++) {
+            plate[i] = buffer.get(offset + PLATE_OFFSET + i);
+        }
+
+        return new PlateRecord(
+                scanTimestamp,
+                locations[Byte.toUnsignedInt(buffer.get(offset + LOCATION_OFFSET))],
+                lanes[Byte.toUnsignedInt(buffer.get(offset + LANE_OFFSET))],
+                new String(plate, 0, plateLength, StandardCharsets.ISO_8859_1),
+                vehicleClasses[Byte.toUnsignedInt(buffer.get(offset + VEHICLE_CLASS_OFFSET))]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping is released once the buffer is garbage collected
+        window = null;
+        channel.close();
+    }
+
+    private ByteBuffer windowFor(long index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + recordCount);
+        }
+        long requestedWindow = index / recordsPerWindow;
+        if (requestedWindow != windowIndex) {
+            long start = HEADER_SIZE + requestedWindow * windowSize;
+            long size = Math.min(windowSize, HEADER_SIZE + recordCount * RECORD_SIZE - start);
+            try {
+                window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            windowIndex = requestedWindow;
+        }
+        return window;
+    }
+
+    private int offsetInWindow(long index) {
+        return (int) ((index % recordsPerWindow) * RECORD_SIZE);
+    }
+
+    private static String[] readDictionary(ByteBuffer header) {
+        String[] entries = new String[Byte.toUnsignedInt(header.get())];
+        for (int i = 0; i < entries.length; i++) {
+            byte[] entry = new byte[Byte.toUnsignedInt(header.get())];
+            header.get(entry);
+            entries[i] = new String(entry, StandardCharsets.UTF_8).intern();
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.voltdb.stream.api.ExecutionContext;
+import org.voltdb.stream.api.pipeline.VoltStreamFunction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Pass-through stage recording live traffic into a binary scan log, see {@link ScanLogFormat}.
+ * <p>
+ * The log is flushed and synced to disk about once a second by a background thread, so that processing
+ * threads never wait for the disk, and when the JVM shuts down. It can be replayed while still being written.
+ * {@link #main} records a log from the table driven generator instead.
+ */
+public class ScanLogRecorder implements VoltStreamFunction<PlateRecord, PlateRecord> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScanLogRecorder.class);
+
+    private final ScanLogWriter writer;
+    private final ScheduledExecutorService syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "scan-log-recorder-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ScanLogRecorder(Path file) {
+        try {
+            this.writer = new ScanLogWriter(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        syncer.scheduleWithFixedDelay(this::sync, 1, 1, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            syncer.shutdownNow();
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+        }, "scan-log-recorder-close"));
+    }
+
+    @Override
+    public void process(PlateRecord record, Consumer<PlateRecord> consumer, ExecutionContext context) {
+        writer.write(record);
+        consumer.accept(record);
+    }
+
+    private void sync() {
+        try {
+            writer.sync();
+        } catch (UncheckedIOException e) {
+            LOG.warn("Unable to sync the scan log", e);
+        }
+    }
+
+    /**
+     * Records {@code count} generated scans spaced evenly at {@code tps}:
+     * <pre>
+     * ScanLogRecorder &lt;file&gt; &lt;count&gt; &lt;tps&gt; [seed]
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: ScanLogRecorder <file> <count> <tps> [seed]");
+            System.exit(1);
+        }
+        Path file = Path.of(args[0]);
+        long count = Long.parseLong(args[1]);
+        double tps = Double.parseDouble(args[2]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 42;
+
+        TablePlateRecordGenerator generator = new TablePlateRecordGenerator(seed);
+        long start = System.currentTimeMillis();
+        try (ScanLogWriter writer = new ScanLogWriter(file)) {
+            for (long i = 0; i < count; i++) {
+                PlateRecord record = generator.generatePlateRecord();
+                writer.write(new PlateRecord(
+                        start + (long) (i * 1000 / tps),
+                        record.location(),
+                        record.lane(),
+                        record.plateNum(),
+                        record.vehicleClass()));
+            }
+        }
+        System.out.printf("Recorded %,d scans at %.0f tps into %s%n", count, tps, file);
+    }
+}
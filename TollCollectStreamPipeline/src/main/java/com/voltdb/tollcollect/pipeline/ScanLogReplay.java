@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Replays a binary scan log as a record supplier for {@code Sources.generateAtRate}.
+ * <p>
+ * With original timing every record is held back until its offset from the first record has passed since the
+ * replay started, divided by {@code speed}, so the source rate follows the recorded traffic and the configured
+ * tps is only an upper bound. Without it, records are handed out as fast as the source asks for them.
+ * <p>
+ * Scan timestamps are shifted onto the replay clock, keeping the recorded spacing, because ProcessPlate ages
+ * out scan history relative to the current time. At the end of the log the replay starts over when looping,
+ * otherwise the source goes idle: the supplier blocks, without holding the replay, until its thread is
+ * interrupted, and then throws.
+ */
+public class ScanLogReplay implements Supplier<PlateRecord> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScanLogReplay.class);
+
+    /**
+     * Time as seen by the replay, replaced by tests to replay without waiting.
+     */
+    interface Clock {
+        Clock SYSTEM = new Clock() {
+            @Override
+            public long nanoTime() {
+                return System.nanoTime();
+            }
+
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+
+            @Override
+            public void parkNanos(long nanos) {
+                LockSupport.parkNanos(nanos);
+            }
+        };
+
+        long nanoTime();
+
+        long currentTimeMillis();
+
+        void parkNanos(long nanos);
+    }
+
+    private final Path file;
+    private final ScanLogReader reader;
+    private final boolean originalTiming;
+    private final double speed;
+    private final boolean loop;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Guarded by lock
+    private long next;
+    private long firstTimestamp;
+    private long startMillis;
+    private long startNanos;
+    private boolean finished;
+
+    public ScanLogReplay(Path file, boolean originalTiming, double speed, boolean loop) {
+        this(file, originalTiming, speed, loop, Clock.SYSTEM);
+    }
+
+    ScanLogReplay(Path file, boolean originalTiming, double speed, boolean loop, Clock clock) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("Replay speed must be positive: " + speed);
+        }
+        try {
+            this.reader = new ScanLogReader(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (reader.recordCount() == 0) {
+            throw new IllegalArgumentException(file + " holds no records");
+        }
+        this.file = file;
+        this.originalTiming = originalTiming;
+        this.speed = speed;
+        this.loop = loop;
+        this.clock = clock;
+    }
+
+    @Override
+    public PlateRecord get() {
+        try {
+            lock.lockInterruptibly();
+            PlateRecord record;
+            try {
+                record = next();
+            } finally {
+                lock.unlock();
+            }
+            if (record != null) {
+                return record;
+            }
+            // The source has no end of stream, it idles until the pipeline stops
+            while (true) {
+                Thread.sleep(TimeUnit.HOURS.toMillis(1));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted replaying " + file, e);
+        }
+    }
+
+    // Returns null at the end of the log when not looping
+    private PlateRecord next() throws InterruptedException {
+        if (next == reader.recordCount()) {
+            if (!loop) {
+                if (!finished) {
+                    finished = true;
+                    LOG.info("Replayed all {} records of {}", reader.recordCount(), file);
+                }
+                return null;
+            }
+            next = 0;
+        }
+        if (next == 0) {
+            // (Re)start the replay clock
+            firstTimestamp = reader.timestamp(0);
+            startMillis = clock.currentTimeMillis();
+            startNanos = clock.nanoTime();
+        }
+
+        long recordedOffsetMillis = reader.timestamp(next) - firstTimestamp;
+        long replayOffsetNanos = (long) (TimeUnit.MILLISECONDS.toNanos(recordedOffsetMillis) / speed);
+
+        if (originalTiming) {
+            long deadline = startNanos + replayOffsetNanos;
+            for (long wait = deadline - clock.nanoTime(); wait > 0; wait = deadline - clock.nanoTime()) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                clock.parkNanos(wait);
+            }
+        }
+
+        return reader.read(next++, startMillis + TimeUnit.NANOSECONDS.toMillis(replayOffsetNanos));
+    }
+}
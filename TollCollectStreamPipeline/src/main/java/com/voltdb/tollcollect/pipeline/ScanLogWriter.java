@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.voltdb.tollcollect.pipeline.ScanLogFormat.*;
+
+/**
+ * Appends {@link PlateRecord}s to a binary scan log, see {@link ScanLogFormat}.
+ * <p>
+ * Dictionary entries are assigned as new values show up. Records are buffered and appended in large sequential
+ * writes; the header, including the dictionaries, is rewritten on every flush so a log is readable up to the last
+ * flush even when the writer never gets closed. Writes are synchronized, a writer can be shared between threads.
+ * {@link #sync} also forces the log to disk, without blocking the writing threads while it does.
+ */
+public class ScanLogWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+    private final Dictionary locations = new Dictionary("location");
+    private final Dictionary lanes = new Dictionary("lane");
+    private final Dictionary vehicleClasses = new Dictionary("vehicle class");
+    private int dictionaryBytes = 3;
+
+    private long position = HEADER_SIZE;
+    private long recordCount;
+
+    public ScanLogWriter(Path file) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        writeHeader();
+    }
+
+    public synchronized void write(PlateRecord record) {
+        String plateNum = record.plateNum();
+        if (plateNum.length() > MAX_PLATE_LENGTH) {
+            throw new IllegalArgumentException("Plate longer than " + MAX_PLATE_LENGTH + " characters: " + plateNum);
+        }
+        byte location = index(locations, record.location());
+        byte lane = index(lanes, record.lane());
+        byte vehicleClass = index(vehicleClasses, record.vehicleClass());
+
+        if (buffer.remaining() < RECORD_SIZE) {
+            flushRecords();
+        }
+        int start = buffer.position();
+        buffer.putLong(start + TIMESTAMP_OFFSET, record.scanTimestamp());
+        buffer.put(start + LOCATION_OFFSET, location);
+        buffer.put(start + LANE_OFFSET, lane);
+        buffer.put(start + VEHICLE_CLASS_OFFSET, vehicleClass);
+        buffer.put(start + PLATE_LENGTH_OFFSET, (byte) plateNum.length());
+        for (int i = 0; i < MAX_PLATE_LENGTH; i++) {
+            buffer.put(start + PLATE_OFFSET + i, i < plateNum.length() ? asciiByte(plateNum, i) : 0);
+        }
+        buffer.position(start + RECORD_SIZE);
+        recordCount++;
+    }
+
+    public synchronized long recordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Hands the buffered records and the header to the file system.
+     */
+    public synchronized void flush() {
+        flushRecords();
+        try {
+            writeHeader();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes, then waits for the log to reach the disk. Records written meanwhile are not held up.
+     */
+    public void sync() {
+        flush();
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private byte index(Dictionary dictionary, String value) {
+        Byte index = dictionary.indexes.get(value);
+        if (index != null) {
+            return index;
+        }
+
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        if (encoded.length > MAX_DICTIONARY_ENTRY_LENGTH) {
+            throw new IllegalArgumentException("Scan log " + dictionary.name + " longer than "
+                    + MAX_DICTIONARY_ENTRY_LENGTH + " bytes: " + value);
+        }
+        if (dictionary.entries.size() == MAX_DICTIONARY_ENTRIES) {
+            throw new IllegalStateException("Scan log holds at most " + MAX_DICTIONARY_ENTRIES
+                    + " distinct values of " + dictionary.name);
+        }
+        if (DICTIONARIES_OFFSET + dictionaryBytes + 1 + encoded.length > HEADER_SIZE) {
+            throw new IllegalStateException("Scan log dictionaries do not fit into the header");
+        }
+
+        // Byte.valueOf is cached for every value, so looking up an index never allocates
+        byte newIndex = (byte) dictionary.entries.size();
+        dictionary.entries.add(encoded);
+        dictionary.indexes.put(value, newIndex);
+        dictionaryBytes += 1 + encoded.length;
+        return newIndex;
+    }
+
+    private static byte asciiByte(String plateNum, int i) {
+        char c = plateNum.charAt(i);
+        if (c > 0x7F) {
+            throw new IllegalArgumentException("Plate is not ASCII: " + plateNum);
+        }
+        return (byte) c;
+    }
+
+    private void flushRecords() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    private void writeHeader() throws IOException {
+        header.clear();
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putShort((short) RECORD_SIZE);
+        // Only records already on disk are counted
+        header.putLong((position - HEADER_SIZE) / RECORD_SIZE);
+        for (Dictionary dictionary : List.of(locations, lanes, vehicleClasses)) {
+            header.put((byte) dictionary.entries.size());
+            for (byte[] entry : dictionary.entries) {
+                header.put((byte) entry.length);
+                header.put(entry);
+            }
+        }
+        header.position(0);
+        header.limit(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    private static final class Dictionary {
+        private final String name;
+        private final Map<String, Byte> indexes = new HashMap<>();
+        private final List<byte[]> entries = new ArrayList<>();
+
+        private Dictionary(String name) {
+            this.name = name;
+        }
+    }
+}
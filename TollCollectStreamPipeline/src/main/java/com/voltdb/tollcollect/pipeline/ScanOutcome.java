@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+import java.math.BigDecimal;
+
+/**
+ * Result of a ProcessPlate call, carrying everything ChargeAccount needs.
+ */
+public record ScanOutcome(
+        long scanId,
+        long scanTimestamp,
+        String location,
+        String lane,
+        String plateNum,
+        int accountId,
+        BigDecimal tollAmount,
+        String tollReason
+) {
+
+    private static final int CENTS_SCALE = 2;
+
+    /**
+     * Reads the scan outcome from the single-row table returned by ProcessPlate, or by ProcessPlateCents
+     * with the toll as BIGINT cents.
+     */
+    public static ScanOutcome fromProcessPlateResult(PlateRecord record, VoltTable result) {
+        result.resetRowPosition();
+        if (!result.advanceRow()) {
+            throw new IllegalArgumentException("ProcessPlate returned no scan outcome for " + record.plateNum());
+        }
+
+        return new ScanOutcome(
+                result.getLong("SCAN_ID"),
+                record.scanTimestamp(),
+                record.location(),
+                record.lane(),
+                record.plateNum(),
+                (int) result.getLong("ACCOUNT_ID"),
+                tollAmount(result),
+                result.getString("TOLL_REASON"));
+    }
+
+    private static BigDecimal tollAmount(VoltTable result) {
+        int column = result.getColumnIndex("TOLL_AMOUNT");
+        if (result.getColumnType(column) == VoltType.BIGINT) {
+            return BigDecimal.valueOf(result.getLong(column), CENTS_SCALE);
+        }
+        return result.getDecimalAsBigDecimal(column);
+    }
+
+    /**
+     * Reads the scan outcome from the current row of a result holding complete SCAN_HISTORY rows, such as the
+     * outcomes returned by ProcessPlateBatch.
+     */
+    public static ScanOutcome fromCurrentRow(VoltTable result) {
+        return new ScanOutcome(
+                result.getLong("SCAN_ID"),
+                result.getTimestampAsLong("SCAN_TIMESTAMP") / 1000,
+                result.getString("TOLL_LOC"),
+                result.getString("TOLL_LANE_NUM"),
+                result.getString("PLATE_NUM"),
+                (int) result.getLong("ACCOUNT_ID"),
+                tollAmount(result),
+                result.getString("TOLL_REASON"));
+    }
+
+    /**
+     * Unknown vehicles are billed by mail and exempt vehicles owe nothing, everything else is charged
+     * to the owning account.
+     */
+    public boolean isChargeable() {
+        return accountId > 0 && !"EXEMPT".equals(tollReason);
+    }
+
+    public Object[] toChargeAccountArguments() {
+        return new Object[]{
+                scanId,
+                scanTimestamp,
+                location,
+                lane,
+                plateNum,
+                accountId,
+                tollAmount,
+                tollReason
+        };
+    }
+
+    /**
+     * Arguments of ChargeAccountCents, the toll in cents.
+     */
+    public Object[] toChargeAccountCentsArguments() {
+        return new Object[]{
+                scanId,
+                scanTimestamp,
+                location,
+                lane,
+                plateNum,
+                accountId,
+                tollAmount.movePointRight(CENTS_SCALE).longValueExact(),
+                tollReason
+        };
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import com.voltdb.tollcollect.common.PlateNumbers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Plate record source split into {@code shards} independent generators, so generation scales with the worker
+ * threads of the pipeline instead of being capped by one shared generator.
+ * <p>
+ * Every thread calling {@link #get()} claims the next shard and keeps it. A shard owns the plates whose number
+ * modulo {@code shards} is its index, a random stream split off one {@link SplittableRandom} seeded with
+ * {@code seed} in shard order, and an equal part of {@code tps}, which it paces itself. Shards share no mutable
+ * state. The records are drawn as by {@link TablePlateRecordGenerator}, so the combined output keeps its location,
+ * vehicle class, lane and invalid scan distributions; plates are uniform up to the rounding of the plates
+ * into {@code shards} slices.
+ * <p>
+ * With a {@link WorkloadProfile}, the shards draw as by a profiled TablePlateRecordGenerator and pace to the
+ * profile's rate curve, {@code tps} being the peak. Skewed plates are sampled within each slice, so every shard
+ * has its own hot plates, X000 to X009 with 10 shards, instead of one plate being the hottest.
+ * <p>
+ * Set {@code shards} to the number of worker threads. When fewer threads than shards show up within a second of
+ * the first one, the threads take over the unclaimed shards, spread evenly, so that no part of the rate or of the
+ * plates is lost; a thread serving several shards draws from the one due first. Threads beyond {@code shards}
+ * share the plate slices of the first ones with random streams of their own. Both cases are logged as a warning.
+ * A {@code tps} of 0 leaves the pacing to the caller.
+ */
+public class ShardedPlateRecordSource implements Supplier<PlateRecord> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ShardedPlateRecordSource.class);
+
+    // A shard further behind than this drops the backlog instead of bursting to catch up
+    private static final long MAX_BACKLOG_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Time the threads are given to claim a shard each before the unclaimed ones are taken over
+    private static final long TAKEOVER_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int shards;
+    private final PlateNumbers plates;
+    private final WorkloadProfile profile;
+    private final long intervalNanos;
+    private final long takeoverDelayNanos;
+    private final SplittableRandom seeds;
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final ThreadLocal<Worker> worker = ThreadLocal.withInitial(this::startWorker);
+    private volatile long firstClaimNanos;
+    // Guarded by seeds
+    private int threads;
+
+    public ShardedPlateRecordSource(int shards, int tps, long seed) {
+        this(shards, tps, seed, new PlateNumbers(PlateNumbers.DEFAULT_PLATE_COUNT), WorkloadProfile.DEFAULT);
+    }
+
+    public ShardedPlateRecordSource(int shards, int tps, long seed, PlateNumbers plates, WorkloadProfile profile) {
+        this(shards, tps, seed, plates, profile, TAKEOVER_DELAY_NANOS);
+    }
+
+    ShardedPlateRecordSource(int shards,
+                             int tps,
+                             long seed,
+                             PlateNumbers plates,
+                             WorkloadProfile profile,
+                             long takeoverDelayNanos) {
+        if (shards <= 0 || shards > plates.count()) {
+            throw new IllegalArgumentException("Shards must be between 1 and " + plates.count());
+        }
+        this.shards = shards;
+        this.plates = plates;
+        this.profile = profile;
+        this.intervalNanos = tps <= 0 ? 0 : TimeUnit.SECONDS.toNanos(1) * shards / tps;
+        this.takeoverDelayNanos = takeoverDelayNanos;
+        this.seeds = new SplittableRandom(seed);
+    }
+
+    @Override
+    public PlateRecord get() {
+        Worker current = worker.get();
+        // A single volatile read once every shard is claimed
+        if (claimed.get() < shards && System.nanoTime() - firstClaimNanos >= takeoverDelayNanos) {
+            current.takeOver();
+        }
+        return current.next();
+    }
+
+    public int shards() {
+        return shards;
+    }
+
+    /**
+     * Number of shards claimed so far, by a thread of their own or taken over, plus the threads sharing a slice.
+     */
+    public int claimedShards() {
+        return claimed.get();
+    }
+
+    private Worker startWorker() {
+        synchronized (seeds) {
+            if (threads++ == 0) {
+                firstClaimNanos = System.nanoTime();
+            }
+            if (threads == shards + 1) {
+                LOG.warn("More generating threads than the {} shards, plate slices are shared", shards);
+            }
+            return new Worker(claimShard());
+        }
+    }
+
+    // Random streams are split in claim order, so shard i always gets the same one
+    private Shard claimShard() {
+        int index = claimed.getAndIncrement();
+        return new Shard(index % shards, seeds.split());
+    }
+
+    // The shards serving the rate of one thread
+    private final class Worker {
+        private Shard[] owned;
+        private int nextOwned;
+
+        Worker(Shard first) {
+            this.owned = new Shard[]{first};
+        }
+
+        // Claims one unclaimed shard, up to an even share of the shards per thread
+        void takeOver() {
+            synchronized (seeds) {
+                int unclaimed = shards - claimed.get();
+                if (unclaimed <= 0 || owned.length >= (shards + threads - 1) / threads) {
+                    return;
+                }
+                if (unclaimed == shards - threads) {
+                    LOG.warn("Only {} generating threads for the {} shards, taking over the unclaimed shards",
+                            threads, shards);
+                }
+                owned = Arrays.copyOf(owned, owned.length + 1);
+                owned[owned.length - 1] = claimShard();
+            }
+        }
+
+        PlateRecord next() {
+            if (owned.length == 1) {
+                return owned[0].next();
+            }
+            if (intervalNanos == 0) {
+                // Not paced, take the shards in turn
+                nextOwned = (nextOwned + 1) % owned.length;
+                return owned[nextOwned].next();
+            }
+            Shard due = owned[0];
+            for (int i = 1; i < owned.length; i++) {
+                if (owned[i].dueNanos - due.dueNanos < 0) {
+                    due = owned[i];
+                }
+            }
+            return due.next();
+        }
+    }
+
+    // Owned by one thread
+    private final class Shard {
+        private final int firstPlate;
+        private final int plateCount;
+        private final ZipfSampler plateSampler;
+        private final SplittableRandom random;
+        private long dueNanos = System.nanoTime();
+
+        Shard(int index, SplittableRandom random) {
+            this.firstPlate = index;
+            this.plateCount = (plates.count() - index + shards - 1) / shards;
+            this.plateSampler = profile.plateSampler(plateCount);
+            this.random = random;
+        }
+
+        PlateRecord next() {
+            if (intervalNanos > 0) {
+                pace();
+            }
+            return TablePlateRecordGenerator.generatePlateRecord(random, profile, plateSampler, plates, firstPlate, shards, plateCount);
+        }
+
+        private void pace() {
+            long now = System.nanoTime();
+            if (now - dueNanos > MAX_BACKLOG_NANOS) {
+                dueNanos = now;
+            }
+            long wait = dueNanos - now;
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            dueNanos += profile.hasRateCurve()
+                    ? (long) (intervalNanos / profile.rateFactor(System.currentTimeMillis()))
+                    : intervalNanos;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import com.voltdb.tollcollect.metrics.LatencyHistogram;
+import com.voltdb.tollcollect.metrics.MetricsRegistry;
+import org.voltdb.client.ClientResponse;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free counters for one stage of the pipeline. Callback threads record into it, a reporter reads
+ * and resets the interval values.
+ * <p>
+ * The totals, the calls in flight and a latency histogram are also registered in the default
+ * {@link MetricsRegistry} under the {@code stage} label, for Prometheus.
+ */
+public class StageStats {
+
+    private final String name;
+
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder aborted = new LongAdder();
+    private final AtomicLong inFlight = new AtomicLong();
+    private final LatencyHistogram latencyMicros = new LatencyHistogram();
+
+    private final LongAdder intervalCount = new LongAdder();
+    private final LongAdder intervalLatencyNanos = new LongAdder();
+    private final LongAccumulator intervalMaxLatencyNanos = new LongAccumulator(Long::max, 0);
+
+    public StageStats(String name) {
+        this.name = name;
+
+        MetricsRegistry registry = MetricsRegistry.defaultRegistry();
+        String calls = "tollcollect_stage_calls_total";
+        String callsHelp = "Procedure calls completed by a pipeline stage";
+        registry.registerCounter(calls, callsHelp, succeeded::sum, "stage", name, "outcome", "succeeded");
+        registry.registerCounter(calls, callsHelp, aborted::sum, "stage", name, "outcome", "aborted");
+        registry.registerCounter(calls, callsHelp, failed::sum, "stage", name, "outcome", "failed");
+        registry.registerGauge("tollcollect_stage_in_flight", "Procedure calls outstanding in a pipeline stage",
+                inFlight::get, "stage", name);
+        registry.registerHistogram("tollcollect_stage_latency_seconds", "Lag of the successful calls of a pipeline stage",
+                latencyMicros, "stage", name);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void started() {
+        inFlight.incrementAndGet();
+    }
+
+    public void succeeded(long latencyNanos) {
+        inFlight.decrementAndGet();
+        succeeded.increment();
+        intervalCount.increment();
+        intervalLatencyNanos.add(latencyNanos);
+        intervalMaxLatencyNanos.accumulate(latencyNanos);
+        latencyMicros.record(latencyNanos / 1000);
+    }
+
+    public void failed() {
+        inFlight.decrementAndGet();
+        failed.increment();
+    }
+
+    /**
+     * Records a failed call, telling aborts by the procedure apart. The response is null if the call never
+     * reached Volt.
+     */
+    public void failed(ClientResponse response) {
+        if (response != null && response.getStatus() == ClientResponse.USER_ABORT) {
+            inFlight.decrementAndGet();
+            aborted.increment();
+        } else {
+            failed();
+        }
+    }
+
+    public long succeededCount() {
+        return succeeded.sum();
+    }
+
+    /**
+     * Failed calls, including aborts.
+     */
+    public long failedCount() {
+        return failed.sum() + aborted.sum();
+    }
+
+    public long abortedCount() {
+        return aborted.sum();
+    }
+
+    public long inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Returns a one line summary of the interval since the previous call and starts a new interval.
+     */
+    public String reportAndReset(long intervalNanos) {
+        long count = intervalCount.sumThenReset();
+        long latencySum = intervalLatencyNanos.sumThenReset();
+        long latencyMax = intervalMaxLatencyNanos.getThenReset();
+
+        double seconds = intervalNanos / 1_000_000_000.0;
+        double meanMillis = count == 0 ? 0.0 : latencySum / (double) count / 1_000_000.0;
+        return String.format("%s: %.0f/s, lag mean %.2fms max %.2fms, in flight %d, ok %d, failed %d",
+                name,
+                count / seconds,
+                meanMillis,
+                latencyMax / 1_000_000.0,
+                inFlight(),
+                succeededCount(),
+                failedCount());
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import com.voltdb.tollcollect.common.PlateNumbers;
+import com.voltdb.tollcollect.pipeline.PlateRecordGenerator.Location;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Table driven variant of {@link PlateRecordGenerator} producing the same distributions of locations, vehicle
+ * classes, lanes and invalid scans without allocating anything but the emitted record.
+ * <p>
+ * Plates are drawn uniformly from {@link PlateNumbers}, 1000 unless given. Lane and location strings are built
+ * once and interned. The rounded and clamped exponential (location)
+ * and gaussian (vehicle class) distributions are turned into exact discrete probabilities and sampled with
+ * {@link AliasTable}s, one random long each. A {@link WorkloadProfile} replaces these distributions with skewed
+ * plates, another vehicle mix or location bursts, still in constant time per record.
+ * <p>
+ * The no-argument constructor draws from {@link ThreadLocalRandom} and is safe to share between threads. A
+ * seeded generator owns a {@link SplittableRandom}, is reproducible and must only be used by one thread.
+ */
+public class TablePlateRecordGenerator {
+
+    private static final int LANE_COUNT = 5;
+
+    // Same parameters as PlateRecordGenerator.randomLocation() and randomVehicleType()
+    private static final double LOCATION_EXPONENTIAL_SCALE = 2.0;
+    private static final double VEHICLE_TYPE_MEAN = (PlateRecordGenerator.VEHICLE_TYPES.length - 1) / 2.0;
+    private static final double VEHICLE_TYPE_STD_DEV = PlateRecordGenerator.VEHICLE_TYPES.length / 4.0;
+
+    // nextFloat() has 24 bits of randomness, comparing 24 random bits to a scaled threshold is equivalent
+    private static final int INVALID_SCAN_BITS = 24;
+
+    private static final Location[] LOCATIONS = Location.values();
+    private static final String[] LOCATION_NAMES = new String[LOCATIONS.length];
+    private static final int[] INVALID_SCAN_THRESHOLDS = new int[LOCATIONS.length];
+    private static final String[] LANES = new String[LANE_COUNT];
+    private static final String[] VEHICLE_TYPES = new String[PlateRecordGenerator.VEHICLE_TYPES.length];
+
+    static {
+        for (int i = 0; i < LOCATIONS.length; i++) {
+            LOCATION_NAMES[i] = LOCATIONS[i].getName().intern();
+            INVALID_SCAN_THRESHOLDS[i] = (int) (LOCATIONS[i].invalidScanProbability() * (1 << INVALID_SCAN_BITS));
+        }
+        for (int i = 0; i < LANE_COUNT; i++) {
+            LANES[i] = Integer.toString(i).intern();
+        }
+        for (int i = 0; i < VEHICLE_TYPES.length; i++) {
+            VEHICLE_TYPES[i] = PlateRecordGenerator.VEHICLE_TYPES[i].intern();
+        }
+    }
+
+    private static final PlateNumbers DEFAULT_PLATES = new PlateNumbers(PlateNumbers.DEFAULT_PLATE_COUNT);
+
+    private final PlateNumbers plates;
+    private final WorkloadProfile profile;
+    private final ZipfSampler plateSampler;
+    private final RandomGenerator seededRandom;
+
+    public TablePlateRecordGenerator() {
+        this(DEFAULT_PLATES);
+    }
+
+    public TablePlateRecordGenerator(long seed) {
+        this(DEFAULT_PLATES, seed);
+    }
+
+    public TablePlateRecordGenerator(PlateNumbers plates) {
+        this(plates, WorkloadProfile.DEFAULT);
+    }
+
+    public TablePlateRecordGenerator(PlateNumbers plates, long seed) {
+        this(plates, WorkloadProfile.DEFAULT, seed);
+    }
+
+    public TablePlateRecordGenerator(PlateNumbers plates, WorkloadProfile profile) {
+        this(plates, profile, null);
+    }
+
+    public TablePlateRecordGenerator(PlateNumbers plates, WorkloadProfile profile, long seed) {
+        this(plates, profile, new SplittableRandom(seed));
+    }
+
+    private TablePlateRecordGenerator(PlateNumbers plates, WorkloadProfile profile, RandomGenerator seededRandom) {
+        this.plates = plates;
+        this.profile = profile;
+        this.plateSampler = profile.plateSampler(plates.count());
+        this.seededRandom = seededRandom;
+    }
+
+    private RandomGenerator random() {
+        return seededRandom == null ? ThreadLocalRandom.current() : seededRandom;
+    }
+
+    public PlateRecord generatePlateRecord() {
+        return generatePlateRecord(random(), profile, plateSampler, plates, 0, 1, plates.count());
+    }
+
+    /**
+     * Generates a record whose plate is drawn from {@code firstPlate + plateStride * i} of {@code plates} for i below
+     * {@code plateCount}, the slice of the plates owned by one shard of {@link ShardedPlateRecordSource}.
+     * Locations, vehicle classes, lanes and invalid scans are drawn as by {@link #generatePlateRecord()}, plates
+     * by {@code plateSampler} over the slice, or uniformly when it is null.
+     */
+    static PlateRecord generatePlateRecord(RandomGenerator random,
+                                           WorkloadProfile profile,
+                                           ZipfSampler plateSampler,
+                                           PlateNumbers plates,
+                                           int firstPlate,
+                                           int plateStride,
+                                           int plateCount) {
+        long scanTimestamp = System.currentTimeMillis();
+
+        int location = profile.sampleLocation(random.nextLong(), scanTimestamp);
+        int vehicleType = profile.sampleVehicleType(random.nextLong());
+
+        // One random long covers plate and lane
+        long bits = random.nextLong();
+        int slot = plateSampler == null
+                ? (int) (((bits >>> 32) * plateCount) >>> 32)
+                : plateSampler.sample(random);
+        int plate = firstPlate + plateStride * slot;
+        int lane = (int) (((bits & 0xFFFF_FFFFL) * LANE_COUNT) >>> 32);
+        int invalidScanSample = random.nextInt() >>> (Integer.SIZE - INVALID_SCAN_BITS);
+        String plateNum = invalidScanSample < INVALID_SCAN_THRESHOLDS[location]
+                ? plates.invalid(plate)
+                : plates.valid(plate);
+
+        return new PlateRecord(
+                scanTimestamp,
+                LOCATION_NAMES[location],
+                LANES[lane],
+                plateNum,
+                VEHICLE_TYPES[vehicleType]);
+    }
+
+    /**
+     * P(clamp(round(2 * Exp(1))) == i): round(x) == i for x in [i - 0.5, i + 0.5), the last index takes the tail.
+     */
+    static double[] locationProbabilities() {
+        double[] probabilities = new double[LOCATIONS.length];
+        for (int i = 0; i < probabilities.length; i++) {
+            double lower = i == 0 ? 0.0 : exponentialCdf(i - 0.5);
+            double upper = i == probabilities.length - 1 ? 1.0 : exponentialCdf(i + 0.5);
+            probabilities[i] = upper - lower;
+        }
+        return probabilities;
+    }
+
+    /**
+     * P(clamp(round(Normal(mean, stdDev))) == i), the first and last index take the tails.
+     */
+    static double[] vehicleTypeProbabilities() {
+        double[] probabilities = new double[PlateRecordGenerator.VEHICLE_TYPES.length];
+        for (int i = 0; i < probabilities.length; i++) {
+            double lower = i == 0 ? 0.0 : normalCdf(i - 0.5);
+            double upper = i == probabilities.length - 1 ? 1.0 : normalCdf(i + 0.5);
+            probabilities[i] = upper - lower;
+        }
+        return probabilities;
+    }
+
+    private static double exponentialCdf(double x) {
+        return 1.0 - Math.exp(-x / LOCATION_EXPONENTIAL_SCALE);
+    }
+
+    private static double normalCdf(double x) {
+        double z = (x - VEHICLE_TYPE_MEAN) / VEHICLE_TYPE_STD_DEV;
+        return 0.5 * erfc(-z / Math.sqrt(2.0));
+    }
+
+    // Complementary error function with fractional error below 1.2e-7 (Numerical Recipes, erfcc)
+    private static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1.0 / (1.0 + 0.5 * z);
+        double result = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? result : 2.0 - result;
+    }
+}
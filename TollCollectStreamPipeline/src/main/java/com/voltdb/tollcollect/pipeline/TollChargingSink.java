@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import com.voltdb.tollcollect.metrics.MetricsRegistry;
+import com.voltdb.tollcollect.metrics.ScanOutcomeMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.voltdb.client.Client2;
+import org.voltdb.client.Client2Config;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.stream.api.ExecutionContext;
+import org.voltdb.stream.api.pipeline.VoltStreamSink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sink that runs the full toll workflow for every plate record: ProcessPlate (partitioned on plate_num)
+ * followed by ChargeAccount (partitioned on account_id) for charge-eligible scans.
+ * <p>
+ * Both legs are asynchronous. A scan is acknowledged as soon as ProcessPlate returns and its charge is
+ * issued from the response callback, so the two transactions of different records overlap instead of
+ * running back to back. Each leg has its own in-flight window. A scan takes its charge permit before it is sent,
+ * as the charge is issued from a callback that must not block; when the charging leg falls behind, new scans are
+ * held back here, which pushes back on the source instead of queueing without bound. Callbacks that throw are
+ * logged and still release their permits.
+ * <p>
+ * With a {@link ReferenceDataCache} the scans are priced in the pipeline and sent to ProcessPlatePriced,
+ * scans with an invalid location or vehicle class are dropped before reaching the database. With the cents
+ * money model of ddl/other/create_db_cents.sql the sink calls ProcessPlateCents and ChargeAccountCents instead.
+ * <p>
+ * Records are handed to the {@link ScanAcknowledger} once ProcessPlate succeeded or aborted them, or they were
+ * dropped as invalid. The charge of a scan is not waited for.
+ */
+public class TollChargingSink implements VoltStreamSink<PlateRecord> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TollChargingSink.class);
+
+    private final String servers;
+    private final int maxScansInFlight;
+    private final int maxChargesInFlight;
+    private final int reportIntervalSeconds;
+    private final ReferenceDataCache referenceDataCache;
+    private final boolean centsMoneyModel;
+    private final ScanAcknowledger acknowledger;
+    private final String processPlateProcedure;
+    private final String chargeAccountProcedure;
+
+    // Scan lag is ProcessPlate round trip, charge lag is the time from the scan acknowledgement to the charge acknowledgement
+    private final StageStats scanStats = new StageStats("ProcessPlate");
+    private final StageStats chargeStats = new StageStats("ChargeAccount");
+    private final ScanOutcomeMetrics outcomeMetrics =
+            new ScanOutcomeMetrics(MetricsRegistry.defaultRegistry(), "pipeline");
+
+    private Client2 client;
+    private Semaphore scanPermits;
+    private Semaphore chargePermits;
+    private ScheduledExecutorService reporter;
+
+    public TollChargingSink(String servers, int maxScansInFlight, int maxChargesInFlight, int reportIntervalSeconds) {
+        this(servers, maxScansInFlight, maxChargesInFlight, reportIntervalSeconds, null);
+    }
+
+    public TollChargingSink(String servers,
+                            int maxScansInFlight,
+                            int maxChargesInFlight,
+                            int reportIntervalSeconds,
+                            ReferenceDataCache referenceDataCache) {
+        this(servers, maxScansInFlight, maxChargesInFlight, reportIntervalSeconds, referenceDataCache, false);
+    }
+
+    public TollChargingSink(String servers,
+                            int maxScansInFlight,
+                            int maxChargesInFlight,
+                            int reportIntervalSeconds,
+                            ReferenceDataCache referenceDataCache,
+                            boolean centsMoneyModel) {
+        this(servers, maxScansInFlight, maxChargesInFlight, reportIntervalSeconds, referenceDataCache, centsMoneyModel,
+                ScanAcknowledger.NONE);
+    }
+
+    public TollChargingSink(String servers,
+                            int maxScansInFlight,
+                            int maxChargesInFlight,
+                            int reportIntervalSeconds,
+                            ReferenceDataCache referenceDataCache,
+                            boolean centsMoneyModel,
+                            ScanAcknowledger acknowledger) {
+        if (centsMoneyModel && referenceDataCache != null) {
+            throw new IllegalArgumentException("Scans cannot be priced in the pipeline with the cents money model");
+        }
+        this.servers = servers;
+        this.maxScansInFlight = maxScansInFlight;
+        this.maxChargesInFlight = maxChargesInFlight;
+        this.reportIntervalSeconds = reportIntervalSeconds;
+        this.referenceDataCache = referenceDataCache;
+        this.centsMoneyModel = centsMoneyModel;
+        this.acknowledger = acknowledger;
+        this.processPlateProcedure = centsMoneyModel ? "ProcessPlateCents" : "ProcessPlate";
+        this.chargeAccountProcedure = centsMoneyModel ? "ChargeAccountCents" : "ChargeAccount";
+    }
+
+    @Override
+    public void start(ExecutionContext context) {
+        Client2Config config = new Client2Config()
+                .clientRequestLimit(maxScansInFlight + maxChargesInFlight);
+        client = ClientFactory.createClient(config);
+        try {
+            client.connectSync(servers);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to connect to Volt at " + servers, e);
+        }
+
+        scanPermits = new Semaphore(maxScansInFlight);
+        chargePermits = new Semaphore(maxChargesInFlight);
+
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "toll-charging-stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = TimeUnit.SECONDS.toNanos(reportIntervalSeconds);
+        reporter.scheduleAtFixedRate(() -> {
+                    LOG.info(scanStats.reportAndReset(intervalNanos));
+                    LOG.info(chargeStats.reportAndReset(intervalNanos));
+                },
+                reportIntervalSeconds,
+                reportIntervalSeconds,
+                TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void consume(PlateRecord record, ExecutionContext context) {
+        String procedure;
+        Object[] arguments;
+        if (referenceDataCache == null) {
+            procedure = processPlateProcedure;
+            arguments = TollCollectStream.processPlateArguments(record);
+        } else {
+            procedure = "ProcessPlatePriced";
+            arguments = referenceDataCache.processPlatePricedArguments(record);
+            if (arguments == null) {
+                // Invalid location or vehicle class, not worth a transaction
+                acknowledger.acknowledge(record);
+                return;
+            }
+        }
+
+        // Charges are issued from client callbacks which must never block, so reserve the charge of the scan here
+        chargePermits.acquireUninterruptibly();
+        scanPermits.acquireUninterruptibly();
+
+        scanStats.started();
+        long submitted = System.nanoTime();
+        callAsync(procedure, arguments)
+                .whenComplete((response, error) -> {
+                    scanPermits.release();
+                    boolean charging = false;
+                    try {
+                        charging = scanCompleted(record, procedure, submitted, response, error);
+                    } catch (RuntimeException e) {
+                        LOG.error("Unable to handle the {} response for plate {}", procedure, record.plateNum(), e);
+                    } finally {
+                        // Done whatever the outcome, retrying a lost connection or a timeout could charge twice
+                        acknowledger.acknowledge(record);
+                        if (!charging) {
+                            chargePermits.release();
+                        }
+                    }
+                });
+    }
+
+    // Returns whether the scan was charged, the charge then releases its permit
+    private boolean scanCompleted(PlateRecord record,
+                                  String procedure,
+                                  long submitted,
+                                  ClientResponse response,
+                                  Throwable error) {
+        if (!isSuccess(procedure, response, error)) {
+            scanStats.failed(response);
+            if (response != null && response.getStatus() == ClientResponse.USER_ABORT) {
+                outcomeMetrics.aborted(1);
+            }
+            return false;
+        }
+        // Counted first, so that commit does not wait on a scan whose callback failed
+        long acknowledged = System.nanoTime();
+        scanStats.succeeded(acknowledged - submitted);
+
+        if (referenceDataCache != null && response.getAppStatus() == ReferenceDataCache.STALE_REFERENCE_DATA) {
+            referenceDataCache.refreshNow();
+        }
+
+        ScanOutcome outcome = ScanOutcome.fromProcessPlateResult(record, response.getResults()[0]);
+        outcomeMetrics.record(outcome.tollReason());
+        if (!outcome.isChargeable()) {
+            return false;
+        }
+        charge(outcome, acknowledged);
+        return true;
+    }
+
+    private void charge(ScanOutcome outcome, long scanAcknowledged) {
+        Object[] arguments = centsMoneyModel
+                ? outcome.toChargeAccountCentsArguments()
+                : outcome.toChargeAccountArguments();
+        chargeStats.started();
+        callAsync(chargeAccountProcedure, arguments)
+                .whenComplete((response, error) -> {
+                    try {
+                        if (isSuccess(chargeAccountProcedure, response, error)) {
+                            chargeStats.succeeded(System.nanoTime() - scanAcknowledged);
+                        } else {
+                            chargeStats.failed(response);
+                        }
+                    } catch (RuntimeException e) {
+                        LOG.error("Unable to handle the {} response", chargeAccountProcedure, e);
+                    } finally {
+                        chargePermits.release();
+                    }
+                });
+    }
+
+    /**
+     * Calls the procedure, completing exceptionally when the call throws before it is queued, such as on a closed
+     * client. The callback then releases the permits and counts the failure like for any other failed call.
+     */
+    private CompletableFuture<ClientResponse> callAsync(String procedure, Object... arguments) {
+        try {
+            return client.callProcedureAsync(procedure, arguments);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static boolean isSuccess(String procedure, ClientResponse response, Throwable error) {
+        if (error != null) {
+            LOG.debug("Error calling procedure {}", procedure, error);
+            return false;
+        }
+        if (response.getStatus() != ClientResponse.SUCCESS) {
+            LOG.debug("Error calling procedure {}: {}", procedure, response.getStatusString());
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void commit(ExecutionContext context) {
+        // A record is only done once both of its legs are, and charges are queued from scan callbacks
+        while (scanStats.inFlight() > 0 || chargeStats.inFlight() > 0) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    @Override
+    public void close(ExecutionContext context) {
+        if (client == null) {
+            return;
+        }
+
+        commit(context);
+        reporter.shutdownNow();
+        client.close();
+        if (referenceDataCache != null) {
+            referenceDataCache.close();
+        }
+    }
+}
@@ -7,12 +7,18 @@
  */
 package com.voltdb.tollcollect.pipeline;
 
+import com.voltdb.tollcollect.common.PlateNumbers;
+import com.voltdb.tollcollect.metrics.MetricsRegistry;
+import com.voltdb.tollcollect.metrics.MetricsServer;
 import org.voltdb.stream.api.ExecutionContext;
 import org.voltdb.stream.api.Sinks;
 import org.voltdb.stream.api.Sources;
 import org.voltdb.stream.api.pipeline.VoltPipeline;
 import org.voltdb.stream.api.pipeline.VoltStreamBuilder;
 
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
 public class TollCollectStream implements VoltPipeline {
 
     @Override
@@ -21,30 +27,205 @@ public class TollCollectStream implements VoltPipeline {
         ExecutionContext.ConfigurationContext configurator = stream.getExecutionContext().configurator();
         int tps = configurator.findByPath("tps").asInt();
         String voltdbServer = configurator.findByPath("voltdb.server").asString();
+        String sinkMode = configurator.findByPath("sink.mode").asString();
+        String pricingMode = configurator.findByPath("pricing.mode").asString();
+        // decimal: ddl/create_db.sql. cents: ddl/other/create_db_cents.sql with the Cents procedure variants
+        boolean centsMoneyModel = "cents".equals(configurator.findByPath("money.model").asString());
+
+        // Price scans in the pipeline from a cached snapshot of the reference data, or leave it to ProcessPlate.
+        // The cents schema has no ProcessPlatePriced, ProcessPlateCents always prices the scans itself.
+        ReferenceDataCache referenceDataCache = null;
+        if ("cache".equals(pricingMode) && !centsMoneyModel && !"batch".equals(sinkMode)) {
+            referenceDataCache = new ReferenceDataCache(
+                    voltdbServer,
+                    configurator.findByPath("pricing.versionPollSeconds").asInt(),
+                    configurator.findByPath("pricing.refreshSeconds").asInt()
+            );
+        }
+
+        // Expose the stage metrics to Prometheus, the stages register themselves in the default registry
+        int metricsPort = configurator.findByPath("metrics.port").asInt();
+        if (metricsPort > 0) {
+            MetricsServer.start(metricsPort, MetricsRegistry.defaultRegistry());
+        }
 
-        PlateRecordGenerator plateRecordGenerator = new PlateRecordGenerator();
+        // replay: a recorded scan log. kafka: scan events from a topic. generator: synthetic scans, table driven
+        // or the original generator
+        // The plates scanned must match the KNOWN_VEHICLES loaded, see DatasetGenerator in TollCollectClient
+        int plateCount = configurator.findByPath("generator.plates").asInt();
+        // Skewed plates, vehicle mix, location bursts and rate curve of the table and sharded generators
+        WorkloadProfile profile = new WorkloadProfile(
+                configurator.findByPath("profile.plateSkew").asDouble(),
+                configurator.findByPath("profile.vehicleMix").asString(),
+                configurator.findByPath("profile.rateCurve").asString(),
+                configurator.findByPath("profile.dayLengthSeconds").asInt(),
+                configurator.findByPath("profile.burstLocation").asString(),
+                configurator.findByPath("profile.burstEverySeconds").asInt(),
+                configurator.findByPath("profile.burstSeconds").asInt(),
+                configurator.findByPath("profile.burstFactor").asDouble()
+        );
+        Supplier<PlateRecord> plateRecordSupplier;
+        // Told when a scan is done, for the kafka source to commit its offset
+        ScanAcknowledger acknowledger = ScanAcknowledger.NONE;
+        String sourceMode = configurator.findByPath("source.mode").asString();
+        if ("kafka".equals(sourceMode)) {
+            KafkaScanSource kafkaSource = new KafkaScanSource(
+                    configurator.findByPath("kafka.bootstrapServers").asString(),
+                    configurator.findByPath("kafka.topic").asString(),
+                    configurator.findByPath("kafka.groupId").asString(),
+                    configurator.findByPath("kafka.consumers").asInt(),
+                    configurator.findByPath("kafka.queueCapacity").asInt(),
+                    configurator.findByPath("kafka.maxPendingScans").asInt(),
+                    configurator.findByPath("kafka.commitIntervalMillis").asInt()
+            );
+            if ("charge".equals(sinkMode) || "batch".equals(sinkMode)) {
+                acknowledger = kafkaSource;
+                plateRecordSupplier = kafkaSource;
+            } else {
+                // The procedure sink reports no outcomes, so offsets are committed once the scans are taken
+                plateRecordSupplier = () -> {
+                    PlateRecord record = kafkaSource.get();
+                    kafkaSource.acknowledge(record);
+                    return record;
+                };
+            }
+            // The topic paces the source, the source rate is only a ceiling
+            tps = configurator.findByPath("kafka.maxTps").asInt();
+        } else if ("replay".equals(sourceMode)) {
+            plateRecordSupplier = new ScanLogReplay(
+                    Path.of(configurator.findByPath("replay.file").asString()),
+                    "original".equals(configurator.findByPath("replay.timing").asString()),
+                    configurator.findByPath("replay.speed").asDouble(),
+                    configurator.findByPath("replay.loop").asBoolean()
+            );
+            // The replay paces itself, the source rate is only a ceiling
+            tps = configurator.findByPath("replay.maxTps").asInt();
+        } else if ("classic".equals(configurator.findByPath("generator.mode").asString())) {
+            PlateRecordGenerator plateRecordGenerator = new PlateRecordGenerator(plateCount);
+            plateRecordSupplier = plateRecordGenerator::generatePlateRecord;
+        } else if ("sharded".equals(configurator.findByPath("generator.mode").asString())) {
+            // One shard per worker thread with its own plates, random stream and part of the rate.
+            // The shards pace themselves, the source rate is only a ceiling.
+            plateRecordSupplier = new ShardedPlateRecordSource(
+                    configurator.findByPath("generator.shards").asInt(),
+                    tps,
+                    configurator.findByPath("generator.seed").asLong(),
+                    new PlateNumbers(plateCount),
+                    profile
+            );
+        } else {
+            if (profile.hasRateCurve()) {
+                // Sources.generateAtRate keeps a constant rate, only the sharded source paces itself
+                throw new IllegalArgumentException("profile.rateCurve needs generator.mode: sharded");
+            }
+            TablePlateRecordGenerator plateRecordGenerator =
+                    new TablePlateRecordGenerator(new PlateNumbers(plateCount), profile);
+            plateRecordSupplier = plateRecordGenerator::generatePlateRecord;
+        }
 
-        stream
+        var records = stream
                 .withName("Toll Collector Data Stream")
                 .consumeFromSource(
                         Sources.generateAtRate(
                                 tps,
-                                plateRecordGenerator::generatePlateRecord
+                                new MeteredSupplier<>(plateRecordSupplier, tps)
                         )
-                )
-                .processWith(
-                        record -> new Object[]{
-                                record.scanTimestamp(),
-                                record.location(),
-                                record.lane(),
-                                record.plateNum(),
-                                record.vehicleClass()
-                        }
-                )
-                .terminateWithSink(
-                        Sinks.volt().procedureCall()
-                                .withProcedureName("ProcessPlate")
-                                .withHostAndStandardPort(voltdbServer)
                 );
+
+        // Optionally capture the traffic into a scan log for later replay
+        String recordFile = configurator.findByPath("record.file").asString();
+        if (recordFile != null && !recordFile.isEmpty()) {
+            records = records.processWith(new ScanLogRecorder(Path.of(recordFile)));
+        }
+
+        // Drop repeated reads of a plate at the same gantry before they become transactions
+        if (configurator.findByPath("dedup.enabled").asBoolean()) {
+            records = records.processWith(
+                    new DuplicateReadFilter(
+                            configurator.findByPath("dedup.windowSeconds").asInt(),
+                            configurator.findByPath("dedup.maxKeysPerWindow").asInt(),
+                            configurator.findByPath("dedup.stripes").asInt(),
+                            configurator.findByPath("charging.reportIntervalSeconds").asInt(),
+                            acknowledger
+                    )
+            );
+        }
+
+        // Flag plates seen at locations too far apart for the time between the scans
+        if (configurator.findByPath("clone.enabled").asBoolean()) {
+            records = records.processWith(
+                    new ClonedPlateDetector(
+                            voltdbServer,
+                            configurator.findByPath("clone.maxSpeedKmh").asDouble(),
+                            configurator.findByPath("clone.maxPlates").asInt(),
+                            configurator.findByPath("clone.stripes").asInt(),
+                            configurator.findByPath("clone.cooldownSeconds").asInt(),
+                            configurator.findByPath("clone.maxReportsInFlight").asInt(),
+                            configurator.findByPath("charging.reportIntervalSeconds").asInt()
+                    )
+            );
+        }
+
+        if ("batch".equals(sinkMode)) {
+            // Group scans by partition into ProcessPlateBatch transactions, then charge the owning accounts.
+            // Batches are priced by ProcessPlateBatch, once per distinct location and vehicle class.
+            if (centsMoneyModel) {
+                throw new IllegalArgumentException("sink.mode batch needs money.model decimal");
+            }
+            records.terminateWithSink(
+                    new PartitionBatchingSink(
+                            voltdbServer,
+                            configurator.findByPath("batching.maxBatchSize").asInt(),
+                            configurator.findByPath("batching.lingerMillis").asInt(),
+                            configurator.findByPath("batching.maxBatchesInFlight").asInt(),
+                            configurator.findByPath("charging.maxChargesInFlight").asInt(),
+                            configurator.findByPath("charging.reportIntervalSeconds").asInt(),
+                            configurator.findByPath("batching.partitionRefreshSeconds").asInt(),
+                            acknowledger
+                    )
+            );
+        } else if ("charge".equals(sinkMode)) {
+            // Process the plate and charge the owning account, both asynchronously
+            records.terminateWithSink(
+                    new TollChargingSink(
+                            voltdbServer,
+                            configurator.findByPath("charging.maxScansInFlight").asInt(),
+                            configurator.findByPath("charging.maxChargesInFlight").asInt(),
+                            configurator.findByPath("charging.reportIntervalSeconds").asInt(),
+                            referenceDataCache,
+                            centsMoneyModel,
+                            acknowledger
+                    )
+            );
+        } else if (referenceDataCache != null) {
+            // Only process the plate, with the toll priced and invalid scans dropped in the pipeline
+            records
+                    .processWith(new TollPricingFunction(referenceDataCache))
+                    .terminateWithSink(
+                            Sinks.volt().procedureCall()
+                                    .withProcedureName("ProcessPlatePriced")
+                                    .withHostAndStandardPort(voltdbServer)
+                    );
+        } else {
+            // Only process the plate, accounts are charged by other means
+            records
+                    .processWith(TollCollectStream::processPlateArguments)
+                    .terminateWithSink(
+                            Sinks.volt().procedureCall()
+                                    .withProcedureName(centsMoneyModel ? "ProcessPlateCents" : "ProcessPlate")
+                                    .withHostAndStandardPort(voltdbServer)
+                    );
+        }
+    }
+
+    // Maps a record onto the parameters of the ProcessPlate procedure
+    public static Object[] processPlateArguments(PlateRecord record) {
+        return new Object[]{
+                record.scanTimestamp(),
+                record.location(),
+                record.lane(),
+                record.plateNum(),
+                record.vehicleClass()
+        };
     }
 }
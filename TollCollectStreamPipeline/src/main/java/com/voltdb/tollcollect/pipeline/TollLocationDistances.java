@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.voltdb.VoltTable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Great circle distances between the toll locations and the shortest time a vehicle needs to cover them at
+ * {@code maxSpeedKmh}, precomputed from the latitude and longitude columns of TOLL_LOCATIONS.
+ */
+public final class TollLocationDistances {
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final Map<String, Integer> indexByLocation;
+    private final String[] locations;
+    private final double[] distanceKm;
+    private final long[] minTravelMillis;
+    private final long maxMinTravelMillis;
+
+    TollLocationDistances(String[] locations, double[] latitudes, double[] longitudes, double maxSpeedKmh) {
+        int count = locations.length;
+        this.locations = locations;
+        this.indexByLocation = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            indexByLocation.put(locations[i], i);
+        }
+
+        this.distanceKm = new double[count * count];
+        this.minTravelMillis = new long[count * count];
+        long longest = 0;
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < count; j++) {
+                double distance = haversineKm(latitudes[i], longitudes[i], latitudes[j], longitudes[j]);
+                long travelMillis = (long) (distance / maxSpeedKmh * 3_600_000);
+                distanceKm[i * count + j] = distance;
+                minTravelMillis[i * count + j] = travelMillis;
+                longest = Math.max(longest, travelMillis);
+            }
+        }
+        this.maxMinTravelMillis = longest;
+    }
+
+    /**
+     * Builds the distances from the TOLL_LOCATIONS table as returned by GetReferenceData.
+     */
+    static TollLocationDistances fromTable(VoltTable tollLocations, double maxSpeedKmh) {
+        int count = tollLocations.getRowCount();
+        String[] locations = new String[count];
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; tollLocations.advanceRow(); i++) {
+            locations[i] = tollLocations.getString("TOLL_LOC");
+            latitudes[i] = tollLocations.getDecimalAsBigDecimal("LATITUDE").doubleValue();
+            longitudes[i] = tollLocations.getDecimalAsBigDecimal("LONGITUDE").doubleValue();
+        }
+        return new TollLocationDistances(locations, latitudes, longitudes, maxSpeedKmh);
+    }
+
+    /**
+     * Returns the index of the location, or -1 if it is unknown.
+     */
+    public int index(String location) {
+        Integer index = indexByLocation.get(location);
+        return index == null ? -1 : index;
+    }
+
+    public String location(int index) {
+        return locations[index];
+    }
+
+    public double distanceKm(int from, int to) {
+        return distanceKm[from * locations.length + to];
+    }
+
+    public long minTravelMillis(int from, int to) {
+        return minTravelMillis[from * locations.length + to];
+    }
+
+    /**
+     * The longest of the minimum travel times. A sighting older than this cannot be part of an impossible pair.
+     */
+    public long maxMinTravelMillis() {
+        return maxMinTravelMillis;
+    }
+
+    static double haversineKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+        double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(deltaLatitude / 2) * Math.sin(deltaLatitude / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(deltaLongitude / 2) * Math.sin(deltaLongitude / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
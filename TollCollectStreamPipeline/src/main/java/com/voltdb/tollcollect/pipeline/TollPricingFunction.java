@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.voltdb.stream.api.ExecutionContext;
+import org.voltdb.stream.api.pipeline.VoltStreamFunction;
+
+import java.util.function.Consumer;
+
+/**
+ * Prices records from the reference data cache and maps them onto the parameters of ProcessPlatePriced.
+ * Records with an invalid location or vehicle class are dropped here instead of aborting in the database.
+ */
+public class TollPricingFunction implements VoltStreamFunction<PlateRecord, Object[]> {
+
+    private final ReferenceDataCache referenceDataCache;
+
+    public TollPricingFunction(ReferenceDataCache referenceDataCache) {
+        this.referenceDataCache = referenceDataCache;
+    }
+
+    @Override
+    public void process(PlateRecord record, Consumer<Object[]> consumer, ExecutionContext context) {
+        Object[] arguments = referenceDataCache.processPlatePricedArguments(record);
+        if (arguments != null) {
+            consumer.accept(arguments);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import com.voltdb.tollcollect.pipeline.PlateRecordGenerator.Location;
+
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shape of the synthetic traffic drawn by {@link TablePlateRecordGenerator} and {@link ShardedPlateRecordSource},
+ * from the {@code profile} section of the configuration. Each part can be changed on its own:
+ * <ul>
+ *     <li>plate popularity: uniform, or Zipf with exponent {@code plateSkew}, where plate X000 is the most
+ *     frequent, X001 the next and so on. A skew of 1 or more makes a few commuter plates, and their
+ *     partitions, hot;</li>
+ *     <li>vehicle mix: {@code default}, the classes of {@link PlateRecordGenerator}, {@code fleet}, mostly trucks
+ *     and buses, or five comma separated weights for Motorcycle, Car, Small Truck, Large Truck and Bus;</li>
+ *     <li>location bursts: every {@code burstEverySeconds}, for {@code burstSeconds}, {@code burstLocation} gets
+ *     {@code burstFactor} times its usual share of the scans;</li>
+ *     <li>rate curve: {@code flat}, {@code commuter}, with morning and evening rush hours, or 24 comma separated
+ *     hourly factors. The rate at a time of day is {@code tps} times the factor, interpolated between hours, so
+ *     {@code tps} is the peak. {@code dayLengthSeconds} below 86400 plays a day faster.</li>
+ * </ul>
+ * Every record is sampled in constant time: plates by {@link ZipfSampler}, locations and classes by
+ * {@link AliasTable}s built here. The rate curve only applies to sources that pace themselves, see
+ * {@link ShardedPlateRecordSource}. An instance is immutable and can be shared between threads.
+ */
+public class WorkloadProfile {
+
+    public static final WorkloadProfile DEFAULT =
+            new WorkloadProfile(0, "default", "flat", 86400, "", 300, 30, 1);
+
+    private static final double[] FLEET_VEHICLE_MIX = {0.02, 0.23, 0.25, 0.32, 0.18};
+
+    // Share of the peak rate per hour of the day, starting at midnight
+    private static final double[] COMMUTER_RATE_CURVE = {
+            0.08, 0.05, 0.04, 0.04, 0.07, 0.20, 0.55, 0.95, 1.00, 0.70, 0.50, 0.50,
+            0.55, 0.50, 0.50, 0.60, 0.85, 1.00, 0.90, 0.60, 0.40, 0.30, 0.20, 0.12
+    };
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // The lowest rate factor, so that a shard never stops completely
+    private static final double MIN_RATE_FACTOR = 0.001;
+
+    private final double plateSkew;
+    private final AliasTable vehicleTypeTable;
+    private final AliasTable locationTable;
+    private final AliasTable burstLocationTable;
+    private final long burstEveryMillis;
+    private final long burstMillis;
+    private final double[] rateCurve;
+    private final double daySpeedup;
+    private final long midnightOffsetMillis;
+
+    public WorkloadProfile(double plateSkew,
+                           String vehicleMix,
+                           String rateCurve,
+                           int dayLengthSeconds,
+                           String burstLocation,
+                           int burstEverySeconds,
+                           int burstSeconds,
+                           double burstFactor) {
+        if (plateSkew < 0) {
+            throw new IllegalArgumentException("Plate skew must not be negative, was " + plateSkew);
+        }
+        if (dayLengthSeconds <= 0) {
+            throw new IllegalArgumentException("Day length must be positive, was " + dayLengthSeconds);
+        }
+        this.plateSkew = plateSkew;
+        this.vehicleTypeTable = new AliasTable(vehicleMix(vehicleMix));
+
+        double[] locationProbabilities = TablePlateRecordGenerator.locationProbabilities();
+        this.locationTable = new AliasTable(locationProbabilities);
+        if (burstLocation == null || burstLocation.isEmpty() || burstFactor == 1) {
+            this.burstLocationTable = null;
+            this.burstEveryMillis = 1;
+            this.burstMillis = 0;
+        } else {
+            if (burstSeconds <= 0 || burstEverySeconds < burstSeconds || burstFactor <= 0) {
+                throw new IllegalArgumentException("A burst must last between 1 second and burstEverySeconds, "
+                        + "with a positive factor");
+            }
+            double[] burstProbabilities = locationProbabilities.clone();
+            burstProbabilities[location(burstLocation).ordinal()] *= burstFactor;
+            this.burstLocationTable = new AliasTable(burstProbabilities);
+            this.burstEveryMillis = TimeUnit.SECONDS.toMillis(burstEverySeconds);
+            this.burstMillis = TimeUnit.SECONDS.toMillis(burstSeconds);
+        }
+
+        this.rateCurve = rateCurve(rateCurve);
+        this.daySpeedup = DAY_MILLIS / (double) TimeUnit.SECONDS.toMillis(dayLengthSeconds);
+        // Time of day in the local time zone, a faster day starts at midnight when the profile is created
+        long now = System.currentTimeMillis();
+        this.midnightOffsetMillis = dayLengthSeconds == TimeUnit.DAYS.toSeconds(1)
+                ? LocalTime.now(ZoneId.systemDefault()).toNanoOfDay() / 1_000_000 - now
+                : -now;
+    }
+
+    private static double[] vehicleMix(String mix) {
+        if ("default".equals(mix)) {
+            return TablePlateRecordGenerator.vehicleTypeProbabilities();
+        }
+        if ("fleet".equals(mix)) {
+            return FLEET_VEHICLE_MIX.clone();
+        }
+        double[] weights = parseNumbers(mix, PlateRecordGenerator.VEHICLE_TYPES.length, "vehicle mix");
+        if (Arrays.stream(weights).sum() <= 0) {
+            throw new IllegalArgumentException("Vehicle mix " + mix + " has no positive weight");
+        }
+        return weights;
+    }
+
+    private static double[] rateCurve(String curve) {
+        if ("flat".equals(curve)) {
+            return null;
+        }
+        if ("commuter".equals(curve)) {
+            return COMMUTER_RATE_CURVE;
+        }
+        double[] factors = parseNumbers(curve, 24, "rate curve");
+        for (int i = 0; i < factors.length; i++) {
+            factors[i] = Math.max(MIN_RATE_FACTOR, Math.min(1.0, factors[i]));
+        }
+        return factors;
+    }
+
+    private static double[] parseNumbers(String text, int count, String description) {
+        String[] parts = text.split(",");
+        if (parts.length != count) {
+            throw new IllegalArgumentException("Expected a name or " + count + " comma separated numbers for the "
+                    + description + ", got " + text);
+        }
+        double[] numbers = new double[count];
+        for (int i = 0; i < count; i++) {
+            numbers[i] = Double.parseDouble(parts[i].trim());
+            if (numbers[i] < 0) {
+                throw new IllegalArgumentException("Negative value in the " + description + " " + text);
+            }
+        }
+        return numbers;
+    }
+
+    private static Location location(String name) {
+        for (Location location : Location.values()) {
+            if (location.getName().equals(name)) {
+                return location;
+            }
+        }
+        throw new IllegalArgumentException("Unknown toll location " + name);
+    }
+
+    boolean isSkewed() {
+        return plateSkew > 0;
+    }
+
+    /**
+     * Sampler for the plates of a generator or shard drawing from {@code plateCount} plates, null when uniform.
+     */
+    ZipfSampler plateSampler(int plateCount) {
+        return plateSkew > 0 ? new ZipfSampler(plateCount, plateSkew) : null;
+    }
+
+    int sampleVehicleType(long random) {
+        return vehicleTypeTable.sample(random);
+    }
+
+    int sampleLocation(long random, long scanTimestamp) {
+        if (burstLocationTable != null && scanTimestamp % burstEveryMillis < burstMillis) {
+            return burstLocationTable.sample(random);
+        }
+        return locationTable.sample(random);
+    }
+
+    boolean hasRateCurve() {
+        return rateCurve != null;
+    }
+
+    /**
+     * Share of the peak rate at the given time, between 0.001 and 1.
+     */
+    double rateFactor(long epochMillis) {
+        if (rateCurve == null) {
+            return 1.0;
+        }
+        double timeOfDay = ((epochMillis + midnightOffsetMillis) * daySpeedup) % DAY_MILLIS;
+        if (timeOfDay < 0) {
+            timeOfDay += DAY_MILLIS;
+        }
+        double hours = timeOfDay / HOUR_MILLIS;
+        int hour = (int) hours;
+        double fraction = hours - hour;
+        return rateCurve[hour] + (rateCurve[(hour + 1) % rateCurve.length] - rateCurve[hour]) * fraction;
+    }
+}
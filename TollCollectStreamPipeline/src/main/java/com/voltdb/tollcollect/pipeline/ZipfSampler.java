@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Samples ranks 0 to {@code count - 1} with probability proportional to {@code 1 / (rank + 1)^exponent}, using
+ * rejection-inversion (Hörmann and Derflinger, "Rejection-inversion to generate variates from monotone discrete
+ * distributions", 1996).
+ * <p>
+ * Sampling takes about 1.1 iterations on average whatever the count and exponent, and nothing is precomputed
+ * per rank, so 10 million plates cost the same as 1000. An instance is immutable and can be shared between
+ * threads.
+ */
+final class ZipfSampler {
+
+    private final int count;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralCount;
+    private final double s;
+
+    ZipfSampler(int count, double exponent) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive, was " + count);
+        }
+        if (exponent <= 0) {
+            throw new IllegalArgumentException("Exponent must be positive, was " + exponent);
+        }
+        this.count = count;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1.0;
+        this.hIntegralCount = hIntegral(count + 0.5);
+        this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+    }
+
+    int sample(RandomGenerator random) {
+        while (true) {
+            double u = hIntegralCount + random.nextDouble() * (hIntegralX1 - hIntegralCount);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > count) {
+                k = count;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k - 1;
+            }
+        }
+    }
+
+    // Antiderivative of h, zero at 1
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1.0 - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1.0 - exponent);
+        if (t < -1.0) {
+            // Limited to avoid NaN from rounding errors
+            t = -1.0;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log(1 + x) / x, continuous at 0
+    private static double helper1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+
+    // (exp(x) - 1) / x, continuous at 0
+    private static double helper2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x / 3.0 * (1.0 + 0.25 * x));
+    }
+}
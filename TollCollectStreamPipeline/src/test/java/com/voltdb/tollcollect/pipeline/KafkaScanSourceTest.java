@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KafkaScanSourceTest {
+
+    private static final String TOPIC = "gantry_scans";
+    private static final int RECORDS_PER_PARTITION = 1000;
+
+    @Test
+    void format() {
+        ScanEventFormat format = new ScanEventFormat();
+        TablePlateRecordGenerator generator = new TablePlateRecordGenerator(42);
+        for (int i = 0; i < 100_000; i++) {
+            PlateRecord record = generator.generatePlateRecord();
+            PlateRecord decoded = format.decode(ScanEventFormat.encode(record));
+            assertEquals(record, decoded, "decoded record");
+            // Known values are shared, not copied out of the event
+            assertSame(record.location(), decoded.location(), "shared location");
+            assertSame(record.vehicleClass(), decoded.vehicleClass(), "shared vehicle class");
+        }
+
+        PlateRecord unknown = new PlateRecord(7L, "Nowhere", "12", "Z123", "Hovercraft");
+        assertEquals(unknown, format.decode(ScanEventFormat.encode(unknown)), "unknown values decode too");
+        byte[] truncated = ScanEventFormat.encode(unknown);
+        assertThrows(IllegalArgumentException.class,
+                () -> format.decode(Arrays.copyOf(truncated, truncated.length - 3)), "truncated event");
+    }
+
+    @Test
+    void commits() {
+        TopicPartition partition0 = new TopicPartition(TOPIC, 0);
+        TopicPartition partition1 = new TopicPartition(TOPIC, 1);
+        MockConsumer<byte[], byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        TablePlateRecordGenerator generator = new TablePlateRecordGenerator(7);
+
+        // The broker stand-in assigns both partitions on the first poll and holds an undecodable event at offset 0
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(partition0, partition1));
+            consumer.updateBeginningOffsets(Map.of(partition0, 0L, partition1, 0L));
+            consumer.addRecord(new ConsumerRecord<>(TOPIC, 1, 0, null, new byte[]{1, 2, 3}));
+            for (int i = 0; i < RECORDS_PER_PARTITION; i++) {
+                consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, i, null,
+                        ScanEventFormat.encode(generator.generatePlateRecord())));
+                consumer.addRecord(new ConsumerRecord<>(TOPIC, 1, i + 1, null,
+                        ScanEventFormat.encode(generator.generatePlateRecord())));
+            }
+        });
+
+        KafkaScanSource source = new KafkaScanSource(() -> consumer, TOPIC, 1, 5000, 5000, 10);
+        List<PlateRecord> received = new ArrayList<>();
+        for (int i = 0; i < 2 * RECORDS_PER_PARTITION; i++) {
+            received.add(source.get());
+        }
+        assertEquals(1, source.undecodableCount(), "undecodable events");
+
+        // Nothing is acknowledged, so only the undecodable event can be committed
+        awaitCommitted(consumer, partition1, 1);
+        expectCommitted(consumer, partition0, -1);
+
+        // Acknowledge all but one scan, the commit of its partition stops there
+        PlateRecord held = received.get(RECORDS_PER_PARTITION / 2);
+        for (PlateRecord record : received) {
+            if (record != held) {
+                source.acknowledge(record);
+            }
+        }
+        awaitCommitted(consumer, partition1, RECORDS_PER_PARTITION + 1);
+        long committed0 = committed(consumer, partition0);
+        assertTrue(committed0 < RECORDS_PER_PARTITION, "committed past an unacknowledged scan: " + committed0);
+
+        source.acknowledge(held);
+        awaitCommitted(consumer, partition0, RECORDS_PER_PARTITION);
+        assertEquals(2 * RECORDS_PER_PARTITION, source.acknowledgedCount(), "every scan acknowledged once");
+        source.close();
+    }
+
+    @Test
+    void pendingBounded() {
+        TopicPartition partition = new TopicPartition(TOPIC, 0);
+        MockConsumer<byte[], byte[]> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        TablePlateRecordGenerator generator = new TablePlateRecordGenerator(11);
+
+        // Every poll finds another 500 scans on the broker stand-in, whether or not the partition is paused
+        consumer.schedulePollTask(() -> {
+            consumer.rebalance(List.of(partition));
+            consumer.updateBeginningOffsets(Map.of(partition, 0L));
+        });
+        for (int poll = 0; poll < 4; poll++) {
+            int first = poll * 500;
+            consumer.schedulePollTask(() -> {
+                for (int offset = first; offset < first + 500; offset++) {
+                    consumer.addRecord(new ConsumerRecord<>(TOPIC, 0, offset, null,
+                            ScanEventFormat.encode(generator.generatePlateRecord())));
+                }
+            });
+        }
+
+        KafkaScanSource source = new KafkaScanSource(() -> consumer, TOPIC, 1, 1000, 1000, 10);
+        List<PlateRecord> received = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            received.add(source.get());
+        }
+        // The queue is empty again, but another poll could take the unacknowledged scans past the limit
+        sleep(200);
+        assertEquals(1000, source.receivedCount(), "paused on unacknowledged scans");
+
+        received.forEach(source::acknowledge);
+        for (int i = 0; i < 1000; i++) {
+            source.get();
+        }
+        assertEquals(1000, source.acknowledgedCount(), "acknowledged scans");
+        source.close();
+    }
+
+    private static long committed(MockConsumer<byte[], byte[]> consumer, TopicPartition partition) {
+        OffsetAndMetadata offset = consumer.committed(Set.of(partition)).get(partition);
+        return offset == null ? -1 : offset.offset();
+    }
+
+    private static void expectCommitted(MockConsumer<byte[], byte[]> consumer, TopicPartition partition,
+                                        long expected) {
+        assertEquals(expected, committed(consumer, partition), "committed offset of " + partition);
+    }
+
+    private static void awaitCommitted(MockConsumer<byte[], byte[]> consumer, TopicPartition partition, long expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (committed(consumer, partition) != expected && System.nanoTime() < deadline) {
+            sleep(10);
+        }
+        expectCommitted(consumer, partition, expected);
+    }
+
+    private static void sleep(long millis) {
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
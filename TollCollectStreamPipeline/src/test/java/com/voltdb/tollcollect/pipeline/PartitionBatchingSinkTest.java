@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.Client2;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.HashinatorLite;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the sink against a client that records the procedure calls and completes them when the test says so.
+ * Plates starting with X belong to account 1 and are charged, the others are unknown vehicles.
+ */
+class PartitionBatchingSinkTest {
+
+    // Long enough for the scheduler never to flush, refresh or report on its own
+    private static final int LINGER_MILLIS = 3_600_000;
+    private static final int INTERVAL_SECONDS = 3600;
+    // Tokens below 0 hash to partition 0, the others to partition 1
+    private static final byte[] HASH_CONFIG = ByteBuffer.allocate(4 + 2 * 8)
+            .putInt(2)
+            .putInt(Integer.MIN_VALUE).putInt(0)
+            .putInt(0).putInt(1)
+            .array();
+    private static final String[] PARTITION_KEYS = {"key0", "key1"};
+
+    private final List<Call> calls = new CopyOnWriteArrayList<>();
+    private final AtomicInteger acknowledged = new AtomicInteger();
+    // Calls succeed as soon as they are made, otherwise when the test completes them
+    private volatile boolean succeedAtOnce;
+    // Calls throw instead of being queued, as on a closed client
+    private volatile boolean throwing;
+    private PartitionBatchingSink sink;
+
+    @AfterEach
+    void close() {
+        // Whatever is in flight or still to be sent succeeds, so that close does not wait forever
+        succeedAtOnce = true;
+        for (int i = 0; i < calls.size(); i++) {
+            if (!calls.get(i).response().isDone()) {
+                calls.get(i).succeed();
+            }
+        }
+        if (sink != null) {
+            sink.close(null);
+        }
+    }
+
+    @Test
+    void routesByPartitionKey() {
+        succeedAtOnce = true;
+        sink = start(4, 100);
+        HashinatorLite hashinator = new HashinatorLite(HASH_CONFIG, false);
+        for (int i = 0; i < 40; i++) {
+            sink.consume(record("X" + i), null);
+        }
+        sink.commit(null);
+
+        assertEquals(40, batchedPlates().size(), "every plate sent");
+        boolean[] routed = new boolean[PARTITION_KEYS.length];
+        for (Call call : batches()) {
+            int partition = Arrays.asList(PARTITION_KEYS).indexOf((String) call.args()[0]);
+            routed[partition] = true;
+            for (String plate : (String[]) call.args()[4]) {
+                assertEquals(partition, hashinator.getHashedPartitionForParameter(VoltType.STRING.getValue(), plate),
+                        "partition of " + plate);
+            }
+        }
+        assertArrayEquals(new boolean[]{true, true}, routed, "both partitions used");
+    }
+
+    @Test
+    void flushesOnRepeatedPlate() {
+        succeedAtOnce = true;
+        sink = start(10, 100);
+        // Plates of one partition, so that they all go into the same batch
+        List<String> plates = platesOfPartition(0, 2);
+
+        sink.consume(record(plates.get(0)), null);
+        sink.consume(record(plates.get(1)), null);
+        assertEquals(0, batches().size(), "batch still open");
+        sink.consume(record(plates.get(0)), null);
+
+        assertEquals(1, batches().size(), "flushed by the repeated plate");
+        assertEquals(plates, List.of((String[]) batches().get(0).args()[4]), "plates before the repeat");
+        sink.commit(null);
+        assertEquals(List.of(plates.get(0)), List.of((String[]) batches().get(1).args()[4]), "repeated plate");
+    }
+
+    @Test
+    void reservesChargePermitsForBatch() throws InterruptedException {
+        // Room for the charges of a single batch
+        sink = start(2, 2);
+        List<String> plates = platesOfPartition(0, 4);
+        sink.consume(record(plates.get(0)), null);
+        sink.consume(record(plates.get(1)), null);
+        assertEquals(1, batches().size(), "first batch sent");
+
+        Thread second = new Thread(() -> {
+            sink.consume(record(plates.get(2)), null);
+            sink.consume(record(plates.get(3)), null);
+        });
+        second.start();
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(1, batches().size(), "second batch waits for the permits of the first");
+
+        batches().get(0).succeed();
+        assertEquals(2, charges().size(), "charges of the first batch");
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(1, batches().size(), "second batch waits for the charges");
+
+        charges().get(0).succeed();
+        charges().get(1).succeed();
+        second.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(2, batches().size(), "second batch sent once the charges completed");
+    }
+
+    @Test
+    void returnsPermitsOfUnchargedScans() throws InterruptedException {
+        sink = start(2, 2);
+        // Unknown vehicles are billed by mail, not charged
+        List<String> plates = platesOfPartition(0, 4, "U");
+        sink.consume(record(plates.get(0)), null);
+        sink.consume(record(plates.get(1)), null);
+        batches().get(0).succeed();
+
+        Thread second = new Thread(() -> {
+            sink.consume(record(plates.get(2)), null);
+            sink.consume(record(plates.get(3)), null);
+        });
+        second.start();
+        second.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(2, batches().size(), "second batch sent");
+        assertEquals(0, charges().size(), "nothing charged");
+    }
+
+    @Test
+    void abortedBatchReleasesPermits() throws InterruptedException {
+        sink = start(2, 2);
+        List<String> plates = platesOfPartition(0, 4);
+        sink.consume(record(plates.get(0)), null);
+        sink.consume(record(plates.get(1)), null);
+        batches().get(0).abort();
+        assertEquals(2, acknowledged.get(), "aborted records acknowledged");
+
+        Thread second = new Thread(() -> {
+            sink.consume(record(plates.get(2)), null);
+            sink.consume(record(plates.get(3)), null);
+        });
+        second.start();
+        second.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(2, batches().size(), "second batch sent");
+    }
+
+    @Test
+    void throwingCallReleasesPermits() throws InterruptedException {
+        sink = start(2, 2);
+        List<String> plates = platesOfPartition(0, 4);
+        throwing = true;
+        sink.consume(record(plates.get(0)), null);
+        sink.consume(record(plates.get(1)), null);
+        assertEquals(2, acknowledged.get(), "records of the failed batch acknowledged");
+
+        throwing = false;
+        Thread second = new Thread(() -> {
+            sink.consume(record(plates.get(2)), null);
+            sink.consume(record(plates.get(3)), null);
+        });
+        second.start();
+        second.join(TimeUnit.SECONDS.toMillis(10));
+        assertEquals(1, batches().size(), "second batch sent");
+        batches().get(0).succeed();
+        charges().forEach(Call::succeed);
+        // Nothing is counted in flight for the failed batch
+        sink.commit(null);
+    }
+
+    private PartitionBatchingSink start(int maxBatchSize, int maxChargesInFlight) {
+        Client2 client = (Client2) Proxy.newProxyInstance(Client2.class.getClassLoader(),
+                new Class<?>[]{Client2.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "connectSync", "close" -> null;
+                    case "callProcedureSync" -> clientResponse(ClientResponse.SUCCESS, system((String) args[0]));
+                    case "callProcedureAsync" -> {
+                        if (throwing) {
+                            throw new IllegalStateException("Client is closed");
+                        }
+                        Call call = new Call((String) args[0], (Object[]) args[1], new CompletableFuture<>());
+                        calls.add(call);
+                        if (succeedAtOnce) {
+                            call.succeed();
+                        }
+                        yield call.response();
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        PartitionBatchingSink started = new PartitionBatchingSink("localhost", maxBatchSize, LINGER_MILLIS, 4,
+                maxChargesInFlight, INTERVAL_SECONDS, INTERVAL_SECONDS,
+                record -> acknowledged.incrementAndGet(), config -> client);
+        started.start(null);
+        return started;
+    }
+
+    // Results of @Statistics TOPO and @GetPartitionKeys STRING for two partitions
+    private static VoltTable[] system(String procedure) {
+        if ("@Statistics".equals(procedure)) {
+            VoltTable hashConfig = new VoltTable(new VoltTable.ColumnInfo("HASHCONFIG", VoltType.VARBINARY));
+            hashConfig.addRow((Object) HASH_CONFIG);
+            return new VoltTable[]{new VoltTable(new VoltTable.ColumnInfo("Partition", VoltType.INTEGER)),
+                    hashConfig};
+        }
+        VoltTable keys = new VoltTable(
+                new VoltTable.ColumnInfo("PARTITION_ID", VoltType.INTEGER),
+                new VoltTable.ColumnInfo("PARTITION_KEY", VoltType.STRING));
+        for (int partition = 0; partition < PARTITION_KEYS.length; partition++) {
+            keys.addRow(partition, PARTITION_KEYS[partition]);
+        }
+        return new VoltTable[]{keys};
+    }
+
+    private static List<String> platesOfPartition(int partition, int count) {
+        return platesOfPartition(partition, count, "X");
+    }
+
+    private static List<String> platesOfPartition(int partition, int count, String prefix) {
+        HashinatorLite hashinator = new HashinatorLite(HASH_CONFIG, false);
+        List<String> plates = new ArrayList<>();
+        for (int i = 0; plates.size() < count; i++) {
+            if (hashinator.getHashedPartitionForParameter(VoltType.STRING.getValue(), prefix + i) == partition) {
+                plates.add(prefix + i);
+            }
+        }
+        return plates;
+    }
+
+    private static PlateRecord record(String plateNum) {
+        return new PlateRecord(1000L, "LOC1", "1", plateNum, "CAR");
+    }
+
+    private List<Call> batches() {
+        return calls.stream().filter(call -> call.procedure().equals("ProcessPlateBatch")).toList();
+    }
+
+    private List<Call> charges() {
+        return calls.stream().filter(call -> call.procedure().equals("ChargeAccount")).toList();
+    }
+
+    private List<String> batchedPlates() {
+        return batches().stream().flatMap(call -> Arrays.stream((String[]) call.args()[4])).toList();
+    }
+
+    private static ClientResponse clientResponse(byte status, VoltTable... results) {
+        return (ClientResponse) Proxy.newProxyInstance(ClientResponse.class.getClassLoader(),
+                new Class<?>[]{ClientResponse.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getStatus" -> status;
+                    case "getResults" -> results;
+                    case "getStatusString" -> status == ClientResponse.SUCCESS ? null : "Aborted";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private record Call(String procedure, Object[] args, CompletableFuture<ClientResponse> response) {
+
+        // Completes a ProcessPlateBatch call with the outcomes of its scans, or a ChargeAccount call
+        void succeed() {
+            if (!procedure.equals("ProcessPlateBatch")) {
+                response.complete(clientResponse(ClientResponse.SUCCESS));
+                return;
+            }
+            VoltTable outcomes = new VoltTable(
+                    new VoltTable.ColumnInfo("SCAN_ID", VoltType.BIGINT),
+                    new VoltTable.ColumnInfo("SCAN_TIMESTAMP", VoltType.TIMESTAMP),
+                    new VoltTable.ColumnInfo("PLATE_NUM", VoltType.STRING),
+                    new VoltTable.ColumnInfo("ACCOUNT_ID", VoltType.INTEGER),
+                    new VoltTable.ColumnInfo("TOLL_LOC", VoltType.STRING),
+                    new VoltTable.ColumnInfo("TOLL_LANE_NUM", VoltType.STRING),
+                    new VoltTable.ColumnInfo("TOLL_AMOUNT", VoltType.DECIMAL),
+                    new VoltTable.ColumnInfo("TOLL_REASON", VoltType.STRING),
+                    new VoltTable.ColumnInfo("SCAN_FEE_AMOUNT", VoltType.DECIMAL),
+                    new VoltTable.ColumnInfo("TOTAL_AMOUNT", VoltType.DECIMAL),
+                    new VoltTable.ColumnInfo("VEHICLE_TYPE", VoltType.SMALLINT));
+            for (String plate : (String[]) args[4]) {
+                boolean known = plate.startsWith("X");
+                outcomes.addRow(42L, 1000L * 1000, plate, known ? 1 : 0, "LOC1", "1", new BigDecimal("2.50"),
+                        known ? "STANDARD TOLL ( CAR)" : "UNKNOWN_VEHICLE", BigDecimal.ZERO, new BigDecimal("2.50"),
+                        known ? (short) 1 : null);
+            }
+            VoltTable rejected = new VoltTable(
+                    new VoltTable.ColumnInfo("SCAN_INDEX", VoltType.INTEGER),
+                    new VoltTable.ColumnInfo("REASON", VoltType.STRING));
+            response.complete(clientResponse(ClientResponse.SUCCESS, outcomes, rejected));
+        }
+
+        void abort() {
+            response.complete(clientResponse(ClientResponse.USER_ABORT));
+        }
+    }
+}
@@ -7,13 +7,80 @@
  */
 package com.voltdb.tollcollect.pipeline;
 
+import com.voltdb.tollcollect.common.PlateNumbers;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class PlateRecordGeneratorTest {
 
-    public static void main(String[] args) {
-        PlateRecordGenerator plateRecordGenerator = new PlateRecordGenerator();
+    private static final int SAMPLES = 2_000_000;
+
+    // Largest accepted difference between the frequency of a value in the two generators
+    private static final double TOLERANCE = 0.003;
+
+    // The table driven generator must keep the distributions of the original one
+    @Test
+    void sameDistributions() {
+        Distributions expected = Distributions.sample(new PlateRecordGenerator()::generatePlateRecord);
+        Distributions actual = Distributions.sample(new TablePlateRecordGenerator(42)::generatePlateRecord);
+        compare("location", expected.locations, actual.locations);
+        compare("vehicle class", expected.vehicleClasses, actual.vehicleClasses);
+        compare("lane", expected.lanes, actual.lanes);
+        compare("invalid scans", expected.invalidScans, actual.invalidScans);
+    }
+
+    @Test
+    void sameSeedSameRecords() {
+        TablePlateRecordGenerator first = new TablePlateRecordGenerator(7);
+        TablePlateRecordGenerator second = new TablePlateRecordGenerator(7);
         for (int i = 0; i < 10000; i++) {
-            plateRecordGenerator.generatePlateRecord();
+            PlateRecord a = first.generatePlateRecord();
+            PlateRecord b = second.generatePlateRecord();
+            // Timestamps come from the clock, everything else from the seed
+            assertEquals(a.plateNum(), b.plateNum(), "plate of record " + i);
+            assertEquals(a.location(), b.location(), "location of record " + i);
+            assertEquals(a.lane(), b.lane(), "lane of record " + i);
+            assertEquals(a.vehicleClass(), b.vehicleClass(), "vehicle class of record " + i);
+        }
+    }
+
+    // Larger plate spaces widen the plate numbers, as in the datasets of DatasetGenerator
+    @Test
+    void widePlates() {
+        PlateRecord wide = new TablePlateRecordGenerator(new PlateNumbers(10_000_000), 7).generatePlateRecord();
+        assertEquals(8, wide.plateNum().length(), "plate " + wide.plateNum() + " drawn from 10M plates");
+    }
+
+    private static void compare(String name, Map<String, Integer> expected, Map<String, Integer> actual) {
+        assertEquals(expected.keySet(), actual.keySet(), name + " values");
+        for (String key : expected.keySet()) {
+            double expectedFrequency = expected.get(key) / (double) SAMPLES;
+            double actualFrequency = actual.get(key) / (double) SAMPLES;
+            assertEquals(expectedFrequency, actualFrequency, TOLERANCE, name + " " + key + " frequency");
+        }
+    }
+
+    private static final class Distributions {
+        final Map<String, Integer> locations = new HashMap<>();
+        final Map<String, Integer> vehicleClasses = new HashMap<>();
+        final Map<String, Integer> lanes = new HashMap<>();
+        final Map<String, Integer> invalidScans = new HashMap<>();
+
+        static Distributions sample(Supplier<PlateRecord> generator) {
+            Distributions distributions = new Distributions();
+            for (int i = 0; i < SAMPLES; i++) {
+                PlateRecord record = generator.get();
+                distributions.locations.merge(record.location(), 1, Integer::sum);
+                distributions.vehicleClasses.merge(record.vehicleClass(), 1, Integer::sum);
+                distributions.lanes.merge(record.lane(), 1, Integer::sum);
+                distributions.invalidScans.merge(record.location() + " " + record.plateNum().charAt(0), 1, Integer::sum);
+            }
+            return distributions;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlateSightingsTest {
+
+    private static final long MINUTE = 60_000;
+
+    // A and B are one degree of latitude apart, about 111 km or 27 minutes at 250 km/h. C is next to A.
+    private final TollLocationDistances distances = new TollLocationDistances(
+            new String[]{"A", "B", "C"},
+            new double[]{0.0, 1.0, 0.0},
+            new double[]{0.0, 0.0, 0.001},
+            250);
+
+    @Test
+    void distances() {
+        assertEquals(111.2, distances.distanceKm(0, 1), 0.1, "haversine distance");
+        assertEquals(26, distances.minTravelMillis(0, 1) / MINUTE, "travel time at the maximum speed");
+    }
+
+    @Test
+    void impossibleSequences() {
+        PlateSightings sightings = new PlateSightings(distances, 1000, 4, 60 * MINUTE);
+        PlateSightings.Conflict conflict = new PlateSightings.Conflict();
+        long plate = PlateSightings.key("X001");
+
+        assertFalse(sightings.observe(plate, 0, 0, conflict), "first sighting");
+        assertFalse(sightings.observe(plate, MINUTE, 2, conflict), "neighbouring location is reachable");
+        assertTrue(sightings.observe(plate, 10 * MINUTE, 1, conflict), "111 km in 9 minutes is impossible");
+        assertEquals(MINUTE, conflict.previousTimestamp(), "earlier sighting");
+        assertEquals(2, conflict.previousLocation(), "location of the earlier sighting");
+        assertFalse(sightings.observe(plate, 11 * MINUTE, 0, conflict), "reported again within the cooldown");
+        assertFalse(sightings.observe(plate, 80 * MINUTE, 1, conflict), "enough time to drive back");
+        assertFalse(sightings.observe(PlateSightings.key("X002"), 80 * MINUTE, 0, conflict), "other plate");
+        assertTrue(sightings.observe(plate, 81 * MINUTE, 0, conflict), "reported again after the cooldown");
+
+        // A scan arriving late is compared with the sighting, which stays the latest one
+        PlateSightings late = new PlateSightings(distances, 1000, 4, 0);
+        long other = PlateSightings.key("X003");
+        assertFalse(late.observe(other, 20 * MINUTE, 0, conflict), "first sighting");
+        assertTrue(late.observe(other, 15 * MINUTE, 1, conflict), "late scan five minutes earlier");
+        assertFalse(late.observe(other, 60 * MINUTE, 1, conflict), "compared with the latest sighting");
+    }
+
+    @Test
+    void bounded() {
+        PlateSightings sightings = new PlateSightings(distances, 100_000, 16, MINUTE);
+        PlateSightings.Conflict conflict = new PlateSightings.Conflict();
+        long footprint = sightings.footprintBytes();
+        SplittableRandom random = new SplittableRandom(1);
+
+        // 20M scans at 9000 a second over a million plates and 10 hours, more plates than fit
+        long flagged = 0;
+        for (int i = 0; i < 20_000_000; i++) {
+            long plate = PlateSightings.key(PLATES[random.nextInt(PLATES.length)]);
+            if (sightings.observe(plate, i / 9 * 20, random.nextInt(3), conflict)) {
+                flagged++;
+            }
+        }
+
+        assertEquals(footprint, sightings.footprintBytes(), "footprint does not grow");
+        assertTrue(sightings.size() <= 2L * 16 * RecentReadSet.tableCapacity(100_000 / 16),
+                "held plates stay bounded");
+        assertTrue(flagged > 0, "impossible sequences found");
+    }
+
+    private static final String[] PLATES = new String[1_000_000];
+
+    static {
+        for (int i = 0; i < PLATES.length; i++) {
+            PLATES[i] = "P" + i;
+        }
+    }
+}
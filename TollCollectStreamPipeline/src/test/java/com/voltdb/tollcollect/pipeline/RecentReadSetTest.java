@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecentReadSetTest {
+
+    private static final long WINDOW_MILLIS = 5_000;
+    private static final int SCANS = 5_000_000;
+
+    @Test
+    void windowBoundaries() {
+        RecentReadSet reads = new RecentReadSet(WINDOW_MILLIS, 1000, 4);
+        long key = RecentReadSet.key("X001", "Quantum Tunnel", "1");
+
+        assertTrue(reads.add(key, 1_000), "first read passes");
+        assertFalse(reads.add(key, 1_000), "same instant is a duplicate");
+        assertFalse(reads.add(key, 5_999), "read within the window is a duplicate");
+        assertTrue(reads.add(key, 6_000), "read a full window after the accepted one passes");
+        assertFalse(reads.add(key, 10_999), "window restarts at the accepted read");
+        assertTrue(reads.add(RecentReadSet.key("X001", "Quantum Tunnel", "2"), 10_999), "other lane passes");
+        assertTrue(reads.add(RecentReadSet.key("X001", "Quantum Tunne", "l1"), 10_999), "field boundaries matter");
+        assertTrue(reads.add(key, 60_000), "read long after passes");
+    }
+
+    // Generated traffic with repeated reads, compared with an exact map of the last accepted read per key
+    @Test
+    void matchesExactWindow() {
+        RecentReadSet reads = new RecentReadSet(WINDOW_MILLIS, 200_000, 16);
+        Map<String, Long> lastAccepted = new HashMap<>();
+        TablePlateRecordGenerator generator = new TablePlateRecordGenerator(7);
+
+        long dropped = 0;
+        PlateRecord previous = null;
+        for (int i = 0; i < SCANS; i++) {
+            // 9000 scans a second, every fifth one a repeat of the read before it
+            long timestamp = i / 9;
+            PlateRecord record = (previous != null && i % 5 == 0) ? previous : generator.generatePlateRecord();
+            previous = record;
+
+            String exactKey = record.plateNum() + '|' + record.location() + '|' + record.lane();
+            Long last = lastAccepted.get(exactKey);
+            boolean expected = last == null || timestamp - last >= WINDOW_MILLIS;
+            if (expected) {
+                lastAccepted.put(exactKey, timestamp);
+            } else {
+                dropped++;
+            }
+
+            long key = RecentReadSet.key(record.plateNum(), record.location(), record.lane());
+            boolean actual = reads.add(key, timestamp);
+            assertEquals(expected, actual, "scan " + i + " of " + record + " at " + timestamp);
+        }
+        assertEquals(0, reads.earlyRotations(), "no early rotations below capacity");
+        assertTrue(dropped > 0, "repeated reads dropped");
+    }
+
+    @Test
+    void boundedUnderOverload() {
+        RecentReadSet reads = new RecentReadSet(WINDOW_MILLIS, 1024, 2);
+        long footprint = reads.footprintBytes();
+        for (long i = 0; i < 1_000_000; i++) {
+            assertTrue(reads.add(i * 0x9E3779B97F4A7C15L, 0), "distinct keys pass");
+        }
+        assertEquals(footprint, reads.footprintBytes(), "footprint does not grow");
+        assertTrue(reads.earlyRotations() > 0, "full generations rotate early");
+        assertTrue(reads.size() <= 2 * RecentReadSet.tableCapacity(512) * 2, "held reads stay bounded");
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.junit.jupiter.api.Test;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReferenceDataCacheTest {
+
+    // Long enough for the scheduler never to poll on its own, the tests poll themselves
+    private static final int POLL_SECONDS = 3600;
+    private static final int REFRESH_SECONDS = 60;
+
+    private final FakeSource source = new FakeSource();
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Test
+    void fromTables() {
+        VoltTable locations = new VoltTable(
+                new VoltTable.ColumnInfo("TOLL_LOC", VoltType.STRING),
+                new VoltTable.ColumnInfo("BASE_FARE", VoltType.DECIMAL),
+                new VoltTable.ColumnInfo("TOLL_LOC_STATUS", VoltType.TINYINT));
+        locations.addRow("LOC1", new BigDecimal("2.50"), 1);
+        locations.addRow("CLOSED", new BigDecimal("3.00"), 0);
+        VoltTable vehicleTypes = new VoltTable(
+                new VoltTable.ColumnInfo("VEHICLE_CLASS", VoltType.STRING),
+                new VoltTable.ColumnInfo("TOLL_MULTIP", VoltType.DECIMAL));
+        vehicleTypes.addRow("TRUCK", new BigDecimal("2.00"));
+        VoltTable parameters = new VoltTable(
+                new VoltTable.ColumnInfo("PARAMETER_NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("PARAMETER_VALUE", VoltType.STRING));
+        parameters.addRow("KEEP_MINUTES", "10");
+        parameters.addRow("REFERENCE_DATA_VERSION", "4");
+
+        ReferenceData referenceData = ReferenceData.fromTables(locations, vehicleTypes, parameters);
+
+        assertEquals(4, referenceData.version(), "version");
+        assertEquals(0, new BigDecimal("5.00").compareTo(referenceData.toll("LOC1", "TRUCK")), "toll");
+        assertFalse(referenceData.isValidLocation("CLOSED"), "inactive location left out");
+        assertNull(referenceData.toll("LOC1", "BOAT"), "unknown vehicle class");
+    }
+
+    @Test
+    void dropsInvalidScans() {
+        try (ReferenceDataCache cache = cache()) {
+            TollPricingFunction pricing = new TollPricingFunction(cache);
+            List<Object[]> priced = new ArrayList<>();
+
+            pricing.process(new PlateRecord(1000L, "LOC1", "1", "X001", "TRUCK"), priced::add, null);
+            pricing.process(new PlateRecord(1000L, "Nowhere", "1", "X001", "TRUCK"), priced::add, null);
+            pricing.process(new PlateRecord(1000L, "LOC1", "1", "X001", "Hovercraft"), priced::add, null);
+
+            assertEquals(1, priced.size(), "priced scans");
+            assertArrayEquals(new Object[]{1000L, "LOC1", "1", "X001", "TRUCK", new BigDecimal("5.00"), 1L},
+                    priced.get(0), "ProcessPlatePriced arguments");
+            assertEquals(1, cache.invalidLocations(), "invalid locations");
+            assertEquals(1, cache.invalidVehicleClasses(), "invalid vehicle classes");
+        }
+    }
+
+    @Test
+    void pollReloadsNewVersion() {
+        try (ReferenceDataCache cache = cache()) {
+            assertEquals(1, cache.current().version(), "first snapshot");
+
+            cache.poll();
+            assertEquals(1, source.loads, "same version is not reloaded");
+
+            source.version = 2;
+            cache.poll();
+            assertEquals(2, source.loads, "loads");
+            assertEquals(2, cache.current().version(), "new snapshot");
+        }
+    }
+
+    @Test
+    void pollRefreshesOldSnapshot() {
+        try (ReferenceDataCache cache = cache()) {
+            cache.current();
+
+            nanos.addAndGet(TimeUnit.SECONDS.toNanos(REFRESH_SECONDS) - 1);
+            cache.poll();
+            assertEquals(1, source.loads, "snapshot still fresh");
+
+            nanos.incrementAndGet();
+            cache.poll();
+            assertEquals(2, source.loads, "reloaded at the refresh interval");
+        }
+    }
+
+    @Test
+    void failedPollKeepsSnapshot() {
+        try (ReferenceDataCache cache = cache()) {
+            ReferenceData first = cache.current();
+
+            source.version = 2;
+            source.failing = true;
+            cache.poll();
+
+            assertEquals(first, cache.current(), "snapshot kept");
+            source.failing = false;
+            cache.poll();
+            assertEquals(2, cache.current().version(), "reloaded once the database answers");
+        }
+    }
+
+    @Test
+    void refreshNowReloadsInBackground() throws InterruptedException {
+        try (ReferenceDataCache cache = cache()) {
+            cache.current();
+
+            // A stale price reported by ProcessPlatePriced, the version did not change yet
+            cache.refreshNow();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (source.loads < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(2, source.loads, "reloaded");
+        }
+    }
+
+    @Test
+    void closesSource() {
+        ReferenceDataCache cache = cache();
+        cache.current();
+        cache.close();
+        assertTrue(source.closed, "source closed");
+    }
+
+    private ReferenceDataCache cache() {
+        return new ReferenceDataCache(() -> source, POLL_SECONDS, REFRESH_SECONDS, nanos::get);
+    }
+
+    // One location and vehicle class at the version of the database
+    private static final class FakeSource implements ReferenceDataCache.Source {
+
+        volatile long version = 1;
+        volatile boolean failing;
+        volatile int loads;
+        volatile boolean closed;
+
+        @Override
+        public ReferenceData load() throws IOException {
+            check();
+            loads++;
+            return new ReferenceData(version, Map.of("LOC1", Map.of("TRUCK", new BigDecimal("5.00"))));
+        }
+
+        @Override
+        public long currentVersion() throws IOException {
+            check();
+            return version;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private void check() throws IOException {
+            if (failing) {
+                throw new IOException("Connection lost");
+            }
+        }
+    }
+}
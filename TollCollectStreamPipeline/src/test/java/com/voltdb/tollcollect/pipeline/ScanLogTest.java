@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class ScanLogTest {
+
+    private static final int RECORDS = 1_000_000;
+
+    /**
+     * Clock that only moves while the replay waits, by exactly as long as it asked to.
+     */
+    private static final class SimulatedClock implements ScanLogReplay.Clock {
+        private static final long START_MILLIS = 1_700_000_000_000L;
+        private long now;
+
+        @Override
+        public long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return START_MILLIS + TimeUnit.NANOSECONDS.toMillis(now);
+        }
+
+        @Override
+        public void parkNanos(long nanos) {
+            now += nanos;
+        }
+    }
+
+    @Test
+    void writeReadAndReplay(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("scans.tcsl");
+        PlateRecord[] expected = new PlateRecord[RECORDS];
+        TablePlateRecordGenerator generator = new TablePlateRecordGenerator(42);
+        try (ScanLogWriter writer = new ScanLogWriter(file)) {
+            for (int i = 0; i < RECORDS; i++) {
+                PlateRecord record = generator.generatePlateRecord();
+                expected[i] = new PlateRecord(1_000_000L + i / 9, record.location(), record.lane(),
+                        record.plateNum(), record.vehicleClass());
+                writer.write(expected[i]);
+            }
+        }
+
+        // Small windows so reading crosses many mappings, and a window that is not fully used at the end
+        try (ScanLogReader reader = new ScanLogReader(file, ScanLogFormat.RECORD_SIZE * 4099L)) {
+            assertEquals(RECORDS, reader.recordCount(), "records");
+            for (int i = 0; i < RECORDS; i++) {
+                assertEquals(expected[i], reader.read(i), "record " + i);
+            }
+            // Random access backwards across windows
+            for (int i = RECORDS - 1; i >= 0; i -= 4097) {
+                assertEquals(expected[i], reader.read(i), "record " + i + " on random access");
+            }
+        }
+
+        // Fast replay hands out every record once, keeping the recorded spacing
+        ScanLogReplay replay = new ScanLogReplay(file, false, 1.0, true);
+        PlateRecord first = replay.get();
+        for (int i = 1; i < RECORDS; i++) {
+            PlateRecord record = replay.get();
+            assertEquals(expected[i].plateNum(), record.plateNum(), "plate of replayed record " + i);
+            assertEquals(expected[i].scanTimestamp() - expected[0].scanTimestamp(),
+                    record.scanTimestamp() - first.scanTimestamp(), "spacing of replayed record " + i);
+        }
+
+        // Original timing: 1M records recorded 9 per millisecond, replayed at 100x, each released at its offset
+        SimulatedClock clock = new SimulatedClock();
+        ScanLogReplay timedReplay = new ScanLogReplay(file, true, 100.0, false, clock);
+        for (int i = 0; i < RECORDS; i++) {
+            PlateRecord record = timedReplay.get();
+            long recordedOffsetMillis = expected[i].scanTimestamp() - expected[0].scanTimestamp();
+            long replayOffsetNanos = TimeUnit.MILLISECONDS.toNanos(recordedOffsetMillis) / 100;
+            assertEquals(replayOffsetNanos, clock.now, "release time of record " + i);
+            assertEquals(SimulatedClock.START_MILLIS + TimeUnit.NANOSECONDS.toMillis(replayOffsetNanos),
+                    record.scanTimestamp(), "replayed timestamp of record " + i);
+        }
+    }
+
+    // At the end of a log that is not looped, the source idles until its threads are interrupted
+    @Test
+    void endOfReplay(@TempDir Path directory) throws IOException, InterruptedException {
+        Path file = directory.resolve("short.tcsl");
+        TablePlateRecordGenerator generator = new TablePlateRecordGenerator(7);
+        try (ScanLogWriter writer = new ScanLogWriter(file)) {
+            for (int i = 0; i < 3; i++) {
+                writer.write(generator.generatePlateRecord());
+            }
+        }
+        ScanLogReplay replay = new ScanLogReplay(file, false, 1.0, false);
+        for (int i = 0; i < 3; i++) {
+            replay.get();
+        }
+
+        Thread[] threads = new Thread[2];
+        RuntimeException[] errors = new RuntimeException[threads.length];
+        for (int t = 0; t < threads.length; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    replay.get();
+                } catch (RuntimeException e) {
+                    errors[thread] = e;
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join(100);
+            assertFalse(thread.getState() == Thread.State.TERMINATED, "idles at the end of the log");
+            thread.interrupt();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join(TimeUnit.SECONDS.toMillis(10));
+            assertFalse(threads[t].isAlive(), "thread " + t + " stopped by the interrupt");
+            assertInstanceOf(IllegalStateException.class, errors[t], "thread " + t);
+        }
+    }
+}
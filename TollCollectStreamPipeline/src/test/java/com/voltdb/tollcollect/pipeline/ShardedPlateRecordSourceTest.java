@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import com.voltdb.tollcollect.common.PlateNumbers;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedPlateRecordSourceTest {
+
+    private static final int SHARDS = 4;
+    private static final int RECORDS_PER_SHARD = 1_000_000;
+
+    private static List<List<PlateRecord>> shards;
+
+    @BeforeAll
+    static void generateShards() throws Exception {
+        shards = generate(new ShardedPlateRecordSource(SHARDS, 0, 11), SHARDS, RECORDS_PER_SHARD);
+    }
+
+    @Test
+    void disjointSlices() {
+        for (List<PlateRecord> shard : shards) {
+            int slice = plateNumber(shard.get(0)) % SHARDS;
+            for (PlateRecord record : shard) {
+                assertTrue(plateNumber(record) % SHARDS == slice, "shard only draws its own plates");
+            }
+        }
+        assertEquals(SHARDS, shards.stream().map(shard -> plateNumber(shard.get(0)) % SHARDS).distinct().count(),
+                "every shard owns a different slice");
+    }
+
+    // A shard index always gets the same random stream, whichever thread claims it
+    @Test
+    void reproducible() throws Exception {
+        List<List<PlateRecord>> again = generate(new ShardedPlateRecordSource(SHARDS, 0, 11), SHARDS, 1000);
+        for (List<PlateRecord> shard : again) {
+            int slice = plateNumber(shard.get(0)) % SHARDS;
+            List<PlateRecord> original = shards.stream()
+                    .filter(s -> plateNumber(s.get(0)) % SHARDS == slice)
+                    .findFirst()
+                    .orElseThrow();
+            for (int i = 0; i < shard.size(); i++) {
+                assertTrue(sameScan(shard.get(i), original.get(i)), "same seed, same records");
+            }
+        }
+    }
+
+    // The combined output keeps the distributions of TablePlateRecordGenerator
+    @Test
+    void distributions() {
+        double[] expected = TablePlateRecordGenerator.locationProbabilities();
+        PlateRecordGenerator.Location[] locations = PlateRecordGenerator.Location.values();
+        Map<String, Integer> locationIndex = new HashMap<>();
+        for (int i = 0; i < locations.length; i++) {
+            locationIndex.put(locations[i].getName(), i);
+        }
+
+        long[] counts = new long[locations.length];
+        long[] invalid = new long[locations.length];
+        long[] plates = new long[PlateNumbers.DEFAULT_PLATE_COUNT];
+        long total = 0;
+        for (List<PlateRecord> shard : shards) {
+            for (PlateRecord record : shard) {
+                int location = locationIndex.get(record.location());
+                counts[location]++;
+                if (record.plateNum().startsWith("K")) {
+                    invalid[location]++;
+                }
+                plates[plateNumber(record)]++;
+                total++;
+            }
+        }
+
+        for (int i = 0; i < locations.length; i++) {
+            double share = counts[i] / (double) total;
+            assertEquals(expected[i], share, 0.002, "location share of " + locations[i]);
+            if (counts[i] > 10_000) {
+                double invalidShare = invalid[i] / (double) counts[i];
+                assertEquals(locations[i].invalidScanProbability(), invalidShare, 0.02,
+                        "invalid scan share at " + locations[i]);
+            }
+        }
+        double perPlate = total / (double) plates.length;
+        for (long count : plates) {
+            assertEquals(perPlate, count, perPlate * 0.1, "plates stay uniform");
+        }
+    }
+
+    // Only the lower bound is checked, a loaded machine may take any longer
+    @Test
+    void paced() throws Exception {
+        // 4000 records a second split over 4 shards, 1000 each, for half a second
+        ShardedPlateRecordSource source = new ShardedPlateRecordSource(SHARDS, 4000, 3);
+        long start = System.nanoTime();
+        generate(source, SHARDS, 500);
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        assertTrue(seconds > 0.45, "each shard paces a quarter of the rate, took " + seconds + "s");
+    }
+
+    // Shards without a thread of their own are served by the threads there are
+    @Test
+    void unclaimedShardsTakenOver() throws Exception {
+        ShardedPlateRecordSource source = new ShardedPlateRecordSource(SHARDS, 0, 11,
+                new PlateNumbers(PlateNumbers.DEFAULT_PLATE_COUNT), WorkloadProfile.DEFAULT, 0);
+        List<PlateRecord> records = generate(source, 1, 1000).get(0);
+        assertEquals(SHARDS, source.claimedShards(), "every shard claimed");
+        assertEquals(SHARDS, records.stream().map(record -> plateNumber(record) % SHARDS).distinct().count(),
+                "one thread draws the plates of every shard");
+    }
+
+    private static List<List<PlateRecord>> generate(ShardedPlateRecordSource source, int threads, int records)
+            throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<PlateRecord>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<PlateRecord> generated = new ArrayList<>(records);
+                    for (int i = 0; i < records; i++) {
+                        generated.add(source.get());
+                    }
+                    return generated;
+                }));
+            }
+            List<List<PlateRecord>> results = new ArrayList<>();
+            for (Future<List<PlateRecord>> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static int plateNumber(PlateRecord record) {
+        return Integer.parseInt(record.plateNum().substring(1));
+    }
+
+    private static boolean sameScan(PlateRecord a, PlateRecord b) {
+        return a.location().equals(b.location())
+                && a.lane().equals(b.lane())
+                && a.plateNum().equals(b.plateNum())
+                && a.vehicleClass().equals(b.vehicleClass());
+    }
+}
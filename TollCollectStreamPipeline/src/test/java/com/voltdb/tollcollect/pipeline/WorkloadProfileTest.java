@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2025 Volt Active Data Inc.
+ *
+ * Use of this source code is governed by an MIT
+ * license that can be found in the LICENSE file or at
+ * https://opensource.org/licenses/MIT.
+ */
+package com.voltdb.tollcollect.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkloadProfileTest {
+
+    private static final int SAMPLES = 2_000_000;
+
+    @Test
+    void zipf() {
+        int count = 1000;
+        double exponent = 1.1;
+        ZipfSampler sampler = new ZipfSampler(count, exponent);
+        SplittableRandom random = new SplittableRandom(1);
+        long[] counts = new long[count];
+        for (int i = 0; i < SAMPLES; i++) {
+            counts[sampler.sample(random)]++;
+        }
+
+        double normalization = 0;
+        for (int rank = 1; rank <= count; rank++) {
+            normalization += Math.pow(rank, -exponent);
+        }
+        for (int rank : new int[]{0, 1, 2, 10, 100, 999}) {
+            double expected = Math.pow(rank + 1, -exponent) / normalization;
+            double actual = counts[rank] / (double) SAMPLES;
+            assertEquals(expected, actual, Math.max(0.002, expected * 0.05), "rank " + rank);
+        }
+
+        // A large plate space costs nothing up front and stays in range
+        ZipfSampler large = new ZipfSampler(10_000_000, 0.8);
+        for (int i = 0; i < 100_000; i++) {
+            int rank = large.sample(random);
+            assertTrue(rank >= 0 && rank < 10_000_000, "rank in range");
+        }
+    }
+
+    @Test
+    void vehicleMix() {
+        WorkloadProfile fleet = new WorkloadProfile(0, "fleet", "flat", 86400, "", 300, 30, 1);
+        WorkloadProfile custom = new WorkloadProfile(0, "0,1,0,0,1", "flat", 86400, "", 300, 30, 1);
+        SplittableRandom random = new SplittableRandom(2);
+        long trucksAndBuses = 0;
+        long customCars = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            if (fleet.sampleVehicleType(random.nextLong()) >= 2) {
+                trucksAndBuses++;
+            }
+            int type = custom.sampleVehicleType(random.nextLong());
+            assertTrue(type == 1 || type == 4, "only weighted classes");
+            if (type == 1) {
+                customCars++;
+            }
+        }
+        assertEquals(0.75, trucksAndBuses / (double) SAMPLES, 0.003, "fleet trucks and buses");
+        assertEquals(0.5, customCars / (double) SAMPLES, 0.003, "custom weights");
+    }
+
+    @Test
+    void bursts() {
+        String location = "Echo Lane Station";
+        int index = PlateRecordGenerator.Location.ECHO_LANE_STATION.ordinal();
+        double usual = TablePlateRecordGenerator.locationProbabilities()[index];
+        WorkloadProfile profile = new WorkloadProfile(0, "default", "flat", 86400, location, 10, 5, 8);
+
+        SplittableRandom random = new SplittableRandom(3);
+        long inBurst = 0;
+        long outsideBurst = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            if (profile.sampleLocation(random.nextLong(), 1_000_000_002_000L) == index) {
+                inBurst++;
+            }
+            if (profile.sampleLocation(random.nextLong(), 1_000_000_007_000L) == index) {
+                outsideBurst++;
+            }
+        }
+        double burstShare = usual * 8 / (1 + usual * 7);
+        assertEquals(burstShare, inBurst / (double) SAMPLES, 0.003, "share during the burst");
+        assertEquals(usual, outsideBurst / (double) SAMPLES, 0.003, "share outside the burst");
+    }
+
+    @Test
+    void rateCurve() {
+        // A day of 240 seconds, starting at midnight now: hours last 10 seconds
+        long start = System.currentTimeMillis();
+        WorkloadProfile profile = new WorkloadProfile(0, "default", "commuter", 240, "", 300, 30, 1);
+        assertTrue(profile.hasRateCurve(), "commuter curve");
+        assertEquals(0.08, profile.rateFactor(start + 500), 0.01, "midnight");
+        assertEquals(1.0, profile.rateFactor(start + 80_000), 0.01, "morning rush hour");
+        assertEquals(0.85, profile.rateFactor(start + 85_000), 0.01, "halfway between 8 and 9");
+        assertEquals(1.0, profile.rateFactor(start + 240_000 + 170_000), 0.01, "evening rush hour of the next day");
+        assertEquals(1.0, WorkloadProfile.DEFAULT.rateFactor(start), "flat by default");
+    }
+}
@@ -0,0 +1,422 @@
+--
+-- Copyright (C) 2025 Volt Active Data Inc.
+--
+-- Use of this source code is governed by an MIT
+-- license that can be found in the LICENSE file or at
+-- https://opensource.org/licenses/MIT.
+--
+
+
+-- Fixed-point variant of ddl/create_db.sql. Money columns are BIGINT amounts in USD
+-- cents and VEHICLE_TYPES.toll_multip is an INTEGER in thousandths (1.5 is 1500), so
+-- that ProcessPlateCents and ChargeAccountCents do their arithmetic on longs.
+-- Load the csv files after converting them with CentsCsvConverter, or generate a
+-- dataset with --moneyModel=cents, which loads it with LoadAccountsCents.
+--
+-- ProcessPlatePriced and ProcessPlateBatch take and write DECIMAL amounts and have no
+-- cents variant, so the stream pipeline needs money.model decimal for pricing.mode cache
+-- and for sink.mode batch. Every other procedure of ddl/create_db.sql is defined here.
+--
+-- All DDL statements until END_OF_BATCH will succeed or fail together...
+--
+file -inlinebatch END_OF_BATCH
+
+
+-------------- REPLICATED TABLES ------------------------------------------------
+-- Define tables that will hold static or slow moving reference data and do not
+-- need to be partitioned
+
+CREATE TABLE VEHICLE_TYPES (
+  vehicle_type      SMALLINT           NOT NULL, --Vehicle type ID
+  vehicle_class     VARCHAR(20)        NOT NULL, --Text description of vehicle type
+  toll_multip       INTEGER            NOT NULL, --multiplier adjustment to base toll in thousandths
+  PRIMARY KEY (vehicle_type)
+);
+
+CREATE UNIQUE INDEX vt_uk_1 ON VEHICLE_TYPES (vehicle_class);
+
+CREATE TABLE TOLL_LOCATIONS (
+  toll_loc_id       SMALLINT           NOT NULL, --Unique ID for entry
+  toll_loc          VARCHAR(64)        NOT NULL, --Location of toll
+  toll_loc_status   TINYINT            NOT NULL, --0 = inactive, 1 = active
+  base_fare         BIGINT             NOT NULL, --Base fare charge at toll location in USD cents
+  latitude          DECIMAL            NOT NULL,
+  longitude         DECIMAL            NOT NULL,
+  PRIMARY KEY (toll_loc_id)
+);
+
+CREATE UNIQUE INDEX tl_uk_1 ON TOLL_LOCATIONS (toll_loc);
+
+CREATE TABLE APPLICATION_PARAMETERS
+(parameter_name varchar(30) not null primary key
+,parameter_value varchar(40) not null);
+
+-- Up to where each ACTIVITY_ROLLUP tier is complete
+CREATE TABLE ACTIVITY_ROLLUP_WATERMARK
+(tier_seconds integer not null primary key
+,rolled_up_to timestamp not null);
+
+-------------- PARTITIONED TABLES -----------------------------------------------
+-- Define tables that should be spread across database partitions for parallel processing
+-- Partition by column
+
+CREATE TABLE KNOWN_VEHICLES (
+  plate_num         VARCHAR(20)       NOT NULL, --String containing vehicle registration plate
+  account_id        INTEGER           NOT NULL, --Account owner of the vehicle
+  vehicle_type      SMALLINT          NOT NULL, --Type of vehicle. See toll table.
+  active            TINYINT           NOT NULL, --0 = inactive, 1 = active
+  exempt_status     TINYINT           NOT NULL, --0 = not exempt, 1 = exempt
+  PRIMARY KEY (plate_num)
+);
+PARTITION TABLE KNOWN_VEHICLES ON COLUMN plate_num;
+
+CREATE TABLE SCAN_HISTORY (
+scan_id           BIGINT            NOT NULL, --Unique id of the transaction, shared by the scans of a ProcessPlateBatch
+scan_timestamp    TIMESTAMP         NOT NULL,
+plate_num         VARCHAR(20)       NOT NULL, --String containing vehicle registration plate
+account_id        INTEGER,
+toll_loc          VARCHAR(64)       NOT NULL,
+toll_lane_num     VARCHAR(2)        NOT NULL,
+toll_amount       BIGINT            NOT NULL,
+toll_reason       VARCHAR(200),
+scan_fee_amount   BIGINT,
+total_amount      BIGINT            NOT NULL,
+vehicle_type      SMALLINT,         --Type of the known vehicle when scanned, null for unknown vehicles
+PRIMARY KEY (plate_num, scan_id))
+USING TTL 3600 SECONDS ON COLUMN scan_timestamp BATCH_SIZE 200 MAX_FREQUENCY 1;
+
+PARTITION TABLE SCAN_HISTORY ON COLUMN plate_num;
+
+CREATE TABLE ACCOUNTS (
+                          account_id        INTEGER           NOT NULL, --Unique ID assigned on account creation
+                          account_status    TINYINT           NOT NULL, --0 = inactive, 1 = active
+                          auto_topup        TINYINT           NOT NULL, --0 = not enrolled, 1 = enrolled
+                          balance           BIGINT            NOT NULL, --Prepaid balance in account in USD cents
+                          PRIMARY KEY (account_id)
+);
+PARTITION TABLE ACCOUNTS ON COLUMN account_id;
+
+CREATE TABLE ACCOUNT_HISTORY (
+   acct_tx_id        BIGINT           NOT NULL,
+   acct_tx_timestamp TIMESTAMP         NOT NULL,
+   account_id        INTEGER           NOT NULL,
+   plate_num         VARCHAR(20),
+   scan_id           BIGINT,           --With plate_num, the scan charged
+   scan_timestamp    TIMESTAMP,
+   toll_loc          VARCHAR(64),
+   toll_lane_num     VARCHAR(2),
+   toll_amount       BIGINT,
+   toll_reason       VARCHAR(200),
+   tx_fee_amount     BIGINT,
+   total_amount      BIGINT            NOT NULL,
+   tx_type           VARCHAR(6)        NOT NULL, --DEBIT for tolls, CREDIT for top ups.
+PRIMARY KEY (account_id, acct_tx_id)
+);
+PARTITION TABLE ACCOUNT_HISTORY ON COLUMN account_id;
+
+-- Tiered activity per toll location, maintained by the rollup_activity task.
+-- tier_seconds is 60, 300 or 3600 and bucket_start the start of the bucket.
+CREATE TABLE ACTIVITY_ROLLUP (
+   toll_loc          VARCHAR(64)       NOT NULL,
+   tier_seconds      INTEGER           NOT NULL,
+   bucket_start      TIMESTAMP         NOT NULL,
+   total_amount      BIGINT            NOT NULL,
+   scan_count        BIGINT            NOT NULL,
+PRIMARY KEY (toll_loc, tier_seconds, bucket_start)
+);
+PARTITION TABLE ACTIVITY_ROLLUP ON COLUMN toll_loc;
+
+-- Outcome of charging the payment method for each auto top-up, written by SettleTopUpCents.
+-- status is SETTLED when the charge was approved, REVERSED when the credit was taken back.
+CREATE TABLE TOP_UP_SETTLEMENTS (
+   account_id        INTEGER           NOT NULL,
+   acct_tx_id        BIGINT            NOT NULL, --acct_tx_id of the top-up in ACCOUNT_HISTORY
+   settled_timestamp TIMESTAMP         NOT NULL,
+   status            VARCHAR(8)        NOT NULL,
+   amount            BIGINT            NOT NULL,
+   payment_reference VARCHAR(64),
+PRIMARY KEY (account_id, acct_tx_id)
+);
+PARTITION TABLE TOP_UP_SETTLEMENTS ON COLUMN account_id;
+
+-------------- STREAMS ----------------------------------------------------------
+-- Define output stream tables for ephemeral processing
+-- Potential uses include generating materialized views, exporting to external
+-- systems, and/or writing to Volt topics for external consumers
+-- Data will not persist after processing
+
+CREATE STREAM bill_by_mail_stream 
+PARTITION ON COLUMN plate_num 
+EXPORT TO TOPIC bill_by_mail_topic
+WITH KEY (plate_num)
+(
+  scan_id           BIGINT           NOT NULL,
+  scan_timestamp    TIMESTAMP         NOT NULL,
+  plate_num         VARCHAR(20)       NOT NULL, --String containing vehicle registration plate
+  toll_loc          VARCHAR(20)       NOT NULL,
+  toll_lane_num     VARCHAR(2)        NOT NULL,
+  toll_amount       BIGINT            NOT NULL,
+  toll_reason       VARCHAR(20),
+  scan_fee_amount   BIGINT,
+  tx_fee_amount     BIGINT,
+  total_amount      BIGINT            NOT NULL,
+);
+
+
+CREATE STREAM top_up_stream
+PARTITION ON COLUMN account_id 
+EXPORT TO TOPIC top_up_topic
+WITH KEY (account_id)
+(
+  acct_tx_id        BIGINT           NOT NULL,
+  acct_tx_timestamp TIMESTAMP         NOT NULL,
+  account_id        INTEGER           NOT NULL,
+  topup_amount      BIGINT            NOT NULL,
+);
+
+-- Plates seen at two locations too far apart for the time between the scans, reported by the stream pipeline
+CREATE STREAM cloned_plate_stream
+PARTITION ON COLUMN plate_num
+EXPORT TO TOPIC cloned_plate_topic
+WITH KEY (plate_num)
+(
+  plate_num             VARCHAR(20)       NOT NULL,
+  first_scan_timestamp  TIMESTAMP         NOT NULL,
+  first_toll_loc        VARCHAR(64)       NOT NULL,
+  second_scan_timestamp TIMESTAMP         NOT NULL,
+  second_toll_loc       VARCHAR(64)       NOT NULL,
+  distance_km           FLOAT             NOT NULL,
+  elapsed_seconds       FLOAT             NOT NULL,
+  implied_speed_kmh     FLOAT             NOT NULL
+);
+
+-------------- VIEWS ----------------------------------------------------------
+
+CREATE VIEW highest_grossing_locations
+            (toll_loc, total_toll_amount)
+AS SELECT toll_loc, SUM(toll_amount) AS total_toll_amount from SCAN_HISTORY GROUP BY toll_loc;
+
+CREATE VIEW location_scans
+            (toll_loc, total_count)
+AS SELECT toll_loc, count(*) AS total_count from SCAN_HISTORY GROUP BY toll_loc;
+
+CREATE VIEW invalid_scans_locations
+            (toll_loc, invalid_count)
+AS SELECT toll_loc, COUNT(*) AS invalid_count from SCAN_HISTORY WHERE toll_reason = 'UNKNOWN_VEHICLE' GROUP BY toll_loc;
+
+CREATE VIEW vehicle_classes_freq
+            (vehicle_type, scan_count)
+AS SELECT vehicle_type,
+       COUNT(*) AS scan_count
+FROM SCAN_HISTORY
+GROUP BY vehicle_type;
+
+CREATE VIEW activity_by_minute AS
+SELECT TRUNCATE(MINUTE, SCAN_TIMESTAMP) SCAN_TIMESTAMP
+     , TOLL_LOC, SUM(TOTAL_AMOUNT) TOTAL_AMOUNT 
+     , COUNT(*) TOLLS_PER_MINUTE
+FROM scan_history 
+GROUP BY TRUNCATE(MINUTE, SCAN_TIMESTAMP), TOLL_LOC;
+
+-------------- SQL STORED PROCEDURES ---------------------------------------------
+CREATE PROCEDURE AddToBalance PARTITION ON TABLE ACCOUNTS COLUMN account_id PARAMETER 1 AS
+UPDATE ACCOUNTS SET balance = balance + ?
+WHERE account_id = ?;
+
+CREATE PROCEDURE GetPlateHistory PARTITION ON TABLE scan_history COLUMN plate_num AS
+SELECT * FROM SCAN_HISTORY 
+WHERE plate_num = ?  
+AND toll_loc = ? 
+AND toll_lane_num = ? 
+ORDER BY scan_timestamp DESC, scan_id DESC LIMIT ?;
+
+--
+-- Pages through the scans of a plate, newest first. Pass the scan_timestamp (twice) and scan_id of the last
+-- row of the previous page, or the largest timestamp and id for the first page. Served by sh_del_idx.
+--
+CREATE PROCEDURE GetPlateHistoryPage PARTITION ON TABLE scan_history COLUMN plate_num PARAMETER 0 AS
+SELECT * FROM SCAN_HISTORY
+WHERE plate_num = ?
+AND scan_timestamp <= ?
+AND (scan_timestamp < ? OR scan_id < ?)
+ORDER BY scan_timestamp DESC, scan_id DESC LIMIT ?;
+
+-- Called by the cloned plate detector of the stream pipeline
+CREATE PROCEDURE ReportClonedPlate PARTITION ON TABLE scan_history COLUMN plate_num PARAMETER 0 AS
+INSERT INTO cloned_plate_stream VALUES (?, ?, ?, ?, ?, ?, ?, ?);
+
+CREATE PROCEDURE GetReferenceDataVersion AS
+SELECT parameter_value FROM application_parameters WHERE parameter_name = 'REFERENCE_DATA_VERSION';
+
+CREATE PROCEDURE GetAccountHistory PARTITION ON TABLE account_history COLUMN account_id AS
+SELECT * FROM ACCOUNT_HISTORY 
+WHERE account_id = ? 
+ORDER BY acct_tx_timestamp DESC, acct_tx_id DESC LIMIT ?;
+
+--
+-- Pages through the transactions of an account, newest first, like GetPlateHistoryPage. Served by ah_acct_ts_idx.
+--
+CREATE PROCEDURE GetAccountHistoryPage PARTITION ON TABLE account_history COLUMN account_id PARAMETER 0 AS
+SELECT * FROM ACCOUNT_HISTORY
+WHERE account_id = ?
+AND acct_tx_timestamp <= ?
+AND (acct_tx_timestamp < ? OR acct_tx_id < ?)
+ORDER BY acct_tx_timestamp DESC, acct_tx_id DESC LIMIT ?;
+
+------------- SQL STORED PROCEDURES USED BY THE DASHBOARD ------------------------
+
+--
+-- Rows older than KEEP_MINUTES that the pruning has not deleted yet, and the oldest of them
+--
+CREATE PROCEDURE dashboard_pruning_lag AS
+SELECT COUNT(*) AS overdue_scans
+,      MIN(scan_timestamp) AS oldest_overdue_scan
+,      SINCE_EPOCH(SECOND, NOW) - SINCE_EPOCH(SECOND, MIN(scan_timestamp)) AS oldest_scan_age_seconds
+FROM scan_history
+WHERE scan_timestamp < DATEADD(MINUTE, -1 * (SELECT CAST(parameter_value AS INTEGER)
+                                             FROM application_parameters
+                                             WHERE parameter_name = 'KEEP_MINUTES'), NOW);
+
+CREATE PROCEDURE dashboard_parameters AS
+select * from APPLICATION_PARAMETERS ORDER BY parameter_name;
+
+CREATE PROCEDURE dashboard_gross AS
+select * from highest_grossing_locations order by TOTAL_TOLL_AMOUNT desc;
+
+CREATE PROCEDURE dashboard_fares AS
+select * from TOLL_LOCATIONS order by base_fare, toll_loc_id desc;
+
+CREATE PROCEDURE dashboard_location_scans AS
+SELECT * FROM location_scans ORDER BY toll_loc;
+
+CREATE PROCEDURE dashboard_top_10_accounts AS
+SELECT * FROM accounts ORDER BY balance desc limit 10;
+
+CREATE PROCEDURE dashboard_vehicle_classes AS
+SELECT vehicle_class, toll_multip FROM vehicle_types;
+
+CREATE PROCEDURE dashboard_vehicle_classes_freq AS
+SELECT vt.vehicle_class, f.scan_count
+FROM vehicle_classes_freq f
+JOIN vehicle_types vt ON f.vehicle_type = vt.vehicle_type;
+
+CREATE PROCEDURE dashboard_invalid_scans AS
+SELECT     l.toll_loc
+     ,     l.latitude
+     ,     l.longitude
+     ,     hgl.invalid_count AS invalid_count
+FROM     TOLL_LOCATIONS l
+LEFT JOIN     invalid_scans_locations hgl     ON         l.toll_loc = hgl.toll_loc ORDER BY     l.toll_loc;
+
+CREATE PROCEDURE dashboard_gross_map AS
+SELECT     l.toll_loc
+     ,     l.latitude
+     ,     l.longitude
+     ,     hgl.TOTAL_TOLL_AMOUNT AS TOTAL_TOLL_AMOUNT
+FROM     TOLL_LOCATIONS l
+             LEFT JOIN     highest_grossing_locations hgl     ON         l.toll_loc = hgl.toll_loc ORDER BY     l.toll_loc;
+
+--
+-- Buckets of one ACTIVITY_ROLLUP tier for a toll location over the last lookback minutes,
+-- with the bucket start in epoch milliseconds for Grafana to format
+--
+CREATE PROCEDURE dashboard_activity_rollup
+PARTITION ON TABLE activity_rollup COLUMN toll_loc PARAMETER 0 AS
+SELECT SINCE_EPOCH(MILLIS, bucket_start) AS bucket_start_millis
+,      total_amount
+,      scan_count
+FROM activity_rollup
+WHERE toll_loc = ?
+AND   tier_seconds = ?
+AND   bucket_start >= DATEADD(MINUTE, (-1 * ?), NOW)
+ORDER BY bucket_start;
+
+--
+-- Will return one row for each toll_loc for the last KEEP_MINUTES minutes
+--
+CREATE PROCEDURE dashboard_activity_by_minute AS 
+SELECT SCAN_TIMESTAMP
+,      CAST(YEAR(SCAN_TIMESTAMP)  AS VARCHAR)
+||'/'||CAST(MONTH(SCAN_TIMESTAMP)  AS VARCHAR) 
+||'/'||CAST(DAY(SCAN_TIMESTAMP)  AS VARCHAR) 
+||' '||CAST(HOUR(SCAN_TIMESTAMP)  AS VARCHAR) 
+||':'||DECODE(CAST(MINUTE(SCAN_TIMESTAMP) AS VARCHAR),'0','0'
+,'1','0'
+,'2','0'
+,'3','0'
+,'4','0'
+,'5','0'
+,'6','0'
+,'7','0'
+,'8','0'
+,'9','0'
+    ,'')
+     ||CAST(MINUTE(SCAN_TIMESTAMP)  AS VARCHAR)||':00' SCAN_TIMESTAMP_HHMM
+, TOLL_LOC, TOTAL_AMOUNT  
+, TOLLS_PER_MINUTE
+FROM activity_by_minute 
+WHERE TOLL_LOC = ? 
+AND   SCAN_TIMESTAMP  < DATEADD(MINUTE, (-1),NOW)
+ORDER BY toll_loc, SCAN_TIMESTAMP;
+
+-------------- JAVA STORED PROCEDURES --------------------------------------------
+
+CREATE PROCEDURE PARTITION ON TABLE scan_history COLUMN plate_num PARAMETER 3
+FROM CLASS com.voltdb.tollcollect.procedures.ProcessPlateCents;
+
+CREATE PROCEDURE PARTITION ON TABLE account_history COLUMN account_id PARAMETER 5
+FROM CLASS com.voltdb.tollcollect.procedures.ChargeAccountCents;
+
+-- Used by the top-up settlement consumer of TollCollectSettlement with --moneyModel=cents
+CREATE PROCEDURE PARTITION ON TABLE accounts COLUMN account_id PARAMETER 0
+FROM CLASS com.voltdb.tollcollect.procedures.SettleTopUpCents;
+
+-- Used by the dataset loader of the client with --moneyModel=cents. Parameter 0 is a partition key from
+-- @GetPartitionKeys
+CREATE PROCEDURE PARTITION ON TABLE accounts COLUMN account_id PARAMETER 0
+FROM CLASS com.voltdb.tollcollect.procedures.LoadAccountsCents;
+
+CREATE PROCEDURE PARTITION ON TABLE known_vehicles COLUMN plate_num PARAMETER 0
+FROM CLASS com.voltdb.tollcollect.procedures.LoadKnownVehicles;
+
+-- Toll locations for the cloned plate detector of the stream pipeline
+CREATE PROCEDURE FROM CLASS com.voltdb.tollcollect.procedures.GetReferenceData;
+
+-- Run after changing TOLL_LOCATIONS or VEHICLE_TYPES so that cached snapshots are refreshed
+CREATE PROCEDURE FROM CLASS com.voltdb.tollcollect.procedures.BumpReferenceDataVersion;
+
+-- Run on every partition by the prune_scan_history task
+CREATE PROCEDURE DIRECTED FROM CLASS com.voltdb.tollcollect.procedures.PruneScanHistory;
+
+-- Run by the rollup_activity task
+CREATE PROCEDURE FROM CLASS com.voltdb.tollcollect.procedures.RollupActivity;
+
+-------------- INDEXES -----------------------------------------------------------
+-- Define any indexes for TABLES or VIEWS on columns that are not a PRIMARY KEY.
+
+CREATE INDEX sh_del_idx ON scan_history(plate_num, scan_timestamp, scan_id) ;
+
+CREATE INDEX sh_ttl_idx ON scan_history(scan_timestamp) ;
+
+CREATE INDEX ah_acct_ts_idx ON account_history(account_id, acct_tx_timestamp, acct_tx_id) ;
+
+CREATE INDEX sh_prune_idx ON scan_history(scan_timestamp, scan_id, plate_num) ;
+
+CREATE INDEX abm_ts_idx ON activity_by_minute(scan_timestamp) ;
+
+CREATE INDEX ar_tier_idx ON activity_rollup(tier_seconds, bucket_start) ;
+
+-------------- SCHEDULED TASKS --------------------------------------------------
+-- Define tasks to execute stored procedures on a schedule
+
+-- Enforce KEEP_MINUTES in bounded chunks on every partition
+CREATE TASK prune_scan_history ON SCHEDULE DELAY 1 SECONDS
+PROCEDURE PruneScanHistory RUN ON PARTITIONS;
+
+-- Roll completed minutes up into ACTIVITY_ROLLUP before pruning removes their scans
+CREATE TASK rollup_activity ON SCHEDULE DELAY 15 SECONDS
+PROCEDURE RollupActivity;
+
+-- All statements from the start to here succeed or fail as a unit..
+
+END_OF_BATCH
@@ -6,11 +6,31 @@
 -- https://opensource.org/licenses/MIT.
 --
 
+DROP TASK prune_scan_history IF EXISTS;
+DROP TASK rollup_activity IF EXISTS;
+
 DROP PROCEDURE ChargeAccount IF EXISTS;
 DROP PROCEDURE ProcessPlate IF EXISTS;
+DROP PROCEDURE ProcessPlatePriced IF EXISTS;
+DROP PROCEDURE ProcessPlateBatch IF EXISTS;
+DROP PROCEDURE LoadAccounts IF EXISTS;
+DROP PROCEDURE LoadAccountsCents IF EXISTS;
+DROP PROCEDURE LoadKnownVehicles IF EXISTS;
+DROP PROCEDURE PruneScanHistory IF EXISTS;
+DROP PROCEDURE RollupActivity IF EXISTS;
+DROP PROCEDURE ChargeAccountCents IF EXISTS;
+DROP PROCEDURE ProcessPlateCents IF EXISTS;
+DROP PROCEDURE GetReferenceData IF EXISTS;
+DROP PROCEDURE GetReferenceDataVersion IF EXISTS;
+DROP PROCEDURE BumpReferenceDataVersion IF EXISTS;
 DROP PROCEDURE AddToBalance IF EXISTS;
 DROP PROCEDURE GetPlateHistory IF EXISTS;
 DROP PROCEDURE GetAccountHistory IF EXISTS;
+DROP PROCEDURE ReportClonedPlate IF EXISTS;
+DROP PROCEDURE GetPlateHistoryPage IF EXISTS;
+DROP PROCEDURE GetAccountHistoryPage IF EXISTS;
+DROP PROCEDURE SettleTopUp IF EXISTS;
+DROP PROCEDURE SettleTopUpCents IF EXISTS;
 
 DROP PROCEDURE dashboard_gross IF EXISTS;
 DROP PROCEDURE dashboard_fares IF EXISTS;
@@ -19,6 +39,8 @@ DROP PROCEDURE dashboard_top_10_accounts IF EXISTS;
 DROP PROCEDURE dashboard_vehicle_classes IF EXISTS;
 DROP PROCEDURE dashboard_invalid_scans IF EXISTS; 
 DROP PROCEDURE dashboard_parameters IF EXISTS; 
+DROP PROCEDURE dashboard_pruning_lag IF EXISTS;
+DROP PROCEDURE dashboard_activity_rollup IF EXISTS;
 
 DROP VIEW highest_grossing_locations IF EXISTS;
 DROP VIEW location_scans IF EXISTS;
@@ -31,9 +53,13 @@ DROP TABLE KNOWN_VEHICLES IF EXISTS;
 DROP TABLE SCAN_HISTORY IF EXISTS;
 DROP TABLE ACCOUNTS IF EXISTS;
 DROP TABLE ACCOUNT_HISTORY IF EXISTS;
+DROP TABLE ACTIVITY_ROLLUP IF EXISTS;
+DROP TABLE ACTIVITY_ROLLUP_WATERMARK IF EXISTS;
 DROP TABLE APPLICATION_PARAMETERS IF EXISTS;
+DROP TABLE TOP_UP_SETTLEMENTS IF EXISTS;
 
 DROP STREAM bill_by_mail_export IF EXISTS;
 DROP STREAM top_up_export IF EXISTS;
+DROP STREAM cloned_plate_stream IF EXISTS;
 
 
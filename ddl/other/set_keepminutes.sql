@@ -15,3 +15,16 @@ UPSERT INTO application_parameters
 VALUES
 ('KEEP_MINUTES','10');
 
+-- 1 = ProcessPlate also deletes up to 2 stale rows per scan, 0 = only the
+-- prune_scan_history task does
+UPSERT INTO application_parameters
+(parameter_name, parameter_value)
+VALUES
+('INLINE_PRUNING','0');
+
+-- Version of TOLL_LOCATIONS and VEHICLE_TYPES, bumped by BumpReferenceDataVersion
+-- after changing them so that cached copies in the stream pipeline are refreshed
+UPSERT INTO application_parameters
+(parameter_name, parameter_value)
+VALUES
+('REFERENCE_DATA_VERSION','0');
@@ -0,0 +1,55 @@
+#!/usr/bin/env bash
+#
+# Copyright (C) 2025 Volt Active Data Inc.
+#
+# Use of this source code is governed by an MIT
+# license that can be found in the LICENSE file or at
+# https://opensource.org/licenses/MIT.
+#
+
+# Finds the capacity of the 1, 2 and 3 node topologies in turn with the capacity mode of TollCollectClient.
+# Each topology is started without the pipeline, measured and removed again. Results are written to
+# capacity-<n>node.json and compared with baselines/capacity-<n>node.json when it exists.
+#
+#   ./capacity-finder.sh [1 2 3] [-- capacity options, e.g. --sloP99Millis=20 --stepRate=2000]
+#
+# Exits with status 2 if any topology regressed against its baseline.
+
+set -euo pipefail
+cd "$(dirname "$0")"
+
+topologies=()
+while [[ $# -gt 0 && "$1" != "--" ]]; do
+  topologies+=("$1")
+  shift
+done
+[[ $# -gt 0 ]] && shift
+[[ ${#topologies[@]} -eq 0 ]] && topologies=(1 2 3)
+
+client_jar=${CLIENT_JAR:-../../../../TollCollectClient/target/TollCollectClient-1.0-SNAPSHOT.jar}
+status=0
+
+for nodes in "${topologies[@]}"; do
+  compose="docker-compose-${nodes}dbnodes.yaml"
+  case $nodes in
+    1) servers=localhost:21212 ;;
+    2) servers=localhost:21212,localhost:31212 ;;
+    3) servers=localhost:21212,localhost:31212,localhost:41212 ;;
+    *) echo "Unknown topology $nodes, expected 1, 2 or 3" >&2; exit 1 ;;
+  esac
+
+  echo "Measuring the ${nodes} node topology"
+  # The pipeline would compete with the offered load
+  docker compose -f "$compose" up -d --scale voltsp=0
+  docker wait voltdb-init > /dev/null
+
+  baseline=()
+  [[ -f "baselines/capacity-${nodes}node.json" ]] && baseline=(--baseline="baselines/capacity-${nodes}node.json")
+
+  java -jar "$client_jar" capacity --servers="$servers" --output="capacity-${nodes}node.json" \
+      "${baseline[@]}" "$@" || status=$?
+
+  docker compose -f "$compose" down -v
+done
+
+exit $status